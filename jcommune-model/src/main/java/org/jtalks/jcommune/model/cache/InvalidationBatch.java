@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keys of cache elements that were changed on some node of the cluster and therefore have to be evicted on other
+ * nodes. Keys are grouped by caches, so that the name of a cache is sent once per batch and the same key changed
+ * several times gets into the batch only once.
+ */
+public class InvalidationBatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final Map<String, Set<Serializable>> keysByCache = new HashMap<>();
+    private final Set<String> clearedCaches = new HashSet<>();
+    private int size;
+
+    /**
+     * Adds a key to be evicted.
+     *
+     * @param cacheName the name of the cache the key belongs to
+     * @param key       the key of the changed element
+     */
+    void addKey(String cacheName, Serializable key) {
+        if (clearedCaches.contains(cacheName)) {
+            return;
+        }
+        Set<Serializable> keys = keysByCache.get(cacheName);
+        if (keys == null) {
+            keys = new HashSet<>();
+            keysByCache.put(cacheName, keys);
+        }
+        if (keys.add(key)) {
+            size++;
+        }
+    }
+
+    /**
+     * Marks the whole cache to be cleared, separate keys of it are not needed anymore.
+     *
+     * @param cacheName the name of the cache that was cleared
+     */
+    void addClearedCache(String cacheName) {
+        Set<Serializable> keys = keysByCache.remove(cacheName);
+        size -= keys == null ? 0 : keys.size();
+        if (clearedCaches.add(cacheName)) {
+            size++;
+        }
+    }
+
+    /**
+     * @return keys to be evicted grouped by the names of caches they belong to
+     */
+    public Map<String, Set<Serializable>> getKeysByCache() {
+        return Collections.unmodifiableMap(keysByCache);
+    }
+
+    /**
+     * @return the names of caches to be cleared completely
+     */
+    public Set<String> getClearedCaches() {
+        return Collections.unmodifiableSet(clearedCaches);
+    }
+
+    /**
+     * @return how many keys and cleared caches the batch contains
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there is nothing to invalidate
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
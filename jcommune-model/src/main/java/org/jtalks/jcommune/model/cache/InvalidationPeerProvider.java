@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.distribution.CacheManagerPeerProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects keys of changed cache elements of a cache manager and sends them to other nodes in batches. Instead of
+ * sending every change separately, changes are gathered during a short window (a millisecond by default) and then
+ * sent together, which keeps the number of network messages low when e.g. a topic with all its posts is changed.
+ * Batches received from other nodes are applied to the caches of the same names in this cache manager.
+ * <p>It doesn't use {@link net.sf.ehcache.distribution.CachePeer}s, {@link InvalidationReplicator}s of the caches
+ * talk to it directly.</p>
+ */
+public class InvalidationPeerProvider implements CacheManagerPeerProvider, InvalidationTransport.Receiver {
+    /**
+     * The scheme under which the provider is registered in the cache manager.
+     */
+    public static final String SCHEME = "Invalidation";
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationPeerProvider.class);
+    private final CacheManager cacheManager;
+    private final InvalidationTransport transport;
+    private final long batchWindowMillis;
+    private final int maxBatchSize;
+    private ScheduledExecutorService sender;
+    /**
+     * Changes that haven't been sent yet, guarded by {@code this}.
+     */
+    private InvalidationBatch pending = new InvalidationBatch();
+    private boolean sendingScheduled;
+
+    /**
+     * @param cacheManager      to apply invalidations received from other nodes to
+     * @param transport         to exchange batches with other nodes
+     * @param batchWindowMillis how long changes are gathered before they are sent
+     * @param maxBatchSize      how many keys make a batch to be sent without waiting for the end of the window
+     */
+    public InvalidationPeerProvider(CacheManager cacheManager, InvalidationTransport transport,
+                                    long batchWindowMillis, int maxBatchSize) {
+        this.cacheManager = cacheManager;
+        this.transport = transport;
+        this.batchWindowMillis = batchWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Joins the cluster and starts a thread to send batches from.
+     */
+    @Override
+    public synchronized void init() {
+        if (sender != null) {
+            return;
+        }
+        sender = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cache-invalidation-" + cacheManager.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        transport.connect(this);
+        if (!pending.isEmpty()) {
+            sendingScheduled = true;
+            sender.schedule(new FlushTask(), batchWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queues the key to be evicted on other nodes.
+     *
+     * @param cache the cache the element was changed in
+     * @param key   the key of the changed element, nothing is sent if it's not serializable
+     */
+    public void invalidate(Ehcache cache, Object key) {
+        if (!(key instanceof Serializable)) {
+            LOGGER.debug("Key [{}] of cache [{}] is not serializable and won't be invalidated on other nodes",
+                    key, cache.getName());
+            return;
+        }
+        synchronized (this) {
+            pending.addKey(cache.getName(), (Serializable) key);
+            scheduleSending();
+        }
+    }
+
+    /**
+     * Queues the cache to be cleared on other nodes.
+     *
+     * @param cache the cache that was cleared
+     */
+    public synchronized void invalidateAll(Ehcache cache) {
+        pending.addClearedCache(cache.getName());
+        scheduleSending();
+    }
+
+    /**
+     * Sends all the pending changes right away.
+     */
+    public void flush() {
+        InvalidationBatch batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new InvalidationBatch();
+            sendingScheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            transport.send(batch);
+        }
+    }
+
+    /**
+     * Evicts the keys received from another node. Replicators are not notified, so that evictions don't get back to
+     * the cluster.
+     *
+     * @param batch keys to be evicted
+     */
+    @Override
+    public void receive(InvalidationBatch batch) {
+        for (String cacheName : batch.getClearedCaches()) {
+            Ehcache cache = cacheManager.getEhcache(cacheName);
+            if (cache != null) {
+                cache.removeAll(true);
+            }
+        }
+        for (Map.Entry<String, Set<Serializable>> entry : batch.getKeysByCache().entrySet()) {
+            Ehcache cache = cacheManager.getEhcache(entry.getKey());
+            if (cache == null) {
+                continue;
+            }
+            for (Serializable key : entry.getValue()) {
+                cache.remove(key, true);
+            }
+        }
+    }
+
+    /**
+     * Sends what's left and leaves the cluster.
+     */
+    @Override
+    public void dispose() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = sender;
+            sender = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        flush();
+        transport.close();
+    }
+
+    /**
+     * Nodes are not tracked by the provider, the transport takes care of them.
+     *
+     * @param rmiUrl ignored
+     */
+    @Override
+    public void registerPeer(String rmiUrl) {
+        //empty
+    }
+
+    /**
+     * Nodes are not tracked by the provider, the transport takes care of them.
+     *
+     * @param rmiUrl ignored
+     */
+    @Override
+    public void unregisterPeer(String rmiUrl) {
+        //empty
+    }
+
+    /**
+     * Invalidations are sent without {@link net.sf.ehcache.distribution.CachePeer}s.
+     *
+     * @param cache ignored
+     * @return an empty list
+     */
+    @Override
+    public List listRemoteCachePeers(Ehcache cache) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTimeForClusterToForm() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    /**
+     * Sends pending changes when the window ends or right away if there are enough of them. Must be called with the
+     * lock held.
+     */
+    private void scheduleSending() {
+        if (sender == null) {
+            return;
+        }
+        if (pending.size() >= maxBatchSize) {
+            sendingScheduled = true;
+            sender.execute(new FlushTask());
+        } else if (!sendingScheduled) {
+            sendingScheduled = true;
+            sender.schedule(new FlushTask(), batchWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends pending changes from the sender thread.
+     */
+    private class FlushTask implements Runnable {
+        @Override
+        public void run() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.distribution.CacheManagerPeerProvider;
+import net.sf.ehcache.distribution.CacheManagerPeerProviderFactory;
+
+import java.util.Properties;
+
+/**
+ * Creates {@link InvalidationPeerProvider}s from the cache configuration. Supported properties:
+ * <ul>
+ * <li>{@code transport} - the class of {@link InvalidationTransport}, {@link JGroupsInvalidationTransport} by
+ * default. All the properties are passed to its constructor.</li>
+ * <li>{@code batchWindowMillis} - how long changes are gathered before they are sent, 1 by default.</li>
+ * <li>{@code maxBatchSize} - how many keys are sent without waiting for the window to end, 500 by default.</li>
+ * </ul>
+ */
+public class InvalidationPeerProviderFactory extends CacheManagerPeerProviderFactory {
+    static final String TRANSPORT_PROPERTY = "transport";
+    static final String BATCH_WINDOW_PROPERTY = "batchWindowMillis";
+    static final String MAX_BATCH_SIZE_PROPERTY = "maxBatchSize";
+    private static final String DEFAULT_BATCH_WINDOW = "1";
+    private static final String DEFAULT_MAX_BATCH_SIZE = "500";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheManagerPeerProvider createCachePeerProvider(CacheManager cacheManager, Properties properties) {
+        long batchWindow = Long.parseLong(
+                properties.getProperty(BATCH_WINDOW_PROPERTY, DEFAULT_BATCH_WINDOW).trim());
+        int maxBatchSize = Integer.parseInt(
+                properties.getProperty(MAX_BATCH_SIZE_PROPERTY, DEFAULT_MAX_BATCH_SIZE).trim());
+        return new InvalidationPeerProvider(cacheManager, createTransport(properties), batchWindow, maxBatchSize);
+    }
+
+    private InvalidationTransport createTransport(Properties properties) {
+        String transportClass = properties.getProperty(TRANSPORT_PROPERTY);
+        if (transportClass == null) {
+            return new JGroupsInvalidationTransport(properties);
+        }
+        try {
+            return Class.forName(transportClass.trim()).asSubclass(InvalidationTransport.class)
+                    .getConstructor(Properties.class).newInstance(properties);
+        } catch (ReflectiveOperationException e) {
+            throw new CacheException("Could not create cache invalidation transport " + transportClass, e);
+        }
+    }
+}
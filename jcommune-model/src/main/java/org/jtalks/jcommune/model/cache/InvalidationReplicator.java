@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.distribution.CacheManagerPeerProvider;
+import net.sf.ehcache.distribution.CacheReplicator;
+
+/**
+ * Listens to changes of a cache and passes keys of updated and removed elements to the {@link
+ * InvalidationPeerProvider} of the cache manager, so that they are evicted on other nodes. Puts are not replicated:
+ * a new element on this node doesn't make elements of other nodes stale. Neither are expirations and evictions,
+ * they are local decisions of each node.
+ */
+public class InvalidationReplicator implements CacheReplicator {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementPut(Ehcache cache, Element element) throws CacheException {
+        //empty
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementUpdated(Ehcache cache, Element element) throws CacheException {
+        InvalidationPeerProvider provider = providerOf(cache);
+        if (provider != null) {
+            provider.invalidate(cache, element.getObjectKey());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementRemoved(Ehcache cache, Element element) throws CacheException {
+        InvalidationPeerProvider provider = providerOf(cache);
+        if (provider != null) {
+            provider.invalidate(cache, element.getObjectKey());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyRemoveAll(Ehcache cache) {
+        InvalidationPeerProvider provider = providerOf(cache);
+        if (provider != null) {
+            provider.invalidateAll(cache);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementExpired(Ehcache cache, Element element) {
+        //empty
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementEvicted(Ehcache cache, Element element) {
+        //empty
+    }
+
+    /**
+     * Only keys are sent, never the elements themselves.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isReplicateUpdatesViaCopy() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean notAlive() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean alive() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispose() {
+        //empty
+    }
+
+    /**
+     * The replicator has no state, so a new instance is as good as a copy.
+     *
+     * @return a new replicator
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        return new InvalidationReplicator();
+    }
+
+    private InvalidationPeerProvider providerOf(Ehcache cache) {
+        if (cache.getCacheManager() == null) {
+            return null;
+        }
+        CacheManagerPeerProvider provider = cache.getCacheManager()
+                .getCacheManagerPeerProvider(InvalidationPeerProvider.SCHEME);
+        return provider instanceof InvalidationPeerProvider ? (InvalidationPeerProvider) provider : null;
+    }
+}
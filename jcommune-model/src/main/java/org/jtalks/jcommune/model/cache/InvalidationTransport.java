@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+/**
+ * Delivers batches of invalidations between the nodes of the cluster. Implementations must have a public constructor
+ * that takes {@link java.util.Properties} of the {@link InvalidationPeerProviderFactory} so that they can be chosen
+ * in the cache configuration.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Joins the cluster, since this moment batches sent by other nodes are passed to the receiver.
+     *
+     * @param receiver to pass batches received from other nodes to
+     */
+    void connect(Receiver receiver);
+
+    /**
+     * Sends the batch to all other nodes of the cluster, the batch must not be delivered back to this node.
+     *
+     * @param batch keys to be evicted on other nodes
+     */
+    void send(InvalidationBatch batch);
+
+    /**
+     * Leaves the cluster and releases the resources of the transport.
+     */
+    void close();
+
+    /**
+     * Handles batches that came from other nodes.
+     */
+    interface Receiver {
+        /**
+         * @param batch keys to be evicted on this node
+         */
+        void receive(InvalidationBatch batch);
+    }
+}
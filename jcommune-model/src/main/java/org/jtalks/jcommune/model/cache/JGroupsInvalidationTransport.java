@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import net.sf.ehcache.CacheException;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Sends invalidations over JGroups, usually via UDP multicast. The protocol stack is taken from the {@code connect}
+ * property (whitespaces are ignored so that it can be split into lines), the name of the cluster from the {@code
+ * clusterName} property.
+ */
+public class JGroupsInvalidationTransport implements InvalidationTransport {
+    static final String CONNECT_PROPERTY = "connect";
+    static final String CLUSTER_NAME_PROPERTY = "clusterName";
+    static final String DEFAULT_CLUSTER_NAME = "jcommune-cache-invalidation";
+    private static final Logger LOGGER = LoggerFactory.getLogger(JGroupsInvalidationTransport.class);
+    private final String protocolStack;
+    private final String clusterName;
+    private JChannel channel;
+
+    /**
+     * @param properties properties of the peer provider with JGroups protocol stack and cluster name
+     */
+    public JGroupsInvalidationTransport(Properties properties) {
+        String connect = properties.getProperty(CONNECT_PROPERTY);
+        this.protocolStack = connect == null ? null : connect.replaceAll("\\s", "");
+        this.clusterName = properties.getProperty(CLUSTER_NAME_PROPERTY, DEFAULT_CLUSTER_NAME);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void connect(final Receiver receiver) {
+        try {
+            channel = protocolStack == null ? new JChannel() : new JChannel(protocolStack);
+            channel.setReceiver(new ReceiverAdapter() {
+                @Override
+                public void receive(Message message) {
+                    Address source = message.getSrc();
+                    if (source != null && source.equals(channel.getAddress())) {
+                        return;
+                    }
+                    Object batch = message.getObject();
+                    if (batch instanceof InvalidationBatch) {
+                        receiver.receive((InvalidationBatch) batch);
+                    }
+                }
+            });
+            channel.connect(clusterName);
+        } catch (Exception e) {
+            throw new CacheException("Could not join the cache invalidation cluster " + clusterName, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(InvalidationBatch batch) {
+        try {
+            channel.send(new Message(null, null, batch));
+        } catch (Exception e) {
+            LOGGER.warn("Could not send {} cache invalidations to the cluster {}",
+                    new Object[]{batch.size(), clusterName, e});
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.model.dao;
 
 import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.dto.BranchStatistics;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
@@ -51,6 +52,24 @@ public interface BranchDao extends Crud<Branch> {
      */
     int getCountPostsInBranch(Branch branch);
 
+    /**
+     * Get counters of topics and posts for all the specified branches with a single query.
+     *
+     * @param branchIds identifiers of the branches to get statistics for
+     * @return statistics of the found branches, branches that don't exist are skipped
+     */
+    List<BranchStatistics> getStatistics(Collection<Long> branchIds);
+
+    /**
+     * Atomically changes counters of topics and posts in the branch. Should be invoked
+     * in the same transaction as the operation which creates, deletes or moves topics or posts.
+     *
+     * @param branch            the branch to change counters of
+     * @param topicCountChange  value to add to the count of topics, may be negative
+     * @param postCountChange   value to add to the count of posts, may be negative
+     */
+    void changeStatistics(Branch branch, int topicCountChange, int postCountChange);
+
     /**
      * Get subscribers for specified branch with allowed permission to read this branch.
      *
@@ -62,4 +62,23 @@ public interface GroupDao extends org.jtalks.common.model.dao.GroupDao {
      * @return list of GroupAdministrationDto
      */
     List<GroupAdministrationDto> getGroupNamesWithCountOfUsers();
+
+    /**
+     * Makes users members of the group with a bulk query, without loading members of the group. Users that are
+     * already members of the group or don't exist are skipped. Users already loaded in the session are reloaded to
+     * get their new groups.
+     *
+     * @param group   group to add users to
+     * @param userIds IDs of users to add, nothing is changed if it's {@code null} or empty
+     */
+    void addUsers(Group group, List<Long> userIds);
+
+    /**
+     * Removes users from the group with a bulk query, without loading members of the group. Users that are not
+     * members of the group are skipped. Users already loaded in the session are reloaded to get their new groups.
+     *
+     * @param group   group to remove users from
+     * @param userIds IDs of users to remove, nothing is changed if it's {@code null} or empty
+     */
+    void removeUsers(Group group, List<Long> userIds);
 }
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao;
+
+import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Poll;
+
+import java.util.Collection;
+
+/**
+ * DAO for the {@link Poll} objects and ballots of users who voted in them.
+ *
+ * @see org.jtalks.jcommune.model.dao.hibernate.PollHibernateDao
+ */
+public interface PollDao extends Crud<Poll> {
+
+    /**
+     * Records that the user has voted in the poll unless there is a ballot of the user already. The unique key of
+     * ballots is left as the last resort against concurrent votes of the same user, the loser of such a race fails
+     * with an exception.
+     *
+     * @param poll the poll the user votes in
+     * @param user the user who votes
+     * @return {@code true} if the vote is recorded, {@code false} if the user has already voted in the poll
+     */
+    boolean addVote(Poll poll, JCUser user);
+
+    /**
+     * Checks whether the user has voted in the poll.
+     *
+     * @param poll the poll to check
+     * @param user the user to check
+     * @return whether the user has voted in the poll
+     */
+    boolean hasVoted(Poll poll, JCUser user);
+
+    /**
+     * Adds a vote to each of the options with atomic updates, so concurrent votes are never lost.
+     * Options which don't belong to the poll are skipped.
+     *
+     * @param poll      the poll the options belong to
+     * @param optionIds identifiers of the options to add a vote to
+     */
+    void increaseVotesCount(Poll poll, Collection<Long> optionIds);
+}
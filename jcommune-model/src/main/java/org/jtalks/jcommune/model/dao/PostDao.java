@@ -19,6 +19,7 @@ import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
+import org.jtalks.jcommune.model.entity.PostVote;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.springframework.data.domain.Page;
 
@@ -76,9 +77,71 @@ public interface PostDao extends Crud<Post> {
      */
     List<Post> getLastPostsFor(List<Long> branchIds, int postCount);
 
+    /**
+     * Get index of the post in its topic using count of the posts created before it, so posts
+     * of the topic are not loaded. Posts created at the same time are ordered by their ids.
+     *
+     * @param post post to find index for
+     * @return index of the post in the topic, starting from 0
+     */
+    int getPostIndexInTopic(Post post);
+
+    /**
+     * Gets the first post of the topic without loading the other posts of the topic.
+     *
+     * @param topic topic to get the first post of
+     * @return the first post of the topic or null if topic has no posts
+     */
+    Post getFirstPost(Topic topic);
+
+    /**
+     * Gets count of posts in the topic, posts are counted by database.
+     *
+     * @param topic topic to count posts of
+     * @return count of posts in the topic
+     */
+    int getPostCount(Topic topic);
+
+    /**
+     * Gets count of posts left by the user in the topic, posts are counted by database.
+     *
+     * @param topic topic to count posts of
+     * @param user  author of the posts
+     * @return count of posts of the user in the topic
+     */
+    int getUserPostCount(Topic topic, JCUser user);
+
+    /**
+     * Gets replies to the first post of the topic ordered by rating, posts with the same rating are ordered
+     * from the newest to the oldest. Only the requested count of replies is loaded.
+     *
+     * @param firstPost first post of the topic, it's not included into result
+     * @param count max count of replies to return
+     * @return replies with the highest rating
+     */
+    List<Post> getRepliesByRating(Post firstPost, int count);
+
+    /**
+     * Gets vote of the user for the post. Vote is looked up by the unique key of user and post,
+     * so other votes of the post are not loaded.
+     *
+     * @param post voted post
+     * @param user voted user
+     * @return vote of the user or null if user hasn't voted for the post yet
+     */
+    PostVote getVote(Post post, JCUser user);
+
+    /**
+     * Saves new or changed vote. Only the cached votes of the voted post are evicted from the second level cache.
+     *
+     * @param vote vote to save
+     */
+    void saveVote(PostVote vote);
+
     /**
      * Changes rating of post with specified id by specified value.
      * This method can be used for increasing or decreasing post rating.
+     * Only the changed post is evicted from the second level cache.
      *
      * @param postId id of the post to change rating
      * @param changes value to be added to rating. If changes is positive, rating will be increased on <b>changes</b>
@@ -87,4 +150,14 @@ public interface PostDao extends Crud<Post> {
      */
     void changeRating(Long postId, int changes);
 
+    /**
+     * Changes the count of posts of the user with an atomic update, so the versioned user entity isn't updated and
+     * parallel posts of the same user don't conflict. The count of the passed user object is changed as well, only
+     * this user is evicted from the second level cache.
+     *
+     * @param author user whose posts were created or removed
+     * @param change value to be added to the post count, negative to decrease it
+     */
+    void changePostCountOfAuthor(JCUser author, int change);
+
 }
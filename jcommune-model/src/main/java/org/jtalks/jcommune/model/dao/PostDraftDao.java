@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao;
+
+import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.dao.hibernate.PostDraftHibernateDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PostDraft;
+import org.jtalks.jcommune.model.entity.Topic;
+
+/**
+ * DAO for {@link PostDraft} objects
+ *
+ * @see PostDraftHibernateDao
+ */
+public interface PostDraftDao extends Crud<PostDraft> {
+    /**
+     * Gets draft of the user in the topic. Draft is looked up in the database, so other drafts of the topic
+     * are not loaded and drafts written by other nodes of the cluster are found.
+     *
+     * @param topic  topic the draft is left in
+     * @param author author of the draft
+     * @return the draft or null if user has no draft in the topic
+     */
+    PostDraft getDraft(Topic topic, JCUser author);
+}
@@ -20,6 +20,8 @@ import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.PrivateMessage;
 import org.springframework.data.domain.Page;
 
+import java.util.List;
+
 /**
  * DAO interface for private messaging. Except of basic CRUD operations from {@link Crud}
  * provides methods to get all messages from some user or to the user.
@@ -69,4 +71,67 @@ public interface PrivateMessageDao extends Crud<PrivateMessage> {
      * @return count of new messages
      */
     int getNewMessagesCountFor(String username);
+
+    /**
+     * Deletes drafts of the user with one statement. Ids of messages which are not drafts of the
+     * user are ignored.
+     *
+     * @param author author of the drafts
+     * @param ids    ids of the drafts to delete, {@code null} means all the drafts of the user
+     * @return count of deleted drafts
+     */
+    int deleteDrafts(JCUser author, List<Long> ids);
+
+    /**
+     * Deletes messages from the outbox of the user which were already removed by the recipient, that is
+     * which have {@link org.jtalks.jcommune.model.entity.PrivateMessageStatus#DELETED_FROM_INBOX} status,
+     * with one statement. Ids of other messages are ignored.
+     *
+     * @param sender sender of the messages
+     * @param ids    ids of the messages to delete, {@code null} means the whole outbox
+     * @return count of deleted messages
+     */
+    int deleteRemovedByRecipient(JCUser sender, List<Long> ids);
+
+    /**
+     * Deletes messages from the inbox of the user which were already removed by the sender, that is
+     * which have {@link org.jtalks.jcommune.model.entity.PrivateMessageStatus#DELETED_FROM_OUTBOX} status,
+     * with one statement. Ids of other messages are ignored.
+     *
+     * @param recipient recipient of the messages
+     * @param ids       ids of the messages to delete, {@code null} means the whole inbox
+     * @return count of deleted messages
+     */
+    int deleteRemovedBySender(JCUser recipient, List<Long> ids);
+
+    /**
+     * Marks sent messages of the user as
+     * {@link org.jtalks.jcommune.model.entity.PrivateMessageStatus#DELETED_FROM_OUTBOX} with one statement.
+     * Ids of messages which are not sent by the user or not in {@code SENT} status are ignored.
+     *
+     * @param sender sender of the messages
+     * @param ids    ids of the messages to mark, {@code null} means the whole outbox
+     * @return count of marked messages
+     */
+    int markAsDeletedFromOutbox(JCUser sender, List<Long> ids);
+
+    /**
+     * Marks received messages of the user as
+     * {@link org.jtalks.jcommune.model.entity.PrivateMessageStatus#DELETED_FROM_INBOX} with one statement.
+     * Ids of messages which are not sent to the user or not in {@code SENT} status are ignored.
+     *
+     * @param recipient recipient of the messages
+     * @param ids       ids of the messages to mark, {@code null} means the whole inbox
+     * @return count of marked messages
+     */
+    int markAsDeletedFromInbox(JCUser recipient, List<Long> ids);
+
+    /**
+     * Marks unread messages from the inbox of the user as read with one statement.
+     *
+     * @param recipient recipient of the messages
+     * @param ids       ids of the messages to mark, {@code null} means the whole inbox
+     * @return count of messages which were unread before
+     */
+    int markAsRead(JCUser recipient, List<Long> ids);
 }
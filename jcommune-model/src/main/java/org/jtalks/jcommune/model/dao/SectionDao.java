@@ -15,11 +15,11 @@
 package org.jtalks.jcommune.model.dao;
 
 import org.jtalks.common.model.dao.Crud;
-import org.jtalks.common.model.entity.Branch;
 import org.jtalks.common.model.entity.Section;
 import org.jtalks.jcommune.model.entity.JCUser;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for the {@link Section} objects.
@@ -37,18 +37,12 @@ public interface SectionDao extends Crud<Section> {
     List<Section> getAll();
 
     /**
-     * Get count branches with VIEW_TOPICS permission
-     * @param user current user
-     * @param branches branches of current section
-     * @return count branches
-     */
-    long getCountAvailableBranches(JCUser user, List<Branch> branches);
-
-    /**
-     * Gets IDs of the branches with VIEW_TOPICS permission
+     * Gets IDs of the branches with VIEW_TOPICS permission of all the sections with a single query. Visibility
+     * depends only on the groups of the user, so the result can be shared by the users with the same groups.
+     *
      * @param user current user
-     * @param branches all branches of current section
-     * @return IDs of the branches which the user can view
+     * @return IDs of the branches which the user can view, keyed by IDs of their sections. Sections without such
+     *         branches are not included
      */
-    List<Long> getAvailableBranchIds(JCUser user, List<Branch> branches);
+    Map<Long, List<Long>> getVisibleBranchIdsOfSections(JCUser user);
 }
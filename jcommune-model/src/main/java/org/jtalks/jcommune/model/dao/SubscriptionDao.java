@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao;
+
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
+
+/**
+ * DAO for subscriptions of users to topics and branches. Subscriptions are changed and checked row by row, so
+ * subscribers of the entity are never loaded for that. Subscriptions to a post are the ones to its topic.
+ *
+ * @see org.jtalks.jcommune.model.dao.hibernate.SubscriptionHibernateDao
+ */
+public interface SubscriptionDao {
+
+    /**
+     * Subscribes the user to the entity. The subscription is inserted only if there is none yet, the unique key
+     * of subscriptions still prevents concurrent subscriptions of the same user from both getting through.
+     *
+     * @param entity topic, post or branch to subscribe to
+     * @param user   the user to subscribe
+     * @return {@code true} if the user is subscribed, {@code false} if the user has already been subscribed
+     */
+    boolean addSubscriber(SubscriptionAwareEntity entity, JCUser user);
+
+    /**
+     * Unsubscribes the user from the entity.
+     *
+     * @param entity topic, post or branch to unsubscribe from
+     * @param user   the user to unsubscribe
+     * @return {@code true} if the user is unsubscribed, {@code false} if the user hasn't been subscribed
+     */
+    boolean removeSubscriber(SubscriptionAwareEntity entity, JCUser user);
+
+    /**
+     * Checks whether the user is subscribed to the entity.
+     *
+     * @param entity topic, post or branch to check
+     * @param user   the user to check
+     * @return whether the user is subscribed to the entity
+     */
+    boolean isSubscribed(SubscriptionAwareEntity entity, JCUser user);
+
+    /**
+     * Counts subscribers of the entity.
+     *
+     * @param entity topic, post or branch to count subscribers of
+     * @return count of users subscribed to the entity
+     */
+    int getSubscribersCount(SubscriptionAwareEntity entity);
+}
@@ -110,4 +110,32 @@ public interface TopicDao extends Crud<Topic> {
      * @return
      */
     List<Long> getAllowedBranchesIds(JCUser user);
+
+    /**
+     * Get ids of the topics in the branch ordered by id. Is used to process topics of the branch by id ranges.
+     *
+     * @param branch  branch to get topic ids of
+     * @param afterId only topics with greater ids are returned
+     * @param count   max number of ids to get
+     * @return ids of the topics in the branch which go after the specified id
+     */
+    List<Long> getTopicIdsInBranch(Branch branch, long afterId, int count);
+
+    /**
+     * Deletes topics with bulk statements without loading them. Posts, comments, votes, drafts, polls,
+     * subscriptions and last read marks of the topics are deleted too, post counts of authors are decreased
+     * and branches which last post is deleted are left without last post.
+     *
+     * @param topicIds ids of the topics to delete
+     * @return number of deleted posts
+     */
+    int deleteTopics(List<Long> topicIds);
+
+    /**
+     * Deletes ACL records of the topics and their posts with bulk statements.
+     * Should be invoked before topics are deleted.
+     *
+     * @param topicIds ids of the topics to delete ACL of
+     */
+    void deleteAclOfTopics(List<Long> topicIds);
 }
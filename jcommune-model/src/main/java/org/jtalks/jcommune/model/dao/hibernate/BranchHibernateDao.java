@@ -17,11 +17,13 @@ package org.jtalks.jcommune.model.dao.hibernate;
 import org.hibernate.SessionFactory;
 import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.jcommune.model.dao.BranchDao;
+import org.jtalks.jcommune.model.dto.BranchStatistics;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -37,6 +39,8 @@ import java.util.Set;
  */
 public class BranchHibernateDao extends GenericDao<Branch>
         implements BranchDao {
+    private static final String CHANGE_STATISTICS_SQL = "UPDATE BRANCHES SET TOPIC_COUNT = TOPIC_COUNT + ?, "
+            + "POST_COUNT = POST_COUNT + ? WHERE BRANCH_ID = ?";
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -69,6 +73,33 @@ public class BranchHibernateDao extends GenericDao<Branch>
         return count.intValue();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<BranchStatistics> getStatistics(Collection<Long> branchIds) {
+        if (branchIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return session()
+                .getNamedQuery("getBranchStatistics")
+                .setParameterList("branchIds", branchIds)
+                .list();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void changeStatistics(Branch branch, int topicCountChange, int postCountChange) {
+        if (topicCountChange == 0 && postCountChange == 0) {
+            return;
+        }
+        // counters are not part of the cached state of branches, so nothing is evicted
+        NativeUpdate.execute(session(), CHANGE_STATISTICS_SQL, topicCountChange, postCountChange, branch.getId());
+    }
+
     /**
      * {@inheritDoc}
      */
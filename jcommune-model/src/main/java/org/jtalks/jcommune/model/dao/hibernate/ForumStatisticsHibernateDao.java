@@ -20,6 +20,8 @@ import org.jtalks.jcommune.model.dao.ForumStatisticsDao;
 /**
  * The implementation of ForumStatisticsDao based on Hibernate.
  * The class is responsible for getting forum statistic information from database.
+ * Queries aren't cached: query cache of posts is invalidated on every new post anyway, and the
+ * service reads these counters only to reconcile its own in-memory ones.
  *
  * @author Elena Lepaeva
  */
@@ -43,7 +45,6 @@ public class ForumStatisticsHibernateDao implements ForumStatisticsDao {
     public int getPostsOnForumCount() {
         return ((Number) sessionFactory.getCurrentSession()
                 .createQuery("select count(*) from Post p")
-                .setCacheable(true)
                 .uniqueResult())
                 .intValue();
     }
@@ -55,7 +56,6 @@ public class ForumStatisticsHibernateDao implements ForumStatisticsDao {
     public int getUsersCount() {
         return ((Number) sessionFactory
                 .getCurrentSession().getNamedQuery("getCountOfUsers")
-                .setCacheable(true)
                 .uniqueResult())
                 .intValue();
     }
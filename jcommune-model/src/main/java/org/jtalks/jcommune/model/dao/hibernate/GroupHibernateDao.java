@@ -18,6 +18,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.EntityKey;
 import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.common.model.entity.Group;
 import org.jtalks.common.model.entity.User;
@@ -26,7 +27,10 @@ import org.jtalks.jcommune.model.dao.utils.SqlLikeEscaper;
 import org.jtalks.jcommune.model.dto.GroupAdministrationDto;
 import ru.javatalks.utils.general.Assert;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Hibernate implementation of {@link GroupDao}
@@ -38,6 +42,10 @@ import java.util.List;
 public class GroupHibernateDao extends GenericDao<Group> implements GroupDao {
     private static final String FIND_GROUP_BY_NAME = "findGroupByName", FIND_ALL_GROUPS = "findAllGroups";
     private static final String FIND_EXACTLY_BY_NAME = "findGroupExactlyByName";
+    /**
+     * Max count of user IDs passed to a single membership query, keeps IN lists within the limits of databases
+     */
+    private static final int MEMBERSHIP_CHUNK_SIZE = 500;
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -87,13 +95,73 @@ public class GroupHibernateDao extends GenericDao<Group> implements GroupDao {
      */
     @Override
     public void delete(Group group) {
-        session().update(group);
-
-        group.getUsers().clear();
-        saveOrUpdate(group);
+        session().getNamedQuery("deleteAllUsersOfGroup")
+                .setLong("groupId", group.getId())
+                .executeUpdate();
+        refreshLoadedUsers(group, null);
         super.delete(group);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addUsers(Group group, List<Long> userIds) {
+        changeMemberships("addUsersToGroup", group, userIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeUsers(Group group, List<Long> userIds) {
+        changeMemberships("removeUsersFromGroup", group, userIds);
+    }
+
+    private void changeMemberships(String queryName, Group group, List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < userIds.size(); from += MEMBERSHIP_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + MEMBERSHIP_CHUNK_SIZE, userIds.size()));
+            session().getNamedQuery(queryName)
+                    .setLong("groupId", group.getId())
+                    .setParameterList("userIds", chunk)
+                    .executeUpdate();
+        }
+        refreshLoadedUsers(group, new HashSet<>(userIds));
+    }
+
+    /**
+     * Bulk statements on memberships bypass the session, so users already loaded in it would keep their old groups
+     * till the end of the session, while visibility of branches and permissions depend on them. Such users are
+     * reloaded, their pending changes are flushed before that.
+     *
+     * @param group   group whose members were changed
+     * @param userIds IDs of users added to the group or removed from it, {@code null} if all the members of the
+     *                group were removed
+     */
+    private void refreshLoadedUsers(Group group, Set<Long> userIds) {
+        List<User> affectedUsers = new ArrayList<>();
+        for (Object key : session().getStatistics().getEntityKeys()) {
+            EntityKey entityKey = (EntityKey) key;
+            Object entity = session().get(entityKey.getEntityName(), entityKey.getIdentifier());
+            if (entity instanceof User) {
+                User user = (User) entity;
+                if (userIds == null ? user.getGroups().contains(group) : userIds.contains(user.getId())) {
+                    affectedUsers.add(user);
+                }
+            }
+        }
+        if (affectedUsers.isEmpty()) {
+            return;
+        }
+        session().flush();
+        for (User user : affectedUsers) {
+            session().refresh(user);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Executes SQL updates on the JDBC connection of a session. Native queries of Hibernate evict cache regions of all
+ * entities stored in the tables they are synchronized with (or all regions when no table is given), which is too
+ * much for counters changed on every post or vote. Updates executed here evict nothing and don't flush the
+ * session, so DAOs evict changed entities themselves.
+ */
+final class NativeUpdate {
+
+    private NativeUpdate() {
+    }
+
+    /**
+     * @param session    session to take the connection from
+     * @param sql        SQL update with positional parameters
+     * @param parameters values of the parameters
+     * @return count of updated rows
+     */
+    static int execute(Session session, final String sql, final Object... parameters) {
+        final int[] updatedRows = new int[1];
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    for (int i = 0; i < parameters.length; i++) {
+                        statement.setObject(i + 1, parameters[i]);
+                    }
+                    updatedRows[0] = statement.executeUpdate();
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+        return updatedRows[0];
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.jtalks.common.model.dao.hibernate.GenericDao;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Poll;
+import org.jtalks.jcommune.model.entity.PollItem;
+
+import java.util.Collection;
+
+/**
+ * Hibernate implementation of {@link PollDao}. Ballots and counts of votes are changed with native statements, so
+ * that voting never writes back options of the poll. Options whose counts are changed are evicted from the second
+ * level cache.
+ */
+public class PollHibernateDao extends GenericDao<Poll> implements PollDao {
+    private static final String POLL_ID = "pollId";
+    private static final String USER_ID = "userId";
+    private static final String ADD_VOTE_SQL = "INSERT INTO POLL_VOTE (POLL_ID, USER_ID)"
+            + " SELECT POLL_ID, ? FROM POLLS WHERE POLL_ID = ?"
+            + " AND NOT EXISTS (SELECT 1 FROM POLL_VOTE WHERE POLL_ID = ? AND USER_ID = ?)";
+    private static final String INCREASE_VOTES_SQL =
+            "UPDATE POLL_OPTIONS SET VOTES_COUNT = VOTES_COUNT + 1 WHERE POLL_ID = ? AND PO_ID = ?";
+
+    /**
+     * @param sessionFactory The SessionFactory.
+     */
+    public PollHibernateDao(SessionFactory sessionFactory) {
+        super(sessionFactory, Poll.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addVote(Poll poll, JCUser user) {
+        // native statements should see all the changes made in the session before
+        session().flush();
+        return NativeUpdate.execute(session(), ADD_VOTE_SQL,
+                user.getId(), poll.getId(), poll.getId(), user.getId()) == 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasVoted(Poll poll, JCUser user) {
+        Number count = (Number) session().getNamedQuery("hasPollVote")
+                .setLong(POLL_ID, poll.getId())
+                .setLong(USER_ID, user.getId())
+                .uniqueResult();
+        return count.intValue() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void increaseVotesCount(Poll poll, Collection<Long> optionIds) {
+        Cache cache = session().getSessionFactory().getCache();
+        for (Long optionId : optionIds) {
+            NativeUpdate.execute(session(), INCREASE_VOTES_SQL, poll.getId(), optionId);
+            cache.evictEntity(PollItem.class, optionId);
+        }
+        for (PollItem option : poll.getPollItems()) {
+            if (optionIds.contains(option.getId())) {
+                option.increaseVotesCount();
+            }
+        }
+    }
+}
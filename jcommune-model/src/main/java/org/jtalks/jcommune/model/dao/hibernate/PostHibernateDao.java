@@ -22,6 +22,7 @@ import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
+import org.jtalks.jcommune.model.entity.PostVote;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -39,6 +40,13 @@ import java.util.List;
  */
 public class PostHibernateDao extends GenericDao<Post> implements PostDao {
     private static final String TOPIC_PARAMETER_NAME = "topic";
+    private static final String VOTES_COLLECTION_ROLE = Post.class.getName() + ".votes";
+    /**
+     * Rating and post count are changed atomically, the changed post or user is evicted from the cache by the DAO
+     */
+    private static final String CHANGE_RATING_SQL = "UPDATE POST SET RATING = RATING + ? WHERE POST_ID = ?";
+    private static final String CHANGE_POST_COUNT_SQL =
+            "UPDATE JC_USER_DETAILS SET POST_COUNT = POST_COUNT + ? WHERE USER_ID = ?";
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -121,11 +129,106 @@ public class PostHibernateDao extends GenericDao<Post> implements PostDao {
                 .setMaxResults(postCount).list();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPostIndexInTopic(Post post) {
+        Number count = (Number) session()
+                .getNamedQuery("getPostIndexInTopic")
+                .setParameter(TOPIC_PARAMETER_NAME, post.getTopic())
+                .setParameter("creationDate", post.getCreationDate())
+                .setParameter("postId", post.getId())
+                .uniqueResult();
+        return count.intValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Post getFirstPost(Topic topic) {
+        return (Post) session()
+                .getNamedQuery("getPostsInTopic")
+                .setParameter(TOPIC_PARAMETER_NAME, topic)
+                .setMaxResults(1)
+                .uniqueResult();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPostCount(Topic topic) {
+        Number count = (Number) session()
+                .getNamedQuery("getCountPostsInTopic")
+                .setParameter(TOPIC_PARAMETER_NAME, topic)
+                .uniqueResult();
+        return count.intValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getUserPostCount(Topic topic, JCUser user) {
+        Number count = (Number) session()
+                .getNamedQuery("getCountPostsOfUserInTopic")
+                .setParameter(TOPIC_PARAMETER_NAME, topic)
+                .setParameter("userCreated", user)
+                .uniqueResult();
+        return count.intValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Post> getRepliesByRating(Post firstPost, int count) {
+        @SuppressWarnings("unchecked")
+        List<Post> replies = (List<Post>) session()
+                .getNamedQuery("getRepliesByRating")
+                .setParameter(TOPIC_PARAMETER_NAME, firstPost.getTopic())
+                .setParameter("firstPostId", firstPost.getId())
+                .setMaxResults(count)
+                .list();
+        return replies;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PostVote getVote(Post post, JCUser user) {
+        return (PostVote) session()
+                .getNamedQuery("getPostVote")
+                .setParameter("post", post)
+                .setParameter("user", user)
+                .uniqueResult();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveVote(PostVote vote) {
+        session().saveOrUpdate(vote);
+        session().getSessionFactory().getCache().evictCollection(VOTES_COLLECTION_ROLE, vote.getPost().getId());
+    }
+
     @Override
     public void changeRating(Long postId, int changes) {
-        session().getNamedQuery("increaseRating")
-                .setInteger("valueToAdd", changes)
-                .setParameter("postId", postId)
-                .executeUpdate();
+        NativeUpdate.execute(session(), CHANGE_RATING_SQL, changes, postId);
+        session().getSessionFactory().getCache().evictEntity(Post.class, postId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void changePostCountOfAuthor(JCUser author, int change) {
+        NativeUpdate.execute(session(), CHANGE_POST_COUNT_SQL, change, author.getId());
+        author.setPostCount(author.getPostCount() + change);
+        session().getSessionFactory().getCache().evictEntity(JCUser.class, author.getId());
     }
 }
@@ -40,6 +40,10 @@ public class PrivateMessageHibernateDao extends GenericDao<PrivateMessage> imple
 
     private static final String STATUS = "status";
     private static final String STATUSES = "statuses";
+    private static final String NEW_STATUS = "newStatus";
+    private static final String USER = "user";
+    private static final String IDS = "ids";
+    private static final String BY_IDS = "ByIds";
     public static final int DEFAULT_MESSAGE_COUNT = 0;
 
     /**
@@ -161,4 +165,104 @@ public class PrivateMessageHibernateDao extends GenericDao<PrivateMessage> imple
                 .uniqueResult())
                 .intValue();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteDrafts(JCUser author, List<Long> ids) {
+        return execute("deletePmFromUser", author, PrivateMessageStatus.DRAFT, null, ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteRemovedByRecipient(JCUser sender, List<Long> ids) {
+        return execute("deletePmFromUser", sender, PrivateMessageStatus.DELETED_FROM_INBOX, null, ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteRemovedBySender(JCUser recipient, List<Long> ids) {
+        return execute("deletePmToUser", recipient, PrivateMessageStatus.DELETED_FROM_OUTBOX, null, ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int markAsDeletedFromOutbox(JCUser sender, List<Long> ids) {
+        return execute("changePmStatusFromUser", sender, PrivateMessageStatus.SENT,
+                PrivateMessageStatus.DELETED_FROM_OUTBOX, ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int markAsDeletedFromInbox(JCUser recipient, List<Long> ids) {
+        return execute("changePmStatusToUser", recipient, PrivateMessageStatus.SENT,
+                PrivateMessageStatus.DELETED_FROM_INBOX, ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int markAsRead(JCUser recipient, List<Long> ids) {
+        Query query = bulkQuery("markPmAsRead", recipient, ids);
+        if (query == null) {
+            return 0;
+        }
+        return query.setParameter("read", true)
+                .setParameterList(STATUSES, PrivateMessageStatus.getNewMessageStatus())
+                .executeUpdate();
+    }
+
+    /**
+     * Executes bulk delete or status change of the messages of the user.
+     *
+     * @param queryName name of the query over the whole folder
+     * @param user      sender or recipient of the messages, depends on the query
+     * @param status    status of the messages to affect
+     * @param newStatus status to set, {@code null} for delete queries
+     * @param ids       ids of the messages or {@code null} to affect all the messages of the user
+     * @return count of affected messages
+     */
+    private int execute(String queryName, JCUser user, PrivateMessageStatus status,
+                        PrivateMessageStatus newStatus, List<Long> ids) {
+        Query query = bulkQuery(queryName, user, ids);
+        if (query == null) {
+            return 0;
+        }
+        query.setParameter(STATUS, status);
+        if (newStatus != null) {
+            query.setParameter(NEW_STATUS, newStatus);
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * Prepares bulk query for the messages of the user.
+     *
+     * @param queryName name of the query over the whole folder, its variant restricted by ids
+     *                  has "ByIds" suffix
+     * @param user      sender or recipient of the messages
+     * @param ids       ids of the messages or {@code null} for the query over all the messages of the user
+     * @return prepared query or {@code null} if there is nothing to do because ids are empty
+     */
+    private Query bulkQuery(String queryName, JCUser user, List<Long> ids) {
+        if (ids == null) {
+            return session().getNamedQuery(queryName).setParameter(USER, user);
+        }
+        if (ids.isEmpty()) {
+            return null;
+        }
+        return session().getNamedQuery(queryName + BY_IDS)
+                .setParameter(USER, user)
+                .setParameterList(IDS, ids);
+    }
 }
@@ -18,7 +18,6 @@ import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.jtalks.common.model.dao.hibernate.GenericDao;
-import org.jtalks.common.model.entity.Branch;
 import org.jtalks.common.model.entity.Entity;
 import org.jtalks.common.model.entity.Group;
 import org.jtalks.common.model.entity.Section;
@@ -26,8 +25,9 @@ import org.jtalks.jcommune.model.dao.SectionDao;
 import org.jtalks.jcommune.model.entity.JCUser;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Hibernate DAO implementation from the {@link Section}.
@@ -61,45 +61,28 @@ public class SectionHibernateDao extends GenericDao<Section> implements SectionD
      * {@inheritDoc}
      */
     @Override
-    public List<Long> getAvailableBranchIds(JCUser user, List<Branch> branches) {
-        if (branches.isEmpty()) {
-            return Collections.emptyList();
-        }
-        List<Long> branchIds = getEntityIdsLongs(new ArrayList<Entity>(branches));
-        if (!user.isAnonymous()) {
-            return visibleBranchesForLoggedIn(user, branchIds);
+    @SuppressWarnings("unchecked")
+    public Map<Long, List<Long>> getVisibleBranchIdsOfSections(JCUser user) {
+        Query query;
+        if (user.isAnonymous()) {
+            query = session().getNamedQuery("getVisibleBranchesOfSectionsForAnonymousUser");
+        } else {
+            List<Group> groups = user.getGroups();
+            if (groups.isEmpty()) {
+                return new HashMap<>();
+            }
+            query = session().getNamedQuery("getVisibleBranchesOfSectionsByGroupsIds")
+                    .setParameterList("groupIds", getEntityIdsStrings(new ArrayList<Entity>(groups)));
         }
-        Query query = session().getNamedQuery("getAvailableBranchesForAnonymousUser");
-        query.setParameterList("branchIds", branchIds);
-        return query.list();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long getCountAvailableBranches(JCUser user, List<Branch> branches) {
-        return getAvailableBranchIds(user, branches).size();
-    }
-
-    /**
-     * Get visible branches, from branch ids, for logged user
-     *
-     * @param user      user
-     * @param branchIds branch ids
-     * @return visible branch ids list
-     */
-    private List<Long> visibleBranchesForLoggedIn(JCUser user, List<Long> branchIds) {
-        List<Group> groups = user.getGroups();
-        if (groups.isEmpty()) {
-            return Collections.emptyList();
+        Map<Long, List<Long>> branchIdsBySection = new HashMap<>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            Long sectionId = (Long) row[0];
+            if (!branchIdsBySection.containsKey(sectionId)) {
+                branchIdsBySection.put(sectionId, new ArrayList<Long>());
+            }
+            branchIdsBySection.get(sectionId).add((Long) row[1]);
         }
-        List<String> groupIds = new ArrayList(getEntityIdsStrings(new ArrayList<Entity>(groups)));
-
-        Query query = session().getNamedQuery("getAvailableBranchesByGroupsIds");
-        query.setParameterList("groupIds", groupIds);
-        query.setParameterList("branchIds", branchIds);
-        return query.list();
+        return branchIdsBySection;
     }
 
     /**
@@ -115,18 +98,4 @@ public class SectionHibernateDao extends GenericDao<Section> implements SectionD
         }
         return ids;
     }
-
-    /**
-     * Return entity id's from list entities as long numbers
-     *
-     * @param entities entities
-     * @return id's entities
-     */
-    private List<Long> getEntityIdsLongs(List<Entity> entities) {
-        List<Long> ids = new ArrayList<Long>();
-        for (Entity e : entities) {
-            ids.add(e.getId());
-        }
-        return ids;
-    }
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
+import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Post;
+import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
+import org.jtalks.jcommune.model.entity.Topic;
+
+/**
+ * Hibernate implementation of {@link SubscriptionDao}. Works with TOPIC_SUBSCRIPTIONS and BRANCH_SUBSCRIPTIONS
+ * tables with native statements, the statements are synchronized with these tables, so cached subscribers of topics
+ * and branches are evicted when they are changed.
+ */
+public class SubscriptionHibernateDao implements SubscriptionDao {
+    private static final String ENTITY_ID = "entityId";
+    private static final String USER_ID = "userId";
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * @param sessionFactory The SessionFactory.
+     */
+    public SubscriptionHibernateDao(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addSubscriber(SubscriptionAwareEntity entity, JCUser user) {
+        // native statements should see all the changes made in the session before
+        session().flush();
+        return getSubscriberQuery("add%sSubscriber", entity, user).executeUpdate() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeSubscriber(SubscriptionAwareEntity entity, JCUser user) {
+        session().flush();
+        return getSubscriberQuery("remove%sSubscriber", entity, user).executeUpdate() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSubscribed(SubscriptionAwareEntity entity, JCUser user) {
+        Number count = (Number) getSubscriberQuery("is%sSubscriber", entity, user).uniqueResult();
+        return count.intValue() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSubscribersCount(SubscriptionAwareEntity entity) {
+        return ((Number) getEntityQuery("get%sSubscribersCount", entity).uniqueResult()).intValue();
+    }
+
+    /**
+     * @param nameFormat name of the query with a placeholder for the type of entity
+     * @param entity     topic, post or branch the query is about
+     * @param user       the user the query is about
+     * @return query with the entity and the user set
+     */
+    private Query getSubscriberQuery(String nameFormat, SubscriptionAwareEntity entity, JCUser user) {
+        return getEntityQuery(nameFormat, entity).setLong(USER_ID, user.getId());
+    }
+
+    /**
+     * Picks the query for the type of entity. Subscriptions to a post are the ones to its topic.
+     *
+     * @param nameFormat name of the query with a placeholder for the type of entity
+     * @param entity     topic, post or branch the query is about
+     * @return query with the entity set
+     */
+    private Query getEntityQuery(String nameFormat, SubscriptionAwareEntity entity) {
+        SubscriptionAwareEntity target = entity instanceof Post ? ((Post) entity).getTopic() : entity;
+        String type;
+        long id;
+        if (target instanceof Topic) {
+            type = "Topic";
+            id = ((Topic) target).getId();
+        } else if (target instanceof Branch) {
+            type = "Branch";
+            id = ((Branch) target).getId();
+        } else {
+            throw new IllegalArgumentException("Subscriptions to " + entity.getClass() + " are not supported");
+        }
+        return session().getNamedQuery(String.format(nameFormat, type)).setLong(ENTITY_ID, id);
+    }
+
+    private Session session() {
+        return sessionFactory.getCurrentSession();
+    }
+}
@@ -49,6 +49,7 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
     private static final String MAX_MOD_DATE = "maxModDate";
     private static final String GROUP_IDS = "groupIds";
     private static final String UNCHECKED = "unchecked";
+    private static final String TOPIC_IDS = "topicIds";
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -297,4 +298,104 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
         }
         return result;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings(UNCHECKED)
+    public List<Long> getTopicIdsInBranch(Branch branch, long afterId, int count) {
+        return session()
+                .getNamedQuery("getTopicIdsInBranch")
+                .setParameter(BRANCH, branch)
+                .setLong("afterId", afterId)
+                .setMaxResults(count)
+                .list();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings(UNCHECKED)
+    public int deleteTopics(List<Long> topicIds) {
+        if (topicIds.isEmpty()) {
+            return 0;
+        }
+        // bulk statements should see all the changes made in the session before
+        session().flush();
+        decreasePostCountOfAuthors(topicIds);
+        executeForTopics("clearBranchLastPostInTopics", topicIds);
+        executeForTopics("deleteCommentAttributesInTopics", topicIds);
+        executeForTopics("deleteCommentsInTopics", topicIds);
+        executeForTopics("deleteVotesInTopics", topicIds);
+        executeForTopics("deleteDraftsInTopics", topicIds);
+        executeForTopics("deleteLastReadPostsInTopics", topicIds);
+        executeForTopics("deleteSubscriptionsToTopics", topicIds);
+        executeForTopics("deleteAttributesOfTopics", topicIds);
+        List<Long> pollIds = session()
+                .getNamedQuery("getPollIdsOfTopics")
+                .setParameterList(TOPIC_IDS, topicIds)
+                .list();
+        if (!pollIds.isEmpty()) {
+            executeForTopics("detachPollsFromTopics", topicIds);
+            session().getNamedQuery("deletePollVotes").setParameterList("pollIds", pollIds).executeUpdate();
+            session().getNamedQuery("deletePollOptions").setParameterList("pollIds", pollIds).executeUpdate();
+            session().getNamedQuery("deletePolls").setParameterList("pollIds", pollIds).executeUpdate();
+        }
+        int deletedPosts = executeForTopics("deletePostsInTopics", topicIds);
+        executeForTopics("deleteTopics", topicIds);
+        return deletedPosts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteAclOfTopics(List<Long> topicIds) {
+        if (topicIds.isEmpty()) {
+            return;
+        }
+        executeForTopics("deleteAclEntriesOfTopics", topicIds);
+        executeForTopics("deleteAclObjectsOfTopics", topicIds);
+    }
+
+    /**
+     * Decreases post counts of the users who wrote posts in the topics. Users with the same number
+     * of posts in the topics are updated with one statement, so there are few statements even for big branches.
+     *
+     * @param topicIds ids of the topics which posts are going to be deleted
+     */
+    @SuppressWarnings(UNCHECKED)
+    private void decreasePostCountOfAuthors(List<Long> topicIds) {
+        List<Object[]> postCounts = session()
+                .getNamedQuery("getPostCountsOfAuthorsInTopics")
+                .setParameterList(TOPIC_IDS, topicIds)
+                .list();
+        Map<Integer, List<Long>> usersByPostCount = new HashMap<>();
+        for (Object[] postCount : postCounts) {
+            Integer count = ((Number) postCount[1]).intValue();
+            if (!usersByPostCount.containsKey(count)) {
+                usersByPostCount.put(count, new ArrayList<Long>());
+            }
+            usersByPostCount.get(count).add((Long) postCount[0]);
+        }
+        for (Map.Entry<Integer, List<Long>> users : usersByPostCount.entrySet()) {
+            session().getNamedQuery("decreasePostCountOfUsers")
+                    .setInteger("count", users.getKey())
+                    .setParameterList("userIds", users.getValue())
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Executes named bulk statement which has the only parameter - ids of the topics.
+     *
+     * @param queryName name of the statement
+     * @param topicIds  ids of the topics
+     * @return number of affected rows
+     */
+    private int executeForTopics(String queryName, List<Long> topicIds) {
+        return session().getNamedQuery(queryName).setParameterList(TOPIC_IDS, topicIds).executeUpdate();
+    }
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dto;
+
+/**
+ * Counters of topics and posts of the branch, loaded for many branches at once to avoid
+ * running count queries for every branch shown on the page.
+ *
+ * @see org.jtalks.jcommune.model.dao.BranchDao#getStatistics(java.util.Collection)
+ */
+public class BranchStatistics {
+    private final long branchId;
+    private final int topicCount;
+    private final int postCount;
+
+    /**
+     * @param branchId   id of the branch the counters belong to
+     * @param topicCount count of topics in the branch
+     * @param postCount  count of posts in all topics of the branch
+     */
+    public BranchStatistics(long branchId, int topicCount, int postCount) {
+        this.branchId = branchId;
+        this.topicCount = topicCount;
+        this.postCount = postCount;
+    }
+
+    /**
+     * @return id of the branch the counters belong to
+     */
+    public long getBranchId() {
+        return branchId;
+    }
+
+    /**
+     * @return count of topics in the branch
+     */
+    public int getTopicCount() {
+        return topicCount;
+    }
+
+    /**
+     * @return count of posts in all topics of the branch
+     */
+    public int getPostCount() {
+        return postCount;
+    }
+}
@@ -66,7 +66,7 @@ public class PostDraft extends Entity {
         return lastSaved;
     }
 
-    protected void setLastSaved(DateTime lastSaved) {
+    public void setLastSaved(DateTime lastSaved) {
         this.lastSaved = lastSaved;
     }
 
@@ -76,4 +76,21 @@ public class PostDraft extends Entity {
     public void updateLastSavedTime() {
         lastSaved = new DateTime();
     }
+
+    /**
+     * Creates a copy of the draft with another content that is not bound to Hibernate session, so changing the copy
+     * doesn't cause updates in the database. The copy is equal to the original draft.
+     *
+     * @param content   the content of the copy
+     * @param lastSaved when the content was saved
+     * @return the copy of the draft
+     */
+    public PostDraft copyWithContent(String content, DateTime lastSaved) {
+        PostDraft copy = new PostDraft(content, author);
+        copy.setId(getId());
+        copy.setUuid(getUuid());
+        copy.setTopic(topic);
+        copy.setLastSaved(lastSaved);
+        return copy;
+    }
 }
@@ -0,0 +1,9 @@
+-- counters of topics and posts of the branch, maintained by topic and post create/delete/move operations,
+-- so the main page doesn't need to run COUNT queries for every branch
+ALTER TABLE BRANCHES ADD TOPIC_COUNT INT(11) NOT NULL DEFAULT 0;
+ALTER TABLE BRANCHES ADD POST_COUNT INT(11) NOT NULL DEFAULT 0;
+
+UPDATE BRANCHES
+SET TOPIC_COUNT = (SELECT COUNT(*) FROM TOPIC WHERE TOPIC.BRANCH_ID = BRANCHES.BRANCH_ID),
+    POST_COUNT = (SELECT COUNT(*) FROM POST INNER JOIN TOPIC ON TOPIC.TOPIC_ID = POST.TOPIC_ID
+                  WHERE TOPIC.BRANCH_ID = BRANCHES.BRANCH_ID);
@@ -0,0 +1,3 @@
+-- position of the post in the topic is calculated as count of posts created earlier in the same topic,
+-- so the index lets to do that without reading all the posts of the topic
+CREATE INDEX IDX_POST_TOPIC_DATE ON POST (TOPIC_ID, POST_DATE);
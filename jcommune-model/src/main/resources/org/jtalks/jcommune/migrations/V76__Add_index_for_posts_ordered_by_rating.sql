@@ -0,0 +1,3 @@
+-- replies of the topic may be shown ordered by rating (e.g. answers of the question), so the index lets
+-- to read them page by page in that order instead of sorting all the posts of the topic
+CREATE INDEX IDX_POST_TOPIC_RATING_DATE ON POST (TOPIC_ID, RATING, POST_DATE);
@@ -0,0 +1,28 @@
+-- ballots of users, the primary key doesn't let a user vote twice in the same poll;
+-- replaces ACL restrictions that were written for every voter to prohibit revoting
+CREATE TABLE `POLL_VOTE` (
+  `POLL_ID` BIGINT(20) NOT NULL,
+  `USER_ID` BIGINT(20) NOT NULL,
+  PRIMARY KEY (`POLL_ID`, `USER_ID`),
+  KEY `FK_POLL_VOTE_USER` (`USER_ID`),
+  CONSTRAINT `FK_POLL_VOTE_POLL` FOREIGN KEY (`POLL_ID`) REFERENCES `POLLS` (`POLL_ID`),
+  CONSTRAINT `FK_POLL_VOTE_USER` FOREIGN KEY (`USER_ID`) REFERENCES `USERS` (`ID`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+INSERT IGNORE INTO POLL_VOTE (POLL_ID, USER_ID)
+  SELECT p.POLL_ID, u.ID
+  FROM acl_entry e
+    INNER JOIN acl_object_identity oi ON oi.id = e.acl_object_identity
+    INNER JOIN acl_class c ON c.id = oi.object_id_class
+    INNER JOIN acl_sid s ON s.id = e.sid
+    INNER JOIN POLLS p ON p.POLL_ID = oi.object_id_identity
+    INNER JOIN USERS u ON s.sid = CONCAT('user:', u.ID)
+  WHERE c.class = 'POLL' AND e.granting = 0;
+
+DELETE e FROM acl_entry e
+  INNER JOIN acl_object_identity oi ON oi.id = e.acl_object_identity
+  INNER JOIN acl_class c ON c.id = oi.object_id_class
+  INNER JOIN acl_sid s ON s.id = e.sid
+WHERE c.class = 'POLL' AND e.granting = 0 AND s.sid LIKE 'user:%';
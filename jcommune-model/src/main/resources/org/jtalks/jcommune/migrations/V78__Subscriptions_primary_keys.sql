@@ -0,0 +1,13 @@
+-- subscriptions are added and removed row by row now, so the tables get primary keys: they serve
+-- the "is subscribed" check and don't let the same user be subscribed twice
+CREATE TABLE `TOPIC_SUBSCRIPTIONS_DISTINCT` AS SELECT DISTINCT TOPIC_ID, USER_ID FROM TOPIC_SUBSCRIPTIONS;
+DELETE FROM TOPIC_SUBSCRIPTIONS;
+INSERT INTO TOPIC_SUBSCRIPTIONS (TOPIC_ID, USER_ID) SELECT TOPIC_ID, USER_ID FROM TOPIC_SUBSCRIPTIONS_DISTINCT;
+DROP TABLE `TOPIC_SUBSCRIPTIONS_DISTINCT`;
+ALTER TABLE TOPIC_SUBSCRIPTIONS ADD PRIMARY KEY (TOPIC_ID, USER_ID);
+
+CREATE TABLE `BRANCH_SUBSCRIPTIONS_DISTINCT` AS SELECT DISTINCT BRANCH_ID, USER_ID FROM BRANCH_SUBSCRIPTIONS;
+DELETE FROM BRANCH_SUBSCRIPTIONS;
+INSERT INTO BRANCH_SUBSCRIPTIONS (BRANCH_ID, USER_ID) SELECT BRANCH_ID, USER_ID FROM BRANCH_SUBSCRIPTIONS_DISTINCT;
+DROP TABLE `BRANCH_SUBSCRIPTIONS_DISTINCT`;
+ALTER TABLE BRANCH_SUBSCRIPTIONS ADD PRIMARY KEY (BRANCH_ID, USER_ID);
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.ConfigurationFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs two cache managers in the same JVM connected with {@link LoopbackInvalidationTransport} as if they were two
+ * nodes of the cluster.
+ */
+public class InvalidationReplicationTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+    private CacheManager first;
+    private CacheManager second;
+
+    @BeforeMethod
+    public void setUp() {
+        first = createCacheManager("first");
+        second = createCacheManager("second");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    public void updatedElementShouldBeEvictedOnOtherNode() throws Exception {
+        putOnBothNodes("replicated", "key");
+
+        first.getEhcache("replicated").put(new Element("key", "new value"));
+
+        assertTrue(isEvicted(second.getEhcache("replicated"), "key"));
+        assertEquals(first.getEhcache("replicated").get("key").getObjectValue(), "new value");
+    }
+
+    @Test
+    public void removedElementShouldBeEvictedOnOtherNode() throws Exception {
+        putOnBothNodes("replicated", "key");
+
+        first.getEhcache("replicated").remove("key");
+
+        assertTrue(isEvicted(second.getEhcache("replicated"), "key"));
+    }
+
+    @Test
+    public void newElementShouldNotBeSentToOtherNodes() throws Exception {
+        int sentBatches = LoopbackInvalidationTransport.getSentBatches();
+
+        first.getEhcache("replicated").put(new Element("key", "value"));
+        Thread.sleep(200);
+
+        assertEquals(LoopbackInvalidationTransport.getSentBatches(), sentBatches);
+    }
+
+    @Test
+    public void clearedCacheShouldBeClearedOnOtherNode() throws Exception {
+        putOnBothNodes("replicated", "key");
+        putOnBothNodes("replicated", "another key");
+
+        first.getEhcache("replicated").removeAll();
+
+        assertTrue(isEvicted(second.getEhcache("replicated"), "key"));
+        assertTrue(isEvicted(second.getEhcache("replicated"), "another key"));
+    }
+
+    @Test
+    public void evictionShouldNotBounceBackToTheNodeItCameFrom() throws Exception {
+        putOnBothNodes("replicated", "key");
+
+        first.getEhcache("replicated").put(new Element("key", "new value"));
+        assertTrue(isEvicted(second.getEhcache("replicated"), "key"));
+        Thread.sleep(200);
+
+        assertEquals(first.getEhcache("replicated").get("key").getObjectValue(), "new value");
+    }
+
+    @Test
+    public void changesOfNotReplicatedCacheShouldStayLocal() throws Exception {
+        putOnBothNodes("local", "key");
+
+        first.getEhcache("local").remove("key");
+        Thread.sleep(200);
+
+        assertNotNull(second.getEhcache("local").get("key"));
+    }
+
+    @Test
+    public void changesShouldBeSentInBatches() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            putOnBothNodes("replicated", "key" + i);
+        }
+        int sentBatches = LoopbackInvalidationTransport.getSentBatches();
+
+        for (int i = 0; i < 3; i++) {
+            first.getEhcache("replicated").remove("key" + i);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(isEvicted(second.getEhcache("replicated"), "key" + i));
+        }
+        assertTrue(LoopbackInvalidationTransport.getSentBatches() - sentBatches < 3);
+    }
+
+    @Test
+    public void batchShouldCoalesceRepeatedKeys() {
+        InvalidationBatch batch = new InvalidationBatch();
+
+        batch.addKey("cache", "key");
+        batch.addKey("cache", "key");
+        batch.addKey("another cache", "key");
+
+        assertEquals(batch.size(), 2);
+        assertEquals(batch.getKeysByCache().get("cache").size(), 1);
+    }
+
+    @Test
+    public void clearedCacheShouldReplaceItsKeysInBatch() {
+        InvalidationBatch batch = new InvalidationBatch();
+        batch.addKey("cache", "key");
+        batch.addKey("cache", "another key");
+
+        batch.addClearedCache("cache");
+        batch.addKey("cache", "one more key");
+
+        assertEquals(batch.size(), 1);
+        assertTrue(batch.getKeysByCache().isEmpty());
+        assertEquals(batch.getClearedCaches().iterator().next(), "cache");
+    }
+
+    private CacheManager createCacheManager(String name) {
+        Configuration configuration = ConfigurationFactory.parseConfiguration(
+                getClass().getResource("/org/jtalks/jcommune/model/cache/invalidation-ehcache.xml"));
+        configuration.setName(name);
+        return new CacheManager(configuration);
+    }
+
+    /**
+     * Puts an element to both nodes, the put itself is not replicated.
+     */
+    private void putOnBothNodes(String cacheName, String key) {
+        first.getEhcache(cacheName).put(new Element(key, "value"));
+        second.getEhcache(cacheName).put(new Element(key, "value"));
+    }
+
+    private boolean isEvicted(Ehcache cache, String key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (cache.get(key) != null) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+}
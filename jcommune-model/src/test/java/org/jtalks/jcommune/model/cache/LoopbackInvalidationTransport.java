@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.cache;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers invalidations between cache managers of the same JVM, so that replication can be tested without network.
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+    private static final List<LoopbackInvalidationTransport> CONNECTED = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger SENT_BATCHES = new AtomicInteger();
+    private volatile Receiver receiver;
+
+    /**
+     * @param properties ignored, required by {@link InvalidationPeerProviderFactory}
+     */
+    public LoopbackInvalidationTransport(Properties properties) {
+    }
+
+    @Override
+    public void connect(Receiver receiver) {
+        this.receiver = receiver;
+        CONNECTED.add(this);
+    }
+
+    @Override
+    public void send(InvalidationBatch batch) {
+        SENT_BATCHES.incrementAndGet();
+        for (LoopbackInvalidationTransport transport : CONNECTED) {
+            if (transport != this) {
+                transport.receiver.receive(batch);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        CONNECTED.remove(this);
+    }
+
+    static int getSentBatches() {
+        return SENT_BATCHES.get();
+    }
+}
@@ -19,6 +19,7 @@ import org.hibernate.SessionFactory;
 import org.jtalks.common.model.entity.Section;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.model.dao.BranchDao;
+import org.jtalks.jcommune.model.dto.BranchStatistics;
 import org.jtalks.jcommune.model.entity.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -30,6 +31,7 @@ import org.testng.annotations.Test;
 
 import javax.validation.ConstraintViolationException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.testng.Assert.*;
@@ -160,6 +162,40 @@ public class BranchHibernateDaoTest extends AbstractTransactionalTestNGSpringCon
         assertEquals(getCount("select count(*) from Post"), 0);
     }
 
+    @Test
+    public void getStatisticsShouldReturnChangedCounters() {
+        Branch branch = ObjectsFactory.getDefaultBranch();
+        session.save(branch);
+        session.flush();
+
+        dao.changeStatistics(branch, 2, 5);
+        dao.changeStatistics(branch, -1, -2);
+        List<BranchStatistics> statistics = dao.getStatistics(Arrays.asList(branch.getId()));
+
+        assertEquals(statistics.size(), 1);
+        assertEquals(statistics.get(0).getBranchId(), branch.getId());
+        assertEquals(statistics.get(0).getTopicCount(), 1);
+        assertEquals(statistics.get(0).getPostCount(), 3);
+    }
+
+    @Test
+    public void getStatisticsShouldReturnZeroCountersForNewBranch() {
+        Branch branch = ObjectsFactory.getDefaultBranch();
+        session.save(branch);
+        session.flush();
+
+        List<BranchStatistics> statistics = dao.getStatistics(Arrays.asList(branch.getId()));
+
+        assertEquals(statistics.size(), 1);
+        assertEquals(statistics.get(0).getTopicCount(), 0);
+        assertEquals(statistics.get(0).getPostCount(), 0);
+    }
+
+    @Test
+    public void getStatisticsShouldReturnEmptyListForNoBranches() {
+        assertTrue(dao.getStatistics(new ArrayList<Long>()).isEmpty());
+    }
+
     private int getCount(String hql) {
         return ((Number) session.createQuery(hql).uniqueResult()).intValue();
     }
@@ -237,6 +237,98 @@ public class GroupHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
     }
 
 
+    @Test
+    public void deleteShouldRemoveMembershipsOfGroup() {
+        Group group = PersistedObjectsFactory.group("deleted");
+        memberOf(group);
+        memberOf(group);
+
+        groupDao.delete(group);
+        session.flush();
+
+        assertEquals(countMembers(group), 0);
+        assertNull(groupDao.get(group.getId()));
+    }
+
+    @Test
+    public void addUsersShouldSkipExistingMembers() {
+        Group group = PersistedObjectsFactory.group("group");
+        JCUser member = memberOf(group);
+        JCUser newcomer = ObjectsFactory.getRandomUser();
+        saveAndEvict(newcomer);
+
+        groupDao.addUsers(group, Arrays.asList(member.getId(), newcomer.getId()));
+
+        assertEquals(countMembers(group), 2);
+    }
+
+    @Test
+    public void addUsersShouldSkipNotExistingUsers() {
+        Group group = PersistedObjectsFactory.group("group");
+
+        groupDao.addUsers(group, Arrays.asList(-1L));
+
+        assertEquals(countMembers(group), 0);
+    }
+
+    @Test
+    public void removeUsersShouldKeepOtherMembers() {
+        Group group = PersistedObjectsFactory.group("group");
+        JCUser removed = memberOf(group);
+        memberOf(group);
+
+        groupDao.removeUsers(group, Arrays.asList(removed.getId()));
+
+        assertEquals(countMembers(group), 1);
+    }
+
+    @Test
+    public void deleteShouldRemoveGroupFromUsersLoadedInSession() {
+        Group group = PersistedObjectsFactory.group("deleted");
+        JCUser member = (JCUser) session.get(JCUser.class, memberOf(group).getId());
+
+        groupDao.delete(group);
+
+        assertFalse(member.getGroups().contains(group));
+    }
+
+    @Test
+    public void addUsersShouldAddGroupToUsersLoadedInSession() {
+        Group group = PersistedObjectsFactory.group("group");
+        JCUser newcomer = ObjectsFactory.getRandomUser();
+        saveAndEvict(newcomer);
+        newcomer = (JCUser) session.get(JCUser.class, newcomer.getId());
+
+        groupDao.addUsers(group, Arrays.asList(newcomer.getId()));
+
+        assertTrue(newcomer.getGroups().contains(group));
+    }
+
+    @Test
+    public void changingMembersWithNullUserIdsShouldDoNothing() {
+        Group group = PersistedObjectsFactory.group("group");
+        memberOf(group);
+
+        groupDao.addUsers(group, null);
+        groupDao.removeUsers(group, null);
+
+        assertEquals(countMembers(group), 1);
+    }
+
+    private JCUser memberOf(Group group) {
+        JCUser user = ObjectsFactory.getRandomUser();
+        user.addGroup(group);
+        saveAndEvict(user);
+        session.flush();
+        return user;
+    }
+
+    private int countMembers(Group group) {
+        return ((Number) session.createSQLQuery("SELECT COUNT(*) FROM GROUP_USER_REF WHERE GROUP_ID = :groupId")
+                .setLong("groupId", group.getId())
+                .uniqueResult()).intValue();
+    }
+
     private void saveAndEvict(Branch branch) {
         saveAndEvict(branch.getModeratorsGroup());
         Section section = ObjectsFactory.getDefaultSection();
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
+import org.jtalks.jcommune.model.entity.Poll;
+import org.jtalks.jcommune.model.entity.PollItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Votes in parallel transactions, so the data is committed and removed after every test.
+ */
+@ContextConfiguration(locations = {"classpath:/org/jtalks/jcommune/model/entity/applicationContext-dao.xml"})
+public class PollHibernateDaoConcurrencyTest extends AbstractTestNGSpringContextTests {
+    private static final int VOTERS = 8;
+    private static final int ATTEMPTS_PER_VOTER = 4;
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private PollDao pollDao;
+    @Autowired
+    private TopicDao topicDao;
+    private TransactionTemplate transaction;
+    private Poll poll;
+    private List<JCUser> voters;
+
+    @BeforeMethod
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                PersistedObjectsFactory.setSession(sessionFactory.getCurrentSession());
+                poll = PersistedObjectsFactory.createDefaultVoting();
+                voters = new ArrayList<>();
+                for (int i = 0; i < VOTERS; i++) {
+                    voters.add(PersistedObjectsFactory.getUser("voter" + i, "voter" + i + "@mail.com"));
+                }
+            }
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                Session session = sessionFactory.getCurrentSession();
+                topicDao.deleteTopics(Collections.singletonList(poll.getTopic().getId()));
+                session.delete(session.get(Branch.class, poll.getTopic().getBranch().getId()));
+                session.delete(session.get(JCUser.class, poll.getTopic().getTopicStarter().getId()));
+                for (JCUser voter : voters) {
+                    session.delete(session.get(JCUser.class, voter.getId()));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void parallelVotesShouldBeCountedOncePerVoter() throws Exception {
+        final PollItem first = poll.getPollItems().get(0);
+        final PollItem second = poll.getPollItems().get(1);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(VOTERS);
+        List<Future<Boolean>> votes = new ArrayList<>();
+        for (final JCUser voter : voters) {
+            for (int i = 0; i < ATTEMPTS_PER_VOTER; i++) {
+                votes.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        start.await();
+                        return vote(voter, Arrays.asList(first.getId(), second.getId()));
+                    }
+                }));
+            }
+        }
+
+        start.countDown();
+        int acceptedVotes = 0;
+        for (Future<Boolean> vote : votes) {
+            if (vote.get()) {
+                acceptedVotes++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(acceptedVotes, VOTERS);
+        assertEquals(votesCountOf(first), VOTERS);
+        assertEquals(votesCountOf(second), VOTERS);
+        assertEquals(votesCountOf(poll.getPollItems().get(2)), 0);
+    }
+
+    private boolean vote(final JCUser voter, final List<Long> optionIds) {
+        try {
+            return transaction.execute(new TransactionCallback<Boolean>() {
+                @Override
+                public Boolean doInTransaction(TransactionStatus status) {
+                    if (!pollDao.addVote(poll, voter)) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    pollDao.increaseVotesCount(poll, optionIds);
+                    return true;
+                }
+            });
+        } catch (ConstraintViolationException e) {
+            // a parallel ballot of the same voter passed the check first and the primary key rejected this one
+            return false;
+        }
+    }
+
+    private int votesCountOf(final PollItem option) {
+        return transaction.execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                PollItem loaded = (PollItem) sessionFactory.getCurrentSession().get(PollItem.class, option.getId());
+                return loaded.getVotesCount();
+            }
+        });
+    }
+}
@@ -16,9 +16,11 @@ package org.jtalks.jcommune.model.dao.hibernate;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.model.entity.Poll;
+import org.jtalks.jcommune.model.entity.PollItem;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
@@ -28,6 +30,9 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 /**
  * @author Anuar Nurmakanov
  */
@@ -38,7 +43,7 @@ public class PollHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
     @Autowired
     private SessionFactory sessionFactory;
     @Autowired
-    private Crud<Poll> pollDao;
+    private PollDao pollDao;
     private Session session;
 
     @BeforeMethod
@@ -83,4 +88,96 @@ public class PollHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
         Assert.assertNotNull(changedPoll);
         Assert.assertEquals(newTitle, changedPoll.getTitle());
     }
+
+    /*===== Specific methods =====*/
+
+    @Test
+    public void addVoteShouldRecordBallotOfUser() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        session.flush();
+        JCUser user = poll.getTopic().getTopicStarter();
+
+        Assert.assertTrue(pollDao.addVote(poll, user));
+
+        Assert.assertTrue(pollDao.hasVoted(poll, user));
+    }
+
+    @Test
+    public void addVoteShouldNotLetUserVoteTwice() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        session.flush();
+        JCUser user = poll.getTopic().getTopicStarter();
+        pollDao.addVote(poll, user);
+
+        Assert.assertFalse(pollDao.addVote(poll, user));
+    }
+
+    @Test
+    public void userShouldNotHaveVotedInNewPoll() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        session.flush();
+
+        Assert.assertFalse(pollDao.hasVoted(poll, poll.getTopic().getTopicStarter()));
+    }
+
+    @Test
+    public void increaseVotesCountShouldAddVoteToSelectedOptions() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        session.flush();
+        PollItem first = poll.getPollItems().get(0);
+        PollItem second = poll.getPollItems().get(1);
+        PollItem third = poll.getPollItems().get(2);
+
+        pollDao.increaseVotesCount(poll, Arrays.asList(first.getId(), third.getId()));
+        pollDao.increaseVotesCount(poll, Collections.singletonList(first.getId()));
+
+        Assert.assertEquals(votesCountInDatabase(first), 2);
+        Assert.assertEquals(votesCountInDatabase(second), 0);
+        Assert.assertEquals(votesCountInDatabase(third), 1);
+    }
+
+    @Test
+    public void increaseVotesCountShouldChangeLoadedOptions() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        session.flush();
+        PollItem first = poll.getPollItems().get(0);
+        PollItem second = poll.getPollItems().get(1);
+
+        pollDao.increaseVotesCount(poll, Collections.singletonList(first.getId()));
+
+        Assert.assertEquals(first.getVotesCount(), 1);
+        Assert.assertEquals(second.getVotesCount(), 0);
+    }
+
+    @Test
+    public void increaseVotesCountShouldSkipOptionsOfOtherPolls() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        PollItem otherOption = new PollItem("other option");
+        session.save(otherOption);
+        session.flush();
+
+        pollDao.increaseVotesCount(poll, Collections.singletonList(otherOption.getId()));
+        session.refresh(otherOption);
+
+        Assert.assertEquals(otherOption.getVotesCount(), 0);
+    }
+
+    @Test
+    public void savingOptionShouldNotOverwriteVotes() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        session.flush();
+        PollItem option = poll.getPollItems().get(0);
+        pollDao.increaseVotesCount(poll, Collections.singletonList(option.getId()));
+
+        option.setName("renamed");
+        session.saveOrUpdate(option);
+        session.flush();
+
+        Assert.assertEquals(votesCountInDatabase(option), 1);
+    }
+
+    private int votesCountInDatabase(PollItem option) {
+        session.refresh(option);
+        return option.getVotesCount();
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jtalks.jcommune.model.dao.PostDraftDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
+import org.jtalks.jcommune.model.entity.PostDraft;
+import org.jtalks.jcommune.model.entity.Topic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@ContextConfiguration(locations = {"classpath:/org/jtalks/jcommune/model/entity/applicationContext-dao.xml"})
+@TransactionConfiguration(transactionManager = "transactionManager", defaultRollback = true)
+@Transactional
+public class PostDraftHibernateDaoTest extends AbstractTransactionalTestNGSpringContextTests {
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private PostDraftDao dao;
+
+    private Session session;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        session = sessionFactory.getCurrentSession();
+        PersistedObjectsFactory.setSession(session);
+    }
+
+    @Test
+    public void getDraftShouldReturnDraftOfUserInTopic() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser author = topic.getTopicStarter();
+        PostDraft draft = new PostDraft("content", author);
+        topic.addDraft(draft);
+        session.save(draft);
+        session.flush();
+        session.clear();
+
+        PostDraft result = dao.getDraft(topic, author);
+
+        assertEquals(result.getId(), draft.getId());
+        assertEquals(result.getContent(), "content");
+    }
+
+    @Test
+    public void getDraftShouldReturnNullIfUserHasNoDraftInTopic() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        topic.addDraft(new PostDraft("content", topic.getTopicStarter()));
+        session.save(topic);
+        JCUser anotherUser = PersistedObjectsFactory.getUser("another", "another@user.org");
+        session.flush();
+
+        assertNull(dao.getDraft(topic, anotherUser));
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jtalks.jcommune.model.dao.PostDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Changes post count of the same user in parallel transactions, so the data is committed and removed after every
+ * test.
+ */
+@ContextConfiguration(locations = {"classpath:/org/jtalks/jcommune/model/entity/applicationContext-dao.xml"})
+public class PostHibernateDaoConcurrencyTest extends AbstractTestNGSpringContextTests {
+    private static final int THREADS = 8;
+    private static final int POSTS_PER_THREAD = 10;
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private PostDao postDao;
+    private TransactionTemplate transaction;
+    private JCUser author;
+
+    @BeforeMethod
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                PersistedObjectsFactory.setSession(sessionFactory.getCurrentSession());
+                author = PersistedObjectsFactory.getUser("author", "author@mail.com");
+            }
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                Session session = sessionFactory.getCurrentSession();
+                session.delete(session.get(JCUser.class, author.getId()));
+            }
+        });
+    }
+
+    @Test
+    public void parallelPostsOfSameUserShouldNotConflict() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            threads.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    int conflicts = 0;
+                    for (int j = 0; j < POSTS_PER_THREAD; j++) {
+                        try {
+                            increasePostCount();
+                        } catch (OptimisticLockingFailureException e) {
+                            conflicts++;
+                        }
+                    }
+                    return conflicts;
+                }
+            }));
+        }
+
+        start.countDown();
+        int conflicts = 0;
+        for (Future<Integer> thread : threads) {
+            conflicts += thread.get();
+        }
+        executor.shutdown();
+
+        assertEquals(conflicts, 0);
+        JCUser persisted = loadAuthor();
+        assertEquals(persisted.getPostCount(), author.getPostCount() + THREADS * POSTS_PER_THREAD);
+        assertEquals(persisted.getVersion(), author.getVersion());
+    }
+
+    /**
+     * Does to the author what creation of a post does: loads the user, changes the count and flushes the session.
+     */
+    private void increasePostCount() {
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                Session session = sessionFactory.getCurrentSession();
+                JCUser user = (JCUser) session.get(JCUser.class, author.getId());
+                postDao.changePostCountOfAuthor(user, 1);
+                session.flush();
+            }
+        });
+    }
+
+    private JCUser loadAuthor() {
+        return transaction.execute(new TransactionCallback<JCUser>() {
+            @Override
+            public JCUser doInTransaction(TransactionStatus status) {
+                return (JCUser) sessionFactory.getCurrentSession().get(JCUser.class, author.getId());
+            }
+        });
+    }
+}
@@ -291,6 +291,109 @@ public class PostHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
                 "The last post in the branch is the wrong.");
     }
 
+    @Test
+    public void getPostIndexInTopicShouldCountPostsCreatedBefore() {
+        List<Post> posts = PersistedObjectsFactory.createAndSavePostList(4);
+        Post post = posts.get(1);
+        ReflectionTestUtils.setField(posts.get(0), "creationDate", new DateTime(2100, 12, 25, 0, 0, 0, 0));
+        ReflectionTestUtils.setField(post, "creationDate", new DateTime(2100, 12, 26, 0, 0, 0, 0));
+        ReflectionTestUtils.setField(posts.get(2), "creationDate", new DateTime(2100, 12, 27, 0, 0, 0, 0));
+        session.flush();
+
+        // the first post of the topic is created now, so it goes before the others
+        assertEquals(dao.getPostIndexInTopic(posts.get(0)), 1);
+        assertEquals(dao.getPostIndexInTopic(post), 2);
+        assertEquals(dao.getPostIndexInTopic(posts.get(2)), 3);
+    }
+
+    @Test
+    public void getPostIndexInTopicShouldOrderPostsWithSameDateById() {
+        List<Post> posts = PersistedObjectsFactory.createAndSavePostList(3);
+        DateTime creationDate = new DateTime(2100, 12, 25, 0, 0, 0, 0);
+        ReflectionTestUtils.setField(posts.get(0), "creationDate", creationDate);
+        ReflectionTestUtils.setField(posts.get(1), "creationDate", creationDate);
+        session.flush();
+        Post first = posts.get(0).getId() < posts.get(1).getId() ? posts.get(0) : posts.get(1);
+        Post second = first == posts.get(0) ? posts.get(1) : posts.get(0);
+
+        assertEquals(dao.getPostIndexInTopic(first), 1);
+        assertEquals(dao.getPostIndexInTopic(second), 2);
+    }
+
+    @Test
+    public void getRepliesByRatingShouldOrderRepliesByRatingAndThenFromNewest() {
+        List<Post> replies = createRatedReplies();
+        Post firstPost = replies.get(0).getTopic().getFirstPost();
+
+        List<Post> actual = dao.getRepliesByRating(firstPost, 10);
+
+        assertEquals(ids(actual), Arrays.asList(replies.get(2).getId(), replies.get(1).getId(),
+                replies.get(0).getId()));
+    }
+
+    @Test
+    public void getRepliesByRatingShouldReturnNoMoreThanRequestedCount() {
+        List<Post> replies = createRatedReplies();
+        Post firstPost = replies.get(0).getTopic().getFirstPost();
+
+        List<Post> actual = dao.getRepliesByRating(firstPost, 1);
+
+        assertEquals(ids(actual), Arrays.asList(replies.get(2).getId()));
+    }
+
+    @Test
+    public void getFirstPostShouldReturnTheOldestPostOfTopic() {
+        List<Post> posts = PersistedObjectsFactory.createAndSavePostList(3);
+        Topic topic = posts.get(0).getTopic();
+        ReflectionTestUtils.setField(posts.get(1), "creationDate", new DateTime(1900, 12, 25, 0, 0, 0, 0));
+        session.flush();
+
+        assertEquals(dao.getFirstPost(topic).getId(), posts.get(1).getId());
+    }
+
+    @Test
+    public void getPostCountShouldCountAllPostsOfTopic() {
+        List<Post> posts = PersistedObjectsFactory.createAndSavePostList(4);
+
+        assertEquals(dao.getPostCount(posts.get(0).getTopic()), 4);
+    }
+
+    @Test
+    public void getUserPostCountShouldCountOnlyPostsOfSpecifiedUser() {
+        List<Post> posts = PersistedObjectsFactory.createAndSavePostList(4);
+        Topic topic = posts.get(0).getTopic();
+        JCUser otherUser = PersistedObjectsFactory.getUser("other", "other@user.org");
+
+        assertEquals(dao.getUserPostCount(topic, topic.getTopicStarter()), 4);
+        assertEquals(dao.getUserPostCount(topic, otherUser), 0);
+    }
+
+    /**
+     * Creates topic with three replies: the first one with rating 1, the second one is the newest with
+     * rating 1 and the third one with rating 5
+     */
+    private List<Post> createRatedReplies() {
+        List<Post> replies = PersistedObjectsFactory.createAndSavePostList(4);
+        ReflectionTestUtils.setField(replies.get(0), "creationDate", new DateTime(2100, 12, 25, 0, 0, 0, 0));
+        ReflectionTestUtils.setField(replies.get(1), "creationDate", new DateTime(2100, 12, 26, 0, 0, 0, 0));
+        ReflectionTestUtils.setField(replies.get(2), "creationDate", new DateTime(2100, 12, 24, 0, 0, 0, 0));
+        session.flush();
+        dao.changeRating(replies.get(0).getId(), 1);
+        dao.changeRating(replies.get(1).getId(), 1);
+        dao.changeRating(replies.get(2).getId(), 5);
+        // rating is changed in the database only, so posts have to be read again
+        session.clear();
+        return replies;
+    }
+
+    private List<Long> ids(List<Post> posts) {
+        List<Long> ids = new ArrayList<>();
+        for (Post post : posts) {
+            ids.add(post.getId());
+        }
+        return ids;
+    }
+
     @Test
     public void getLastPostsForBranchShouldReturnLatestCreatedPosts() {
         int size = 42;
@@ -416,6 +519,33 @@ public class PostHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
         assertEquals(postFromDb.getRating(), oldRating + 2);
     }
 
+    @Test
+    public void changePostCountOfAuthorShouldChangeCountInDatabaseAndEntity() {
+        JCUser author = PersistedObjectsFactory.getDefaultUser();
+        session.flush();
+
+        dao.changePostCountOfAuthor(author, 2);
+        dao.changePostCountOfAuthor(author, -1);
+
+        assertEquals(author.getPostCount(), 1);
+        flushAndClearSession();
+        assertEquals(((JCUser) session.get(JCUser.class, author.getId())).getPostCount(), 1);
+    }
+
+    @Test
+    public void updateOfAuthorShouldNotOverwritePostCount() {
+        JCUser author = PersistedObjectsFactory.getDefaultUser();
+        session.flush();
+        dao.changePostCountOfAuthor(author, 3);
+        author.setPostCount(0);
+        author.setSignature("signature");
+        session.update(author);
+
+        flushAndClearSession();
+
+        assertEquals(((JCUser) session.get(JCUser.class, author.getId())).getPostCount(), 3);
+    }
+
     @Test
     public void testAddVoteToPost() {
         Post post = PersistedObjectsFactory.getDefaultPost();
@@ -452,6 +582,43 @@ public class PostHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
         assertEquals(result.getVoteDate(), updatedVote.getVoteDate());
     }
 
+    @Test
+    public void getVoteShouldReturnVoteOfUserForPost() {
+        Post post = PersistedObjectsFactory.getDefaultPost();
+        PostVote vote = PersistedObjectsFactory.getDefaultPostVote();
+        post.putVote(vote);
+        session.save(post);
+        flushAndClearSession();
+
+        PostVote result = dao.getVote(post, vote.getUser());
+
+        assertEquals(result, vote);
+    }
+
+    @Test
+    public void getVoteShouldReturnNullIfUserHasNotVotedForPost() {
+        Post post = PersistedObjectsFactory.getDefaultPost();
+        post.putVote(PersistedObjectsFactory.getDefaultPostVote());
+        session.save(post);
+        flushAndClearSession();
+
+        assertNull(dao.getVote(post, post.getUserCreated()));
+    }
+
+    @Test
+    public void saveVoteShouldAddVoteToPost() {
+        Post post = PersistedObjectsFactory.getDefaultPost();
+        PostVote vote = PersistedObjectsFactory.getDefaultPostVote();
+        vote.setPost(post);
+
+        dao.saveVote(vote);
+        flushAndClearSession();
+        Post postFromDb = (Post) session.get(Post.class, post.getId());
+
+        assertEquals(postFromDb.getVotes().size(), 1);
+        assertTrue(postFromDb.getVotes().contains(vote));
+    }
+
     @Test
     public void testOrphanVotesRemoving() {
         Post post = PersistedObjectsFactory.getDefaultPost();
@@ -17,6 +17,7 @@ package org.jtalks.jcommune.model.dao.hibernate;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.ObjectsFactory;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
@@ -31,9 +32,14 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
 import org.springframework.test.context.transaction.TransactionConfiguration;
 import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
@@ -67,6 +73,11 @@ public class PrivateMessageHibernateDaoTest extends AbstractTransactionalTestNGS
         PersistedObjectsFactory.setSession(session);
     }
 
+    @AfterMethod
+    public void tearDown() {
+        sessionFactory.getStatistics().setStatisticsEnabled(false);
+    }
+
     @Test
     public void testSave() {
         PrivateMessage pm = getSavedPm();
@@ -721,6 +732,176 @@ public class PrivateMessageHibernateDaoTest extends AbstractTransactionalTestNGS
         assertEquals(count, 1);
     }
 
+    @Test
+    public void testDeleteDraftsExecutesOneStatement() {
+        saveMessagesWithDifferentStatus();
+        PrivateMessage otherDraft = PersistedObjectsFactory.createAndSaveMessage(PrivateMessageStatus.DRAFT,
+                author, recipient);
+
+        Statistics statistics = startCountingStatements();
+        int deleted = dao.deleteDrafts(author, idsOf(draftPm, notReadPm, otherDraft));
+
+        assertEquals(statistics.getPrepareStatementCount(), 1);
+        assertEquals(deleted, 1);
+        assertNull(reload(draftPm));
+        assertEquals(reload(notReadPm).getStatus(), PrivateMessageStatus.SENT);
+        assertEquals(reload(otherDraft).getStatus(), PrivateMessageStatus.DRAFT);
+    }
+
+    @Test
+    public void testDeleteFromOutboxExecutesTwoStatementsForAnyNumberOfMessages() {
+        saveMessagesWithDifferentStatus();
+        List<PrivateMessage> sent = saveMessages(PrivateMessageStatus.SENT, 10);
+        List<PrivateMessage> deletedFromInbox = saveMessages(PrivateMessageStatus.DELETED_FROM_INBOX, 10);
+        List<PrivateMessage> messages = new ArrayList<>(sent);
+        messages.addAll(deletedFromInbox);
+
+        Statistics statistics = startCountingStatements();
+        List<Long> ids = idsOf(messages.toArray(new PrivateMessage[messages.size()]));
+        int removed = dao.deleteRemovedByRecipient(author, ids);
+        removed += dao.markAsDeletedFromOutbox(author, ids);
+
+        assertEquals(statistics.getPrepareStatementCount(), 2);
+        assertEquals(removed, 20);
+        for (PrivateMessage message : sent) {
+            assertEquals(reload(message).getStatus(), PrivateMessageStatus.DELETED_FROM_OUTBOX);
+        }
+        for (PrivateMessage message : deletedFromInbox) {
+            assertNull(reload(message));
+        }
+        assertEquals(reload(notReadPm).getStatus(), PrivateMessageStatus.SENT);
+    }
+
+    @Test
+    public void testDeleteFromOutboxIgnoresMessagesOfOtherUsers() {
+        saveMessagesWithDifferentStatus();
+
+        List<Long> ids = idsOf(notReadPm, readPm, draftPm);
+        int removed = dao.deleteRemovedByRecipient(recipient, ids);
+        removed += dao.markAsDeletedFromOutbox(recipient, ids);
+
+        assertEquals(removed, 0);
+        assertEquals(reload(notReadPm).getStatus(), PrivateMessageStatus.SENT);
+        assertEquals(reload(draftPm).getStatus(), PrivateMessageStatus.DRAFT);
+    }
+
+    @Test
+    public void testDeleteFromInboxExecutesTwoStatementsForAnyNumberOfMessages() {
+        saveMessagesWithDifferentStatus();
+        List<PrivateMessage> deletedFromOutbox = saveMessages(PrivateMessageStatus.DELETED_FROM_OUTBOX, 10);
+        List<PrivateMessage> messages = new ArrayList<>(deletedFromOutbox);
+        messages.add(notReadPm);
+        messages.add(readPm);
+        messages.add(draftPm);
+
+        Statistics statistics = startCountingStatements();
+        List<Long> ids = idsOf(messages.toArray(new PrivateMessage[messages.size()]));
+        int removed = dao.deleteRemovedBySender(recipient, ids);
+        removed += dao.markAsDeletedFromInbox(recipient, ids);
+
+        assertEquals(statistics.getPrepareStatementCount(), 2);
+        assertEquals(removed, 12);
+        for (PrivateMessage message : deletedFromOutbox) {
+            assertNull(reload(message));
+        }
+        assertEquals(reload(notReadPm).getStatus(), PrivateMessageStatus.DELETED_FROM_INBOX);
+        assertEquals(reload(readPm).getStatus(), PrivateMessageStatus.DELETED_FROM_INBOX);
+        assertEquals(reload(draftPm).getStatus(), PrivateMessageStatus.DRAFT);
+    }
+
+    @Test
+    public void testDeleteWholeInboxExecutesTwoStatements() {
+        saveMessagesWithDifferentStatus();
+        saveMessages(PrivateMessageStatus.DELETED_FROM_OUTBOX, 10);
+
+        Statistics statistics = startCountingStatements();
+        int removed = dao.deleteRemovedBySender(recipient, null);
+        removed += dao.markAsDeletedFromInbox(recipient, null);
+
+        assertEquals(statistics.getPrepareStatementCount(), 2);
+        assertEquals(removed, 12);
+        assertEquals(reload(draftPm).getStatus(), PrivateMessageStatus.DRAFT);
+    }
+
+    @Test
+    public void testDeleteWithEmptyIdsExecutesNoStatements() {
+        saveMessagesWithDifferentStatus();
+
+        Statistics statistics = startCountingStatements();
+        int removed = dao.deleteRemovedBySender(recipient, Collections.<Long>emptyList());
+        removed += dao.markAsDeletedFromInbox(recipient, Collections.<Long>emptyList());
+
+        assertEquals(statistics.getPrepareStatementCount(), 0);
+        assertEquals(removed, 0);
+    }
+
+    @Test
+    public void testDeleteMessageSentToOneselfMarksItAsRemovedFromOutboxOnly() {
+        saveMessagesWithDifferentStatus();
+        PrivateMessage toOneself = ObjectsFactory.getPrivateMessage(author, author);
+        toOneself.setStatus(PrivateMessageStatus.SENT);
+        session.save(toOneself);
+        List<Long> ids = idsOf(toOneself, notReadPm);
+
+        int removed = dao.deleteRemovedByRecipient(author, ids);
+        removed += dao.deleteRemovedBySender(author, ids);
+        removed += dao.markAsDeletedFromOutbox(author, ids);
+        removed += dao.markAsDeletedFromInbox(author, ids);
+
+        assertEquals(removed, 2);
+        assertEquals(reload(toOneself).getStatus(), PrivateMessageStatus.DELETED_FROM_OUTBOX);
+        assertEquals(reload(notReadPm).getStatus(), PrivateMessageStatus.DELETED_FROM_OUTBOX);
+    }
+
+    @Test
+    public void testDeleteMessageSentToOneselfAndRemovedFromOutboxDeletesIt() {
+        saveMessagesWithDifferentStatus();
+        PrivateMessage toOneself = ObjectsFactory.getPrivateMessage(author, author);
+        toOneself.setStatus(PrivateMessageStatus.DELETED_FROM_OUTBOX);
+        session.save(toOneself);
+        List<Long> ids = idsOf(toOneself);
+
+        int removed = dao.deleteRemovedByRecipient(author, ids);
+        removed += dao.deleteRemovedBySender(author, ids);
+        removed += dao.markAsDeletedFromOutbox(author, ids);
+        removed += dao.markAsDeletedFromInbox(author, ids);
+
+        assertEquals(removed, 1);
+        assertNull(reload(toOneself));
+    }
+
+    @Test
+    public void testMarkAsReadExecutesOneStatement() {
+        saveMessagesWithDifferentStatus();
+        List<PrivateMessage> unread = saveMessages(PrivateMessageStatus.DELETED_FROM_OUTBOX, 10);
+        List<PrivateMessage> messages = new ArrayList<>(unread);
+        messages.add(notReadPm);
+        messages.add(readPm);
+        messages.add(draftPm);
+
+        Statistics statistics = startCountingStatements();
+        int marked = dao.markAsRead(recipient, idsOf(messages.toArray(new PrivateMessage[messages.size()])));
+
+        assertEquals(statistics.getPrepareStatementCount(), 1);
+        assertEquals(marked, 11);
+        assertTrue(reload(notReadPm).isRead());
+        assertFalse(reload(draftPm).isRead());
+        assertEquals(dao.getNewMessagesCountFor(recipient.getUsername()), 0);
+    }
+
+    @Test
+    public void testMarkWholeInboxAsReadExecutesOneStatement() {
+        saveMessagesWithDifferentStatus();
+        saveMessages(PrivateMessageStatus.SENT, 10);
+
+        Statistics statistics = startCountingStatements();
+        int marked = dao.markAsRead(recipient, null);
+
+        assertEquals(statistics.getPrepareStatementCount(), 1);
+        assertEquals(marked, 11);
+        assertEquals(dao.getNewMessagesCountFor(recipient.getUsername()), 0);
+    }
+
     private void saveMessagesWithDifferentStatus() {
         author = ObjectsFactory.getUser("author", "author@aaa.com");
         recipient = ObjectsFactory.getUser("recipient", "recipient@aaa.com");
@@ -739,6 +920,44 @@ public class PrivateMessageHibernateDaoTest extends AbstractTransactionalTestNGS
         session.save(draftPm);
     }
 
+    private List<PrivateMessage> saveMessages(PrivateMessageStatus status, int count) {
+        List<PrivateMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PrivateMessage pm = ObjectsFactory.getPrivateMessage(recipient, author);
+            pm.setStatus(status);
+            session.save(pm);
+            messages.add(pm);
+        }
+        return messages;
+    }
+
+    private List<Long> idsOf(PrivateMessage... messages) {
+        List<Long> ids = new ArrayList<>();
+        for (PrivateMessage message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Flushes pending changes and starts counting of the statements from zero.
+     */
+    private Statistics startCountingStatements() {
+        session.flush();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    /**
+     * Reads message from the database bypassing the state of the session.
+     */
+    private PrivateMessage reload(PrivateMessage message) {
+        session.clear();
+        return (PrivateMessage) session.get(PrivateMessage.class, message.getId());
+    }
+
     /**
      * Count the number of PrivateMessage in the db.
      */
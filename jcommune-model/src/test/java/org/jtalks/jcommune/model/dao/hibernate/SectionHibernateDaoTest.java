@@ -33,7 +33,9 @@ import org.testng.annotations.Test;
 
 import javax.validation.ConstraintViolationException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.testng.Assert.*;
 import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
@@ -226,46 +228,74 @@ public class SectionHibernateDaoTest extends AbstractTransactionalTestNGSpringCo
     }
 
     @Test
-    public void testGetCountAvailableBranches() {
+    public void getVisibleBranchIdsOfSectionsShouldGroupGrantedBranchesBySections() {
+        Group group = PersistedObjectsFactory.group("group");
+        Group restrictedGroup = PersistedObjectsFactory.group("restricted");
         JCUser user = ObjectsFactory.getDefaultUser();
-        assertTrue(dao.getCountAvailableBranches(user,
-                new ArrayList<org.jtalks.common.model.entity.Branch>()) == 0);
-        user.setGroups(new ArrayList<Group>());
-
-        List<Branch> branches = ObjectsFactory.getDefaultBranchList();
-        assertTrue(dao.getCountAvailableBranches(user,
-                new ArrayList<org.jtalks.common.model.entity.Branch>(branches)) == 0);
-
-
-        List<Group> groups = ObjectsFactory.getDefaultGroupList();
-        user.setGroups(groups);
-        assertTrue(dao.getCountAvailableBranches(user,
-                new ArrayList<org.jtalks.common.model.entity.Branch>(branches)) == 0);
-        assertTrue(dao.getCountAvailableBranches(new AnonymousUser(),
-                new ArrayList<org.jtalks.common.model.entity.Branch>(branches)) == 0);
+        user.setGroups(Arrays.asList(group, restrictedGroup));
+        Section first = sectionWithBranches(2);
+        Section second = sectionWithBranches(2);
+        grant(first.getBranches().get(0), group, true);
+        grant(second.getBranches().get(0), group, true);
+        grant(second.getBranches().get(1), group, true);
+        grant(second.getBranches().get(1), restrictedGroup, false);
+
+        Map<Long, List<Long>> visible = dao.getVisibleBranchIdsOfSections(user);
+
+        assertEquals(visible.size(), 2);
+        assertEquals(visible.get(first.getId()), Arrays.asList(first.getBranches().get(0).getId()));
+        assertEquals(visible.get(second.getId()), Arrays.asList(second.getBranches().get(0).getId()));
     }
 
     @Test
-    public void getAvailableBranchIdsShouldReturnEmptyListForEmptyBranchList() {
+    public void getVisibleBranchIdsOfSectionsShouldNotIncludeSectionsWithoutVisibleBranches() {
+        Group group = PersistedObjectsFactory.group("group");
         JCUser user = ObjectsFactory.getDefaultUser();
-        assertEquals(dao.getAvailableBranchIds(user,
-                new ArrayList<org.jtalks.common.model.entity.Branch>()).size(), 0);
+        user.setGroups(Arrays.asList(group));
+        Section section = sectionWithBranches(1);
+        grant(section.getBranches().get(0), group, false);
+
+        assertTrue(dao.getVisibleBranchIdsOfSections(user).isEmpty());
     }
 
     @Test
-    public void getAvailableBranchIdsShouldReturnEmptyListWhenUserHasNoGroupAssigned() {
+    public void getVisibleBranchIdsOfSectionsShouldReturnEmptyMapWhenUserHasNoGroupAssigned() {
         JCUser user = ObjectsFactory.getDefaultUser();
         user.setGroups(new ArrayList<Group>());
-        List<Branch> branches = ObjectsFactory.getDefaultBranchList();
-        assertEquals(dao.getAvailableBranchIds(user,
-                new ArrayList<org.jtalks.common.model.entity.Branch>(branches)).size(), 0);
+        Section section = sectionWithBranches(1);
+        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(
+                section.getBranches().get(0).getId(), "anonymousUser", true);
+
+        assertTrue(dao.getVisibleBranchIdsOfSections(user).isEmpty());
     }
 
     @Test
-    public void getAvailableBranchIdsShouldReturnEmptyListWhenAnonymousUserHasNoGroupAssigned() {
-        List<Branch> branches = ObjectsFactory.getDefaultBranchList();
-        assertEquals(dao.getAvailableBranchIds(new AnonymousUser(),
-                new ArrayList<org.jtalks.common.model.entity.Branch>(branches)).size(), 0);
+    public void getVisibleBranchIdsOfSectionsShouldReturnBranchesGrantedToAnonymousUser() {
+        Section section = sectionWithBranches(2);
+        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(
+                section.getBranches().get(1).getId(), "anonymousUser", true);
+
+        Map<Long, List<Long>> visible = dao.getVisibleBranchIdsOfSections(new AnonymousUser());
+
+        assertEquals(visible.size(), 1);
+        assertEquals(visible.get(section.getId()), Arrays.asList(section.getBranches().get(1).getId()));
+    }
+
+    private Section sectionWithBranches(int branchCount) {
+        Section section = ObjectsFactory.getDefaultSection();
+        for (int i = 0; i < branchCount; i++) {
+            Branch branch = ObjectsFactory.getDefaultBranch();
+            branch.setSection(section);
+            section.addOrUpdateBranch(branch);
+        }
+        dao.saveOrUpdate(section);
+        session.flush();
+        return section;
+    }
+
+    private void grant(org.jtalks.common.model.entity.Branch branch, Group group, boolean granting) {
+        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(
+                branch.getId(), String.valueOf(group.getId()), granting);
     }
 
     private int getSectionCount() {
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
+import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
+import org.jtalks.jcommune.model.entity.Topic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@ContextConfiguration(locations = {"classpath:/org/jtalks/jcommune/model/entity/applicationContext-dao.xml"})
+@TransactionConfiguration(transactionManager = "transactionManager", defaultRollback = true)
+@Transactional
+public class SubscriptionHibernateDaoTest extends AbstractTransactionalTestNGSpringContextTests {
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private SubscriptionDao subscriptionDao;
+    private Session session;
+
+    @BeforeMethod
+    public void setUp() {
+        session = sessionFactory.getCurrentSession();
+        PersistedObjectsFactory.setSession(session);
+    }
+
+    @Test
+    public void addSubscriberShouldSubscribeUserToTopic() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+
+        assertTrue(subscriptionDao.addSubscriber(topic, user));
+
+        assertTrue(subscriptionDao.isSubscribed(topic, user));
+        assertEquals(subscriptionDao.getSubscribersCount(topic), 1);
+        session.refresh(topic);
+        assertTrue(topic.getSubscribers().contains(user));
+    }
+
+    @Test
+    public void addSubscriberShouldNotSubscribeUserTwice() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+        subscriptionDao.addSubscriber(topic, user);
+
+        assertFalse(subscriptionDao.addSubscriber(topic, user));
+
+        assertEquals(subscriptionDao.getSubscribersCount(topic), 1);
+    }
+
+    @Test
+    public void addSubscriberShouldSubscribeUserToTopicOfPost() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+
+        subscriptionDao.addSubscriber(topic.getFirstPost(), user);
+
+        assertTrue(subscriptionDao.isSubscribed(topic, user));
+        assertTrue(subscriptionDao.isSubscribed(topic.getFirstPost(), user));
+    }
+
+    @Test
+    public void addSubscriberShouldSubscribeUserToBranch() {
+        Branch branch = PersistedObjectsFactory.getDefaultBranch();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+
+        assertTrue(subscriptionDao.addSubscriber(branch, user));
+
+        assertTrue(subscriptionDao.isSubscribed(branch, user));
+        assertEquals(subscriptionDao.getSubscribersCount(branch), 1);
+    }
+
+    @Test
+    public void addSubscriberShouldSeeSubscriptionsMadeThroughSession() {
+        Branch branch = PersistedObjectsFactory.getDefaultBranch();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+        branch.getSubscribers().add(user);
+        session.saveOrUpdate(branch);
+
+        assertFalse(subscriptionDao.addSubscriber(branch, user));
+    }
+
+    @Test
+    public void removeSubscriberShouldUnsubscribeOnlyTheUser() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+        JCUser otherUser = PersistedObjectsFactory.getUser("other", "other@mail.com");
+        subscriptionDao.addSubscriber(topic, user);
+        subscriptionDao.addSubscriber(topic, otherUser);
+
+        assertTrue(subscriptionDao.removeSubscriber(topic, user));
+
+        assertFalse(subscriptionDao.isSubscribed(topic, user));
+        assertTrue(subscriptionDao.isSubscribed(topic, otherUser));
+    }
+
+    @Test
+    public void removeSubscriberShouldReturnFalseIfUserIsNotSubscribed() {
+        Branch branch = PersistedObjectsFactory.getDefaultBranch();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+
+        assertFalse(subscriptionDao.removeSubscriber(branch, user));
+    }
+
+    @Test
+    public void subscriptionsShouldBeCheckedWithoutLoadingSubscribers() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser user = PersistedObjectsFactory.getUser("subscriber", "subscriber@mail.com");
+        subscriptionDao.addSubscriber(topic, user);
+        session.clear();
+        Topic loadedTopic = (Topic) session.get(Topic.class, topic.getId());
+
+        subscriptionDao.isSubscribed(loadedTopic, user);
+        subscriptionDao.getSubscribersCount(loadedTopic);
+
+        assertFalse(Hibernate.isInitialized(loadedTopic.getSubscribers()));
+    }
+}
@@ -32,6 +32,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -650,6 +652,96 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
         assertNull(result);
     }
 
+    @Test
+    public void getTopicIdsInBranchShouldReturnIdsAfterSpecifiedOne() {
+        List<Topic> topics = PersistedObjectsFactory.createAndSaveTopicList(3);
+        Branch branch = topics.get(0).getBranch();
+        List<Long> ids = new ArrayList<>();
+        for (Topic topic : topics) {
+            ids.add(topic.getId());
+        }
+        Collections.sort(ids);
+
+        assertEquals(dao.getTopicIdsInBranch(branch, 0, 2), ids.subList(0, 2));
+        assertEquals(dao.getTopicIdsInBranch(branch, ids.get(1), 2), ids.subList(2, 3));
+        assertTrue(dao.getTopicIdsInBranch(branch, ids.get(2), 2).isEmpty());
+    }
+
+    @Test
+    public void deleteTopicsShouldDeleteTopicWithAllRelatedData() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        Post post = topic.getFirstPost();
+        JCUser author = post.getUserCreated();
+        session.createSQLQuery("UPDATE JC_USER_DETAILS SET POST_COUNT = POST_COUNT + 5 WHERE USER_ID = :userId")
+                .setLong("userId", author.getId()).executeUpdate();
+        PostComment comment = new PostComment();
+        comment.setAuthor(author);
+        comment.setBody("comment");
+        comment.setCreationDate(new DateTime());
+        post.addComment(comment);
+        PostVote vote = PersistedObjectsFactory.getDefaultPostVote();
+        post.putVote(vote);
+        PostDraft draft = new PostDraft("draft", author);
+        topic.addDraft(draft);
+        topic.getSubscribers().add(author);
+        Poll poll = new Poll("poll");
+        List<PollItem> pollItems = new ArrayList<>();
+        pollItems.add(new PollItem("item"));
+        poll.setPollItems(pollItems);
+        poll.setTopic(topic);
+        topic.setPoll(poll);
+        LastReadPost lastReadPost = new LastReadPost(author, topic, new DateTime());
+        Branch branch = topic.getBranch();
+        branch.setLastPost(post);
+        session.save(topic);
+        session.save(lastReadPost);
+        session.flush();
+        session.getNamedQuery("addPollVote").setLong("pollId", poll.getId())
+                .setLong("userId", author.getId()).executeUpdate();
+
+        int deletedPosts = dao.deleteTopics(Arrays.asList(topic.getId()));
+        flushAndClearSession();
+
+        assertEquals(deletedPosts, 1);
+        assertNull(session.get(Topic.class, topic.getId()));
+        assertNull(session.get(Post.class, post.getId()));
+        assertNull(session.get(PostComment.class, comment.getId()));
+        assertNull(session.get(PostVote.class, vote.getId()));
+        assertNull(session.get(PostDraft.class, draft.getId()));
+        assertNull(session.get(Poll.class, poll.getId()));
+        assertEquals(((Number) session.getNamedQuery("hasPollVote").setLong("pollId", poll.getId())
+                .setLong("userId", author.getId()).uniqueResult()).intValue(), 0);
+        assertNull(session.get(LastReadPost.class, lastReadPost.getId()));
+        assertNull(((Branch) session.get(Branch.class, branch.getId())).getLastPost());
+        assertEquals(((JCUser) session.get(JCUser.class, author.getId())).getPostCount(), 4);
+    }
+
+    @Test
+    public void deleteTopicsShouldNotAffectOtherTopics() {
+        List<Topic> topics = PersistedObjectsFactory.createAndSaveTopicList(2);
+        JCUser author = topics.get(0).getTopicStarter();
+        session.createSQLQuery("UPDATE JC_USER_DETAILS SET POST_COUNT = POST_COUNT + 2 WHERE USER_ID = :userId")
+                .setLong("userId", author.getId()).executeUpdate();
+        session.flush();
+
+        dao.deleteTopics(Arrays.asList(topics.get(0).getId()));
+        flushAndClearSession();
+
+        assertNull(session.get(Topic.class, topics.get(0).getId()));
+        Topic otherTopic = (Topic) session.get(Topic.class, topics.get(1).getId());
+        assertNotNull(otherTopic);
+        assertEquals(otherTopic.getPosts().size(), 1);
+        assertEquals(((JCUser) session.get(JCUser.class, author.getId())).getPostCount(), 1);
+    }
+
+    @Test
+    public void deleteTopicsShouldDoNothingForEmptyIds() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+
+        assertEquals(dao.deleteTopics(Collections.<Long>emptyList()), 0);
+        assertNotNull(session.get(Topic.class, topic.getId()));
+    }
+
     private void flushAndClearSession() {
         session.flush();
         session.clear();
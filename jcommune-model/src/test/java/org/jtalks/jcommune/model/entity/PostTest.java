@@ -38,11 +38,6 @@ public class PostTest {
         topic.addPost(post);
     }
 
-    @Test
-    public void testGetPostIndex() {
-        assertEquals(0, post.getPostIndexInTopic());
-    }
-
     @Test
     public void testUpdatePostModificationDate() throws InterruptedException {
         post.updateModificationDate();
@@ -39,4 +39,15 @@ public interface PluginBbCodeService {
      * @return the same text with HTML markup to be shown
      */
     String convertBbToHtml(String bbEncodedText);
+
+    /**
+     * Checks whether bb-codes of the text are nested deeper than
+     * {@link org.jtalks.jcommune.plugin.api.web.validation.annotations.BbCodeNesting#DEFAULT_MAX_NESTING_VALUE}.
+     * The check is a by-product of converting the text into HTML, so the text isn't parsed once again when it's
+     * rendered during the same request.
+     *
+     * @param bbEncodedText string with BB-style markup
+     * @return true if bb-codes are nested too deep, false otherwise
+     */
+    boolean isNestingTooDeep(String bbEncodedText);
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.api.service;
+
+import java.util.Collection;
+
+/**
+ * Answers permission checks of the current user made while a page is rendered. Results are kept for the rest of
+ * the request, so a check repeated for every post of a page is evaluated only once.
+ */
+public interface PluginPermissionResolver {
+
+    /**
+     * Checks if current user has specified permission on specified target
+     *
+     * @param targetId   id of the target
+     * @param targetType type of the target. Example - "BRANCH"
+     * @param permission permission to be checked. Example - "BranchPermission.CREATE_POSTS"
+     * @return true if user have specified permission, false otherwise or if there is no user authenticated
+     */
+    boolean hasPermission(Long targetId, String targetType, String permission);
+
+    /**
+     * Evaluates all the specified permissions of current user on all the specified targets at once, loading the
+     * access control lists they need in a single query. Meant to be called before a page is rendered, so that
+     * {@link #hasPermission(Long, String, String)} calls made by the page are answered without further queries.
+     *
+     * @param targetIds   ids of the targets
+     * @param targetType  type of the targets. Example - "BRANCH"
+     * @param permissions permissions to be evaluated. Example - "BranchPermission.CREATE_POSTS"
+     */
+    void resolvePermissions(Collection<Long> targetIds, String targetType, Collection<String> permissions);
+}
@@ -14,10 +14,13 @@
  */
 package org.jtalks.jcommune.plugin.api.service;
 
+import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.PostComment;
+import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -65,4 +68,43 @@ public interface PluginPostService {
      */
     PostComment addComment(Long postId, Map<String, String> attributes, String body) throws NotFoundException;
 
+    /**
+     * Gets replies to the first post of the topic ordered by rating, the newest replies go first
+     * among replies with the same rating. Sorting and limiting are done by database.
+     *
+     * @param firstPost first post of the topic, it's not included into result
+     * @param count max count of replies to return
+     *
+     * @return replies with the highest rating
+     */
+    List<Post> getRepliesByRating(Post firstPost, int count);
+
+    /**
+     * Gets the first post of the topic, other posts of the topic are not loaded
+     *
+     * @param topic topic to get the first post of
+     *
+     * @return the first post of the topic
+     */
+    Post getFirstPost(Topic topic);
+
+    /**
+     * Gets count of posts in the topic, posts are counted by database
+     *
+     * @param topic topic to count posts of
+     *
+     * @return count of posts in the topic including the first one
+     */
+    int getPostCount(Topic topic);
+
+    /**
+     * Gets count of posts left by the user in the topic, posts are counted by database
+     *
+     * @param topic topic to count posts of
+     * @param user author of the posts
+     *
+     * @return count of posts of the user in the topic
+     */
+    int getUserPostCount(Topic topic, JCUser user);
+
 }
@@ -42,4 +42,14 @@ public interface PluginTopicFetchService {
      */
     void checkViewTopicPermission(Long branchId);
 
+    /**
+     * Checks whether current user is subscribed to the topic. Subscription is looked up in database,
+     * so subscribers of the topic are not loaded
+     *
+     * @param topic topic to check
+     *
+     * @return true if current user is subscribed to the topic
+     */
+    boolean isSubscribed(Topic topic);
+
 }
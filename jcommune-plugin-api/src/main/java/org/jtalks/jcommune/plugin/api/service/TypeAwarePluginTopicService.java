@@ -62,6 +62,15 @@ public interface TypeAwarePluginTopicService {
      */
     void checkViewTopicPermission(Long branchId);
 
+    /**
+     * Checks whether current user is subscribed to the topic without loading subscribers of the topic
+     *
+     * @param topic topic to check
+     *
+     * @return true if current user is subscribed to the topic
+     */
+    boolean isSubscribed(Topic topic);
+
     /**
      * Closes topic so no one can add new post until it's not open again.
      * For the topic already closed does nothing.
@@ -60,6 +60,14 @@ public class BbToHtmlConverter implements PluginBbCodeService {
         return bbCodeService.convertBbToHtml(post);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNestingTooDeep(String bbEncodedText) {
+        return bbCodeService.isNestingTooDeep(bbEncodedText);
+    }
+
     /**
      * Sets bb-code service. Should be used once, during initialization
      *
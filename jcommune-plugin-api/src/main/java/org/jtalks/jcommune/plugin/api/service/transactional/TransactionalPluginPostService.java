@@ -15,11 +15,14 @@
 
 package org.jtalks.jcommune.plugin.api.service.transactional;
 
+import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.PostComment;
+import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.plugin.api.service.PluginPostService;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -76,6 +79,38 @@ public class TransactionalPluginPostService implements PluginPostService {
         return postService.addComment(postId, attributes, body);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Post> getRepliesByRating(Post firstPost, int count) {
+        return postService.getRepliesByRating(firstPost, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Post getFirstPost(Topic topic) {
+        return postService.getFirstPost(topic);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPostCount(Topic topic) {
+        return postService.getPostCount(topic);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getUserPostCount(Topic topic, JCUser user) {
+        return postService.getUserPostCount(topic, user);
+    }
+
     /**
      * Sets specified post service. Should be used once, during initialization
      *
@@ -124,6 +124,14 @@ public class TransactionalTypeAwarePluginTopicService implements TypeAwarePlugin
         topicFetchService.checkViewTopicPermission(branchId);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSubscribed(Topic topic) {
+        return topicFetchService.isSubscribed(topic);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -32,6 +32,11 @@ import java.lang.annotation.*;
  */
 public @interface BbCodeNesting {
 
+    /**
+     * Nesting limit used when no other is specified, bb-code service checks texts against this one
+     */
+    int DEFAULT_MAX_NESTING_VALUE = 50;
+
     String message() default "{validation.bbcode.not_nesting}";
 
     /**
@@ -47,6 +52,6 @@ public @interface BbCodeNesting {
     /**
      * maximum level of BB-code nesting
      */
-    int maxNestingValue() default 50;
+    int maxNestingValue() default DEFAULT_MAX_NESTING_VALUE;
 
 }
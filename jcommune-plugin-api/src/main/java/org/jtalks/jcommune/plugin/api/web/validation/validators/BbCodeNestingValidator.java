@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.plugin.api.web.validation.validators;
 
 
+import org.jtalks.jcommune.plugin.api.service.PluginBbCodeService;
 import org.jtalks.jcommune.plugin.api.web.validation.annotations.BbCodeNesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,22 +29,47 @@ import org.kefirsf.bb.ConfigurationFactory;
 import org.kefirsf.bb.TextProcessor;
 import org.kefirsf.bb.TextProcessorNestingException;
 import org.kefirsf.bb.conf.Configuration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 
 /**
  * Checked nesting bb code level (maxNestingValue). This is required because our BB-code processor uses recursion for
  * parsing and if we have a deep nesting, we'll run into StackOverflow error. Thus before posting something, we check
  * whether the nesting of BB-codes is not too deep.
+ * <p/>
+ * With the default limit the check is delegated to the bb-code service which finds out the nesting while converting
+ * the text to HTML, so previews and other renderings of the same text in the request don't parse it again. Own
+ * processor is used only for other limits or when there is no bb-code service.
  */
 public class BbCodeNestingValidator implements ConstraintValidator<BbCodeNesting, String> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BbCodeNestingValidator.class);
+    private PluginBbCodeService bbCodeService;
     private TextProcessor processor;
 
+    /**
+     * Creates validator which parses texts with its own processor.
+     */
+    public BbCodeNestingValidator() {
+    }
+
+    /**
+     * @param bbCodeService to check nesting as a part of the conversion of a text to HTML
+     */
+    @Autowired
+    public BbCodeNestingValidator(@Qualifier("bbCodeService") PluginBbCodeService bbCodeService) {
+        this.bbCodeService = bbCodeService;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void initialize(BbCodeNesting constraintAnnotation) {
+        if (bbCodeService != null
+                && constraintAnnotation.maxNestingValue() == BbCodeNesting.DEFAULT_MAX_NESTING_VALUE) {
+            return;
+        }
         Configuration kefirBbConfig = ConfigurationFactory.getInstance().create();
         kefirBbConfig.setPropagateNestingException(true);
         kefirBbConfig.setNestingLimit(constraintAnnotation.maxNestingValue());
@@ -58,12 +84,21 @@ public class BbCodeNestingValidator implements ConstraintValidator<BbCodeNesting
         if (StringUtils.isEmpty(value)) {
             return true;
         }
+        if (processor == null) {
+            return logIfInvalid(!bbCodeService.isNestingTooDeep(value), value);
+        }
         try {
             processor.process(value);
             return true;
         } catch (TextProcessorNestingException e) {
+            return logIfInvalid(false, value);
+        }
+    }
+
+    private boolean logIfInvalid(boolean valid, String value) {
+        if (!valid) {
             LOGGER.warn("Too deep bb-code nesting: " + value);
-            return false;
         }
+        return valid;
     }
 }
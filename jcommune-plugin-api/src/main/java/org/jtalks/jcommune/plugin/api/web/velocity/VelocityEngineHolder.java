@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.api.web.velocity;
+
+import org.apache.velocity.app.VelocityEngine;
+
+import java.util.Properties;
+
+/**
+ * Creates a velocity engine on first use and shares it between requests, so plugin templates are parsed only once.
+ * Properties are asked for when the engine is created, because plugins know where their jars are only after they
+ * are configured.
+ */
+public abstract class VelocityEngineHolder {
+    private volatile VelocityEngine engine;
+
+    /**
+     * @return initialized velocity engine
+     */
+    public VelocityEngine getEngine() {
+        VelocityEngine result = engine;
+        if (result == null) {
+            synchronized (this) {
+                result = engine;
+                if (result == null) {
+                    result = new VelocityEngine(getProperties());
+                    result.init();
+                    engine = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the engine, the next call of {@link #getEngine()} creates a new one with actual properties.
+     */
+    public void reset() {
+        engine = null;
+    }
+
+    /**
+     * @return properties to create the engine with
+     */
+    protected abstract Properties getProperties();
+}
@@ -14,10 +14,8 @@
  */
 package org.jtalks.jcommune.plugin.api.web.velocity.tool;
 
-import org.jtalks.common.service.security.SecurityContextFacade;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.springframework.context.ApplicationContext;
-import org.springframework.security.access.PermissionEvaluator;
-import org.springframework.security.core.Authentication;
 
 /**
  * Custom tool to check if user have any permission inside velocity template
@@ -25,12 +23,10 @@ import org.springframework.security.core.Authentication;
  * @author Mikhail Stryzhonok
  */
 public class PermissionTool {
-    private PermissionEvaluator aclEvaluator;
-    private SecurityContextFacade securityContextFacade;
+    private PluginPermissionResolver permissionResolver;
 
     public PermissionTool(ApplicationContext ctx) {
-        aclEvaluator = ctx.getBean(PermissionEvaluator.class);
-        securityContextFacade = ctx.getBean(SecurityContextFacade.class);
+        permissionResolver = ctx.getBean(PluginPermissionResolver.class);
     }
 
 
@@ -43,11 +39,6 @@ public class PermissionTool {
      * @return true if user have specified permission. false otherwise
      */
     public boolean hasPermission(Long targetId, String targetType, String permission) {
-        Authentication authentication = securityContextFacade.getContext().getAuthentication();
-        if (authentication == null) {
-            return false;
-        } else {
-            return aclEvaluator.hasPermission(authentication, targetId, targetType, permission);
-        }
+        return permissionResolver.hasPermission(targetId, targetType, permission);
     }
 }
@@ -59,4 +59,12 @@ public class BbToHtmlConverterTest {
 
         assertEquals(result, out);
     }
+
+    @Test
+    public void testIsNestingTooDeep() {
+        String in = "[b][b]text[/b][/b]";
+        when(bbCodeService.isNestingTooDeep(in)).thenReturn(true);
+
+        assertEquals(BbToHtmlConverter.getInstance().isNestingTooDeep(in), true);
+    }
 }
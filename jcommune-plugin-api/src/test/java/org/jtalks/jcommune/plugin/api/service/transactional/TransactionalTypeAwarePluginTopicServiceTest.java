@@ -120,6 +120,14 @@ public class TransactionalTypeAwarePluginTopicServiceTest {
         verify(topicFetchService).checkViewTopicPermission(1L);
     }
 
+    @Test
+    public void isSubscribedShouldCallTopicFetchService() {
+        Topic topic = new Topic();
+        when(topicFetchService.isSubscribed(topic)).thenReturn(true);
+
+        assertEquals(TransactionalTypeAwarePluginTopicService.getInstance().isSubscribed(topic), true);
+    }
+
     @Test
     public void testOpenTopic() {
         Topic topic = new Topic();
@@ -14,12 +14,14 @@
  */
 package org.jtalks.jcommune.plugin.api.web.validation.validators;
 
+import org.jtalks.jcommune.plugin.api.service.PluginBbCodeService;
 import org.jtalks.jcommune.plugin.api.web.validation.annotations.BbCodeNesting;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -52,6 +54,30 @@ public class BbCodeNestingValidatorTest {
         assertFalse(instance.isValid(message, null), message + " - " + assertionMessage);
     }    
     
+    @Test
+    public void defaultLimitShouldBeCheckedByBbCodeService() {
+        BbCodeNesting annotation = mock(BbCodeNesting.class);
+        when(annotation.maxNestingValue()).thenReturn(BbCodeNesting.DEFAULT_MAX_NESTING_VALUE);
+        PluginBbCodeService bbCodeService = mock(PluginBbCodeService.class);
+        String message = "[b][b][b]text[/b][/b][/b]";
+        when(bbCodeService.isNestingTooDeep(message)).thenReturn(true);
+        BbCodeNestingValidator validator = new BbCodeNestingValidator(bbCodeService);
+        validator.initialize(annotation);
+
+        assertFalse(validator.isValid(message, null));
+        verify(bbCodeService).isNestingTooDeep(message);
+    }
+
+    @Test(dataProvider = "invalidMessages")
+    public void customLimitShouldBeCheckedByOwnProcessor(String message, String assertionMessage) {
+        BbCodeNesting annotation = mock(BbCodeNesting.class);
+        when(annotation.maxNestingValue()).thenReturn(2);
+        BbCodeNestingValidator validator = new BbCodeNestingValidator(mock(PluginBbCodeService.class));
+        validator.initialize(annotation);
+
+        assertFalse(validator.isValid(message, null), message + " - " + assertionMessage);
+    }
+
     @DataProvider
     public String[][] invalidMessages() {
         return new String[][] {
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.api.web.velocity;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class VelocityEngineHolderTest {
+    private VelocityEngineHolder holder;
+
+    @BeforeMethod
+    public void setUp() {
+        holder = new VelocityEngineHolder() {
+            @Override
+            protected Properties getProperties() {
+                Properties properties = new Properties();
+                properties.put("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogSystem");
+                return properties;
+            }
+        };
+    }
+
+    @Test
+    public void engineShouldBeCreatedOnce() {
+        VelocityEngine engine = holder.getEngine();
+
+        assertSame(holder.getEngine(), engine);
+    }
+
+    @Test
+    public void resetShouldMakeHolderCreateNewEngine() {
+        VelocityEngine engine = holder.getEngine();
+
+        holder.reset();
+
+        assertNotSame(holder.getEngine(), engine);
+    }
+}
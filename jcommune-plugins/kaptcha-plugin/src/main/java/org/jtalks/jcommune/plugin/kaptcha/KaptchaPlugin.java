@@ -84,6 +84,9 @@ public class KaptchaPlugin extends StatefullPlugin implements RegistrationPlugin
             throw new PluginConfigurationException(
                     "Can't apply configuration: Width, height, length and possible symbols properties should not be empty.");
         }
+        if (service != null) {
+            service.shutdown();
+        }
         service = new KaptchaPluginService(width, height, length, possibleSymbols);
         pluginProperties = properties;
         return new HashMap<>();
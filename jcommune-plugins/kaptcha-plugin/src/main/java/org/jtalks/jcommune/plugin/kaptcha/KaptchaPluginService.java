@@ -20,10 +20,14 @@ import com.google.code.kaptcha.Producer;
 import com.google.code.kaptcha.impl.DefaultKaptcha;
 import com.google.code.kaptcha.util.Config;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.tools.generic.DateTool;
 import org.jtalks.jcommune.model.dto.UserDto;
+import org.jtalks.jcommune.plugin.api.web.velocity.VelocityEngineHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.ui.velocity.VelocityEngineUtils;
 import org.springframework.web.context.request.RequestAttributes;
@@ -36,11 +40,19 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Serves for processing basic captcha functionality, such as refresh captcha, validate captcha and get captcha as html.
+ * Template engine is created once per service and caches parsed templates. Captcha images are rendered in
+ * background into a bounded pool, so request threads usually only copy ready bytes to the response.
  *
  * @author Andrey Pogorelov
  */
@@ -54,8 +66,22 @@ public class KaptchaPluginService {
     private static final String FORM_ELEMENT_ID = "formElementId";
     private static final String PLUGIN_PREFIX = "plugin-";
     private static final String DATE = "date";
+    private static final String TEMPLATE_PATH = "org/jtalks/jcommune/plugin/kaptcha/template/captcha.vm";
+    private static final String IMAGE_FORMAT = "jpg";
+    private static final int CAPTCHA_POOL_SIZE = 32;
+    private static final Logger LOGGER = LoggerFactory.getLogger(KaptchaPluginService.class);
 
     private Producer captchaProducer;
+    private final VelocityEngineHolder engineHolder = new VelocityEngineHolder() {
+        @Override
+        protected Properties getProperties() {
+            return KaptchaPluginService.this.getProperties();
+        }
+    };
+    private final BlockingQueue<RenderedCaptcha> captchaPool = new ArrayBlockingQueue<>(CAPTCHA_POOL_SIZE);
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("kaptcha-pool-%d").setDaemon(true).build());
 
     public KaptchaPluginService(int width, int height, int length, String possibleSymbols) {
         captchaProducer = createCaptchaProducer(width, height, length, possibleSymbols);
@@ -117,6 +143,7 @@ public class KaptchaPluginService {
         properties.put("jar.resource.loader.class", "org.apache.velocity.runtime.resource.loader.JarResourceLoader");
         String jarPath = this.getClass().getProtectionDomain().getCodeSource().getLocation().getPath();
         properties.put("jar.resource.loader.path", "jar:file:" + jarPath);
+        properties.put("jar.resource.loader.cache", "true");
         properties.put("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogSystem");
         return properties;
     }
@@ -125,8 +152,6 @@ public class KaptchaPluginService {
         SecurityContextHolder.getContext();
         ResourceBundle resourceBundle = ResourceBundle.getBundle("org.jtalks.jcommune.plugin.kaptcha.messages", locale);
 
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
         Map<String, Object> model = new HashMap<>();
         model.put(CAPTCHA_LABEL, resourceBundle.getObject("label.tip.captcha"));
         model.put(ALT_CAPTCHA, resourceBundle.getObject("alt.captcha.image"));
@@ -135,8 +160,16 @@ public class KaptchaPluginService {
         model.put(FORM_ELEMENT_ID, getFormElementId(pluginId));
         model.put(BASE_URL, getDeploymentRootUrl(request));
         model.put(DATE, new DateTool());
-        return VelocityEngineUtils.mergeTemplateIntoString(
-                engine, "org/jtalks/jcommune/plugin/kaptcha/template/captcha.vm", "UTF-8", model);
+        return VelocityEngineUtils.mergeTemplateIntoString(getEngine(), TEMPLATE_PATH, "UTF-8", model);
+    }
+
+    /**
+     * Gets template engine of this service, it's initialized on first use and then shared between requests.
+     *
+     * @return initialized velocity engine
+     */
+    protected VelocityEngine getEngine() {
+        return engineHolder.getEngine();
     }
 
     private Producer createCaptchaProducer(int width, int height, int length, String possibleSymbols) {
@@ -166,13 +199,64 @@ public class KaptchaPluginService {
             throws IOException {
         ServletOutputStream out = response.getOutputStream();
         response.setContentType("image/jpeg");
-        String capText = getCaptchaProducer().createText();
-        request.getSession().setAttribute(Constants.KAPTCHA_SESSION_KEY, capText);
-        BufferedImage bi = getCaptchaProducer().createImage(capText);
-        ImageIO.write(bi, "jpg", out);
+        RenderedCaptcha captcha = takeCaptcha();
+        request.getSession().setAttribute(Constants.KAPTCHA_SESSION_KEY, captcha.getText());
+        out.write(captcha.getImage());
         out.flush();
     }
 
+    /**
+     * Takes pre-rendered captcha from the pool and schedules the pool refill. If pool is exhausted (e.g. right
+     * after start or under a flood of requests) captcha is rendered in the current thread.
+     *
+     * @return captcha text with its image
+     * @throws IOException if image can't be encoded
+     */
+    RenderedCaptcha takeCaptcha() throws IOException {
+        RenderedCaptcha captcha = captchaPool.poll();
+        if (captcha == null) {
+            captcha = renderCaptcha();
+        }
+        scheduleRefill();
+        return captcha;
+    }
+
+    private void scheduleRefill() {
+        if (!refillScheduled.compareAndSet(false, true) || refillExecutor.isShutdown()) {
+            return;
+        }
+        refillExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (captchaPool.remainingCapacity() > 0 && !refillExecutor.isShutdown()) {
+                        captchaPool.offer(renderCaptcha());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to fill pool of captcha images", e);
+                } finally {
+                    refillScheduled.set(false);
+                }
+            }
+        });
+    }
+
+    private RenderedCaptcha renderCaptcha() throws IOException {
+        String text = getCaptchaProducer().createText();
+        BufferedImage image = getCaptchaProducer().createImage(text);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, IMAGE_FORMAT, bytes);
+        return new RenderedCaptcha(text, bytes.toByteArray());
+    }
+
+    /**
+     * Stops background rendering of captcha images, should be called when service is not used anymore.
+     */
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+        captchaPool.clear();
+    }
+
     /**
      * Returns current deployment root with port (if required) for using as label link, for example.
      *
@@ -199,4 +283,25 @@ public class KaptchaPluginService {
         RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
         return ((ServletRequestAttributes) attributes).getRequest().getSession();
     }
+
+    /**
+     * Captcha text together with its encoded image.
+     */
+    static class RenderedCaptcha {
+        private final String text;
+        private final byte[] image;
+
+        RenderedCaptcha(String text, byte[] image) {
+            this.text = text;
+            this.image = image;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        byte[] getImage() {
+            return image;
+        }
+    }
 }
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.kaptcha;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test of showing captcha on the registration form: rendering of the captcha html and the captcha image, from
+ * several threads at once. The service with the shared template engine and the pool of pre-rendered images is
+ * compared with the previous way, when each request created its own engine and rendered the image itself. It only
+ * reports numbers and isn't run by the build, start its main method from the test classpath.
+ */
+public final class KaptchaPluginServiceBenchmark {
+    private static final int THREADS = 8;
+    private static final int WARM_UP_REQUESTS = 400;
+    private static final int MEASURED_REQUESTS = 2000;
+    /**
+     * Pause between requests of each thread, so the pool is measured under a load it is sized for as well
+     */
+    private static final long[] THINK_TIMES_MILLIS = {0, 20};
+
+    private KaptchaPluginServiceBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (long thinkTime : THINK_TIMES_MILLIS) {
+            report("previous", new PreviousKaptchaPluginService(), thinkTime);
+            report("shared", new SharedKaptchaPluginService(), thinkTime);
+        }
+    }
+
+    private static void report(String name, KaptchaPluginService service, long thinkTime) throws Exception {
+        run(service, WARM_UP_REQUESTS, thinkTime);
+        long[] latencies = run(service, MEASURED_REQUESTS, thinkTime);
+        service.shutdown();
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %d threads, think time %d ms: mean %.2f ms, p50 %.2f ms, p99 %.2f ms%n",
+                name, THREADS, thinkTime, total / 1e6 / latencies.length,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6);
+    }
+
+    /**
+     * @return latencies of all requests in nanoseconds
+     */
+    private static long[] run(final KaptchaPluginService service, int requests, final long thinkTime)
+            throws Exception {
+        final int requestsPerThread = requests / THREADS;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws Exception {
+                    MockHttpServletRequest request = new MockHttpServletRequest();
+                    long[] latencies = new long[requestsPerThread];
+                    start.await();
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        long begin = System.nanoTime();
+                        service.getHtml(request, "1", Locale.ENGLISH);
+                        service.takeCaptcha();
+                        latencies[j] = System.nanoTime() - begin;
+                        Thread.sleep(thinkTime);
+                    }
+                    return latencies;
+                }
+            }));
+        }
+        start.countDown();
+        long[] latencies = new long[requestsPerThread * THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            System.arraycopy(results.get(i).get(), 0, latencies, i * requestsPerThread, requestsPerThread);
+        }
+        executor.shutdown();
+        return latencies;
+    }
+
+    private static Properties classpathProperties() {
+        Properties properties = new Properties();
+        properties.put("resource.loader", "class");
+        properties.put("class.resource.loader.class",
+                "org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader");
+        properties.put("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogSystem");
+        return properties;
+    }
+
+    private static class SharedKaptchaPluginService extends KaptchaPluginService {
+        SharedKaptchaPluginService() {
+            super(100, 50, 4, "1234567890");
+        }
+
+        @Override
+        protected Properties getProperties() {
+            return classpathProperties();
+        }
+    }
+
+    /**
+     * Creates template engine for every request and renders captcha image in the request thread.
+     */
+    private static class PreviousKaptchaPluginService extends SharedKaptchaPluginService {
+        @Override
+        protected VelocityEngine getEngine() {
+            VelocityEngine engine = new VelocityEngine(getProperties());
+            engine.init();
+            return engine;
+        }
+
+        @Override
+        RenderedCaptcha takeCaptcha() throws IOException {
+            String text = getCaptchaProducer().createText();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(getCaptchaProducer().createImage(text), "jpg", bytes);
+            return new RenderedCaptcha(text, bytes.toByteArray());
+        }
+    }
+}
@@ -147,4 +147,44 @@ public class KaptchaPluginServiceTest {
         verify(response).setContentType("image/jpeg");
         verify(session).setAttribute(Constants.KAPTCHA_SESSION_KEY, GENERATED_CAPTCHA_TEXT);
     }
+
+    @Test
+    public void templateEngineShouldBeInitializedOnlyOnce() throws Exception {
+        when(service.getProperties()).thenReturn(createProperties());
+
+        service.getHtml(request, "1", Locale.ENGLISH);
+        service.getHtml(request, "1", Locale.ENGLISH);
+
+        assertSame(service.getEngine(), service.getEngine());
+        verify(service, times(1)).getProperties();
+    }
+
+    @Test
+    public void captchaShouldBeRenderedInRequestThreadWhenPoolIsEmpty() throws Exception {
+        Producer captchaProducer = mock(Producer.class);
+        when(service.getCaptchaProducer()).thenReturn(captchaProducer);
+        when(captchaProducer.createText()).thenReturn(GENERATED_CAPTCHA_TEXT);
+        when(captchaProducer.createImage(GENERATED_CAPTCHA_TEXT)).
+                thenReturn(new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB));
+        service.shutdown();
+
+        KaptchaPluginService.RenderedCaptcha captcha = service.takeCaptcha();
+
+        assertEquals(captcha.getText(), GENERATED_CAPTCHA_TEXT);
+        assertTrue(captcha.getImage().length > 0);
+    }
+
+    @Test
+    public void captchaPoolShouldBeRefilledInBackground() throws Exception {
+        Producer captchaProducer = mock(Producer.class);
+        when(service.getCaptchaProducer()).thenReturn(captchaProducer);
+        when(captchaProducer.createText()).thenReturn(GENERATED_CAPTCHA_TEXT);
+        when(captchaProducer.createImage(GENERATED_CAPTCHA_TEXT)).
+                thenReturn(new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB));
+
+        service.takeCaptcha();
+
+        verify(captchaProducer, timeout(5000).atLeast(2)).createText();
+        service.shutdown();
+    }
 }
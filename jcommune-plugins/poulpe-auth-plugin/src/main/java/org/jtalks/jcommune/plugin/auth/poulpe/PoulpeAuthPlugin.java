@@ -161,6 +161,9 @@ public class PoulpeAuthPlugin extends StatefullPlugin
         } else if (!validateUrl(url)) {
             throw new PluginConfigurationException("Can't apply configuration: Incorrect format for Url value.");
         }
+        if (service != null) {
+            service.shutdown();
+        }
         service = new PoulpeAuthService(url, login, password);
         pluginProperties = properties;
         return new HashMap<>();
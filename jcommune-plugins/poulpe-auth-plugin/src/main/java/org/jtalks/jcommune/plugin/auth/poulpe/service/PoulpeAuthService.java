@@ -15,14 +15,17 @@
 
 package org.jtalks.jcommune.plugin.auth.poulpe.service;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.jtalks.jcommune.model.dto.UserDto;
 import org.jtalks.jcommune.plugin.api.exceptions.NoConnectionException;
 import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.Authentication;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.Errors;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.User;
+import org.restlet.Client;
 import org.restlet.Context;
 import org.restlet.data.ChallengeScheme;
+import org.restlet.data.Protocol;
 import org.restlet.data.Status;
 import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
@@ -37,17 +40,36 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class contains method needed for communicate with Poulpe rest service.
+ * All the requests are sent through one shared client connector, so connections to Poulpe are reused.
+ * Successful authentications are cached for a short time, and when Poulpe fails several times in a row requests
+ * are not sent to it for a while, so login threads don't wait for timeouts of unavailable service.
  *
  * @author Andrey Pogorelov
  */
 public class PoulpeAuthService {
 
     private static final int CONNECTION_TIMEOUT = 5000;
+    private static final long AUTH_CACHE_TTL = TimeUnit.SECONDS.toMillis(30);
+    private static final int AUTH_CACHE_MAX_SIZE = 1000;
+    private static final int FAILURES_TO_OPEN_CIRCUIT = 3;
+    private static final long CIRCUIT_OPEN_TIME = TimeUnit.SECONDS.toMillis(30);
+    /** JAXB contexts are thread-safe and expensive to create, so they are created once */
+    private static final JAXBContext AUTHENTICATION_CONTEXT = createJaxbContext(Authentication.class);
+    private static final JAXBContext ERRORS_CONTEXT = createJaxbContext(Errors.class);
     public static final String DRY_RUN_PARAM = "dryRun";
     public static final String TRUE = "true";
 
@@ -56,12 +78,33 @@ public class PoulpeAuthService {
     private String authUrl;
     private String login;
     private String password;
+    private final Client client;
+    private final long authCacheTtl;
+    private final long circuitOpenTime;
+    private final byte[] authCacheSalt = new byte[16];
+    private final ConcurrentMap<String, CachedAuthentication> authCache = new ConcurrentHashMap<>();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long circuitClosesAt;
+    private final AtomicBoolean probeInProgress = new AtomicBoolean();
 
     public PoulpeAuthService(String url, String login, String password) {
+        this(url, login, password, AUTH_CACHE_TTL, CIRCUIT_OPEN_TIME);
+    }
+
+    @VisibleForTesting
+    PoulpeAuthService(String url, String login, String password, long authCacheTtl, long circuitOpenTime) {
         this.regUrl = url + "/rest/private/user";
         this.authUrl = url + "/rest/authenticate";
         this.login = login;
         this.password = password;
+        this.authCacheTtl = authCacheTtl;
+        this.circuitOpenTime = circuitOpenTime;
+        new SecureRandom().nextBytes(authCacheSalt);
+        Context context = new Context();
+        context.getParameters().add("socketConnectTimeoutMs", String.valueOf(CONNECTION_TIMEOUT));
+        context.getParameters().add("maxIoIdleTimeMs", String.valueOf(CONNECTION_TIMEOUT));
+        context.getParameters().add("persistingConnections", TRUE);
+        this.client = new Client(context, Arrays.asList(Protocol.HTTP, Protocol.HTTPS));
     }
 
     /**
@@ -74,9 +117,22 @@ public class PoulpeAuthService {
      */
     public Map<String, String> registerUser(UserDto userDto, Boolean dryRun)
             throws IOException, NoConnectionException, JAXBException, UnexpectedErrorException {
-        User user = createUser(userDto.getUsername(), userDto.getPassword(), userDto.getEmail());
-        ClientResource clientResource = sendRegistrationRequest(user, dryRun);
-        Map<String, String> result = getRegistrationResult(clientResource, userDto.getLanguage().getLocale());
+        boolean probe = checkCircuitClosed();
+        Map<String, String> result;
+        ClientResource clientResource;
+        try {
+            User user = createUser(userDto.getUsername(), userDto.getPassword(), userDto.getEmail());
+            clientResource = sendRegistrationRequest(user, dryRun);
+            try {
+                result = getRegistrationResult(clientResource, userDto.getLanguage().getLocale());
+            } catch (NoConnectionException e) {
+                registerFailure();
+                throw e;
+            }
+            registerSuccess();
+        } finally {
+            finishProbe(probe);
+        }
         closeRestletConnection(clientResource);
         return result;
     }
@@ -84,6 +140,8 @@ public class PoulpeAuthService {
     /**
      * Authenticate user with specified data via Poulpe.
      * Returns true if auth success, otherwise return false.
+     * Successful authentication is cached for a short time, so repeated checks of the same credentials
+     * are not sent to Poulpe.
      *
      * @param username     username
      * @param passwordHash password hash
@@ -91,13 +149,131 @@ public class PoulpeAuthService {
      */
     public Map<String, String> authenticate(String username, String passwordHash)
             throws JAXBException, IOException, NoConnectionException {
-        ClientResource clientResource = sendAuthRequest(username, passwordHash);
-        Map<String, String> result = getAuthResult(clientResource);
+        String cacheKey = getAuthCacheKey(username, passwordHash);
+        CachedAuthentication cached = authCache.get(cacheKey);
+        if (cached != null && !cached.isExpired()) {
+            return new HashMap<>(cached.getUserDetails());
+        }
+        boolean probe = checkCircuitClosed();
+        Map<String, String> result;
+        ClientResource clientResource;
+        try {
+            clientResource = sendAuthRequest(username, passwordHash);
+            try {
+                result = getAuthResult(clientResource);
+            } catch (NoConnectionException e) {
+                registerFailure();
+                throw e;
+            }
+            registerSuccess();
+        } finally {
+            finishProbe(probe);
+        }
         closeRestletConnection(clientResource);
+        if (!result.isEmpty()) {
+            cacheAuthentication(cacheKey, result);
+        }
         return result;
     }
 
+    /**
+     * Stops shared client connector, should be called when service is not used anymore.
+     */
+    public void shutdown() {
+        authCache.clear();
+        try {
+            client.stop();
+        } catch (Exception e) {
+            logger.warn("Error stopping Poulpe client: {}", e.getMessage());
+        }
+    }
 
+    private void cacheAuthentication(String cacheKey, Map<String, String> userDetails) {
+        if (authCache.size() >= AUTH_CACHE_MAX_SIZE) {
+            for (Iterator<CachedAuthentication> it = authCache.values().iterator(); it.hasNext(); ) {
+                if (it.next().isExpired()) {
+                    it.remove();
+                }
+            }
+            if (authCache.size() >= AUTH_CACHE_MAX_SIZE) {
+                return;
+            }
+        }
+        authCache.put(cacheKey, new CachedAuthentication(new HashMap<>(userDetails),
+                System.currentTimeMillis() + authCacheTtl));
+    }
+
+    /**
+     * Gets key of the authentication cache. Key is a salted hash of credentials, so credentials themselves are
+     * not kept in memory.
+     *
+     * @param username     username
+     * @param passwordHash password hash
+     * @return cache key
+     */
+    private String getAuthCacheKey(String username, String passwordHash) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(authCacheSalt);
+            digest.update(String.valueOf(username).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(passwordHash).getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Fails fast if Poulpe has failed several times in a row recently. When the open time is over the circuit
+     * is half-open: a single request is let through as a probe while the others still fail fast, and the circuit
+     * is closed only when the probe succeeds.
+     *
+     * @return true if the request is the probe of the half-open circuit and {@link #finishProbe} has to be called
+     * @throws NoConnectionException if requests to Poulpe are suspended
+     */
+    private boolean checkCircuitClosed() throws NoConnectionException {
+        if (consecutiveFailures.get() < FAILURES_TO_OPEN_CIRCUIT) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= circuitClosesAt && probeInProgress.compareAndSet(false, true)) {
+            return true;
+        }
+        throw new NoConnectionException("Poulpe is unavailable, request is not sent");
+    }
+
+    /**
+     * Lets the next request probe the circuit if this one was the probe. Successful probe has already closed
+     * the circuit and failed one has opened it again, so only a probe failed by other reasons leaves the circuit
+     * half-open.
+     *
+     * @param probe whether the finished request was the probe
+     */
+    private void finishProbe(boolean probe) {
+        if (probe) {
+            probeInProgress.set(false);
+        }
+    }
+
+    private void registerFailure() {
+        if (consecutiveFailures.incrementAndGet() >= FAILURES_TO_OPEN_CIRCUIT) {
+            circuitClosesAt = System.currentTimeMillis() + circuitOpenTime;
+            logger.warn("Poulpe failed {} times in a row, requests are suspended for {} ms",
+                    consecutiveFailures.get(), circuitOpenTime);
+        }
+    }
+
+    private void registerSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    private static JAXBContext createJaxbContext(Class<?> type) {
+        try {
+            return JAXBContext.newInstance(type);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Can't create JAXB context for " + type.getName(), e);
+        }
+    }
 
     private void closeRestletConnection(ClientResource clientResource) {
         try {
@@ -128,8 +304,7 @@ public class PoulpeAuthService {
     }
 
     private Map<String, String> parseUserDetails(Representation repr) throws JAXBException, IOException {
-        JAXBContext context = JAXBContext.newInstance(Authentication.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = AUTHENTICATION_CONTEXT.createUnmarshaller();
         Authentication auth = (Authentication) unmarshaller.unmarshal(repr.getStream());
 
         Map<String, String> authInfo = new HashMap<>();
@@ -174,8 +349,7 @@ public class PoulpeAuthService {
      * @throws java.io.IOException
      */
     private Map<String, String> parseErrors(Representation repr, Locale locale) throws IOException, JAXBException {
-        JAXBContext context = JAXBContext.newInstance(Errors.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = ERRORS_CONTEXT.createUnmarshaller();
         Errors errorsRepr = (Errors) unmarshaller.unmarshal(repr.getStream());
 
         Map<String, String> errors = new HashMap<>();
@@ -307,10 +481,30 @@ public class PoulpeAuthService {
     }
 
     private ClientResource createClientResource(String url, boolean buffering) {
-        ClientResource clientResource = new ClientResource(new Context(), url);
-        clientResource.getContext().getParameters().add("socketConnectTimeoutMs", String.valueOf(CONNECTION_TIMEOUT));
-        clientResource.getContext().getParameters().add("maxIoIdleTimeMs", String.valueOf(CONNECTION_TIMEOUT));
+        ClientResource clientResource = new ClientResource(client.getContext(), url);
+        clientResource.setNext(client);
         clientResource.setEntityBuffering(buffering);
         return clientResource;
     }
+
+    /**
+     * User details of successful authentication with time of their expiration.
+     */
+    private static class CachedAuthentication {
+        private final Map<String, String> userDetails;
+        private final long expiresAt;
+
+        CachedAuthentication(Map<String, String> userDetails, long expiresAt) {
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+
+        Map<String, String> getUserDetails() {
+            return userDetails;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
 }
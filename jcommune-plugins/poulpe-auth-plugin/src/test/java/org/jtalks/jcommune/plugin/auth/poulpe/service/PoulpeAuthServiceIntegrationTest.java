@@ -17,14 +17,23 @@ package org.jtalks.jcommune.plugin.auth.poulpe.service;
 
 import com.xebialabs.restito.server.StubServer;
 import org.glassfish.grizzly.http.util.HttpStatus;
+import org.jtalks.jcommune.plugin.auth.poulpe.dto.Authentication;
+import org.jtalks.jcommune.plugin.auth.poulpe.dto.PoulpeUser;
+import org.jtalks.jcommune.plugin.auth.poulpe.dto.Profile;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.User;
 import org.restlet.resource.ClientResource;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import javax.xml.bind.JAXBContext;
+import java.io.StringWriter;
+import java.util.Map;
+
 import static com.xebialabs.restito.builder.stub.StubHttp.whenHttp;
+import static com.xebialabs.restito.builder.verify.VerifyHttp.verifyHttp;
 import static com.xebialabs.restito.semantics.Action.status;
+import static com.xebialabs.restito.semantics.Action.stringContent;
 import static com.xebialabs.restito.semantics.Condition.get;
 import static com.xebialabs.restito.semantics.Condition.parameter;
 import static com.xebialabs.restito.semantics.Condition.post;
@@ -113,6 +122,30 @@ public class PoulpeAuthServiceIntegrationTest {
         assertEquals(clientResource.getStatus().getCode(), HttpStatus.NOT_FOUND_404.getStatusCode());
     }
 
+    @Test
+    public void repeatedAuthenticationWithSameCredentialsShouldBeSentOnce() throws Exception {
+        whenHttp(server).match(get(authUrl),
+                parameter("username", "cached"),
+                parameter("passwordHash", "cachedHash"))
+                .then(status(HttpStatus.OK_200), stringContent(createAuthenticationXml("cached")));
+
+        Map<String, String> first = service.authenticate("cached", "cachedHash");
+        Map<String, String> second = service.authenticate("cached", "cachedHash");
+
+        assertEquals(first.get("username"), "cached");
+        assertEquals(second, first);
+        verifyHttp(server).once(get(authUrl), parameter("username", "cached"));
+    }
+
+    private String createAuthenticationXml(String username) throws Exception {
+        Authentication auth = new Authentication(username);
+        auth.setStatus("success");
+        auth.setProfile(new Profile(new PoulpeUser(username, "email@email.ru", "cachedHash", null)));
+        StringWriter xml = new StringWriter();
+        JAXBContext.newInstance(Authentication.class).createMarshaller().marshal(auth, xml);
+        return xml.toString();
+    }
+
     private User createUser(String username, String password, String email) {
         User user = new User();
         user.setUsername(username);
@@ -20,6 +20,8 @@ import org.jtalks.jcommune.plugin.api.exceptions.NoConnectionException;
 import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.*;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.Error;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Method;
@@ -37,8 +39,12 @@ import java.util.Map;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.*;
 
@@ -142,6 +148,87 @@ public class PoulpeAuthServiceTest {
         service.authenticate("user", "password");
     }
 
+    @Test
+    public void successfulAuthenticationShouldBeCached() throws Exception {
+        Authentication auth = createAuth("username", "password", "email");
+        auth.setStatus("success");
+        doReturn(createClientResource(Status.SUCCESS_OK, new JaxbRepresentation<>(auth)))
+                .when(service).sendAuthRequest("username", "password");
+
+        Map<String, String> first = service.authenticate("username", "password");
+        Map<String, String> second = service.authenticate("username", "password");
+
+        assertEquals(second, first);
+        verify(service, times(1)).sendAuthRequest("username", "password");
+    }
+
+    @Test
+    public void failedAuthenticationShouldNotBeCached() throws Exception {
+        doReturn(createClientResource(Status.CLIENT_ERROR_NOT_FOUND, null))
+                .when(service).sendAuthRequest("username", "password");
+
+        service.authenticate("username", "password");
+        service.authenticate("username", "password");
+
+        verify(service, times(2)).sendAuthRequest("username", "password");
+    }
+
+    @Test
+    public void requestsShouldNotBeSentAfterSeveralFailuresInARow() throws Exception {
+        doReturn(createClientResource(Status.CLIENT_ERROR_REQUEST_TIMEOUT, null))
+                .when(service).sendAuthRequest("user", "password");
+
+        for (int i = 0; i < 4; i++) {
+            authenticateIgnoringNoConnection("user", "password");
+        }
+
+        verify(service, times(3)).sendAuthRequest("user", "password");
+    }
+
+    @Test
+    public void requestsShouldBeSentAgainWhenSuspensionIsOver() throws Exception {
+        service = spy(new PoulpeAuthService(url, "user", "1234", 0, 0));
+        doReturn(createClientResource(Status.CLIENT_ERROR_REQUEST_TIMEOUT, null))
+                .when(service).sendAuthRequest("user", "password");
+
+        for (int i = 0; i < 4; i++) {
+            authenticateIgnoringNoConnection("user", "password");
+        }
+
+        verify(service, times(4)).sendAuthRequest("user", "password");
+    }
+
+    @Test
+    public void onlyOneRequestShouldBeSentWhileSuspensionIsOverButProbeIsNotFinished() throws Exception {
+        service = spy(new PoulpeAuthService(url, "user", "1234", 0, 0));
+        final ClientResource timeout = createClientResource(Status.CLIENT_ERROR_REQUEST_TIMEOUT, null);
+        doReturn(timeout).when(service).sendAuthRequest("user", "password");
+        for (int i = 0; i < 3; i++) {
+            authenticateIgnoringNoConnection("user", "password");
+        }
+        doAnswer(new Answer<ClientResource>() {
+            @Override
+            public ClientResource answer(InvocationOnMock invocation) throws Throwable {
+                // the probe is in progress, so the other request fails fast
+                authenticateIgnoringNoConnection("other", "password");
+                return timeout;
+            }
+        }).when(service).sendAuthRequest("user", "password");
+
+        authenticateIgnoringNoConnection("user", "password");
+
+        verify(service, times(4)).sendAuthRequest("user", "password");
+        verify(service, never()).sendAuthRequest("other", "password");
+    }
+
+    private void authenticateIgnoringNoConnection(String username, String password) throws Exception {
+        try {
+            service.authenticate(username, password);
+        } catch (NoConnectionException e) {
+            // expected, Poulpe is not available
+        }
+    }
+
     private Authentication createAuth(String username, String password, String email) {
         Authentication auth = new Authentication();
         auth.setProfile(new Profile(new PoulpeUser(username, email, password, null)));
@@ -34,6 +34,7 @@ import org.jtalks.jcommune.plugin.api.web.dto.TopicDto;
 import org.jtalks.jcommune.plugin.api.web.dto.json.*;
 import org.jtalks.jcommune.plugin.api.web.locale.JcLocaleResolver;
 import org.jtalks.jcommune.plugin.api.web.util.BreadcrumbBuilder;
+import org.jtalks.jcommune.plugin.api.web.velocity.VelocityEngineHolder;
 import org.jtalks.jcommune.plugin.api.web.velocity.tool.JodaDateTimeTool;
 import org.jtalks.jcommune.plugin.api.web.velocity.tool.PermissionTool;
 import org.jtalks.jcommune.plugin.questionsandanswers.QuestionsAndAnswersPlugin;
@@ -81,6 +82,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     private static final String QUESTION = "question";
     private static final String POST_PAGE = "postPage";
     private static final String SUBSCRIBED = "subscribed";
+    private static final String HAS_POSTED = "hasPosted";
     private static final String CONVERTER = "converter";
     private static final String VIEW_LIST = "viewList";
     private static final String LIMIT_OF_POSTS_ATTRIBUTE = "postLimit";
@@ -97,6 +99,12 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
 
     private String apiPath;
     private ApplicationContext applicationContext;
+    private final VelocityEngineHolder engineHolder = new VelocityEngineHolder() {
+        @Override
+        protected Properties getProperties() {
+            return QuestionsAndAnswersController.this.getProperties();
+        }
+    };
 
     /**
      * Shows question creation page
@@ -111,9 +119,6 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     @RequestMapping(value = "new", method = RequestMethod.GET)
     public String showNewQuestionPage(@RequestParam(BRANCH_ID) Long branchId, Model model, HttpServletRequest request)
             throws NotFoundException {
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
-
         TopicDraft draft = ObjectUtils.defaultIfNull(
                 getPluginTopicDraftService().getDraft(), new TopicDraft());
 
@@ -128,7 +133,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         data.put(TOPIC_DTO, dto);
         data.put(TOPIC_DRAFT, draft);
         data.put(EDIT_MODE, false);
-        model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
+        model.addAttribute(CONTENT, getMergedTemplate(getEngine(), QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
         return PLUGIN_VIEW_NAME;
     }
 
@@ -149,8 +154,6 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     public String createQuestion(@Valid @ModelAttribute TopicDto topicDto, BindingResult result, Model model,
                                  @RequestParam(BRANCH_ID) Long branchId, HttpServletRequest request)
             throws NotFoundException{
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
         Branch  branch = getPluginBranchService().get(branchId);
         Map<String, Object> data = getDefaultModel(request);
         topicDto.getTopic().setBranch(branch);
@@ -159,7 +162,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
             data.put(BREADCRUMB_LIST, breadcrumbBuilder.getNewTopicBreadcrumb(branch));
             data.put(TOPIC_DTO, topicDto);
             data.put(RESULT, result);
-            model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
+            model.addAttribute(CONTENT, getMergedTemplate(getEngine(), QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
             return PLUGIN_VIEW_NAME;
         }
         Topic createdQuestion = getTypeAwarePluginTopicService().createTopic(topicDto.getTopic(),
@@ -208,17 +211,16 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
 
         Map<String, Object> data = getDefaultModel(request);
         data.put(QUESTION, topic);
-        data.put(POST_PAGE, new PageImpl<>(getSortedPosts(topic.getPosts())));
+        data.put(POST_PAGE, new PageImpl<>(getQuestionWithAnswers(topic)));
         data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
-        data.put(SUBSCRIBED, false);
+        data.put(SUBSCRIBED, getTypeAwarePluginTopicService().isSubscribed(topic));
+        data.put(HAS_POSTED, getPluginPostService().getUserPostCount(topic, currentUser) > 0);
         data.put(CONVERTER, BbToHtmlConverter.getInstance());
         data.put(VIEW_LIST, getLocationService().getUsersViewing(topic));
         data.put(POST_DTO, postDto);
         data.put(LIMIT_OF_POSTS_ATTRIBUTE, LIMIT_OF_POSTS_VALUE);
         getPluginLastReadPostService().markTopicAsRead(topic);
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
-        model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_TEMPLATE_PATH, "UTF-8", data));
+        model.addAttribute(CONTENT, getMergedTemplate(getEngine(), QUESTION_TEMPLATE_PATH, "UTF-8", data));
         return PLUGIN_VIEW_NAME;
     }
 
@@ -235,7 +237,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     @ResponseBody
     public JsonResponse canPost(@PathVariable("id") Long questionId) throws NotFoundException {
         Topic topic = getTypeAwarePluginTopicService().get(questionId, QuestionsAndAnswersPlugin.TOPIC_TYPE);
-        if (topic.getPostCount() - 1 >= LIMIT_OF_POSTS_VALUE) {
+        if (getPluginPostService().getPostCount(topic) - 1 >= LIMIT_OF_POSTS_VALUE) {
             return new JsonResponse(JsonResponseStatus.FAIL);
         }
         return new JsonResponse(JsonResponseStatus.SUCCESS);
@@ -269,13 +271,11 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
             throws NotFoundException{
         Topic topic = getTypeAwarePluginTopicService().get(id, QuestionsAndAnswersPlugin.TOPIC_TYPE);
         TopicDto topicDto = new TopicDto(topic);
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
         Map<String, Object> data = getDefaultModel(request);
         data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
         data.put(TOPIC_DTO, topicDto);
         data.put(EDIT_MODE, true);
-        model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
+        model.addAttribute(CONTENT, getMergedTemplate(getEngine(), QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
         return PLUGIN_VIEW_NAME;
     }
 
@@ -301,13 +301,11 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         if (result.hasErrors()) {
             topicDto.getTopic().setId(topic.getId());
             topicDto.getTopic().setBranch(topic.getBranch());
-            VelocityEngine engine = new VelocityEngine(getProperties());
-            engine.init();
             data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
             data.put(TOPIC_DTO, topicDto);
             data.put(EDIT_MODE, true);
             data.put(RESULT, result);
-            model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
+            model.addAttribute(CONTENT, getMergedTemplate(getEngine(), QUESTION_FORM_TEMPLATE_PATH, "UTF-8", data));
             return PLUGIN_VIEW_NAME;
 
         }
@@ -331,12 +329,10 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
             throws NotFoundException{
         Post answer = getPluginPostService().get(id);
         PostDto answerDto = PostDto.getDtoFor(answer);
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
         Map<String, Object> data = getDefaultModel(request);
         data.put(QEUSTION_TITLE, answer.getTopic().getTitle());
         data.put(POST_DTO, answerDto);
-        model.addAttribute(CONTENT, getMergedTemplate(engine, ANSWER_FORM_TEMPLATE_PATH, "UTF-8", data));
+        model.addAttribute(CONTENT, getMergedTemplate(getEngine(), ANSWER_FORM_TEMPLATE_PATH, "UTF-8", data));
         return PLUGIN_VIEW_NAME;
     }
 
@@ -359,12 +355,10 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         Post answer = getPluginPostService().get(id);
         Map<String, Object> data = getDefaultModel(request);
         if (result.hasErrors()) {
-            VelocityEngine engine = new VelocityEngine(getProperties());
-            engine.init();
             data.put(QEUSTION_TITLE, answer.getTopic().getTitle());
             data.put(POST_DTO, postDto);
             data.put(RESULT, result);
-            model.addAttribute(CONTENT, getMergedTemplate(engine, ANSWER_FORM_TEMPLATE_PATH, "UTF-8", data));
+            model.addAttribute(CONTENT, getMergedTemplate(getEngine(), ANSWER_FORM_TEMPLATE_PATH, "UTF-8", data));
             return PLUGIN_VIEW_NAME;
 
         }
@@ -391,7 +385,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         postDto.setTopicId(questionId);
         Topic topic = getTypeAwarePluginTopicService().get(questionId, QuestionsAndAnswersPlugin.TOPIC_TYPE);
         //We can't provide limitation properly without database-level locking
-        if (result.hasErrors() || LIMIT_OF_POSTS_VALUE <= topic.getPostCount() - 1) {
+        if (result.hasErrors() || LIMIT_OF_POSTS_VALUE <= getPluginPostService().getPostCount(topic) - 1) {
             JCUser currentUser = getUserReader().getCurrentUser();
             PostDraft draft = topic.getDraftForUser(currentUser);
             if (draft != null) {
@@ -401,18 +395,17 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
             }
 
             Map<String, Object> data = getDefaultModel(request);
-            VelocityEngine engine = new VelocityEngine(getProperties());
-            engine.init();
             data.put(QUESTION, topic);
-            data.put(POST_PAGE, new PageImpl<>(getSortedPosts(topic.getPosts())));
+            data.put(POST_PAGE, new PageImpl<>(getQuestionWithAnswers(topic)));
             data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
-            data.put(SUBSCRIBED, false);
+            data.put(SUBSCRIBED, getTypeAwarePluginTopicService().isSubscribed(topic));
+            data.put(HAS_POSTED, getPluginPostService().getUserPostCount(topic, currentUser) > 0);
             data.put(RESULT, result);
             data.put(CONVERTER, BbToHtmlConverter.getInstance());
             data.put(VIEW_LIST, getLocationService().getUsersViewing(topic));
             data.put(POST_DTO, postDto);
             data.put(LIMIT_OF_POSTS_ATTRIBUTE, LIMIT_OF_POSTS_VALUE);
-            model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_TEMPLATE_PATH, "UTF-8", data));
+            model.addAttribute(CONTENT, getMergedTemplate(getEngine(), QUESTION_TEMPLATE_PATH, "UTF-8", data));
             return PLUGIN_VIEW_NAME;
         }
 
@@ -548,18 +541,20 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     }
 
     /**
-     * Gets copy of specified collection of posts sorted by rating and creation date
+     * Gets question followed by its answers sorted by rating and creation date. Question and answers are looked up
+     * by database, so other posts of the topic are not loaded and no more than {@link #LIMIT_OF_POSTS_VALUE}
+     * answers are read
      *
-     * @param posts collection of posts to sort
+     * @param topic question to get posts of
      *
-     * @return collection of posts sorted by rating and creation date
+     * @return question post followed by answers sorted by rating and creation date
      */
     @VisibleForTesting
-    List<Post> getSortedPosts(List<Post> posts) {
-        List<Post> result = new ArrayList<>(posts);
-        Post question = result.remove(0);
-        Collections.sort(result, new PostComparator());
-        result.add(0, question);
+    List<Post> getQuestionWithAnswers(Topic topic) {
+        Post question = getPluginPostService().getFirstPost(topic);
+        List<Post> result = new ArrayList<>();
+        result.add(question);
+        result.addAll(getPluginPostService().getRepliesByRating(question, LIMIT_OF_POSTS_VALUE));
         return result;
     }
 
@@ -625,10 +620,21 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         jars.add("jar:file:" + this.getClass().getProtectionDomain().getCodeSource().getLocation().getPath());
         jars.add("jar:file:" + apiPath);
         properties.put("jar.resource.loader.path", jars);
+        properties.put("jar.resource.loader.cache", "true");
         properties.put("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogSystem");
         return properties;
     }
 
+    /**
+     * Gets template engine of the plugin. Engine is initialized on first use and then shared between requests,
+     * so templates are parsed only once
+     *
+     * @return initialized velocity engine
+     */
+    VelocityEngine getEngine() {
+        return engineHolder.getEngine();
+    }
+
     /**
      * Create map with default objects needed in velocity template (e.g. request, current user, messages bundle etc.)
      *
@@ -655,6 +661,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
      */
     public void setApiPath(String apiPath) {
         this.apiPath = apiPath;
+        engineHolder.reset();
     }
 
     /**
@@ -765,12 +772,4 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     void setBreadcrumbBuilder(BreadcrumbBuilder breadcrumbBuilder) {
         this.breadcrumbBuilder = breadcrumbBuilder;
     }
-
-    private static class PostComparator implements Comparator<Post> {
-        @Override
-        public int compare(Post o1, Post o2) {
-            return o1.getRating() == o2.getRating() ? o2.getCreationDate().compareTo(o1.getCreationDate()) :
-                    o2.getRating() - o1.getRating();
-        }
-    }
 }
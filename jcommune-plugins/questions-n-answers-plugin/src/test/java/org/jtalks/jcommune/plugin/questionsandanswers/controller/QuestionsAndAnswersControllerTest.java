@@ -28,6 +28,7 @@ import org.jtalks.jcommune.plugin.api.web.locale.JcLocaleResolver;
 import org.jtalks.jcommune.plugin.api.web.util.BreadcrumbBuilder;
 import org.jtalks.jcommune.plugin.questionsandanswers.QuestionsAndAnswersPlugin;
 import org.jtalks.jcommune.plugin.questionsandanswers.dto.CommentDto;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.springframework.context.ApplicationContext;
@@ -52,6 +53,8 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -99,7 +102,7 @@ public class QuestionsAndAnswersControllerTest {
         when(controller.getPluginLastReadPostService()).thenReturn(lastReadPostService);
         when(controller.getTypeAwarePluginTopicService()).thenReturn(topicService);
         when(controller.getPluginPostService()).thenReturn(postService);
-        when(controller.getProperties()).thenReturn(new Properties());
+        doReturn(new VelocityEngine()).when(controller).getEngine();
         when(controller.getUserReader()).thenReturn(userReader);
         when(controller.getLocationService()).thenReturn(locationService);
         when(controller.getLocaleResolver()).thenReturn(localeResolver);
@@ -198,6 +201,63 @@ public class QuestionsAndAnswersControllerTest {
         verify(topicService).get(1L, QuestionsAndAnswersPlugin.TOPIC_TYPE);
     }
 
+    @Test
+    public void questionShouldBeFollowedByAnswersSortedInDatabase() throws Exception {
+        Topic topic = createTopic();
+        Post question = topic.getFirstPost();
+        Post answer = createAnswer();
+        when(postService.getFirstPost(topic)).thenReturn(question);
+        when(postService.getRepliesByRating(question, QuestionsAndAnswersController.LIMIT_OF_POSTS_VALUE))
+                .thenReturn(Arrays.asList(answer));
+
+        List<Post> posts = controller.getQuestionWithAnswers(topic);
+
+        assertEquals(posts, Arrays.asList(question, answer));
+    }
+
+    @Test
+    public void templateEngineShouldBeSharedBetweenRequests() throws Exception {
+        QuestionsAndAnswersController controller = createControllerWithEmptyEngineProperties();
+        VelocityEngine engine = controller.getEngine();
+
+        assertSame(controller.getEngine(), engine);
+    }
+
+    @Test
+    public void templateEngineShouldBeRecreatedWhenApiPathChanged() throws Exception {
+        QuestionsAndAnswersController controller = createControllerWithEmptyEngineProperties();
+        VelocityEngine engine = controller.getEngine();
+
+        controller.setApiPath("api.jar");
+
+        assertNotSame(controller.getEngine(), engine);
+    }
+
+    @Test
+    public void showQuestionShouldPassSubscriptionAndPostsOfCurrentUserFromServices() throws Exception {
+        Topic topic = createTopic();
+        topic.setBranch(new Branch("name", "description"));
+        when(topicService.get(anyLong(), anyString())).thenReturn(topic);
+        when(topicService.isSubscribed(topic)).thenReturn(true);
+        when(postService.getUserPostCount(eq(topic), any(JCUser.class))).thenReturn(1);
+
+        controller.showQuestion(request, new ExtendedModelMap(), 1L);
+
+        ArgumentCaptor<Map> data = ArgumentCaptor.forClass(Map.class);
+        verify(controller).getMergedTemplate(any(VelocityEngine.class), anyString(), anyString(), data.capture());
+        assertEquals(data.getValue().get("subscribed"), true);
+        assertEquals(data.getValue().get("hasPosted"), true);
+    }
+
+    private QuestionsAndAnswersController createControllerWithEmptyEngineProperties() {
+        return new QuestionsAndAnswersController() {
+            @Override
+            protected Properties getProperties() {
+                return new Properties();
+            }
+        };
+    }
+
     @Test(expectedExceptions = NotFoundException.class)
     public void showQuestionShouldThrowExceptionIfQuestionNotFound() throws NotFoundException {
         when(topicService.get(anyLong(), anyString())).thenThrow(new NotFoundException());
@@ -700,9 +760,7 @@ public class QuestionsAndAnswersControllerTest {
 
     private Topic getTopicWithPosts(int numberOfPosts) {
         Topic topic = new Topic();
-        for (int i = 0; i < numberOfPosts; i ++) {
-            topic.addPost(new Post(null, null));
-        }
+        when(postService.getPostCount(topic)).thenReturn(numberOfPosts);
         return topic;
     }
 
@@ -68,6 +68,7 @@ public interface BranchService extends EntityService<Branch> {
      * Fills the statistical information for each branch from the list:
      * 1)count of topics in the branch
      * 2)count of posts in the branch
+     * Counters of all the branches are loaded with a single query.
      *  
      * @param branches list of branches
      */
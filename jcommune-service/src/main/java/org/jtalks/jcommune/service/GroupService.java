@@ -69,6 +69,27 @@ public interface GroupService extends EntityService<Group> {
      */
     void saveGroup(Group selectedGroup);
 
+    /**
+     * Makes users members of the group at once, members of the group are not loaded, so it suits large groups.
+     * Users that are already members of the group are skipped.
+     *
+     * @param forumComponentId ID of the forum component, the current user must be its administrator
+     * @param groupId          ID of the group to add users to
+     * @param userIds          IDs of users to add
+     * @throws NotFoundException if there is no group with such ID
+     */
+    void addUsersToGroup(long forumComponentId, long groupId, List<Long> userIds) throws NotFoundException;
+
+    /**
+     * Removes users from the group at once, members of the group are not loaded, so it suits large groups.
+     *
+     * @param forumComponentId ID of the forum component, the current user must be its administrator
+     * @param groupId          ID of the group to remove users from
+     * @param userIds          IDs of users to remove
+     * @throws NotFoundException if there is no group with such ID
+     */
+    void removeUsersFromGroup(long forumComponentId, long groupId, List<Long> userIds) throws NotFoundException;
+
     /**
      * @return list of GroupAdministrationDto
      */
@@ -36,6 +36,14 @@ public interface PollService extends EntityService<Poll> {
      */
     Poll vote(Long pollId, List<Long> selectedOptionsIds);
 
+    /**
+     * Checks whether the current user has already voted in the poll.
+     *
+     * @param poll a poll to check
+     * @return true if the current user has voted in the poll, false otherwise or if the user is anonymous
+     */
+    boolean hasVoted(Poll poll);
+
     /**
      * Save {@link org.jtalks.jcommune.model.entity.Poll} to database.
      * @param poll poll to save.
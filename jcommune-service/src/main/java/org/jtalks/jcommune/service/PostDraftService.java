@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service;
+
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PostDraft;
+import org.jtalks.jcommune.model.entity.Topic;
+
+/**
+ * Keeps drafts of posts that are autosaved while users write them. Changes of existing drafts are held in memory
+ * and written to the database in batches, so frequent autosaves neither hit the database nor touch the topic.
+ */
+public interface PostDraftService {
+    /**
+     * Saves the content of the author's draft in the topic. A new draft is stored in the database right away, changes
+     * of an existing one are written later.
+     *
+     * @param topic   the topic the draft is written in
+     * @param author  the author of the draft
+     * @param content the current content of the draft
+     * @return the draft with the saved content
+     */
+    PostDraft save(Topic topic, JCUser author, String content);
+
+    /**
+     * Gets the author's draft in the topic including changes that are not written to the database yet.
+     *
+     * @param topic  the topic the draft is written in
+     * @param author the author of the draft
+     * @return the draft or null if the author has no draft in the topic
+     */
+    PostDraft getDraft(Topic topic, JCUser author);
+
+    /**
+     * Writes all the pending changes of drafts to the database, it's done periodically and on shutdown.
+     */
+    void flush();
+}
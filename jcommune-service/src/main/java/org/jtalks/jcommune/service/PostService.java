@@ -116,12 +116,13 @@ public interface PostService extends EntityService<Post> {
     void deleteComment(Post post, PostComment comment);
 
     /**
-     * Votes for specified post in direction specified by vote
+     * Votes for specified post in direction specified by vote. Rating of the post is changed
+     * in background, so it may be shown with small delay.
      *
      * @param post post to vote
      * @param vote {@link org.jtalks.jcommune.model.entity.PostVote} object
      *
-     * @return post with vote
+     * @return voted post
      */
     Post vote(Post post, PostVote vote);
 
@@ -135,6 +136,16 @@ public interface PostService extends EntityService<Post> {
      */
     PostDraft saveOrUpdateDraft(Topic topic, String content);
 
+    /**
+     * Gets the draft of current user in specified topic with the last saved content, even if it's not written to the
+     * database yet.
+     *
+     * @param topic topic to get the draft from
+     *
+     * @return the draft or null if current user has no draft in the topic
+     */
+    PostDraft getDraft(Topic topic);
+
     /**
      * Deletes draft with specified id.
      *
@@ -107,13 +107,39 @@ public interface PrivateMessageService extends EntityService<PrivateMessage> {
      * DELETED_FROM_INBOX or DELETED_FROM_OUTBOX.
      * Messages with status DELETED_FROM_INBOX, DELETED_FROM_OUTBOX
      * or DRAFT will be removed.
+     * Messages are processed with a few bulk statements whatever their number is,
+     * only messages from the folders of the current user are affected.
      *
      * @param ids Identifiers of messages for deletion
      * @return URL for redirection.
      * @throws NotFoundException if one or more messages specified are missing
+     *                           or not in the folders of the current user, no message is changed then
+     *                           as the transaction is rolled back
      */
     String delete(List<Long> ids) throws NotFoundException;
 
+    /**
+     * Deletes all the messages from the folder of the current user with the same rules as
+     * {@link #delete(List)}. A folder is cleared with one or two statements.
+     *
+     * @param folder "inbox", "outbox" or "drafts"
+     * @throws IllegalArgumentException if folder is unknown
+     */
+    void deleteAll(String folder);
+
+    /**
+     * Marks messages from the inbox of the current user as read with one statement.
+     * Other messages are ignored.
+     *
+     * @param ids identifiers of messages to mark as read
+     */
+    void markAsRead(List<Long> ids);
+
+    /**
+     * Marks all the messages from the inbox of the current user as read with one statement.
+     */
+    void markAllAsRead();
+
     /**
      * This methods checks a permissions of user to send
      * private message.
@@ -44,6 +44,12 @@ public interface SectionService extends EntityService<Section> {
      */
     void prepareSectionsForView(List<Section> sections);
 
+    /**
+     * Loads all the sections with their branches into the second level cache so that the first requests after the
+     * start don't hit the database for the data that almost every page needs.
+     */
+    void warmUpCache();
+
     /**
      * Deletes all topics in the session given, causing post count updates.
      *
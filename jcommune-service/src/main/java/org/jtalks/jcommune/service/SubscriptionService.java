@@ -70,6 +70,15 @@ public interface SubscriptionService {
      */
     void toggleSubscription(SubscriptionAwareEntity entityToSubscribe);
 
+    /**
+     * Checks whether the current user is subscribed to the {@link SubscriptionAwareEntity} given.
+     * Subscribers of the entity aren't loaded for that. Anonymous users are never subscribed.
+     *
+     * @param entity topic, post or branch to check
+     * @return whether the current user is subscribed to the entity
+     */
+    boolean isSubscribed(SubscriptionAwareEntity entity);
+
     /**
      * Get subscribers for specified entity with allowed permission to read.
      *
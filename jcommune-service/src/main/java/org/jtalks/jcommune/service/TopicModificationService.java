@@ -14,6 +14,7 @@
  */
 package org.jtalks.jcommune.service;
 
+import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.Poll;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.Topic;
@@ -85,6 +86,15 @@ public interface TopicModificationService {
      */
     void deleteTopicSilent(long topicId) throws NotFoundException;
 
+    /**
+     * Deletes all topics of the branch. Topics are deleted by chunks with bulk statements, so even
+     * big branches are not loaded into memory. Does not send any notification.
+     * Intended to be used mostly by other services.
+     *
+     * @param branch branch to delete topics of
+     */
+    void deleteAllTopicsSilent(Branch branch);
+
     /**
      * Moves topic to another branch.
      *
@@ -37,7 +37,15 @@ import java.util.regex.Pattern;
  */
 public class BBForeignLinksPostprocessor implements TextPostProcessor {
 
-    private static final String URL_PATTERN = "(<a .*?href=(\"|').*?(\"|')|<img .*?src=(\"|').*?(\"|'))";
+    private static final String ANCHOR_START = "<a ";
+    private static final String ANCHOR_LINK_ATTRIBUTE = "href=";
+    private static final String IMAGE_START = "<img ";
+    private static final String IMAGE_LINK_ATTRIBUTE = "src=";
+    private static final String[] PROTOCOLS = {"http://", "https://", "ftp://"};
+    /** Everything from the tag start up to the opening quote of the link, attributes before the link are dropped */
+    private static final Pattern ANCHOR_LINK_PATTERN = Pattern.compile("<a.*href=\"");
+    private static final Pattern IMAGE_LINK_PATTERN = Pattern.compile("<img.*src=\"");
+    private static final String IMAGE_REPLACEMENT = "<img alt=\" \" class=\"thumbnail\" src=\"";
 
     /**
      * Process incoming text with adding prefix "/out" to foreign links. This prefix
@@ -51,29 +59,73 @@ public class BBForeignLinksPostprocessor implements TextPostProcessor {
         return addPrefixToForeignLinks(bbDecodedText, httpServletRequest.getServerName());
     }
 
-
+    /**
+     * Rewrites links of anchors and images in a single pass over the text. The text between the links is copied to
+     * the result as is.
+     *
+     * @param decodedText html to process
+     * @param serverName  name of this server, links mentioning it are local
+     * @return html with rewritten links
+     */
     private String addPrefixToForeignLinks(String decodedText, String serverName) {
-        Pattern linkPattern = Pattern.compile(URL_PATTERN, Pattern.DOTALL);
-        Matcher linkMatcher = linkPattern.matcher(decodedText);
-        String href;
-        String encoded;
-        while (linkMatcher.find()) {
-            href = linkMatcher.group();
-            encoded = href.replaceAll(" ", "%20");
-            if (!href.contains(serverName) && href.split("(http|ftp|https)://", 2).length == 2
-                    && href.startsWith("<a")) {
-                decodedText = decodedText.replace(href,
-                        encoded.replaceFirst("<a.*href=\"", "<a rel=\"nofollow\" href=\"" + getHrefPrefix()));
-            } else if(href.startsWith("<a")){
-                decodedText = decodedText.replace(href,
-                        encoded.replaceFirst("<a.*href=\"", "<a href=\""));
-            } else if(href.startsWith("<img")) {
-                decodedText = decodedText.replace(href,
-                        encoded.replaceFirst("<img.*src=\"", "<img alt=\" \" class=\"thumbnail\" src=\""));
+        LinkFinder anchors = new LinkFinder(decodedText, ANCHOR_START, ANCHOR_LINK_ATTRIBUTE);
+        LinkFinder images = new LinkFinder(decodedText, IMAGE_START, IMAGE_LINK_ATTRIBUTE);
+        StringBuilder result = new StringBuilder(decodedText.length() + 64);
+        int copied = 0;
+        while (true) {
+            boolean anchorFound = anchors.find(copied);
+            boolean imageFound = images.find(copied);
+            if (!anchorFound && !imageFound) {
+                break;
             }
+            LinkFinder found = anchorFound && (!imageFound || anchors.start < images.start) ? anchors : images;
+            String link = decodedText.substring(found.start, found.end);
+            result.append(decodedText, copied, found.start);
+            result.append(found == anchors ? rewriteAnchor(link, serverName) : rewriteImage(link));
+            copied = found.end;
+        }
+        if (copied == 0) {
+            return decodedText;
         }
+        return result.append(decodedText, copied, decodedText.length()).toString();
+    }
 
-        return decodedText;
+    private String rewriteAnchor(String anchor, String serverName) {
+        String encoded = encodeSpaces(anchor);
+        if (!anchor.contains(serverName) && hasProtocol(anchor)) {
+            return ANCHOR_LINK_PATTERN.matcher(encoded).replaceFirst(
+                    Matcher.quoteReplacement("<a rel=\"nofollow\" href=\"" + getHrefPrefix()));
+        }
+        return ANCHOR_LINK_PATTERN.matcher(encoded).replaceFirst("<a href=\"");
+    }
+
+    private String rewriteImage(String image) {
+        return IMAGE_LINK_PATTERN.matcher(encodeSpaces(image)).replaceFirst(IMAGE_REPLACEMENT);
+    }
+
+    private boolean hasProtocol(String link) {
+        for (String protocol : PROTOCOLS) {
+            if (link.contains(protocol)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String encodeSpaces(String link) {
+        if (link.indexOf(' ') < 0) {
+            return link;
+        }
+        StringBuilder encoded = new StringBuilder(link.length() + 16);
+        for (int i = 0; i < link.length(); i++) {
+            char c = link.charAt(i);
+            if (c == ' ') {
+                encoded.append("%20");
+            } else {
+                encoded.append(c);
+            }
+        }
+        return encoded.toString();
     }
 
     /**
@@ -97,4 +149,79 @@ public class BBForeignLinksPostprocessor implements TextPostProcessor {
         return "/out?url=";
     }
 
+    /**
+     * Finds tags like {@code <a ... href="..."} one after another. A tag spans from its start up to the closing
+     * quote of the link attribute, the first quote of either kind closes the link. Positions found before are
+     * reused, so the text is scanned only once however many links it has.
+     */
+    private static final class LinkFinder {
+        private final String text;
+        private final String tagStart;
+        private final String attribute;
+        private int attributePosition = -1;
+        private boolean exhausted;
+        private int start = -1;
+        private int end;
+
+        LinkFinder(String text, String tagStart, String attribute) {
+            this.text = text;
+            this.tagStart = tagStart;
+            this.attribute = attribute;
+        }
+
+        /**
+         * @param from position to search from
+         * @return true if a tag is found, its bounds are in {@link #start} and {@link #end}
+         */
+        boolean find(int from) {
+            if (exhausted) {
+                return false;
+            }
+            if (start >= from) {
+                return true;
+            }
+            start = text.indexOf(tagStart, from);
+            if (start < 0) {
+                exhausted = true;
+                return false;
+            }
+            int attributeFrom = start + tagStart.length();
+            if (attributePosition < attributeFrom) {
+                attributePosition = findAttribute(attributeFrom);
+            }
+            int closingQuote = attributePosition < 0 ? -1 : findQuote(attributePosition + attribute.length() + 1);
+            if (closingQuote < 0) {
+                // there is no complete link further in the text, so later tags can't be matched either
+                exhausted = true;
+                return false;
+            }
+            end = closingQuote + 1;
+            return true;
+        }
+
+        private int findAttribute(int from) {
+            int position = text.indexOf(attribute, from);
+            while (position >= 0) {
+                int quotePosition = position + attribute.length();
+                if (quotePosition < text.length() && isQuote(text.charAt(quotePosition))) {
+                    return position;
+                }
+                position = text.indexOf(attribute, position + 1);
+            }
+            return -1;
+        }
+
+        private int findQuote(int from) {
+            for (int i = from; i < text.length(); i++) {
+                if (isQuote(text.charAt(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isQuote(char c) {
+            return c == '"' || c == '\'';
+        }
+    }
 }
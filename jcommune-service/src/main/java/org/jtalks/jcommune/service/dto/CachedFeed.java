@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * RSS feed rendered to bytes together with the validators used to answer conditional requests of feed readers.
+ */
+public class CachedFeed implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] content;
+    private final String contentType;
+    private final String eTag;
+    private final long lastModified;
+
+    /**
+     * @param content      rendered feed
+     * @param contentType  content type of the feed including charset
+     * @param eTag         quoted entity tag of the content
+     * @param lastModified time the feed was rendered, in milliseconds rounded down to seconds as HTTP dates have no
+     *                     milliseconds
+     */
+    public CachedFeed(byte[] content, String contentType, String eTag, long lastModified) {
+        this.content = content;
+        this.contentType = contentType;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return rendered feed, must not be modified
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return content type of the feed including charset
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return quoted entity tag of the content, ready to be sent in ETag header
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @return time the feed was rendered in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -18,22 +18,37 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.plugin.api.service.PluginBbCodeService;
+import org.jtalks.jcommune.plugin.api.web.validation.annotations.BbCodeNesting;
 import org.jtalks.jcommune.service.bb2htmlprocessors.TextPostProcessor;
 import org.kefirsf.bb.BBProcessorFactory;
+import org.kefirsf.bb.ConfigurationFactory;
 import org.kefirsf.bb.TextProcessor;
+import org.kefirsf.bb.TextProcessorNestingException;
+import org.kefirsf.bb.conf.Configuration;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides various helper methods for encoding/decoding BB codes. This class is used by our JSTL tags on JSP pages.
+ * <p/>
+ * Results of processing are remembered for the duration of the current request, so a submitted text which is
+ * validated for nesting and length and then rendered as a preview is converted only once.
  *
  * @author Evgeniy Naumenko
  */
 public class BBCodeService implements PluginBbCodeService {
     private static final String QUOTE_PATEERN = "[quote=\"%s\"]%s[/quote]";
+    private static final String PROCESSED_TEXTS_ATTRIBUTE = BBCodeService.class.getName() + ".processedTexts";
+    private static final String STRIPPED_TEXTS_ATTRIBUTE = BBCodeService.class.getName() + ".strippedTexts";
     /** Processor is thread safe as it's explicitly stated in documentation */
     private final TextProcessor processor = BBProcessorFactory.getInstance().create();
+    /** The same processor which fails when bb-codes are nested deeper than allowed for new posts */
+    private final TextProcessor nestingAwareProcessor = createNestingAwareProcessor();
     /** Processor to strip bb-codes */
     private final TextProcessor stripBBCodesProcessor = BBProcessorFactory.getInstance().createFromResource("kefirbb-strip-config.xml");
     /** Preprocessors of BB encoded text used before actual BB2HTML converter */
@@ -71,18 +86,51 @@ public class BBCodeService implements PluginBbCodeService {
      * @return the same text with HTML markup to be shown
      */
     public String convertBbToHtml(String bbEncodedText) {
+        return process(bbEncodedText).html;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNestingTooDeep(String bbEncodedText) {
+        return process(bbEncodedText).nestingTooDeep;
+    }
+
+    /**
+     * Converts the text to HTML finding out whether its bb-codes are nested too deep on the way. Texts with too deep
+     * nesting are still converted with the lenient processor as they were saved before the nesting was limited.
+     *
+     * @param bbEncodedText string with BB-style markup
+     * @return result of the processing, remembered until the end of the current request
+     */
+    private ProcessedText process(String bbEncodedText) {
+        Map<String, ProcessedText> processedTexts = getProcessedTextsOfRequest();
+        ProcessedText processed = processedTexts.get(bbEncodedText);
+        if (processed != null) {
+            return processed;
+        }
+        processed = new ProcessedText();
+        String text = bbEncodedText;
         for (TextProcessor preprocessor : preprocessors) {
-            bbEncodedText = preprocessor.process(bbEncodedText);
+            text = preprocessor.process(text);
         }
-        if (isUserbbCode(bbEncodedText)){
-            bbEncodedText = processUserbbCode(bbEncodedText);
+        if (isUserbbCode(text)){
+            text = processUserbbCode(text);
         } else {
-            bbEncodedText = processor.process(bbEncodedText);
+            try {
+                text = nestingAwareProcessor.process(text);
+            } catch (TextProcessorNestingException e) {
+                processed.nestingTooDeep = true;
+                text = processor.process(text);
+            }
         }
         for (TextPostProcessor postpreprocessor : postprocessors) {
-            bbEncodedText = postpreprocessor.postProcess(bbEncodedText);
+            text = postpreprocessor.postProcess(text);
         }
-        return bbEncodedText;
+        processed.html = text;
+        processedTexts.put(bbEncodedText, processed);
+        return processed;
     }
 
     /**
@@ -117,7 +165,13 @@ public class BBCodeService implements PluginBbCodeService {
      * @return text without bb-codes
      */
     public String stripBBCodes(String bbCode) {
-        return stripBBCodesProcessor.process(bbCode);
+        Map<String, String> strippedTexts = getStrippedTextsOfRequest();
+        String stripped = strippedTexts.get(bbCode);
+        if (stripped == null) {
+            stripped = stripBBCodesProcessor.process(bbCode);
+            strippedTexts.put(bbCode, stripped);
+        }
+        return stripped;
     }
 
     /**
@@ -139,4 +193,43 @@ public class BBCodeService implements PluginBbCodeService {
 
         return result;
     }
+
+    private static TextProcessor createNestingAwareProcessor() {
+        Configuration configuration = ConfigurationFactory.getInstance().create();
+        configuration.setPropagateNestingException(true);
+        configuration.setNestingLimit(BbCodeNesting.DEFAULT_MAX_NESTING_VALUE);
+        return BBProcessorFactory.getInstance().create(configuration);
+    }
+
+    private Map<String, ProcessedText> getProcessedTextsOfRequest() {
+        return getMapOfRequest(PROCESSED_TEXTS_ATTRIBUTE);
+    }
+
+    private Map<String, String> getStrippedTextsOfRequest() {
+        return getMapOfRequest(STRIPPED_TEXTS_ATTRIBUTE);
+    }
+
+    /**
+     * @param attribute name of the request attribute keeping the map
+     * @return map stored in the current request, a throwaway one if there is no request bound to the thread
+     */
+    @SuppressWarnings("unchecked")
+    private <V> Map<String, V> getMapOfRequest(String attribute) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return new HashMap<>();
+        }
+        Map<String, V> map = (Map<String, V>) request.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        if (map == null) {
+            map = new HashMap<>();
+            request.setAttribute(attribute, map, RequestAttributes.SCOPE_REQUEST);
+        }
+        return map;
+    }
+
+    /** Outcome of converting a text to HTML */
+    private static final class ProcessedText {
+        private String html;
+        private boolean nestingTooDeep;
+    }
 }
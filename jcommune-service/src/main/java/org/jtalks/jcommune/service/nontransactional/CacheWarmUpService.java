@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.jtalks.jcommune.service.SectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills the second level cache with the data almost every page needs right after the start of the application, so
+ * that the first users don't wait for it to be loaded. Cache invalidations from other nodes evict only changed
+ * elements, so the warmed up data stays in the cache until it's changed.
+ */
+public class CacheWarmUpService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmUpService.class);
+    private final SectionService sectionService;
+
+    /**
+     * @param sectionService to load sections and branches with
+     */
+    public CacheWarmUpService(SectionService sectionService) {
+        this.sectionService = sectionService;
+    }
+
+    /**
+     * Loads sections and branches into the cache. A failure here doesn't prevent the application from starting, the
+     * cache is filled on demand then.
+     */
+    public void warmUp() {
+        try {
+            sectionService.warmUpCache();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not warm up the cache, it will be filled on demand", e);
+        }
+    }
+}
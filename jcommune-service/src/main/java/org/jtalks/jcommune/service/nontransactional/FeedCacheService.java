@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jtalks.jcommune.service.dto.CachedFeed;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps RSS feeds rendered to bytes, so feed readers polling the forum cost a cache lookup instead of fetching and
+ * rendering topics and posts. Keys are built by the web tier from the feed URL and the permissions of the user.
+ * <p/>
+ * The whole cache is invalidated whenever posts are created, edited, deleted or moved and when permissions of
+ * branches change. Feeds are rarely requested between such changes by different users, so tracking which feeds
+ * contain what isn't worth it.
+ */
+public class FeedCacheService {
+    private final Ehcache feedCache;
+    /**
+     * Incremented on every invalidation, so feeds rendered from the data loaded before an invalidation are not
+     * put to the cache after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param feedCache cache to store rendered feeds in
+     */
+    public FeedCacheService(Ehcache feedCache) {
+        this.feedCache = feedCache;
+    }
+
+    /**
+     * Gets a rendered feed.
+     *
+     * @param key key of the feed
+     * @return rendered feed or {@code null} if it's not in the cache
+     */
+    public CachedFeed get(String key) {
+        Element element = feedCache.get(key);
+        if (element == null) {
+            return null;
+        }
+        return (CachedFeed) element.getObjectValue();
+    }
+
+    /**
+     * Gets the current generation of the cache, should be taken before the data of a feed are loaded and passed to
+     * {@link #put(String, long, byte[], String)} along with the rendered feed.
+     *
+     * @return current generation of the cache
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Puts a rendered feed to the cache unless the cache was invalidated since the feed started rendering.
+     *
+     * @param key         key of the feed
+     * @param generation  generation of the cache taken before the feed started rendering
+     * @param content     rendered feed
+     * @param contentType content type of the feed
+     * @return the feed with its ETag and Last-Modified time
+     */
+    public CachedFeed put(String key, long generation, byte[] content, String contentType) {
+        long now = System.currentTimeMillis();
+        CachedFeed feed = new CachedFeed(content, contentType, "\"" + DigestUtils.md5Hex(content) + "\"",
+                now - now % 1000);
+        if (generation == this.generation.get()) {
+            feedCache.put(new Element(key, feed));
+        }
+        return feed;
+    }
+
+    /**
+     * Drops all the feeds. If called inside a transaction, the feeds are dropped once again after it completes,
+     * otherwise a feed rendered concurrently from the data before the commit could remain in the cache.
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        feedCache.removeAll();
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jtalks.jcommune.service.dto.CachedImage;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the logo and the fav icons of the forum decoded from the properties of the forum component, so requesting
+ * them costs a cache lookup instead of loading the component and decoding Base64. Keys are names of the component
+ * properties the images are stored in.
+ * <p/>
+ * The whole cache is invalidated when administrators change the information of the forum.
+ */
+public class ForumImageCacheService {
+    private final Ehcache forumImageCache;
+    /**
+     * Incremented on every invalidation, so images loaded before an invalidation are not put to the cache after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param forumImageCache cache to store decoded images in
+     */
+    public ForumImageCacheService(Ehcache forumImageCache) {
+        this.forumImageCache = forumImageCache;
+    }
+
+    /**
+     * Gets a decoded image.
+     *
+     * @param propertyName name of the component property the image is stored in
+     * @return decoded image or {@code null} if it's not in the cache
+     */
+    public CachedImage get(String propertyName) {
+        Element element = forumImageCache.get(propertyName);
+        if (element == null) {
+            return null;
+        }
+        return (CachedImage) element.getObjectValue();
+    }
+
+    /**
+     * Gets the current generation of the cache, should be taken before the image is loaded and passed to
+     * {@link #put(String, long, byte[], String, long)} along with the decoded image.
+     *
+     * @return current generation of the cache
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Puts a decoded image to the cache unless the cache was invalidated since the image started loading.
+     *
+     * @param propertyName name of the component property the image is stored in
+     * @param generation   generation of the cache taken before the image started loading
+     * @param content      decoded image
+     * @param contentType  content type of the image
+     * @param lastModified time the image was changed in milliseconds
+     * @return the image with its ETag
+     */
+    public CachedImage put(String propertyName, long generation, byte[] content, String contentType,
+                           long lastModified) {
+        CachedImage image = new CachedImage(content, contentType, "\"" + DigestUtils.md5Hex(content) + "\"",
+                lastModified);
+        if (generation == this.generation.get()) {
+            forumImageCache.put(new Element(propertyName, image));
+        }
+        return image;
+    }
+
+    /**
+     * Drops all the images. If called inside a transaction, the images are dropped once again after it completes,
+     * otherwise an image loaded concurrently from the data before the commit could remain in the cache.
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        forumImageCache.removeAll();
+    }
+}
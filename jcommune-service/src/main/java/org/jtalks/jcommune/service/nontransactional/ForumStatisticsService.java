@@ -12,26 +12,55 @@
  * License along with this library; if not, write to the Free Software
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
  */
+
 package org.jtalks.jcommune.service.nontransactional;
 
 import org.jtalks.jcommune.model.dao.ForumStatisticsDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class contains methods for getting forum statistic information.
+ * <p/>
+ * Counters are kept in memory and changed by services which create or delete posts and users, so reading
+ * them costs nothing. Query cache can't help here as it's invalidated on every new post. To fix drifts
+ * (e.g. posts removed together with their users by cascades) counters are periodically reconciled with
+ * the database in background.
  *
  * @author Elena Lepaeva
  */
 public class ForumStatisticsService  {
+    /** 10 minutes, counters are changed by the services in between, so there is no need to do it often */
+    private static final long RECONCILE_PERIOD = 10 * 60 * 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AtomicInteger postsCount = new AtomicInteger();
+    private final AtomicInteger usersCount = new AtomicInteger();
+    private volatile boolean seeded;
 
     private ForumStatisticsDao statisticsDao;
+    private TransactionTemplate transactionTemplate;
 
     /**
      * Create an instance of transactional forum statistics service
      *
-     * @param statisticsDao for operations with data storage
+     * @param statisticsDao      for operations with data storage
+     * @param transactionManager to read counters from data storage outside of user requests
      */
-    public ForumStatisticsService(ForumStatisticsDao statisticsDao) {
+    public ForumStatisticsService(ForumStatisticsDao statisticsDao, PlatformTransactionManager transactionManager) {
         this.statisticsDao = statisticsDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
     }
 
     /**
@@ -40,7 +69,8 @@ public class ForumStatisticsService  {
      * @return number of posts on the forum.
      */
     public int getPostsOnForumCount() {
-        return statisticsDao.getPostsOnForumCount();
+        seedIfNeeded();
+        return postsCount.get();
     }
 
     /**
@@ -49,6 +79,83 @@ public class ForumStatisticsService  {
      * @return count of registered user's accounts
      */
     public int getUsersCount() {
-        return statisticsDao.getUsersCount();
+        seedIfNeeded();
+        return usersCount.get();
+    }
+
+    /**
+     * Changes count of posts on the forum. If invoked inside of a transaction, the change is applied only
+     * after the transaction is committed, so rolled back operations don't affect statistics.
+     *
+     * @param delta value to add to the count of posts, negative when posts are deleted
+     */
+    public void changePostsCount(int delta) {
+        change(postsCount, delta);
+    }
+
+    /**
+     * Changes count of registered user's accounts. If invoked inside of a transaction, the change is applied
+     * only after the transaction is committed, so rolled back operations don't affect statistics.
+     *
+     * @param delta value to add to the count of users, negative when users are deleted
+     */
+    public void changeUsersCount(int delta) {
+        change(usersCount, delta);
+    }
+
+    /**
+     * Reloads counters from the database. Invoked at startup and then periodically
+     * to fix the drifts of in-memory counters.
+     */
+    @Scheduled(fixedDelay = RECONCILE_PERIOD)
+    public void reconcile() {
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                int posts = statisticsDao.getPostsOnForumCount();
+                int users = statisticsDao.getUsersCount();
+                int postsDrift = postsCount.getAndSet(posts) - posts;
+                int usersDrift = usersCount.getAndSet(users) - users;
+                if (seeded && (postsDrift != 0 || usersDrift != 0)) {
+                    logger.debug("Forum statistics reconciled, posts drift={}, users drift={}", postsDrift, usersDrift);
+                }
+            }
+        });
+        seeded = true;
+    }
+
+    /**
+     * Loads counters in case they are requested before the first scheduled reconciliation.
+     */
+    private void seedIfNeeded() {
+        if (!seeded) {
+            synchronized (this) {
+                if (!seeded) {
+                    reconcile();
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies change to the counter right away or after commit if there is an active transaction.
+     *
+     * @param counter counter to change
+     * @param delta   value to add to the counter
+     */
+    private void change(final AtomicInteger counter, final int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    counter.addAndGet(delta);
+                }
+            });
+        } else {
+            counter.addAndGet(delta);
+        }
     }
 }
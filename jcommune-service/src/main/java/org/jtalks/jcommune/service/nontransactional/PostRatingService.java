@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.jtalks.jcommune.model.dao.PostDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Accumulates changes of post ratings made by votes and applies them to the database periodically.
+ * <p/>
+ * Popular posts get bursts of votes, so instead of updating the post row (and its cache entry) on every vote
+ * all changes of the same post are summed up in memory and applied with one update per post.
+ */
+public class PostRatingService {
+    /** 5 seconds, ratings are shown with this delay at most */
+    private static final long FLUSH_PERIOD = 5 * 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ConcurrentMap<Long, Integer> pendingChanges = new ConcurrentHashMap<>();
+
+    private PostDao postDao;
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * @param postDao            to apply rating changes
+     * @param transactionManager to apply rating changes outside of user requests
+     */
+    public PostRatingService(PostDao postDao, PlatformTransactionManager transactionManager) {
+        this.postDao = postDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds change of post rating to the pending ones. If invoked inside of a transaction, the change is
+     * added only after the transaction is committed, so rolled back votes don't affect rating.
+     *
+     * @param postId  id of the voted post
+     * @param changes value to add to the rating of the post, negative when post is voted down
+     */
+    public void changeRating(final Long postId, final int changes) {
+        if (changes == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    addPendingChange(postId, changes);
+                }
+            });
+        } else {
+            addPendingChange(postId, changes);
+        }
+    }
+
+    /**
+     * Applies all pending rating changes to the database in one transaction. Invoked periodically
+     * and on shutdown. If changes can't be applied, they are kept to be applied next time.
+     */
+    @Scheduled(fixedDelay = FLUSH_PERIOD)
+    public void flush() {
+        final Map<Long, Integer> changes = drainPendingChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                        postDao.changeRating(change.getKey(), change.getValue());
+                    }
+                }
+            });
+            logger.debug("Rating of {} posts was changed", changes.size());
+        } catch (RuntimeException e) {
+            logger.warn("Rating changes of posts weren't applied and will be retried", e);
+            for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                addPendingChange(change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    /**
+     * Atomically adds change to the pending change of the post.
+     *
+     * @param postId  id of the post
+     * @param changes value to add
+     */
+    private void addPendingChange(Long postId, int changes) {
+        while (true) {
+            Integer pending = pendingChanges.putIfAbsent(postId, changes);
+            if (pending == null || pendingChanges.replace(postId, pending, pending + changes)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Atomically takes all pending changes, changes added concurrently are left for the next flush.
+     *
+     * @return pending changes by post ids, changes which sum up to zero are skipped
+     */
+    private Map<Long, Integer> drainPendingChanges() {
+        Map<Long, Integer> changes = new HashMap<>();
+        for (Long postId : pendingChanges.keySet()) {
+            Integer pending = pendingChanges.get(postId);
+            if (pending != null && pendingChanges.remove(postId, pending) && pending != 0) {
+                changes.put(postId, pending);
+            }
+        }
+        return changes;
+    }
+}
@@ -84,4 +84,14 @@ public class UserDataCacheService {
             userDataCache.put(new Element(username, --count));
         }
     }
+
+    /**
+     * Remove new messages count for {@code username} from cache, it will be counted again
+     * on the next request.
+     *
+     * @param username username
+     */
+    public void removeNewPmCountFor(String username) {
+        userDataCache.remove(username);
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.jtalks.common.model.entity.Group;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps IDs of the branches with VIEW_TOPICS permission grouped by sections. Permissions are granted to groups, so
+ * the branches are cached per combination of groups rather than per user, and all the users of the same groups
+ * share a single entry. There are few such combinations on a forum, so sections and the move topic dialog are
+ * usually rendered without querying permissions at all.
+ * <p/>
+ * The whole cache is invalidated when permissions of branches change.
+ */
+public class VisibleBranchesCacheService {
+    private static final String ANONYMOUS_KEY = "anonymousUser";
+    private final Ehcache visibleBranchesCache;
+
+    /**
+     * @param visibleBranchesCache cache to store IDs of visible branches in
+     */
+    public VisibleBranchesCacheService(Ehcache visibleBranchesCache) {
+        this.visibleBranchesCache = visibleBranchesCache;
+    }
+
+    /**
+     * Gets IDs of visible branches for the groups of the user.
+     *
+     * @param user user to get the branches for
+     * @return IDs of visible branches keyed by IDs of their sections or {@code null} if they are not in the cache
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, List<Long>> get(JCUser user) {
+        Element element = visibleBranchesCache.get(keyOf(user));
+        if (element == null) {
+            return null;
+        }
+        return (Map<Long, List<Long>>) element.getObjectValue();
+    }
+
+    /**
+     * Puts IDs of visible branches for the groups of the user to the cache. An unmodifiable copy is stored, as the
+     * same instance is handed to all the users of the groups.
+     *
+     * @param user             user whose groups the branches were loaded for
+     * @param visibleBranchIds IDs of visible branches keyed by IDs of their sections
+     */
+    public void put(JCUser user, Map<Long, List<Long>> visibleBranchIds) {
+        Map<Long, List<Long>> copy = new HashMap<>();
+        for (Map.Entry<Long, List<Long>> entry : visibleBranchIds.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+        visibleBranchesCache.put(new Element(keyOf(user), Collections.unmodifiableMap(copy)));
+    }
+
+    /**
+     * Drops visible branches of all the groups. If called inside a transaction, they are dropped once again after it
+     * completes, otherwise the branches loaded concurrently before the commit could remain in the cache.
+     */
+    public void invalidate() {
+        visibleBranchesCache.removeAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    visibleBranchesCache.removeAll();
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds the key from sorted IDs of the groups of the user, so the order of groups doesn't matter.
+     */
+    private String keyOf(JCUser user) {
+        if (user.isAnonymous()) {
+            return ANONYMOUS_KEY;
+        }
+        List<Long> groupIds = new ArrayList<>();
+        for (Group group : user.getGroups()) {
+            groupIds.add(group.getId());
+        }
+        Collections.sort(groupIds);
+        return groupIds.toString();
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in microseconds built the same way as HdrHistogram: values below {@code 32} are
+ * counted exactly, bigger values go to log-linear buckets (16 buckets per power of two), so any reported percentile
+ * differs from the real value by no more than ~6%. Recording is a couple of atomic increments and never blocks, thus
+ * it's safe to call from any number of threads. Readers see a consistent enough picture without stopping writers.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_VALUES_COUNT = SUB_BUCKET_COUNT << 1;
+    /**
+     * Latencies are tracked up to 2^32 microseconds (more than an hour), larger values are clamped to it.
+     */
+    static final long HIGHEST_TRACKABLE_VALUE = (1L << 32) - 1;
+    private static final int BUCKET_COUNT = indexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Adds one more latency to the histogram.
+     *
+     * @param micros latency in microseconds, negative values are treated as zero, too large ones as {@link
+     *               #HIGHEST_TRACKABLE_VALUE}
+     */
+    void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * @return how many latencies were recorded
+     */
+    long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return the biggest recorded latency in microseconds or 0 if nothing was recorded
+     */
+    long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * Finds the latencies below which the specified fractions of all the recorded latencies fall. Histograms are
+     * merged on the fly, so that the percentiles of several windows can be found without allocating new ones.
+     *
+     * @param histograms histograms to take latencies from
+     * @param quantiles  fractions (0..1) sorted in ascending order, e.g. {@code 0.5, 0.99}
+     * @return the latencies in microseconds in the same order as the quantiles, all zeros if nothing was recorded
+     */
+    static long[] valuesAtQuantiles(LatencyHistogram[] histograms, double... quantiles) {
+        long[] merged = new long[BUCKET_COUNT];
+        long total = 0;
+        long max = 0;
+        for (LatencyHistogram histogram : histograms) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long count = histogram.counts.get(i);
+                merged[i] += count;
+                total += count;
+            }
+            max = Math.max(max, histogram.getMaxValue());
+        }
+        long[] values = new long[quantiles.length];
+        if (total == 0) {
+            return values;
+        }
+        int q = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && q < quantiles.length; i++) {
+            seen += merged[i];
+            while (q < quantiles.length && seen >= Math.max(1, (long) Math.ceil(quantiles[q] * total))) {
+                values[q++] = Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        while (q < quantiles.length) {
+            values[q++] = max;
+        }
+        return values;
+    }
+
+    /**
+     * @param value latency in microseconds, from 0 to {@link #HIGHEST_TRACKABLE_VALUE}
+     * @return the index of the bucket the value is counted in
+     */
+    static int indexOf(long value) {
+        if (value < EXACT_VALUES_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return EXACT_VALUES_COUNT + (shift - 1) * SUB_BUCKET_COUNT
+                + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * @param index the index of a bucket
+     * @return the biggest value that is counted in the bucket
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < EXACT_VALUES_COUNT) {
+            return index;
+        }
+        int shift = (index - EXACT_VALUES_COUNT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - EXACT_VALUES_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
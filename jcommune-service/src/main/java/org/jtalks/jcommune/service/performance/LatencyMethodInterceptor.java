@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+/**
+ * Records latencies of the intercepted methods into {@link LatencyMonitor}. The latency is named after the target
+ * class (not the proxy one) and the method, e.g. {@code TransactionalTopicFetchService::get}. Calls that are not
+ * sampled are just proceeded, failed calls are recorded the same way as successful ones.
+ */
+public class LatencyMethodInterceptor implements MethodInterceptor {
+    private final LatencyMonitor latencyMonitor;
+
+    /**
+     * @param latencyMonitor to record latencies to
+     */
+    public LatencyMethodInterceptor(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!latencyMonitor.shouldSample()) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            latencyMonitor.record(nameOf(invocation), System.nanoTime() - start);
+        }
+    }
+
+    private String nameOf(MethodInvocation invocation) {
+        return AopUtils.getTargetClass(invocation.getThis()).getSimpleName() + "::" + invocation.getMethod().getName();
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps latency histograms of service/DAO methods and HTTP routes. Unlike JETM monitors it doesn't take any locks
+ * while recording and tracks percentiles instead of averages, which tell much more about what users experience.
+ * <p>Only a fraction of calls is recorded (see {@link #setSamplingRate(double)}), other calls don't even read the
+ * clock, so the monitor can stay enabled in production. Percentiles are reported for rolling windows: a window is
+ * replaced every {@link #WINDOW_MILLIS} and statistics cover the current and the previous windows, so that old
+ * spikes don't stay in the numbers forever.</p>
+ */
+public class LatencyMonitor implements LatencyMonitorMXBean {
+    /**
+     * How long a rolling window lasts.
+     */
+    static final long WINDOW_MILLIS = 60 * 1000;
+    /**
+     * Names come from code and from URL patterns, so there are not many of them, but we don't want the memory to leak
+     * if something starts generating them, histograms for new names are not created after this limit.
+     */
+    static final int MAX_MONITORED_NAMES = 2000;
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99, 0.999};
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatencyMonitor.class);
+
+    private final ConcurrentMap<String, RollingLatency> latencies = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private volatile double samplingRate;
+
+    /**
+     * @param samplingRate the fraction of calls (from 0 to 1) which latency is recorded
+     */
+    public LatencyMonitor(double samplingRate) {
+        setSamplingRate(samplingRate);
+    }
+
+    /**
+     * Decides whether the latency of the call that is about to start should be recorded. Callers are expected to ask
+     * it before measuring anything and to skip the measuring at all if it returns false.
+     *
+     * @return true if the call should be measured and passed to {@link #record(String, long)}
+     */
+    public boolean shouldSample() {
+        if (!enabled) {
+            return false;
+        }
+        double rate = samplingRate;
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * Records the latency of a sampled call.
+     *
+     * @param name         the name of the method or route, e.g. {@code TransactionalTopicFetchService::get}
+     * @param elapsedNanos how long the call took in nanoseconds
+     */
+    public void record(String name, long elapsedNanos) {
+        RollingLatency latency = latencies.get(name);
+        if (latency == null) {
+            if (latencies.size() >= MAX_MONITORED_NAMES) {
+                LOGGER.debug("Latency of [{}] is not recorded, too many names are monitored already", name);
+                return;
+            }
+            RollingLatency created = new RollingLatency();
+            latency = latencies.putIfAbsent(name, created);
+            if (latency == null) {
+                latency = created;
+            }
+        }
+        latency.current.get().record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    /**
+     * Starts new rolling windows so that latencies older than two windows are forgotten.
+     */
+    @Scheduled(fixedDelay = WINDOW_MILLIS)
+    public void rotateWindows() {
+        for (RollingLatency latency : latencies.values()) {
+            latency.previous = latency.current.getAndSet(new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Creates a text report with the latencies of all the monitored methods and routes, one per line.
+     *
+     * @return the report, it's empty if nothing was recorded yet
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (String line : getLatencies()) {
+            report.append(line).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getLatencies() {
+        List<String> lines = new ArrayList<>(latencies.size());
+        for (Map.Entry<String, RollingLatency> entry : new TreeMap<>(latencies).entrySet()) {
+            LatencyHistogram[] windows = entry.getValue().windows();
+            long count = windows[0].getTotalCount() + windows[1].getTotalCount();
+            if (count == 0) {
+                continue;
+            }
+            long[] percentiles = LatencyHistogram.valuesAtQuantiles(windows, QUANTILES);
+            long max = Math.max(windows[0].getMaxValue(), windows[1].getMaxValue());
+            lines.add(String.format(Locale.ROOT,
+                    "%s count=%d p50=%.3fms p95=%.3fms p99=%.3fms p999=%.3fms max=%.3fms", entry.getKey(), count,
+                    toMillis(percentiles[0]), toMillis(percentiles[1]), toMillis(percentiles[2]),
+                    toMillis(percentiles[3]), toMillis(max)));
+        }
+        return lines;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        latencies.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSamplingRate(double samplingRate) {
+        if (samplingRate < 0 || samplingRate > 1) {
+            throw new IllegalArgumentException("Sampling rate should be from 0 to 1, but was " + samplingRate);
+        }
+        this.samplingRate = samplingRate;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Histograms of the current and the previous windows of a single method or route.
+     */
+    private static class RollingLatency {
+        private final AtomicReference<LatencyHistogram> current =
+                new AtomicReference<>(new LatencyHistogram());
+        private volatile LatencyHistogram previous = new LatencyHistogram();
+
+        private LatencyHistogram[] windows() {
+            return new LatencyHistogram[]{previous, current.get()};
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import java.util.List;
+
+/**
+ * Exposes latency statistics of service/DAO methods and HTTP routes via JMX and allows changing how many calls are
+ * sampled in the runtime without restarting the app.
+ */
+public interface LatencyMonitorMXBean {
+    /**
+     * @return whether latencies are recorded at all
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns recording of latencies on and off, already recorded statistics stays untouched.
+     *
+     * @param enabled false to stop recording completely
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the fraction (from 0 to 1) of calls which latency is recorded
+     */
+    double getSamplingRate();
+
+    /**
+     * Changes the fraction of calls which latency is recorded. Percentiles don't depend on it, only counts do, so
+     * small rates are fine for production.
+     *
+     * @param samplingRate from 0 (nothing is recorded) to 1 (every call is recorded)
+     * @throws IllegalArgumentException if the rate is out of the range
+     */
+    void setSamplingRate(double samplingRate);
+
+    /**
+     * Lists latencies of every monitored method and route for the last one or two rolling windows, one per line:
+     * the name, the number of sampled calls, p50, p95, p99, p99.9 and max in milliseconds.
+     *
+     * @return the list of statistics lines sorted by name
+     */
+    List<String> getLatencies();
+
+    /**
+     * Forgets all the recorded latencies.
+     */
+    void reset();
+}
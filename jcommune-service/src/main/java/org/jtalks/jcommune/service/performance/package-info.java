@@ -13,6 +13,7 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
  */
 /**
- * Contains classes to JETM.
+ * Contains lock-free latency recorders of service/DAO methods and HTTP routes that are cheap enough to stay enabled
+ * in production. Their statistics are exposed via JMX and the {@code /performance} page.
  */
-package org.jtalks.jcommune.service.jetm;
\ No newline at end of file
+package org.jtalks.jcommune.service.performance;
@@ -16,7 +16,10 @@ package org.jtalks.jcommune.service.security;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 
@@ -152,6 +155,39 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
         return result;
     }
 
+    /**
+     * Reads access control lists of the specified targets and of the groups of the user from authentication in a
+     * single query. The lists are put into the ACL cache, so that following {@link #hasPermission(Authentication,
+     * Serializable, String, Object)} calls on these targets don't go to the database.
+     *
+     * @param authentication authentication of the user whose permissions are going to be checked
+     * @param targetIds      ids of the targets whose permissions are going to be checked
+     * @param targetType     type of the targets, e.g. BRANCH
+     */
+    public void loadAcls(Authentication authentication, Collection<Long> targetIds, String targetType) {
+        Set<ObjectIdentity> identities = new LinkedHashSet<>();
+        for (Long targetId : targetIds) {
+            identities.add(aclUtil.createIdentity(targetId, targetType));
+        }
+        if (authentication.getPrincipal() instanceof JCUser) {
+            JCUser actualUser = userDao.get(((JCUser) authentication.getPrincipal()).getId());
+            if (actualUser != null) {
+                for (Group group : actualUser.getGroups()) {
+                    identities.add(aclUtil.createIdentity(group.getId(), "GROUP"));
+                }
+            }
+        }
+        if (identities.isEmpty()) {
+            return;
+        }
+        try {
+            mutableAclService.readAclsById(new ArrayList<>(identities));
+        } catch (NotFoundException nfe) {
+            // lists which were found are cached anyway, missing ones are treated as empty by the checks
+            LOGGER.debug("Some of ACLs were not found: {}", nfe.getMessage());
+        }
+    }
+
     /**
      * Parses targetId parameter
      *
@@ -27,8 +27,8 @@ import org.jtalks.common.model.permissions.ProfilePermission;
 import org.jtalks.common.security.acl.AclManager;
 import org.jtalks.common.security.acl.AclUtil;
 import org.jtalks.common.security.acl.GroupAce;
-import org.jtalks.common.security.acl.builders.AclBuilders;
 import org.jtalks.common.security.acl.sids.UniversalSid;
+import org.jtalks.common.security.acl.sids.UserGroupSid;
 import org.jtalks.common.security.acl.sids.UserSid;
 import org.jtalks.jcommune.model.dao.GroupDao;
 import org.jtalks.jcommune.model.dto.GroupsPermissions;
@@ -42,7 +42,11 @@ import org.springframework.security.acls.model.Sid;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Responsible for allowing, restricting or deleting the permissions of the User Groups to actions.
@@ -81,12 +85,7 @@ public class PermissionManager {
      * @see org.jtalks.jcommune.model.dto.PermissionChanges#getRemovedGroups()
      */
     public void changeGrants(Entity entity, PermissionChanges changes) {
-        for (Group group : changes.getNewlyAddedGroupsAsArray()) {
-            changeGrantsOfGroup(group, changes.getPermission(), entity, true);
-        }
-        for (Group group : changes.getRemovedGroupsAsArray()) {
-            deleteGrantsOfGroup(group, changes.getPermission(), entity);
-        }
+        changePermissions(entity, changes, true);
     }
 
     /**
@@ -99,12 +98,7 @@ public class PermissionManager {
      * @see org.jtalks.jcommune.model.dto.PermissionChanges#getRemovedGroups()
      */
     public void changeRestrictions(Entity entity, PermissionChanges changes) {
-        for (Group group : changes.getNewlyAddedGroupsAsArray()) {
-            changeGrantsOfGroup(group, changes.getPermission(), entity, false);
-        }
-        for (Group group : changes.getRemovedGroupsAsArray()) {
-            deleteGrantsOfGroup(group, changes.getPermission(), entity);
-        }
+        changePermissions(entity, changes, false);
     }
 
     /**
@@ -156,20 +150,7 @@ public class PermissionManager {
     public GroupsPermissions getPermissionsMapFor(List<Group> groups) {
         List<JtalksPermission> profilePermissions = new ArrayList<>();
         profilePermissions.addAll(ProfilePermission.getAllAsList());
-
-        GroupsPermissions permissions = new GroupsPermissions(profilePermissions);
-        for (Group group : groups) {
-            GroupsPermissions pmGroup = getPermissionsMapFor(profilePermissions, group);
-            for (JtalksPermission permission : pmGroup.getPermissions()) {
-                for (Group groupInsert : pmGroup.getAllowed(permission)) {
-                    permissions.addAllowed(permission, groupInsert);
-                }
-                for (Group groupInsert : pmGroup.getRestricted(permission)) {
-                    permissions.addRestricted(permission, groupInsert);
-                }
-            }
-        }
-        return permissions;
+        return collectPermissions(profilePermissions, groups);
     }
 
     /**
@@ -180,22 +161,7 @@ public class PermissionManager {
      * @return {@link org.jtalks.jcommune.model.dto.GroupsPermissions} for provided {@link org.jtalks.common.model.entity.Entity}
      */
     public GroupsPermissions getPermissionsMapFor(List<JtalksPermission> permissions, Entity entity) {
-        GroupsPermissions groupsPermissions = new GroupsPermissions(permissions);
-        List<GroupAce> groupAces = aclManager.getGroupPermissionsOn(entity);
-        for (JtalksPermission permission : permissions) {
-            for (GroupAce groupAce : groupAces) {
-                if (groupAce.getPermissionMask() == permission.getMask()) {
-                    groupsPermissions.add(permission, getGroup(groupAce), groupAce.isGranting());
-                }
-            }
-            for (AccessControlEntry controlEntry : aclUtil.getAclFor(entity).getEntries()) {
-                if (controlEntry.getPermission().equals(permission)
-                        && ((UniversalSid)controlEntry.getSid()).getSidId().equals(UserSid.createAnonymous().getSidId())) {
-                    groupsPermissions.add(permission, AnonymousGroup.ANONYMOUS_GROUP, controlEntry.isGranting());
-                }
-            }
-        }
-        return groupsPermissions;
+        return collectPermissions(permissions, Collections.singletonList(entity));
     }
 
     /**
@@ -234,85 +200,105 @@ public class PermissionManager {
     }
 
     /**
-     * @param groupAce from which if of group should be extracted
-     * @return {@link org.jtalks.common.model.entity.Group} extracted from {@link org.jtalks.common.security.acl.GroupAce}
-     */
-    private Group getGroup(GroupAce groupAce) {
-        return groupDao.get(groupAce.getGroupId());
-    }
-
-    /**
-     * Changes the granted permission for group. If group is AnonymousGroup method changes permissions
-     * for Anonymous Sid.
+     * Collects permissions of all the entities into a single map. ACL of every entity is read only once and all the
+     * groups mentioned in the ACLs are loaded with a single query.
      *
-     * @param group      user group
-     * @param permission permission
-     * @param entity     the entity to change permissions to
-     * @param granted    permission is granted or restricted
+     * @param permissions the list of permissions to get
+     * @param entities    the entities to get for
+     * @return {@link org.jtalks.jcommune.model.dto.GroupsPermissions} for all the entities
      */
-    private void changeGrantsOfGroup(Group group, JtalksPermission permission, Entity entity, boolean granted) {
-        if (group instanceof AnonymousGroup) {
-            changeGrantsOfAnonymousGroup(permission, entity, granted);
-        } else {
-            AclBuilders builders = new AclBuilders();
-            if (granted) {
-                builders.newBuilder(aclManager).grant(permission).to(group).on(entity).flush();
-            } else {
-                builders.newBuilder(aclManager).restrict(permission).to(group).on(entity).flush();
+    private GroupsPermissions collectPermissions(List<JtalksPermission> permissions,
+                                                 List<? extends Entity> entities) {
+        Map<Integer, JtalksPermission> permissionsByMask = new HashMap<>();
+        for (JtalksPermission permission : permissions) {
+            permissionsByMask.put(permission.getMask(), permission);
+        }
+        List<GroupAce> groupAces = new ArrayList<>();
+        List<AccessControlEntry> anonymousEntries = new ArrayList<>();
+        String anonymousSidId = UserSid.createAnonymous().getSidId();
+        for (Entity entity : entities) {
+            groupAces.addAll(aclManager.getGroupPermissionsOn(entity));
+            for (AccessControlEntry controlEntry : aclUtil.getAclFor(entity).getEntries()) {
+                if (controlEntry.getSid() instanceof UniversalSid
+                        && ((UniversalSid) controlEntry.getSid()).getSidId().equals(anonymousSidId)) {
+                    anonymousEntries.add(controlEntry);
+                }
             }
         }
+        Map<Long, Group> groupsById = getGroupsOf(groupAces);
+
+        GroupsPermissions groupsPermissions = new GroupsPermissions(permissions);
+        for (GroupAce groupAce : groupAces) {
+            JtalksPermission permission = permissionsByMask.get(groupAce.getPermissionMask());
+            if (permission != null) {
+                groupsPermissions.add(permission, groupsById.get(groupAce.getGroupId()), groupAce.isGranting());
+            }
+        }
+        for (AccessControlEntry controlEntry : anonymousEntries) {
+            JtalksPermission permission = permissionsByMask.get(controlEntry.getPermission().getMask());
+            if (permission != null && controlEntry.getPermission().equals(permission)) {
+                groupsPermissions.add(permission, AnonymousGroup.ANONYMOUS_GROUP, controlEntry.isGranting());
+            }
+        }
+        return groupsPermissions;
     }
 
     /**
-     * Changes permissions for Anonymous Sid.
-     *
-     * @param permission permission
-     * @param entity     the entity to change permissions to
-     * @param granted    permission is granted or restricted
+     * @param groupAces entries from which ids of groups should be extracted
+     * @return groups mentioned in the entries mapped by their ids
      */
-    private void changeGrantsOfAnonymousGroup(JtalksPermission permission, Entity entity, boolean granted) {
-        List<Permission> jtalksPermissions = new ArrayList<>();
-        jtalksPermissions.add(permission);
-        List<Sid> sids = new ArrayList<>();
-        sids.add(UserSid.createAnonymous());
-        if (granted) {
-            aclManager.grant(sids, jtalksPermissions, entity);
-        } else {
-            aclManager.restrict(sids, jtalksPermissions, entity);
+    private Map<Long, Group> getGroupsOf(List<GroupAce> groupAces) {
+        Set<Long> groupIds = new LinkedHashSet<>();
+        for (GroupAce groupAce : groupAces) {
+            groupIds.add(groupAce.getGroupId());
         }
+        Map<Long, Group> groupsById = new HashMap<>();
+        if (!groupIds.isEmpty()) {
+            for (Group group : groupDao.getGroupsByIds(new ArrayList<>(groupIds))) {
+                groupsById.put(group.getId(), group);
+            }
+        }
+        return groupsById;
     }
 
     /**
-     * Deletes the granted permission for group. If group is AnonymousGroup method deletes permissions
-     * for Anonymous Sid.
+     * Applies the changes of the permission with one ACL write for all the added groups and one for all the
+     * removed ones. Anonymous group is represented by the anonymous Sid.
      *
-     * @param group      user group
-     * @param permission permission
-     * @param entity     the entity to change permissions to
+     * @param entity  the entity to change permissions to
+     * @param changes the permission with groups to be added and removed
+     * @param granted whether the added groups are granted or restricted
      */
-    private void deleteGrantsOfGroup(Group group,
-                                     JtalksPermission permission,
-                                     Entity entity) {
-        if (group instanceof AnonymousGroup) {
-            deleteGrantsOfAnonymousGroup(permission, entity);
-        } else {
-            AclBuilders builders = new AclBuilders();
-            builders.newBuilder(aclManager).delete(permission).from(group).on(entity).flush();
+    private void changePermissions(Entity entity, PermissionChanges changes, boolean granted) {
+        List<Permission> permissions = new ArrayList<>();
+        permissions.add(changes.getPermission());
+        List<Sid> addedSids = sidsOf(changes.getNewlyAddedGroupsAsArray());
+        if (!addedSids.isEmpty()) {
+            if (granted) {
+                aclManager.grant(addedSids, permissions, entity);
+            } else {
+                aclManager.restrict(addedSids, permissions, entity);
+            }
+        }
+        List<Sid> removedSids = sidsOf(changes.getRemovedGroupsAsArray());
+        if (!removedSids.isEmpty()) {
+            aclManager.delete(removedSids, permissions, entity);
         }
     }
 
     /**
-     * Deletes permissions for Anonymous Sid.
-     *
-     * @param permission permission
-     * @param entity     the entity to change permissions to
+     * @param groups groups to get Sids of
+     * @return Sids of the groups, the anonymous Sid for the Anonymous group
      */
-    private void deleteGrantsOfAnonymousGroup(JtalksPermission permission,
-                                              Entity entity) {
-        List<Permission> jtalksPermissions = new ArrayList<>();
-        jtalksPermissions.add(permission);
-        List<Sid> sids = new ArrayList<>();
-        sids.add(UserSid.createAnonymous());
-        aclManager.delete(sids, jtalksPermissions, entity);
+    private List<Sid> sidsOf(Group[] groups) {
+        List<Sid> sids = new ArrayList<>(groups.length);
+        for (Group group : groups) {
+            if (group instanceof AnonymousGroup) {
+                sids.add(UserSid.createAnonymous());
+            } else {
+                sids.add(new UserGroupSid(group));
+            }
+        }
+        return sids;
     }
 }
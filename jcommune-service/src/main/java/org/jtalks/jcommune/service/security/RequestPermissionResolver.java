@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.security;
+
+import org.jtalks.common.service.security.SecurityContextFacade;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the matrix of permissions checked during the current request, so that the JSP tags and velocity tools
+ * rendering the same control for each post of a page ask {@link AclGroupPermissionEvaluator} only once. Controllers
+ * may fill the matrix in bulk before the page is rendered by {@link #resolvePermissions(Collection, String,
+ * Collection)}. The matrix lives in the request only, so checks securing the actions themselves aren't affected by
+ * it and always see the actual permissions.
+ */
+public class RequestPermissionResolver implements PluginPermissionResolver {
+    private static final String PERMISSIONS_ATTRIBUTE = RequestPermissionResolver.class.getName() + ".permissions";
+
+    private final AclGroupPermissionEvaluator permissionEvaluator;
+    private final SecurityContextFacade securityContextFacade;
+
+    /**
+     * @param permissionEvaluator   to evaluate permissions which were not checked during the request yet
+     * @param securityContextFacade to get authentication of the current user
+     */
+    public RequestPermissionResolver(AclGroupPermissionEvaluator permissionEvaluator,
+                                     SecurityContextFacade securityContextFacade) {
+        this.permissionEvaluator = permissionEvaluator;
+        this.securityContextFacade = securityContextFacade;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasPermission(Long targetId, String targetType, String permission) {
+        Authentication authentication = securityContextFacade.getContext().getAuthentication();
+        //Authentication can be null when request not goes through spring security filters
+        if (authentication == null) {
+            return false;
+        }
+        return hasPermission(authentication, getPermissionsOfRequest(), targetId, targetType, permission);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolvePermissions(Collection<Long> targetIds, String targetType, Collection<String> permissions) {
+        Authentication authentication = securityContextFacade.getContext().getAuthentication();
+        if (authentication == null || targetIds.isEmpty()) {
+            return;
+        }
+        permissionEvaluator.loadAcls(authentication, targetIds, targetType);
+        Map<String, Boolean> matrix = getPermissionsOfRequest();
+        for (Long targetId : targetIds) {
+            for (String permission : permissions) {
+                hasPermission(authentication, matrix, targetId, targetType, permission);
+            }
+        }
+    }
+
+    /**
+     * Takes the result of the check from the matrix, evaluates and stores it there if the check wasn't done yet.
+     *
+     * @param authentication authentication of the current user
+     * @param matrix         results of the checks done during the request
+     * @param targetId       id of the target
+     * @param targetType     type of the target
+     * @param permission     permission to be checked
+     * @return true if user has the permission on the target
+     */
+    private boolean hasPermission(Authentication authentication, Map<String, Boolean> matrix,
+                                  Long targetId, String targetType, String permission) {
+        String key = authentication.getName() + ':' + targetType + ':' + targetId + ':' + permission;
+        Boolean granted = matrix.get(key);
+        if (granted == null) {
+            granted = permissionEvaluator.hasPermission(authentication, targetId, targetType, permission);
+            matrix.put(key, granted);
+        }
+        return granted;
+    }
+
+    /**
+     * @return matrix stored in the current request, a throwaway one if there is no request bound to the thread
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Boolean> getPermissionsOfRequest() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return new HashMap<>();
+        }
+        Map<String, Boolean> matrix = (Map<String, Boolean>) request.getAttribute(PERMISSIONS_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (matrix == null) {
+            matrix = new HashMap<>();
+            request.setAttribute(PERMISSIONS_ATTRIBUTE, matrix, RequestAttributes.SCOPE_REQUEST);
+        }
+        return matrix;
+    }
+}
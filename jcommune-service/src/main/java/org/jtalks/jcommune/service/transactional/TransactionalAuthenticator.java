@@ -36,6 +36,7 @@ import org.jtalks.jcommune.service.PluginService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.service.util.AuthenticationStatus;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
@@ -95,6 +96,7 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
     private ImageService avatarService;
     private GroupDao groupDao;
     private PluginService pluginService;
+    private ForumStatisticsService forumStatisticsService;
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalAuthenticator.class);
 
 
@@ -108,6 +110,7 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
      * @param sessionStrategy       used in login logic to call onAuthentication hook
      *                              which stored this user to online uses list.
      * @param authenticationManager to authenticate users
+     * @param forumStatisticsService to count newly registered users
      */
     public TransactionalAuthenticator(PluginLoader pluginLoader, UserDao dao, GroupDao groupDao,
                                       EncryptionService encryptionService,
@@ -118,7 +121,8 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
                                       RememberMeServices rememberMeServices,
                                       SessionAuthenticationStrategy sessionStrategy,
                                       Validator validator,
-                                      AuthenticationManager authenticationManager) {
+                                      AuthenticationManager authenticationManager,
+                                      ForumStatisticsService forumStatisticsService) {
         super(dao);
         this.groupDao = groupDao;
         this.pluginLoader = pluginLoader;
@@ -131,6 +135,7 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
         this.sessionStrategy = sessionStrategy;
         this.validator = validator;
         this.authenticationManager = authenticationManager;
+        this.forumStatisticsService = forumStatisticsService;
     }
 
     /**
@@ -311,6 +316,9 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
             user.addGroup(group);
         }
         getDao().saveOrUpdate(user);
+        if (newUser) {
+            forumStatisticsService.changeUsersCount(1);
+        }
         return user;
     }
 
@@ -410,6 +418,7 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
         user.setAvatar(avatarService.getDefaultImage());
         user.setRegistrationDate(new DateTime());
         this.getDao().saveOrUpdate(user);
+        forumStatisticsService.changeUsersCount(1);
         mailService.sendAccountActivationMail(user);
         LOGGER.info("JCUser registered: {}", user.getUsername());
         return user;
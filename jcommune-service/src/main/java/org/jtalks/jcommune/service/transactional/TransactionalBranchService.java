@@ -22,6 +22,7 @@ import org.jtalks.common.model.permissions.JtalksPermission;
 import org.jtalks.jcommune.model.dao.BranchDao;
 import org.jtalks.jcommune.model.dao.SectionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.dto.BranchStatistics;
 import org.jtalks.jcommune.model.dto.GroupsPermissions;
 import org.jtalks.jcommune.model.dto.PermissionChanges;
 import org.jtalks.jcommune.model.entity.Branch;
@@ -139,14 +140,16 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
      */
     @Override
     public void fillStatisticInfo(List<org.jtalks.common.model.entity.Branch> branches) {
-
+        Map<Long, Branch> branchesById = new HashMap<>();
         for (org.jtalks.common.model.entity.Branch commonBranch : branches) {
-            Branch jcommuneBranch = (Branch) commonBranch;
-            int postsCount = getDao().getCountPostsInBranch(jcommuneBranch);
-            jcommuneBranch.setPostsCount(postsCount);
-            int topicsCount = topicDao.countTopics(jcommuneBranch);
-            jcommuneBranch.setTopicsCount(topicsCount);
-            if (jcommuneBranch.getLastPost() == null) {
+            branchesById.put(commonBranch.getId(), (Branch) commonBranch);
+        }
+        for (BranchStatistics statistics : getDao().getStatistics(branchesById.keySet())) {
+            Branch jcommuneBranch = branchesById.get(statistics.getBranchId());
+            jcommuneBranch.setTopicsCount(statistics.getTopicCount());
+            jcommuneBranch.setPostsCount(statistics.getPostCount());
+            // there is nothing to look for in the empty branch, so don't hit DB on every page render
+            if (jcommuneBranch.getLastPost() == null && statistics.getPostCount() > 0) {
                 lastPostService.refreshLastPostInBranch(jcommuneBranch);
             }
             //TODO Was removed till milestone 2 due to performance issues
@@ -173,12 +176,7 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
     @Override
     public Branch deleteAllTopics(long branchId) throws NotFoundException {
         Branch branch = get(branchId);
-
-        // Create tmp list to avoid ConcurrentModificationException
-        List<Topic> loopList = new ArrayList<>(branch.getTopics());
-        for (Topic topic : loopList) {
-            topicService.deleteTopicSilent(topic.getId());
-        }
+        topicService.deleteAllTopicsSilent(branch);
 
         logger.info("All topics for branch \"{}\" were deleted. " +
                 "Branch id: {}", branch.getName(), branch.getId());
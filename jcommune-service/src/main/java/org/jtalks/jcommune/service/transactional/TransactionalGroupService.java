@@ -22,19 +22,16 @@ import org.jtalks.common.security.acl.sids.UserSid;
 import org.jtalks.common.service.exceptions.NotFoundException;
 import org.jtalks.common.service.transactional.AbstractTransactionalEntityService;
 import org.jtalks.jcommune.model.dao.GroupDao;
-import org.jtalks.jcommune.model.dao.UserDao;
 import org.jtalks.jcommune.model.dto.GroupAdministrationDto;
 import org.jtalks.jcommune.model.dto.SecurityGroupList;
-import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.service.GroupService;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import ru.javatalks.utils.general.Assert;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author alexander afanasiev
@@ -44,23 +41,18 @@ public class TransactionalGroupService extends AbstractTransactionalEntityServic
         implements GroupService {
 
     private final AclManager manager;
-    private final UserDao userDao;
-    
+
     /**
      * Create an instance of entity based service
      *
      * @param groupDao   - data access object, which should be able do all CRUD
      *                   operations.
      * @param manager - ACL manager to operate with sids
-     * @param userDao - to perform all CRUD operations with users
-     * 
      */
     public TransactionalGroupService(GroupDao groupDao,
-                                     AclManager manager,
-                                     UserDao userDao) {
+                                     AclManager manager) {
         this.dao = groupDao;
         this.manager = manager;
-        this.userDao = userDao;
     }
 
     /**
@@ -98,11 +90,7 @@ public class TransactionalGroupService extends AbstractTransactionalEntityServic
     @Override
     public void deleteGroup(Group group) throws NotFoundException {
         Assert.throwIfNull(group, "group");
-        
-        for (User user : group.getUsers()) {
-            user.getGroups().remove(group);
-            userDao.saveOrUpdate((JCUser) user);
-        }
+
         dao.delete(group);
 
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -126,6 +114,25 @@ public class TransactionalGroupService extends AbstractTransactionalEntityServic
         dao.saveOrUpdate(group);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PreAuthorize("hasPermission(#forumComponentId, 'COMPONENT', 'GeneralPermission.ADMIN')")
+    public void addUsersToGroup(long forumComponentId, long groupId, List<Long> userIds) throws NotFoundException {
+        dao.addUsers(get(groupId), userIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PreAuthorize("hasPermission(#forumComponentId, 'COMPONENT', 'GeneralPermission.ADMIN')")
+    public void removeUsersFromGroup(long forumComponentId, long groupId, List<Long> userIds)
+            throws NotFoundException {
+        dao.removeUsers(get(groupId), userIds);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -25,6 +25,8 @@ import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.plugin.api.core.Plugin;
 import org.jtalks.jcommune.plugin.api.core.TopicPlugin;
 import org.jtalks.jcommune.plugin.api.filters.TypeFilter;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.service.nontransactional.VisibleBranchesCacheService;
 import org.jtalks.jcommune.service.security.AclClassName;
 import org.jtalks.jcommune.service.security.AclGroupPermissionEvaluator;
 import org.jtalks.jcommune.service.security.PermissionManager;
@@ -49,17 +51,26 @@ public class TransactionalPermissionService implements PermissionService {
     private AclGroupPermissionEvaluator aclEvaluator;
     private PermissionManager permissionManager;
     private PluginLoader pluginLoader;
+    private FeedCacheService feedCacheService;
+    private VisibleBranchesCacheService visibleBranchesCacheService;
 
     /**
      * @param contextFacade to get {@link Authentication} object from security context
      * @param aclEvaluator  to evaluate permissions
+     * @param permissionManager to read and change permissions of the groups
+     * @param feedCacheService  to drop rendered RSS feeds when branch visibility changes
+     * @param visibleBranchesCacheService to drop cached visible branches when branch visibility changes
      */
     public TransactionalPermissionService(SecurityContextHolderFacade contextFacade,
                                           AclGroupPermissionEvaluator aclEvaluator,
-                                          PermissionManager permissionManager) {
+                                          PermissionManager permissionManager,
+                                          FeedCacheService feedCacheService,
+                                          VisibleBranchesCacheService visibleBranchesCacheService) {
         this.contextFacade = contextFacade;
         this.aclEvaluator = aclEvaluator;
         this.permissionManager = permissionManager;
+        this.feedCacheService = feedCacheService;
+        this.visibleBranchesCacheService = visibleBranchesCacheService;
     }
 
     /**
@@ -130,6 +141,8 @@ public class TransactionalPermissionService implements PermissionService {
     @Override
     public void changeGrants(Branch branch, PermissionChanges changes) {
         permissionManager.changeGrants(branch, changes);
+        feedCacheService.invalidate();
+        visibleBranchesCacheService.invalidate();
     }
 
     /**
@@ -138,6 +151,8 @@ public class TransactionalPermissionService implements PermissionService {
     @Override
     public void changeRestrictions(Branch branch, PermissionChanges changes) {
         permissionManager.changeRestrictions(branch, changes);
+        feedCacheService.invalidate();
+        visibleBranchesCacheService.invalidate();
     }
 
     /**
@@ -19,11 +19,14 @@ import org.jtalks.common.model.dao.Crud;
 import org.jtalks.common.model.dao.GroupDao;
 import org.jtalks.common.model.permissions.GeneralPermission;
 import org.jtalks.common.security.SecurityService;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Poll;
 import org.jtalks.jcommune.model.entity.PollItem;
 import org.jtalks.jcommune.service.PollService;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.service.security.AdministrationGroup;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import java.util.List;
@@ -38,7 +41,7 @@ import static ch.lambdaj.Lambda.*;
  * @author Alexandre Teterin
  * @see org.jtalks.jcommune.model.entity.Poll
  */
-public class TransactionalPollService extends AbstractTransactionalEntityService<Poll, Crud<Poll>>
+public class TransactionalPollService extends AbstractTransactionalEntityService<Poll, PollDao>
         implements PollService {
     private Crud<PollItem> pollOptionDao;
     private GroupDao groupDao;
@@ -56,7 +59,7 @@ public class TransactionalPollService extends AbstractTransactionalEntityService
      * @param securityService the service for security operations
      * @param userService     to fetch the user currently logged in
      */
-    public TransactionalPollService(Crud<Poll> pollDao,
+    public TransactionalPollService(PollDao pollDao,
                                     GroupDao groupDao,
                                     Crud<PollItem> pollOptionDao,
                                     SecurityService securityService,
@@ -75,18 +78,27 @@ public class TransactionalPollService extends AbstractTransactionalEntityService
     @PreAuthorize("hasPermission(#pollId, 'POLL', 'GeneralPermission.WRITE')")
     public Poll vote(Long pollId, List<Long> selectedOptionsIds) {
         Poll poll = getDao().get(pollId);
-        if (poll.isActive()) {
-            prohibitRevote(poll);
-            for (PollItem option : poll.getPollItems()) {
-                if (selectedOptionsIds.contains(option.getId())) {
-                    option.increaseVotesCount();
-                    pollOptionDao.saveOrUpdate(option);
-                }
-            }
+        if (!poll.isActive()) {
+            return poll;
         }
+        JCUser currentUser = userService.getCurrentUser();
+        if (!getDao().addVote(poll, currentUser)) {
+            throw new AccessDeniedException(
+                    "User " + currentUser.getUsername() + " has already voted in the poll " + pollId);
+        }
+        getDao().increaseVotesCount(poll, selectedOptionsIds);
         return poll;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasVoted(Poll poll) {
+        JCUser currentUser = userService.getCurrentUser();
+        return !currentUser.isAnonymous() && getDao().hasVoted(poll, currentUser);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -119,15 +131,4 @@ public class TransactionalPollService extends AbstractTransactionalEntityService
         existing.clear();
         existing.addAll(newItems);
     }
-
-
-    /**
-     * Prohibit the re-vote. In this poll a user will no longer be able to participate.
-     *
-     * @param poll a poll, in which the user will no longer be able to participate
-     */
-    private void prohibitRevote(final Poll poll) {
-        securityService.createAclBuilder().restrict(GeneralPermission.WRITE).
-                to(userService.getCurrentUser()).on(poll).flush();
-    }
 }
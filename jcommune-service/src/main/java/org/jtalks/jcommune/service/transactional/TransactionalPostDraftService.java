@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.transactional;
+
+import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dao.PostDraftDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PostDraft;
+import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.service.PostDraftService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds changes of existing drafts in a map keyed by author and topic and writes them in batches only to the
+ * {@code POST_DRAFT} table, the topic isn't saved. The number of pending drafts is limited, when there are too many
+ * of them, drafts are written right away like they were before. Pending changes are written on shutdown too, so that
+ * they survive restarts.
+ * <p>Drafts are looked up in the database by topic and author, so other drafts of the topic are not loaded. Pending
+ * changes are kept by the node that received them: in a cluster other nodes show the last written content of the
+ * draft until the next flush, for {@link #FLUSH_INTERVAL_MILLIS} at most.</p>
+ */
+public class TransactionalPostDraftService implements PostDraftService {
+    /**
+     * How often pending drafts are written to the database.
+     */
+    static final long FLUSH_INTERVAL_MILLIS = 5000;
+    private static final int MAX_PENDING_DRAFTS = 10000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalPostDraftService.class);
+
+    private final ConcurrentMap<DraftKey, PendingDraft> pendingDrafts = new ConcurrentHashMap<>();
+    private final PostDraftDao postDraftDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPendingDrafts;
+
+    /**
+     * @param postDraftDao       to read and write drafts
+     * @param transactionManager to write pending drafts outside of user requests, e.g. on shutdown
+     */
+    public TransactionalPostDraftService(PostDraftDao postDraftDao, PlatformTransactionManager transactionManager) {
+        this(postDraftDao, transactionManager, MAX_PENDING_DRAFTS);
+    }
+
+    /**
+     * @param postDraftDao       to read and write drafts
+     * @param transactionManager to write pending drafts outside of user requests, e.g. on shutdown
+     * @param maxPendingDrafts   how many drafts can wait to be written
+     */
+    TransactionalPostDraftService(PostDraftDao postDraftDao, PlatformTransactionManager transactionManager,
+                                  int maxPendingDrafts) {
+        this.postDraftDao = postDraftDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxPendingDrafts = maxPendingDrafts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PostDraft save(Topic topic, JCUser author, String content) {
+        DraftKey key = new DraftKey(author.getId(), topic.getId());
+        PostDraft draft = postDraftDao.getDraft(topic, author);
+        if (draft == null) {
+            pendingDrafts.remove(key);
+            draft = new PostDraft(content, author);
+            topic.addDraft(draft);
+            postDraftDao.saveOrUpdate(draft);
+            return draft;
+        }
+        if (pendingDrafts.size() >= maxPendingDrafts && !pendingDrafts.containsKey(key)) {
+            draft.setContent(content);
+            draft.updateLastSavedTime();
+            postDraftDao.saveOrUpdate(draft);
+            return draft;
+        }
+        PendingDraft pending = new PendingDraft(draft.getId(), content, new DateTime());
+        pendingDrafts.put(key, pending);
+        return draft.copyWithContent(pending.content, pending.lastSaved);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PostDraft getDraft(Topic topic, JCUser author) {
+        PostDraft draft = postDraftDao.getDraft(topic, author);
+        if (draft == null) {
+            return null;
+        }
+        PendingDraft pending = pendingDrafts.get(new DraftKey(author.getId(), topic.getId()));
+        if (pending == null || pending.draftId != draft.getId()) {
+            return draft;
+        }
+        return draft.copyWithContent(pending.content, pending.lastSaved);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Scheduled(fixedDelay = FLUSH_INTERVAL_MILLIS)
+    public void flush() {
+        final List<PendingDraft> batch = new ArrayList<>();
+        for (DraftKey key : pendingDrafts.keySet()) {
+            PendingDraft pending = pendingDrafts.remove(key);
+            if (pending != null) {
+                batch.add(pending);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // the method is invoked on the bean itself on shutdown, so the transaction is started here
+        int written = transactionTemplate.execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                int count = 0;
+                for (PendingDraft pending : batch) {
+                    PostDraft draft = postDraftDao.get(pending.draftId);
+                    if (draft == null) {
+                        //the draft was published or deleted while it was pending
+                        continue;
+                    }
+                    draft.setContent(pending.content);
+                    draft.setLastSaved(pending.lastSaved);
+                    postDraftDao.saveOrUpdate(draft);
+                    count++;
+                }
+                return count;
+            }
+        });
+        LOGGER.debug("{} pending drafts were written to the database", written);
+    }
+
+    /**
+     * Identifies the draft of a user in a topic, a user can have only one draft per topic.
+     */
+    private static class DraftKey {
+        private final long userId;
+        private final long topicId;
+
+        private DraftKey(long userId, long topicId) {
+            this.userId = userId;
+            this.topicId = topicId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DraftKey)) {
+                return false;
+            }
+            DraftKey other = (DraftKey) o;
+            return userId == other.userId && topicId == other.topicId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (userId ^ (userId >>> 32)) + (int) (topicId ^ (topicId >>> 32));
+        }
+    }
+
+    /**
+     * The content of a draft that is not written to the database yet.
+     */
+    private static class PendingDraft {
+        private final long draftId;
+        private final String content;
+        private final DateTime lastSaved;
+
+        private PendingDraft(long draftId, String content, DateTime lastSaved) {
+            this.draftId = draftId;
+            this.content = content;
+            this.lastSaved = lastSaved;
+        }
+    }
+}
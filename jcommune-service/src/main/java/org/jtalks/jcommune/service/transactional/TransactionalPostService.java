@@ -18,7 +18,9 @@ import org.joda.time.DateTime;
 import org.jtalks.common.model.dao.Crud;
 import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.common.security.SecurityService;
+import org.jtalks.jcommune.model.dao.BranchDao;
 import org.jtalks.jcommune.model.dao.PostDao;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.*;
@@ -30,9 +32,13 @@ import org.jtalks.jcommune.plugin.api.filters.StateFilter;
 import org.jtalks.jcommune.plugin.api.filters.TypeFilter;
 import org.jtalks.jcommune.plugin.api.service.PluginPostService;
 import org.jtalks.jcommune.service.BranchLastPostService;
+import org.jtalks.jcommune.service.PostDraftService;
 import org.jtalks.jcommune.service.PostService;
 import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.NotificationService;
+import org.jtalks.jcommune.service.nontransactional.PostRatingService;
 import org.jtalks.jcommune.service.security.AclClassName;
 import org.jtalks.jcommune.service.security.PermissionService;
 import org.slf4j.Logger;
@@ -59,6 +65,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private TopicDao topicDao;
+    private BranchDao branchDao;
     private SecurityService securityService;
     private NotificationService notificationService;
     private UserService userService;
@@ -66,12 +73,18 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
     private PermissionService permissionService;
     private PluginLoader pluginLoader;
     private Crud<PostDraft> postDraftDao;
+    private ForumStatisticsService forumStatisticsService;
+    private PostRatingService postRatingService;
+    private PostDraftService postDraftService;
+    private FeedCacheService feedCacheService;
+    private SubscriptionDao subscriptionDao;
 
     /**
      * Create an instance of Post entity based service
      *
      * @param dao                   data access object, which should be able do all CRUD operations with post entity.
      * @param topicDao              this dao used for checking branch existance
+     * @param branchDao             to keep counters of the branch up to date
      * @param securityService       service for authorization
      * @param notificationService   to send email updates for subscribed users
      * @param userService           to get current user
@@ -79,19 +92,31 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
      * @param permissionService     service for cheking permissions
      * @param pluginLoader          loader of pluinf
      * @param postDraftDao          data access object for manipulating with drafts
+     * @param forumStatisticsService to keep count of posts on the forum up to date
+     * @param postRatingService     to change rating of voted posts
+     * @param postDraftService      to save drafts without saving the whole topic
+     * @param feedCacheService      to drop rendered RSS feeds when posts change
+     * @param subscriptionDao       to subscribe commenters without loading all the subscribers of the topic
      */
     public TransactionalPostService(
             PostDao dao,
             TopicDao topicDao,
+            BranchDao branchDao,
             SecurityService securityService,
             NotificationService notificationService,
             UserService userService,
             BranchLastPostService branchLastPostService,
             PermissionService permissionService,
             PluginLoader pluginLoader,
-            Crud<PostDraft> postDraftDao) {
+            Crud<PostDraft> postDraftDao,
+            ForumStatisticsService forumStatisticsService,
+            PostRatingService postRatingService,
+            PostDraftService postDraftService,
+            FeedCacheService feedCacheService,
+            SubscriptionDao subscriptionDao) {
         super(dao);
         this.topicDao = topicDao;
+        this.branchDao = branchDao;
         this.securityService = securityService;
         this.notificationService = notificationService;
         this.userService = userService;
@@ -99,6 +124,11 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         this.permissionService = permissionService;
         this.pluginLoader = pluginLoader;
         this.postDraftDao = postDraftDao;
+        this.forumStatisticsService = forumStatisticsService;
+        this.postRatingService = postRatingService;
+        this.postDraftService = postDraftService;
+        this.feedCacheService = feedCacheService;
+        this.subscriptionDao = subscriptionDao;
     }
 
     /**
@@ -124,6 +154,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         post.updateModificationDate();
 
         this.getDao().saveOrUpdate(post);
+        feedCacheService.invalidate();
         userService.notifyAndMarkNewlyMentionedUsers(post);
 
         logger.debug("Post id={} updated.", post.getId());
@@ -139,7 +170,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
             "#post.userCreated.username != principal.username)")
     public void deletePost(Post post) {
         JCUser postCreator = post.getUserCreated();
-        postCreator.setPostCount(postCreator.getPostCount() - 1);
+        this.getDao().changePostCountOfAuthor(postCreator, -1);
         Topic topic = post.getTopic();
         topic.removePost(post);
         Branch branch = topic.getBranch();
@@ -150,7 +181,10 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
 
         // todo: event API?
         topicDao.saveOrUpdate(topic);
+        branchDao.changeStatistics(branch, 0, -1);
+        forumStatisticsService.changePostsCount(-1);
         securityService.deleteFromAcl(post);
+        feedCacheService.invalidate();
 
         /*
          only the creator of the post should be notified when it's removed.
@@ -168,15 +202,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
     @PreAuthorize("hasPermission(#topic.branch.id, 'BRANCH', 'BranchPermission.CREATE_POSTS')")
     public PostDraft saveOrUpdateDraft(Topic topic, String content) {
         JCUser currentUser = userService.getCurrentUser();
-        PostDraft draft = topic.getDraftForUser(currentUser);
-        if (draft == null) {
-            draft = new PostDraft(content, currentUser);
-            topic.addDraft(draft);
-        } else {
-            draft.setContent(content);
-            draft.updateLastSavedTime();
-        }
-        topicDao.saveOrUpdate(topic);
+        PostDraft draft = postDraftService.save(topic, currentUser, content);
 
         logger.debug("Draft saved in topic. Topic id={}, Post id={}, Post author={}",
                 new Object[]{topic.getId(), draft.getId(), currentUser.getUsername()});
@@ -184,6 +210,14 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         return draft;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PostDraft getDraft(Topic topic) {
+        return postDraftService.getDraft(topic, userService.getCurrentUser());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -206,8 +240,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
      */
     @Override
     public int calculatePageForPost(Post post) {
-        Topic topic = post.getTopic();
-        int index = topic.getPosts().indexOf(post) + 1;
+        int index = getDao().getPostIndexInTopic(post) + 1;
         int pageSize = userService.getCurrentUser().getPageSize();
         int pageNum = index / pageSize;
         if (index % pageSize == 0) {
@@ -226,6 +259,38 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         return getDao().getPosts(topic, pageRequest);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Post> getRepliesByRating(Post firstPost, int count) {
+        return getDao().getRepliesByRating(firstPost, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Post getFirstPost(Topic topic) {
+        return getDao().getFirstPost(topic);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPostCount(Topic topic) {
+        return getDao().getPostCount(topic);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getUserPostCount(Topic topic, JCUser user) {
+        return getDao().getUserPostCount(topic, user);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -256,7 +321,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         comment.setCreationDate(new DateTime(System.currentTimeMillis()));
         comment.setAuthor(currentUser);
         if (currentUser.isAutosubscribe()) {
-            targetPost.getTopic().getSubscribers().add(currentUser);
+            subscriptionDao.addSubscriber(targetPost.getTopic(), currentUser);
         }
         targetPost.addComment(comment);
         getDao().saveOrUpdate(targetPost);
@@ -290,16 +355,24 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
             "and #post.userCreated.username != principal.username")
     public Post vote(Post post, PostVote vote) {
         JCUser currentUser = userService.getCurrentUser();
-        if (!post.canBeVotedBy(currentUser, vote.isVotedUp())) {
+        PostVote storedVote = getDao().getVote(post, currentUser);
+        if (storedVote != null && storedVote.isVotedUp() == vote.isVotedUp()) {
             logger.info("User [{}] tries to vote for post with id={} in same direction more than one time",
                     currentUser.getUsername(), post.getId());
             throw new AccessDeniedException("User can't vote in same direction more than one time");
         }
-        vote.setUser(currentUser);
-        int ratingChanges = post.calculateRatingChanges(vote);
-        post.putVote(vote);
-        getDao().saveOrUpdate(post);
-        getDao().changeRating(post.getId(), ratingChanges);
+        int ratingChanges = vote.isVotedUp() ? 1 : -1;
+        if (storedVote == null) {
+            vote.setUser(currentUser);
+            vote.setPost(post);
+            getDao().saveVote(vote);
+        } else {
+            storedVote.setVotedUp(vote.isVotedUp());
+            storedVote.setVoteDate(vote.getVoteDate());
+            getDao().saveVote(storedVote);
+            ratingChanges *= 2;
+        }
+        postRatingService.changeRating(post.getId(), ratingChanges);
         return post;
     }
 
@@ -16,6 +16,8 @@ package org.jtalks.jcommune.service.transactional;
 
 import org.jtalks.common.model.permissions.GeneralPermission;
 import org.jtalks.common.security.SecurityService;
+import org.jtalks.common.security.acl.AclManager;
+import org.jtalks.common.security.acl.sids.UserSid;
 import org.jtalks.jcommune.model.dao.PrivateMessageDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.JCUser;
@@ -31,7 +33,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
@@ -46,6 +53,9 @@ public class TransactionalPrivateMessageService
 
 
     public static final int DEFAULT_MESSAGE_COUNT = 0;
+    private static final String INBOX = "inbox";
+    private static final String OUTBOX = "outbox";
+    private static final String DRAFTS = "drafts";
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final SecurityService securityService;
@@ -53,6 +63,7 @@ public class TransactionalPrivateMessageService
     private final UserDataCacheService userDataCache;
     private final MailService mailService;
     private final JCommuneProperty sendingNotificationsEnabledProperty;
+    private final AclManager aclManager;
 
     /**
      * Creates the instance of service.
@@ -62,19 +73,23 @@ public class TransactionalPrivateMessageService
      * @param userService     for getting user by name
      * @param userDataCache   service for cache for user data
      * @param mailService     for sending email notifications
+     * @param sendingNotificationsEnabledProperty whether notifications about new messages are sent
+     * @param aclManager      to grant permissions to all the users of a message at once
      */
     public TransactionalPrivateMessageService(PrivateMessageDao pmDao,
                                               SecurityService securityService,
                                               UserService userService,
                                               UserDataCacheService userDataCache,
                                               MailService mailService,
-                                              JCommuneProperty sendingNotificationsEnabledProperty) {
+                                              JCommuneProperty sendingNotificationsEnabledProperty,
+                                              AclManager aclManager) {
         super(pmDao);
         this.securityService = securityService;
         this.userService = userService;
         this.userDataCache = userDataCache;
         this.mailService = mailService;
         this.sendingNotificationsEnabledProperty = sendingNotificationsEnabledProperty;
+        this.aclManager = aclManager;
     }
 
     /**
@@ -111,8 +126,7 @@ public class TransactionalPrivateMessageService
 
         userDataCache.incrementNewMessageCountFor(recipient.getUsername());
 
-        securityService.createAclBuilder().grant(GeneralPermission.READ).to(recipient).on(pm).flush();
-        securityService.createAclBuilder().grant(GeneralPermission.READ).to(userFrom).on(pm).flush();
+        grant(pm, Arrays.<Permission>asList(GeneralPermission.READ), recipient, userFrom);
 
         if (isSendNotificationMessage(recipient)) {
             mailService.sendReceivedPrivateMessageNotification(recipient, pm);
@@ -123,6 +137,22 @@ public class TransactionalPrivateMessageService
         return pm;
     }
 
+    /**
+     * Grants permissions on the message to the users. All the entries are added to the ACL of the
+     * message and saved at once instead of an update of the ACL per user and permission.
+     *
+     * @param pm          message to grant permissions on
+     * @param permissions permissions to grant
+     * @param users       users to grant permissions to, the same user may be passed twice
+     */
+    private void grant(PrivateMessage pm, List<Permission> permissions, JCUser... users) {
+        List<Sid> sids = new ArrayList<>();
+        for (JCUser user : new LinkedHashSet<>(Arrays.asList(users))) {
+            sids.add(new UserSid(user));
+        }
+        aclManager.grant(sids, permissions, pm);
+    }
+
     /**
      * Check - sending notification is allow
      *
@@ -155,8 +185,7 @@ public class TransactionalPrivateMessageService
         this.getDao().saveOrUpdate(pm);
 
         JCUser user = userService.getCurrentUser();
-        securityService.createAclBuilder().grant(GeneralPermission.READ).to(user).on(pm).flush();
-        securityService.createAclBuilder().grant(GeneralPermission.WRITE).to(user).on(pm).flush();
+        grant(pm, Arrays.<Permission>asList(GeneralPermission.READ, GeneralPermission.WRITE), user);
 
         logger.debug("Updated private message draft. Message id={}", pm.getId());
 
@@ -197,8 +226,7 @@ public class TransactionalPrivateMessageService
         userDataCache.incrementNewMessageCountFor(recipient.getUsername());
 
         securityService.deleteFromAcl(pm);
-        securityService.createAclBuilder().grant(GeneralPermission.READ).to(recipient).on(pm).flush();
-        securityService.createAclBuilder().grant(GeneralPermission.READ).to(userFrom).on(pm).flush();
+        grant(pm, Arrays.<Permission>asList(GeneralPermission.READ), recipient, userFrom);
 
         if (isSendNotificationMessage(recipient)) {
             mailService.sendReceivedPrivateMessageNotification(recipient, pm);
@@ -251,41 +279,90 @@ public class TransactionalPrivateMessageService
     @Override
     public String delete(List<Long> ids) throws NotFoundException {
         JCUser currentUser = userService.getCurrentUser();
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
 
-        String result = "inbox";
-        for (Long id : ids) {
-
-            PrivateMessage message = this.get(id);
-
-            switch (message.getStatus()) {
-                case DRAFT:
-                    this.getDao().delete(message);
-                    result = "drafts";
-                    break;
-                case DELETED_FROM_INBOX:
-                    this.getDao().delete(message);
-                    result = "outbox";
-                    break;
-                case DELETED_FROM_OUTBOX:
-                    this.getDao().delete(message);
-                    result = "inbox";
-                    break;
-                case SENT:
-                    if (currentUser.equals(message.getUserFrom())) {
-                        message.setStatus(PrivateMessageStatus.DELETED_FROM_OUTBOX);
-                        result = "outbox";
-                    } else {
-                        message.setStatus(PrivateMessageStatus.DELETED_FROM_INBOX);
-                        result = "inbox";
-                    }
-                    break;
-                default:
-                    break;
+        String result = INBOX;
+        int removed = this.getDao().deleteDrafts(currentUser, distinctIds);
+        if (removed > 0) {
+            result = DRAFTS;
+        }
+        if (removed < distinctIds.size()) {
+            // messages already removed by the other side are deleted before sent messages are marked, so a
+            // message sent to oneself is marked as removed from the outbox only and is not deleted at once
+            int removedFromOutbox = this.getDao().deleteRemovedByRecipient(currentUser, distinctIds);
+            int removedFromInbox = this.getDao().deleteRemovedBySender(currentUser, distinctIds);
+            removedFromOutbox += this.getDao().markAsDeletedFromOutbox(currentUser, distinctIds);
+            removedFromInbox += this.getDao().markAsDeletedFromInbox(currentUser, distinctIds);
+            if (removedFromOutbox > 0 && removed == 0) {
+                result = OUTBOX;
             }
+            if (removedFromInbox > 0) {
+                userDataCache.removeNewPmCountFor(currentUser.getUsername());
+            }
+            removed += removedFromOutbox + removedFromInbox;
+        }
+        if (removed < distinctIds.size()) {
+            throw new NotFoundException(String.format("%d of private messages %s are not found in folders of %s",
+                    distinctIds.size() - removed, distinctIds, currentUser));
         }
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteAll(String folder) {
+        JCUser currentUser = userService.getCurrentUser();
+        switch (folder) {
+            case INBOX:
+                int removed = this.getDao().deleteRemovedBySender(currentUser, null);
+                removed += this.getDao().markAsDeletedFromInbox(currentUser, null);
+                if (removed > 0) {
+                    userDataCache.removeNewPmCountFor(currentUser.getUsername());
+                }
+                break;
+            case OUTBOX:
+                this.getDao().deleteRemovedByRecipient(currentUser, null);
+                this.getDao().markAsDeletedFromOutbox(currentUser, null);
+                break;
+            case DRAFTS:
+                this.getDao().deleteDrafts(currentUser, null);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown private message folder: " + folder);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markAsRead(List<Long> ids) {
+        markAsReadForCurrentUser(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markAllAsRead() {
+        markAsReadForCurrentUser(null);
+    }
+
+    /**
+     * Marks messages from the inbox of the current user as read and drops cached count of new
+     * messages if it was changed.
+     *
+     * @param ids ids of the messages or {@code null} for the whole inbox
+     */
+    private void markAsReadForCurrentUser(List<Long> ids) {
+        JCUser currentUser = userService.getCurrentUser();
+        if (this.getDao().markAsRead(currentUser, ids) > 0) {
+            userDataCache.removeNewPmCountFor(currentUser.getUsername());
+        }
+    }
+
     private boolean hasCurrentUserAccessToPM(PrivateMessage privateMessage) throws NotFoundException {
         JCUser currentUser = userService.getCurrentUser();
         PrivateMessageStatus messageStatus = privateMessage.getStatus();
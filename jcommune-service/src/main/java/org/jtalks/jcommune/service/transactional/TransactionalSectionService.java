@@ -25,13 +25,16 @@ import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.service.BranchService;
 import org.jtalks.jcommune.service.SectionService;
 import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.nontransactional.VisibleBranchesCacheService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The implementation of SectionService
@@ -50,7 +53,9 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
     private TopicDao topicDao;
 
     private PostDao postDao;
-    
+
+    private VisibleBranchesCacheService visibleBranchesCacheService;
+
     /**
      * Create an instance of entity based service
      *
@@ -59,14 +64,17 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      * @param userService object, that represents service for the working with users
      * @param topicDao object, that represents service for the working with topics
      * @param postDao object, that represents service for the working with posts
+     * @param visibleBranchesCacheService to share visible branches among the users of the same groups
      */
     public TransactionalSectionService(SectionDao dao, BranchService branchService, UserService userService,
-                                       TopicDao topicDao, PostDao postDao) {
+                                       TopicDao topicDao, PostDao postDao,
+                                       VisibleBranchesCacheService visibleBranchesCacheService) {
         super(dao);
         this.branchService = branchService;
         this.userService = userService;
         this.topicDao = topicDao;
         this.postDao = postDao;
+        this.visibleBranchesCacheService = visibleBranchesCacheService;
     }
 
     /**
@@ -84,17 +92,13 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
     public List<Section> getAllAvailableSections(long currentTopicId) {
         List<Section> result = new ArrayList<>();
         Topic topic = topicDao.get(currentTopicId);
-        List<Section> sections = this.getDao().getAll();
-        JCUser user = userService.getCurrentUser();
-        for (Section section : sections) {
-            List<Branch> branches = new ArrayList<>(section.getBranches());
-            for (Branch branch : branches) {
-                if (branch.equals(topic.getBranch())) {
-                    branches.remove(branch);
-                    break;
-                }
+        Map<Long, List<Long>> visibleBranchIds = getVisibleBranchIds();
+        for (Section section : this.getDao().getAll()) {
+            List<Long> branchIds = visibleBranchIds.get(section.getId());
+            if (branchIds == null) {
+                continue;
             }
-            if (getDao().getCountAvailableBranches(user, branches) > 0) {
+            if (branchIds.size() > 1 || !branchIds.contains(topic.getBranch().getId())) {
                 result.add(section);
             }
         }
@@ -105,10 +109,24 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      * {@inheritDoc}
      */
     public void prepareSectionsForView(List<Section> sections) {
+        List<Branch> branches = new ArrayList<>();
+        for (Section section : sections) {
+            branches.addAll(section.getBranches());
+        }
+        branchService.fillStatisticInfo(branches);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void warmUpCache() {
+        int branchCount = 0;
+        List<Section> sections = this.getDao().getAll();
         for (Section section : sections) {
-            List<Branch> branches = section.getBranches();
-            branchService.fillStatisticInfo(branches);
+            branchCount += section.getBranches().size();
         }
+        logger.info("Cache is warmed up with {} sections and {} branches", sections.size(), branchCount);
     }
 
     /**
@@ -144,8 +162,7 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      */
     @Override
     public void ifSectionIsVisible(Section section) throws AccessDeniedException {
-        List<Branch> branches = section.getBranches();
-        if (getDao().getCountAvailableBranches(userService.getCurrentUser(), branches) == 0) {
+        if (!getVisibleBranchIds().containsKey(section.getId())) {
             throw new AccessDeniedException("Access denied to view for section " + section.getId());
         }
     }
@@ -155,11 +172,27 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      */
     @Override
     public List<Post> getLastPostsForSection(Section section, int postsCount) {
-        JCUser user = userService.getCurrentUser();
-        List<Branch> branches = new ArrayList<>(section.getBranches());
-        List<Long> branchIds = getDao().getAvailableBranchIds(user, branches);
-
+        List<Long> branchIds = getVisibleBranchIds().get(section.getId());
+        if (branchIds == null) {
+            return Collections.emptyList();
+        }
         return postDao.getLastPostsFor(branchIds, postsCount);
     }
 
+    /**
+     * Gets IDs of the branches the current user can view, they are loaded for all the sections with a single query
+     * and cached for the groups of the user.
+     *
+     * @return IDs of visible branches keyed by IDs of their sections
+     */
+    private Map<Long, List<Long>> getVisibleBranchIds() {
+        JCUser user = userService.getCurrentUser();
+        Map<Long, List<Long>> visibleBranchIds = visibleBranchesCacheService.get(user);
+        if (visibleBranchIds == null) {
+            visibleBranchIds = getDao().getVisibleBranchIdsOfSections(user);
+            visibleBranchesCacheService.put(user, visibleBranchIds);
+        }
+        return visibleBranchIds;
+    }
+
 }
@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.service.transactional;
 
 import org.jtalks.jcommune.model.dao.BranchDao;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.service.SubscriptionService;
@@ -28,7 +29,9 @@ import java.util.*;
  * All the subscriptions are performed on behalf of the current user, so there
  * is no way to subscribe someone else.
  * Current implementation just stores the subscription status in a database
- * leaving notifications to the collaborating classes.
+ * leaving notifications to the collaborating classes. Subscriptions are changed
+ * and checked row by row, so subscribers of topics and branches are never loaded
+ * for that.
  *
  * @author Evgeniy Naumenko
  */
@@ -38,18 +41,22 @@ public class TransactionalSubscriptionService implements SubscriptionService {
     private UserService userService;
     private BranchDao branchDao;
     private TopicDao topicDao;
+    private SubscriptionDao subscriptionDao;
 
     /**
-     * @param userService to determine the current user requested the operation
-     * @param branchDao       for branch subscription updates
-     * @param topicDao        for topic subscription updates
+     * @param userService     to determine the current user requested the operation
+     * @param branchDao       for getting subscribers of branches
+     * @param topicDao        for getting subscribers of topics
+     * @param subscriptionDao for subscription updates
      */
     public TransactionalSubscriptionService(UserService userService,
                                             BranchDao branchDao,
-                                            TopicDao topicDao) {
+                                            TopicDao topicDao,
+                                            SubscriptionDao subscriptionDao) {
         this.userService = userService;
         this.branchDao = branchDao;
         this.topicDao = topicDao;
+        this.subscriptionDao = subscriptionDao;
     }
 
     /**
@@ -57,13 +64,7 @@ public class TransactionalSubscriptionService implements SubscriptionService {
      */
     @Override
     public void toggleTopicSubscription(Topic topic) {
-        JCUser current = userService.getCurrentUser();
-        if (topic.userSubscribed(current)) {
-            topic.getSubscribers().remove(current);
-        } else {
-            topic.getSubscribers().add(current);
-        }
-        topicDao.saveOrUpdate(topic);
+        toggleSubscription(topic);
     }
 
     /**
@@ -71,13 +72,7 @@ public class TransactionalSubscriptionService implements SubscriptionService {
      */
     @Override
     public void toggleBranchSubscription(Branch branch) {
-        JCUser current = userService.getCurrentUser();
-        if (branch.getSubscribers().contains(current)) {
-            branch.getSubscribers().remove(current);
-        } else {
-            branch.getSubscribers().add(current);
-        }
-        branchDao.saveOrUpdate(branch);
+        toggleSubscription(branch);
     }
 
     /**
@@ -85,22 +80,28 @@ public class TransactionalSubscriptionService implements SubscriptionService {
      */
     @Override
     public void unsubscribeFromBranch(Branch branch) {
-        JCUser current = userService.getCurrentUser();
-        if (branch.getSubscribers().contains(current)) {
-            branch.getSubscribers().remove(current);
-        }
-        branchDao.saveOrUpdate(branch);
+        subscriptionDao.removeSubscriber(branch, userService.getCurrentUser());
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void toggleSubscription(SubscriptionAwareEntity entityToSubscribe) {
         JCUser current = userService.getCurrentUser();
-        if (entityToSubscribe.getSubscribers().contains(current)) {
-            entityToSubscribe.getSubscribers().remove(current);
-        } else {
-            entityToSubscribe.getSubscribers().add(current);
+        // removal tells whether the user was subscribed, so there is no need to check it beforehand
+        if (!subscriptionDao.removeSubscriber(entityToSubscribe, current)) {
+            subscriptionDao.addSubscriber(entityToSubscribe, current);
         }
-        saveChanges(entityToSubscribe);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PreAuthorize("permitAll")
+    public boolean isSubscribed(SubscriptionAwareEntity entity) {
+        return subscriptionDao.isSubscribed(entity, userService.getCurrentUser());
     }
 
     /**
@@ -128,20 +129,11 @@ public class TransactionalSubscriptionService implements SubscriptionService {
         }
     }
 
-    private void saveChanges(SubscriptionAwareEntity entityToSubscribe) {
-        if (entityToSubscribe instanceof Topic) {
-            topicDao.saveOrUpdate((Topic) entityToSubscribe);
-        } else {
-            branchDao.saveOrUpdate((Branch) entityToSubscribe);
-        }
-    }
-
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void subscribe(SubscriptionAwareEntity entityToSubscribe) {
-        JCUser current = userService.getCurrentUser();
-        if (!(entityToSubscribe.getSubscribers().contains(current))) {
-            entityToSubscribe.getSubscribers().add(current);
-            saveChanges(entityToSubscribe);
-        }
+        subscriptionDao.addSubscriber(entityToSubscribe, userService.getCurrentUser());
     }
 }
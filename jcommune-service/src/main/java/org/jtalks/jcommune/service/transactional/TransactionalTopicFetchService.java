@@ -16,6 +16,7 @@ package org.jtalks.jcommune.service.transactional;
 
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
@@ -42,16 +43,20 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
 
     private UserService userService;
     private TopicSearchDao searchDao;
+    private SubscriptionDao subscriptionDao;
 
     /**
-     * @param dao         topic dao for database manipulations
-     * @param userService to get current user and his preferences
-     * @param searchDao   for search index access
+     * @param dao             topic dao for database manipulations
+     * @param userService     to get current user and his preferences
+     * @param searchDao       for search index access
+     * @param subscriptionDao to check subscriptions without loading all subscribers of the topic
      */
-    public TransactionalTopicFetchService(TopicDao dao, UserService userService, TopicSearchDao searchDao) {
+    public TransactionalTopicFetchService(TopicDao dao, UserService userService, TopicSearchDao searchDao,
+                                          SubscriptionDao subscriptionDao) {
         super(dao);
         this.userService = userService;
         this.searchDao = searchDao;
+        this.subscriptionDao = subscriptionDao;
     }
 
     /**
@@ -136,4 +141,12 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
     @Override    
     public void checkViewTopicPermission(Long branchId) {
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSubscribed(Topic topic) {
+        return subscriptionDao.isSubscribed(topic, userService.getCurrentUser());
+    }
 }
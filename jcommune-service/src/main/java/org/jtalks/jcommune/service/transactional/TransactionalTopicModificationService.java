@@ -29,6 +29,8 @@ import org.jtalks.jcommune.plugin.api.filters.TypeFilter;
 import org.jtalks.jcommune.plugin.api.service.PluginTopicModificationService;
 import org.jtalks.jcommune.service.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +39,7 @@ import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -52,6 +55,8 @@ import java.util.Set;
  * @author Eugeny Batov
  */
 public class TransactionalTopicModificationService implements TopicModificationService, PluginTopicModificationService {
+    /** Number of topics deleted with one set of bulk statements when all topics of the branch are deleted */
+    private static final int DELETION_CHUNK_SIZE = 100;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -71,6 +76,8 @@ public class TransactionalTopicModificationService implements TopicModificationS
     private TopicFetchService topicFetchService;
     private TopicDraftService topicDraftService;
     private PluginLoader pluginLoader;
+    private ForumStatisticsService forumStatisticsService;
+    private FeedCacheService feedCacheService;
 
     /**
      * Create an instance of User entity based service.
@@ -87,6 +94,8 @@ public class TransactionalTopicModificationService implements TopicModificationS
      * @param branchLastPostService to refresh the last post of the branch
      * @param lastReadPostService   to work with last read post
      * @param postDao               to store newly created posts in database
+     * @param forumStatisticsService to keep count of posts on the forum up to date
+     * @param feedCacheService      to drop rendered RSS feeds when posts change
      */
     public TransactionalTopicModificationService(TopicDao dao, SecurityService securityService,
                                                  BranchDao branchDao,
@@ -101,7 +110,9 @@ public class TransactionalTopicModificationService implements TopicModificationS
                                                  PostDao postDao,
                                                  TopicFetchService topicFetchService,
                                                  TopicDraftService topicDraftService,
-                                                 PluginLoader pluginLoader) {
+                                                 PluginLoader pluginLoader,
+                                                 ForumStatisticsService forumStatisticsService,
+                                                 FeedCacheService feedCacheService) {
         this.dao = dao;
         this.securityService = securityService;
         this.branchDao = branchDao;
@@ -117,6 +128,8 @@ public class TransactionalTopicModificationService implements TopicModificationS
         this.topicFetchService = topicFetchService;
         this.topicDraftService = topicDraftService;
         this.pluginLoader = pluginLoader;
+        this.forumStatisticsService = forumStatisticsService;
+        this.feedCacheService = feedCacheService;
     }
 
     /**
@@ -129,7 +142,7 @@ public class TransactionalTopicModificationService implements TopicModificationS
         this.assertPostingIsAllowed(topic);
 
         JCUser currentUser = userService.getCurrentUser();
-        currentUser.setPostCount(currentUser.getPostCount() + 1);
+        postDao.changePostCountOfAuthor(currentUser, 1);
 
         Post answer = new Post(currentUser, answerBody);
         topic.addPost(answer);
@@ -143,9 +156,12 @@ public class TransactionalTopicModificationService implements TopicModificationS
         Branch branch = topic.getBranch();
         branch.setLastPost(answer);
         branchDao.saveOrUpdate(branch);
+        branchDao.changeStatistics(branch, 0, 1);
+        forumStatisticsService.changePostsCount(1);
         dao.saveOrUpdate(topic);
 
         securityService.createAclBuilder().grant(GeneralPermission.WRITE).to(currentUser).on(answer).flush();
+        feedCacheService.invalidate();
         notificationService.subscribedEntityChanged(topic);
         userService.notifyAndMarkNewlyMentionedUsers(answer);
         logger.debug("New post in topic. Topic id={}, Post id={}, Post author={}",
@@ -183,7 +199,7 @@ public class TransactionalTopicModificationService implements TopicModificationS
         JCUser currentUser = userService.getCurrentUser();
         Branch branch = topicDto.getBranch();
 
-        currentUser.setPostCount(currentUser.getPostCount() + 1);
+        postDao.changePostCountOfAuthor(currentUser, 1);
         Topic topic = new Topic(currentUser, topicDto.getTitle());
         topic.setAnnouncement(topicDto.isAnnouncement());
         topic.setSticked(topicDto.isSticked());
@@ -199,9 +215,12 @@ public class TransactionalTopicModificationService implements TopicModificationS
 
         dao.saveOrUpdate(topic);
         branchDao.saveOrUpdate(branch);
+        branchDao.changeStatistics(branch, 1, 1);
+        forumStatisticsService.changePostsCount(1);
 
         securityService.createAclBuilder().grant(GeneralPermission.WRITE).to(currentUser).on(topic).flush();
         securityService.createAclBuilder().grant(GeneralPermission.WRITE).to(currentUser).on(first).flush();
+        feedCacheService.invalidate();
         notificationService.sendNotificationAboutTopicCreated(topic);
         if (currentUser.isAutosubscribe()){
             subscriptionService.subscribe(topic);
@@ -301,6 +320,7 @@ public class TransactionalTopicModificationService implements TopicModificationS
             topic.getPoll().setEndingDate(poll.getEndingDate());
         }
         dao.saveOrUpdate(topic);
+        feedCacheService.invalidate();
         logger.debug("Topic id={} updated", topic.getId());
     }
 
@@ -313,10 +333,11 @@ public class TransactionalTopicModificationService implements TopicModificationS
             "hasPermission(#topic.branch.id, 'BRANCH', 'BranchPermission.DELETE_OWN_POSTS'))")
     @Override
     public void deleteTopic(Topic topic) throws NotFoundException {
-        deleteTopicSilent(topic);
-
+        // subscribers are deleted together with the topic, so they should be notified before
         notificationService.sendNotificationAboutRemovingTopic(topic);
 
+        deleteTopicSilent(topic);
+
         logger.info("Deleted topic \"{}\". Topic id: {}", topic.getTitle(), topic.getId());
     }
 
@@ -329,6 +350,27 @@ public class TransactionalTopicModificationService implements TopicModificationS
         this.deleteTopicSilent(topic);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteAllTopicsSilent(Branch branch) {
+        int topicsInBranch = dao.countTopics(branch);
+        branch.clearLastPost();
+        int deletedTopics = 0;
+        List<Long> topicIds = dao.getTopicIdsInBranch(branch, 0, DELETION_CHUNK_SIZE);
+        while (!topicIds.isEmpty()) {
+            deleteTopics(branch, topicIds);
+            deletedTopics += topicIds.size();
+            logger.info("Deleted {} of {} topics in branch id={}",
+                    new Object[]{deletedTopics, topicsInBranch, branch.getId()});
+            topicIds = dao.getTopicIdsInBranch(branch, topicIds.get(topicIds.size() - 1), DELETION_CHUNK_SIZE);
+        }
+        if (deletedTopics > 0) {
+            feedCacheService.invalidate();
+        }
+    }
+
     /**
      * Performs actual topic deletion. Deletes all topic related data and
      * recalculates user's post count.
@@ -337,29 +379,37 @@ public class TransactionalTopicModificationService implements TopicModificationS
      * @return branch without deleted topic
      */
     private Branch deleteTopicSilent(Topic topic) {
-        List<Post> topicPosts = topic.getPosts();
-        for (Post post : topicPosts) {
-            JCUser user = post.getUserCreated();
-            user.setPostCount(user.getPostCount() - 1);
-        }
         Branch branch = topic.getBranch();
         Post lastPostInBranch = branch.getLastPost();
-        boolean branchLastPostFromDeletedTopic = topicPosts.contains(lastPostInBranch);
+        boolean branchLastPostFromDeletedTopic = lastPostInBranch != null && topic.equals(lastPostInBranch.getTopic());
         if (branchLastPostFromDeletedTopic) {
             branch.clearLastPost();
         }
 
-        branch.deleteTopic(topic);
-        branchDao.saveOrUpdate(branch);
+        deleteTopics(branch, Collections.singletonList(topic.getId()));
+        feedCacheService.invalidate();
 
         if (branchLastPostFromDeletedTopic) {
             branchLastPostService.refreshLastPostInBranch(branch);
         }
-
-        securityService.deleteFromAcl(Topic.class, topic.getId());
         return branch;
     }
 
+    /**
+     * Deletes topics of the branch with their posts and ACL by bulk statements, so neither topics nor posts
+     * are loaded. Counters of the branch and the forum are updated accordingly, feed cache is left to the
+     * caller to invalidate once.
+     *
+     * @param branch   branch of the topics
+     * @param topicIds ids of the topics to delete
+     */
+    private void deleteTopics(Branch branch, List<Long> topicIds) {
+        dao.deleteAclOfTopics(topicIds);
+        int deletedPosts = dao.deleteTopics(topicIds);
+        branchDao.changeStatistics(branch, -topicIds.size(), -deletedPosts);
+        forumStatisticsService.changePostsCount(-deletedPosts);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -375,10 +425,13 @@ public class TransactionalTopicModificationService implements TopicModificationS
         branchDao.saveOrUpdate(targetBranch);
 
         List<Post> topicPosts = topic.getPosts();
+        branchDao.changeStatistics(sourceBranch, -1, -topicPosts.size());
+        branchDao.changeStatistics(targetBranch, 1, topicPosts.size());
         if (topicPosts.contains(sourceBranch.getLastPost())) {
             branchLastPostService.refreshLastPostInBranch(sourceBranch);
         }
         branchLastPostService.refreshLastPostInBranch(targetBranch);
+        feedCacheService.invalidate();
 
         notificationService.sendNotificationAboutTopicMoved(topic);
 
@@ -41,6 +41,7 @@ import org.jtalks.jcommune.service.exceptions.MailingFailedException;
 import org.jtalks.jcommune.service.exceptions.UserTriesActivatingAccountAgainException;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
 import org.jtalks.jcommune.service.nontransactional.MentionedUsers;
 import org.jtalks.jcommune.service.security.AdministrationGroup;
@@ -82,6 +83,7 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
     private final Base64Wrapper base64Wrapper;
     //Important, use for every password creation.
     private final EncryptionService encryptionService;
+    private final ForumStatisticsService forumStatisticsService;
 
     /**
      * Create an instance of User entity based service
@@ -94,6 +96,7 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
      * @param encryptionService encodes user password before store
      * @param postDao           for operations with posts
      * @param authenticator     for user authentication
+     * @param forumStatisticsService to keep count of users up to date
      */
     public TransactionalUserService(UserDao dao,
                                     GroupDao groupDao,
@@ -102,7 +105,8 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
                                     Base64Wrapper base64Wrapper,
                                     EncryptionService encryptionService,
                                     PostDao postDao,
-                                    Authenticator authenticator) {
+                                    Authenticator authenticator,
+                                    ForumStatisticsService forumStatisticsService) {
         super(dao);
         this.groupDao = groupDao;
         this.securityService = securityService;
@@ -111,6 +115,7 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
         this.encryptionService = encryptionService;
         this.postDao = postDao;
         this.authenticator = authenticator;
+        this.forumStatisticsService = forumStatisticsService;
     }
 
     /**
@@ -301,6 +306,7 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
             Period period = new Period(user.getRegistrationDate(), today);
             if (period.getDays() > 0) {
                 this.getDao().delete(user);
+                forumStatisticsService.changeUsersCount(-1);
             }
         }
     }
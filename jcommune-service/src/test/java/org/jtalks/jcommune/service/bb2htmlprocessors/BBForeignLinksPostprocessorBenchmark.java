@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.bb2htmlprocessors;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the single-pass link rewrite with the previous implementation on posts with more and more links. It only
+ * reports numbers and isn't run by the build, start its main method from the test classpath.
+ */
+public final class BBForeignLinksPostprocessorBenchmark {
+    private static final String SERVER_NAME = "jcommune.jtalks.org";
+    private static final String PREFIX = "/out?url=";
+    private static final int[] LINK_COUNTS = {100, 1000, 5000};
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private BBForeignLinksPostprocessorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName(SERVER_NAME);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        BBForeignLinksPostprocessor postprocessor = new BBForeignLinksPostprocessor();
+        for (int links : LINK_COUNTS) {
+            String text = linkHeavyPost(links);
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                postprocessor.postProcess(text);
+                postProcessAsBefore(text, SERVER_NAME, PREFIX);
+            }
+            long time = Long.MAX_VALUE;
+            long previousTime = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long start = System.nanoTime();
+                postprocessor.postProcess(text);
+                time = Math.min(time, System.nanoTime() - start);
+                start = System.nanoTime();
+                postProcessAsBefore(text, SERVER_NAME, PREFIX);
+                previousTime = Math.min(previousTime, System.nanoTime() - start);
+            }
+            System.out.printf("%d anchors and %d images, best of %d runs: %.2f ms, previous implementation %.2f ms%n",
+                    links, links, MEASURED_RUNS, time / 1e6, previousTime / 1e6);
+        }
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Implementation replaced by the single-pass rewrite, kept to compare outputs and timings with. It's quadratic in
+     * the number of links in the text.
+     *
+     * @param decodedText html to process
+     * @param serverName  name of this server, links mentioning it are local
+     * @param prefix      prefix of foreign links
+     * @return html with rewritten links
+     */
+    static String postProcessAsBefore(String decodedText, String serverName, String prefix) {
+        Matcher linkMatcher = Pattern.compile("(<a .*?href=(\"|').*?(\"|')|<img .*?src=(\"|').*?(\"|'))",
+                Pattern.DOTALL).matcher(decodedText);
+        while (linkMatcher.find()) {
+            String href = linkMatcher.group();
+            String encoded = href.replaceAll(" ", "%20");
+            if (!href.contains(serverName) && href.split("(http|ftp|https)://", 2).length == 2
+                    && href.startsWith("<a")) {
+                decodedText = decodedText.replace(href,
+                        encoded.replaceFirst("<a.*href=\"", "<a rel=\"nofollow\" href=\"" + prefix));
+            } else if (href.startsWith("<a")) {
+                decodedText = decodedText.replace(href, encoded.replaceFirst("<a.*href=\"", "<a href=\""));
+            } else if (href.startsWith("<img")) {
+                decodedText = decodedText.replace(href,
+                        encoded.replaceFirst("<img.*src=\"", "<img alt=\" \" class=\"thumbnail\" src=\""));
+            }
+        }
+        return decodedText;
+    }
+
+    private static String linkHeavyPost(int links) {
+        StringBuilder post = new StringBuilder();
+        for (int i = 0; i < links; i++) {
+            post.append("text <a href=\"http://javatalks.ru/page").append(i).append(" x\">link</a> <img src=\"http://")
+                    .append(SERVER_NAME).append("/i").append(i).append(".png\"> ");
+        }
+        return post.toString();
+    }
+}
@@ -21,6 +21,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Random;
 
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.assertEquals;
@@ -62,6 +63,66 @@ public class BBForeignLinksPostprocessorTest {
         assertEquals(service.postProcess(incomingText), outcomingText);
     }
 
+    @Test(dataProvider = "preProcessingSeveralLinks")
+    public void postprocessorShouldRewriteEachOfSeveralLinks(String incomingText, String outcomingText) {
+        assertEquals(service.postProcess(incomingText), outcomingText);
+    }
+
+    @Test
+    public void postprocessorShouldRewriteAllLinksOfLinkHeavyPost() {
+        StringBuilder incoming = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            incoming.append("text <a href=\"http://javatalks.ru/page ").append(i).append("\">link</a> ")
+                    .append("<a href=\"http://").append(serverName).append("/topics/").append(i).append("\">local</a>");
+            expected.append("text <a ").append(relAttr).append(" href=\"").append(prefix)
+                    .append("http://javatalks.ru/page%20").append(i).append("\">link</a> ")
+                    .append("<a href=\"http://").append(serverName).append("/topics/").append(i).append("\">local</a>");
+        }
+
+        assertEquals(service.postProcess(incoming.toString()), expected.toString());
+    }
+
+    @Test
+    public void postprocessorShouldGiveTheSameOutputAsPreviousImplementation() {
+        String[] fragments = {"<a ", "<img ", "href=", "src=", "\"", "'", " ", "http://", "https://", "ftp://",
+                serverName, "x", "\n", ">", "</a>", "<a", "href=\"", "javatalks.ru/a b"};
+        Random random = new Random(42);
+        for (int i = 0; i < 300000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(25);
+            for (int j = 0; j < length; j++) {
+                text.append(fragments[random.nextInt(fragments.length)]);
+            }
+
+            String previousOutput = BBForeignLinksPostprocessorBenchmark.postProcessAsBefore(
+                    text.toString(), serverName, prefix);
+            assertEquals(service.postProcess(text.toString()), previousOutput,
+                    "Output differs for [" + text + "]");
+        }
+    }
+
+    @Test
+    public void postprocessorShouldReturnTextWithoutLinksAsIs() {
+        String text = "<span>no links here</span>";
+
+        assertEquals(service.postProcess(text), text);
+    }
+
+    @DataProvider
+    public Object[][] preProcessingSeveralLinks() {
+        return new Object[][]{  // {"incoming text (before)", "outcoming text (after)"}
+                {"<a class=\"x\" href=\"http://javatalks.ru/a\">t</a>",
+                        "<a " + relAttr + " href=\"" + prefix + "http://javatalks.ru/a\">t</a>"},
+                {"<a href=\"http://javatalks.ru/a\">1</a><a href=\"http://javatalks.ru/a\">2</a>",
+                        "<a " + relAttr + " href=\"" + prefix + "http://javatalks.ru/a\">1</a>"
+                                + "<a " + relAttr + " href=\"" + prefix + "http://javatalks.ru/a\">2</a>"},
+                {"<img class=\"c\" src=\"http://javatalks.ru/a b.png\"/> and <a href=\"/local\">t</a>",
+                        "<img alt=\" \" class=\"thumbnail\" src=\"http://javatalks.ru/a%20b.png\"/> and "
+                                + "<a href=\"/local\">t</a>"}
+        };
+    }
+
     @DataProvider
     public Object[][] preProcessingImages() {
         return new Object[][]{
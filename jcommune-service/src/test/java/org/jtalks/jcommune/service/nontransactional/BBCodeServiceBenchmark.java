@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Times what submit of a large post does with its body, with and without a request to share the conversion.
+ * It only reports numbers and isn't run by the build, start its main method from the test classpath.
+ */
+public final class BBCodeServiceBenchmark {
+    private static final int WARM_UP_RUNS = 20;
+    private static final int MEASURED_RUNS = 20;
+
+    private BBCodeServiceBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        BBCodeService service = new BBCodeService();
+        String text = largePost();
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            timeOfSubmit(service, text, false);
+            timeOfSubmit(service, text, true);
+        }
+        long withoutRequest = Long.MAX_VALUE;
+        long withRequest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            withoutRequest = Math.min(withoutRequest, timeOfSubmit(service, text, false));
+            withRequest = Math.min(withRequest, timeOfSubmit(service, text, true));
+        }
+        System.out.printf("Submit of a post of %d chars, best of %d runs: %.1f ms without request, %.1f ms with it%n",
+                text.length(), MEASURED_RUNS, withoutRequest / 1e6, withRequest / 1e6);
+    }
+
+    /**
+     * @return a post of 500 quoted paragraphs with formatting, links and code
+     */
+    static String largePost() {
+        StringBuilder post = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            post.append("[quote=\"name\"][b]paragraph ").append(i).append("[/b] [i]with[/i] [url=http://jtalks.org]")
+                    .append("links[/url] and [code=java]int i = ").append(i).append(";[/code][/quote]\n");
+        }
+        return post.toString();
+    }
+
+    /**
+     * Nesting and size validation, preview and rendering of the page.
+     */
+    private static long timeOfSubmit(BBCodeService service, String text, boolean inRequest) {
+        if (inRequest) {
+            RequestContextHolder.setRequestAttributes(new ServletWebRequest(new MockHttpServletRequest()));
+        }
+        try {
+            long start = System.nanoTime();
+            service.isNestingTooDeep(text);
+            service.stripBBCodes(text);
+            service.convertBbToHtml(text);
+            service.convertBbToHtml(text);
+            return System.nanoTime() - start;
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
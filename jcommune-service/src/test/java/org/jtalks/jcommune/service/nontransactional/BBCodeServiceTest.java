@@ -15,8 +15,14 @@
 package org.jtalks.jcommune.service.nontransactional;
 
 import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.plugin.api.web.validation.annotations.BbCodeNesting;
 import org.jtalks.jcommune.service.bb2htmlprocessors.BBCodeListPreprocessor;
+import org.jtalks.jcommune.service.bb2htmlprocessors.TextPostProcessor;
 import org.kefirsf.bb.TextProcessor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -24,8 +30,11 @@ import org.testng.annotations.Test;
 import static java.util.Collections.list;
 import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -42,6 +51,11 @@ public class BBCodeServiceTest {
         service = new BBCodeService();
     }
 
+    @AfterMethod
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
     @Test
     public void testQuote() {
         String result = service.quote(SOURCE, USER);
@@ -57,6 +71,73 @@ public class BBCodeServiceTest {
         assertEquals(result,"<a  href=\"/jcommune/users/16\" class=\"mentioned-user\" >[user]e-c[/user]</a>");
     }
 
+    @Test
+    public void textShouldBeProcessedOnlyOnceDuringRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletWebRequest(new MockHttpServletRequest()));
+        String text = "[b]text[/b]";
+        TextProcessor preprocessor = mock(TextProcessor.class);
+        when(preprocessor.process(text)).thenReturn(text);
+        service.setPreprocessors(singletonList(preprocessor));
+
+        assertFalse(service.isNestingTooDeep(text));
+        String html = service.convertBbToHtml(text);
+
+        assertEquals(html, "<span style=\"font-weight:bold;\">text</span>");
+        verify(preprocessor).process(text);
+    }
+
+    @Test
+    public void textShouldBeProcessedEachTimeOutsideOfRequest() {
+        String text = "[b]text[/b]";
+        TextProcessor preprocessor = mock(TextProcessor.class);
+        when(preprocessor.process(text)).thenReturn(text);
+        service.setPreprocessors(singletonList(preprocessor));
+
+        service.convertBbToHtml(text);
+        service.convertBbToHtml(text);
+
+        verify(preprocessor, times(2)).process(text);
+    }
+
+    @Test
+    public void submitOfLargePostShouldProcessItOnceDuringRequest() {
+        String text = BBCodeServiceBenchmark.largePost();
+        String expectedHtml = service.convertBbToHtml(text);
+        TextProcessor preprocessor = mock(TextProcessor.class);
+        when(preprocessor.process(text)).thenReturn(text);
+        TextPostProcessor postprocessor = mock(TextPostProcessor.class);
+        when(postprocessor.postProcess(expectedHtml)).thenReturn(expectedHtml);
+        service.setPreprocessors(singletonList(preprocessor));
+        service.setPostprocessors(singletonList(postprocessor));
+        RequestContextHolder.setRequestAttributes(new ServletWebRequest(new MockHttpServletRequest()));
+
+        // nesting and size validation, preview and rendering of the page
+        assertFalse(service.isNestingTooDeep(text));
+        service.stripBBCodes(text);
+        assertEquals(service.convertBbToHtml(text), expectedHtml);
+        assertEquals(service.convertBbToHtml(text), expectedHtml);
+
+        verify(preprocessor).process(text);
+        verify(postprocessor).postProcess(expectedHtml);
+    }
+
+    @Test
+    public void tooDeepNestingShouldBeDetectedAndTextStillConverted() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i <= BbCodeNesting.DEFAULT_MAX_NESTING_VALUE; i++) {
+            text.append("[b]");
+        }
+        text.append("text");
+
+        assertTrue(service.isNestingTooDeep(text.toString()));
+        assertTrue(service.convertBbToHtml(text.toString()).contains("text"));
+    }
+
+    @Test
+    public void allowedNestingShouldNotBeConsideredTooDeep() {
+        assertFalse(service.isNestingTooDeep("[b][i]text[/i][/b]"));
+    }
+
     @Test(dataProvider = "validBBCodes")
     public void testBBCodeConversion(String bbCode, String expectedResult) {
         assertEquals(service.convertBbToHtml(bbCode), expectedResult);
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.jtalks.jcommune.service.SectionService;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+public class CacheWarmUpServiceTest {
+    private SectionService sectionService;
+    private CacheWarmUpService cacheWarmUpService;
+
+    @BeforeMethod
+    public void setUp() {
+        sectionService = mock(SectionService.class);
+        cacheWarmUpService = new CacheWarmUpService(sectionService);
+    }
+
+    @Test
+    public void warmUpShouldLoadSections() {
+        cacheWarmUpService.warmUp();
+
+        verify(sectionService).warmUpCache();
+    }
+
+    @Test
+    public void failedWarmUpShouldNotPreventStart() {
+        doThrow(new IllegalStateException()).when(sectionService).warmUpCache();
+
+        cacheWarmUpService.warmUp();
+    }
+}
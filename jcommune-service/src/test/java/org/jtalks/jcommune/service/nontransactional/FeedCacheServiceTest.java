@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jtalks.jcommune.service.dto.CachedFeed;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class FeedCacheServiceTest {
+    private static final String KEY = "/forum/topics/recent.rss|anonymous|15";
+    private static final byte[] CONTENT = "<rss/>".getBytes();
+
+    private Ehcache cache;
+    private FeedCacheService feedCacheService;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = mock(Ehcache.class);
+        feedCacheService = new FeedCacheService(cache);
+    }
+
+    @AfterMethod
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void getShouldReturnCachedFeed() {
+        CachedFeed feed = new CachedFeed(CONTENT, "application/rss+xml", "\"etag\"", 1000L);
+        when(cache.get(KEY)).thenReturn(new Element(KEY, feed));
+
+        assertSame(feedCacheService.get(KEY), feed);
+    }
+
+    @Test
+    public void getShouldReturnNullIfFeedIsNotCached() {
+        assertNull(feedCacheService.get(KEY));
+    }
+
+    @Test
+    public void putShouldCacheFeedWithETagAndLastModifiedInSeconds() {
+        CachedFeed feed = feedCacheService.put(KEY, feedCacheService.getGeneration(), CONTENT, "application/rss+xml");
+
+        verify(cache).put(any(Element.class));
+        assertSame(feed.getContent(), CONTENT);
+        assertEquals(feed.getContentType(), "application/rss+xml");
+        assertEquals(feed.getETag(), "\"" + DigestUtils.md5Hex(CONTENT) + "\"");
+        assertEquals(feed.getLastModified() % 1000, 0);
+    }
+
+    @Test
+    public void sameContentShouldHaveSameETag() {
+        long generation = feedCacheService.getGeneration();
+        CachedFeed first = feedCacheService.put(KEY, generation, CONTENT, "application/rss+xml");
+        CachedFeed second = feedCacheService.put(KEY, generation, "<rss/>".getBytes(), "application/rss+xml");
+
+        assertEquals(first.getETag(), second.getETag());
+    }
+
+    @Test
+    public void putShouldNotCacheFeedRenderedBeforeInvalidation() {
+        long generation = feedCacheService.getGeneration();
+        feedCacheService.invalidate();
+
+        CachedFeed feed = feedCacheService.put(KEY, generation, CONTENT, "application/rss+xml");
+
+        assertNotNull(feed);
+        verify(cache, never()).put(any(Element.class));
+    }
+
+    @Test
+    public void invalidateShouldRemoveAllFeeds() {
+        feedCacheService.invalidate();
+
+        verify(cache).removeAll();
+    }
+
+    @Test
+    public void invalidateInTransactionShouldRemoveAllFeedsAgainAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        feedCacheService.invalidate();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        verify(cache, times(2)).removeAll();
+    }
+}
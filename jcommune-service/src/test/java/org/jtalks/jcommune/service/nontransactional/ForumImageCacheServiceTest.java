@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jtalks.jcommune.service.dto.CachedImage;
+import org.jtalks.jcommune.service.transactional.TransactionalComponentService;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class ForumImageCacheServiceTest {
+    private static final String KEY = TransactionalComponentService.LOGO_PROPERTY;
+    private static final byte[] CONTENT = new byte[]{1, 2, 3};
+
+    private Ehcache cache;
+    private ForumImageCacheService forumImageCacheService;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = mock(Ehcache.class);
+        forumImageCacheService = new ForumImageCacheService(cache);
+    }
+
+    @AfterMethod
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void getShouldReturnCachedImage() {
+        CachedImage image = new CachedImage(CONTENT, "image/jpeg", "\"etag\"", 1000L);
+        when(cache.get(KEY)).thenReturn(new Element(KEY, image));
+
+        assertSame(forumImageCacheService.get(KEY), image);
+    }
+
+    @Test
+    public void getShouldReturnNullIfImageIsNotCached() {
+        assertNull(forumImageCacheService.get(KEY));
+    }
+
+    @Test
+    public void putShouldCacheImageWithETag() {
+        CachedImage image = forumImageCacheService.put(KEY, forumImageCacheService.getGeneration(), CONTENT,
+                "image/jpeg", 1000L);
+
+        verify(cache).put(any(Element.class));
+        assertSame(image.getContent(), CONTENT);
+        assertEquals(image.getContentType(), "image/jpeg");
+        assertEquals(image.getETag(), "\"" + DigestUtils.md5Hex(CONTENT) + "\"");
+        assertEquals(image.getLastModified(), 1000L);
+    }
+
+    @Test
+    public void putShouldNotCacheImageLoadedBeforeInvalidation() {
+        long generation = forumImageCacheService.getGeneration();
+        forumImageCacheService.invalidate();
+
+        CachedImage image = forumImageCacheService.put(KEY, generation, CONTENT, "image/jpeg", 1000L);
+
+        assertNotNull(image);
+        verify(cache, never()).put(any(Element.class));
+    }
+
+    @Test
+    public void invalidateShouldRemoveAllImages() {
+        forumImageCacheService.invalidate();
+
+        verify(cache).removeAll();
+    }
+
+    @Test
+    public void invalidateInTransactionShouldRemoveAllImagesAgainAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        forumImageCacheService.invalidate();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        verify(cache, times(2)).removeAll();
+    }
+}
@@ -16,7 +16,10 @@ package org.jtalks.jcommune.service.nontransactional;
 
 import org.jtalks.jcommune.model.dao.ForumStatisticsDao;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
-import org.testng.annotations.BeforeClass;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.*;
@@ -32,10 +35,10 @@ public class ForumStatisticsServiceTest {
     private ForumStatisticsService statisticsService;
     private ForumStatisticsDao statisticsDao;
 
-    @BeforeClass
+    @BeforeMethod
     public void setUp() {
         statisticsDao = mock(ForumStatisticsDao.class);
-        statisticsService = new ForumStatisticsService(statisticsDao);
+        statisticsService = new ForumStatisticsService(statisticsDao, mock(PlatformTransactionManager.class));
     }
 
     @Test
@@ -55,4 +58,58 @@ public class ForumStatisticsServiceTest {
         assertEquals(statisticsService.getUsersCount(), userCount);
         verify(statisticsDao).getUsersCount();
     }
+
+    @Test
+    public void countersShouldBeLoadedFromDatabaseOnlyOnce() {
+        when(statisticsDao.getPostsOnForumCount()).thenReturn(10);
+
+        statisticsService.getPostsOnForumCount();
+        statisticsService.getPostsOnForumCount();
+        statisticsService.getUsersCount();
+
+        verify(statisticsDao, times(1)).getPostsOnForumCount();
+        verify(statisticsDao, times(1)).getUsersCount();
+    }
+
+    @Test
+    public void changesShouldBeAppliedToLoadedCounters() {
+        when(statisticsDao.getPostsOnForumCount()).thenReturn(10);
+        when(statisticsDao.getUsersCount()).thenReturn(5);
+        statisticsService.reconcile();
+
+        statisticsService.changePostsCount(3);
+        statisticsService.changePostsCount(-1);
+        statisticsService.changeUsersCount(-2);
+
+        assertEquals(statisticsService.getPostsOnForumCount(), 12);
+        assertEquals(statisticsService.getUsersCount(), 3);
+    }
+
+    @Test
+    public void changesShouldBeAppliedOnlyAfterTransactionCommit() {
+        statisticsService.reconcile();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            statisticsService.changePostsCount(1);
+            assertEquals(statisticsService.getPostsOnForumCount(), 0);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            assertEquals(statisticsService.getPostsOnForumCount(), 1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void reconcileShouldOverrideDriftedCounters() {
+        when(statisticsDao.getPostsOnForumCount()).thenReturn(10);
+        statisticsService.reconcile();
+        statisticsService.changePostsCount(5);
+
+        statisticsService.reconcile();
+
+        assertEquals(statisticsService.getPostsOnForumCount(), 10);
+    }
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.jtalks.jcommune.model.dao.PostDao;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for {@link PostRatingService}.
+ */
+public class PostRatingServiceTest {
+
+    private PostRatingService postRatingService;
+    private PostDao postDao;
+
+    @BeforeMethod
+    public void setUp() {
+        postDao = mock(PostDao.class);
+        postRatingService = new PostRatingService(postDao, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    public void changesOfSamePostShouldBeAppliedWithOneUpdate() {
+        postRatingService.changeRating(1L, 1);
+        postRatingService.changeRating(1L, 2);
+        postRatingService.changeRating(2L, -1);
+
+        postRatingService.flush();
+
+        verify(postDao).changeRating(1L, 3);
+        verify(postDao).changeRating(2L, -1);
+        verifyNoMoreInteractions(postDao);
+    }
+
+    @Test
+    public void changesShouldBeAppliedOnlyOnce() {
+        postRatingService.changeRating(1L, 1);
+
+        postRatingService.flush();
+        postRatingService.flush();
+
+        verify(postDao, times(1)).changeRating(1L, 1);
+    }
+
+    @Test
+    public void changesWhichSumUpToZeroShouldNotBeApplied() {
+        postRatingService.changeRating(1L, 1);
+        postRatingService.changeRating(1L, -1);
+
+        postRatingService.flush();
+
+        verify(postDao, never()).changeRating(anyLong(), anyInt());
+    }
+
+    @Test
+    public void changesShouldBeAddedOnlyAfterTransactionCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            postRatingService.changeRating(1L, 1);
+            postRatingService.flush();
+            verify(postDao, never()).changeRating(anyLong(), anyInt());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        postRatingService.flush();
+
+        verify(postDao).changeRating(1L, 1);
+    }
+
+    @Test
+    public void notAppliedChangesShouldBeRetriedOnNextFlush() {
+        postRatingService.changeRating(1L, 1);
+        doThrow(new IllegalStateException()).when(postDao).changeRating(1L, 1);
+        postRatingService.flush();
+
+        doNothing().when(postDao).changeRating(1L, 1);
+        postRatingService.flush();
+
+        verify(postDao, times(2)).changeRating(1L, 1);
+    }
+}
@@ -108,4 +108,11 @@ public class UserDataCacheServiceTest {
 
         verify(cache).get(USERNAME);
     }
+
+    @Test
+    public void testRemoveNewPmCountFor() throws Exception {
+        userDataCacheService.removeNewPmCountFor(USERNAME);
+
+        verify(cache).remove(USERNAME);
+    }
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.jtalks.common.model.entity.Group;
+import org.jtalks.jcommune.model.entity.AnonymousUser;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class VisibleBranchesCacheServiceTest {
+    private static final Map<Long, List<Long>> VISIBLE_BRANCHES =
+            Collections.singletonMap(1L, Arrays.asList(2L, 3L));
+
+    private Ehcache cache;
+    private VisibleBranchesCacheService service;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = mock(Ehcache.class);
+        service = new VisibleBranchesCacheService(cache);
+    }
+
+    @AfterMethod
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void usersOfSameGroupsShouldShareCachedBranches() {
+        service.put(userOfGroups(1L, 2L), VISIBLE_BRANCHES);
+        ArgumentCaptor<Element> element = ArgumentCaptor.forClass(Element.class);
+        verify(cache).put(element.capture());
+        when(cache.get(element.getValue().getObjectKey())).thenReturn(element.getValue());
+
+        assertEquals(service.get(userOfGroups(2L, 1L)), VISIBLE_BRANCHES);
+        assertNull(service.get(userOfGroups(1L)));
+    }
+
+    @Test
+    public void anonymousUsersShouldShareCachedBranches() {
+        service.put(new AnonymousUser(), VISIBLE_BRANCHES);
+        ArgumentCaptor<Element> element = ArgumentCaptor.forClass(Element.class);
+        verify(cache).put(element.capture());
+        when(cache.get(element.getValue().getObjectKey())).thenReturn(element.getValue());
+
+        assertEquals(service.get(new AnonymousUser()), VISIBLE_BRANCHES);
+        assertNull(service.get(userOfGroups()));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void cachedBranchesShouldNotBeModifiable() {
+        Map<Long, List<Long>> visibleBranches = new HashMap<>();
+        visibleBranches.put(1L, new ArrayList<>(Arrays.asList(2L, 3L)));
+        service.put(userOfGroups(1L), visibleBranches);
+        ArgumentCaptor<Element> element = ArgumentCaptor.forClass(Element.class);
+        verify(cache).put(element.capture());
+        when(cache.get(element.getValue().getObjectKey())).thenReturn(element.getValue());
+
+        service.get(userOfGroups(1L)).get(1L).add(4L);
+    }
+
+    @Test
+    public void getShouldReturnNullIfBranchesAreNotCached() {
+        assertNull(service.get(userOfGroups(1L)));
+    }
+
+    @Test
+    public void invalidateInsideTransactionShouldClearCacheAgainAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.invalidate();
+        verify(cache).removeAll();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        verify(cache, times(2)).removeAll();
+    }
+
+    private JCUser userOfGroups(Long... groupIds) {
+        JCUser user = new JCUser("username", "email@mail.com", "password");
+        List<Group> groups = new ArrayList<>();
+        for (Long groupId : groupIds) {
+            Group group = new Group("group" + groupId, "description");
+            group.setId(groupId);
+            groups.add(group);
+        }
+        user.setGroups(groups);
+        return user;
+    }
+}
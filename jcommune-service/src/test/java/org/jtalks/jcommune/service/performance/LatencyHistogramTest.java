@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesShouldBeCountedExactly() {
+        for (long value = 0; value < 32; value++) {
+            assertEquals(LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value)), value);
+        }
+    }
+
+    @Test
+    public void bucketsShouldKeepRelativeErrorSmall() {
+        for (long value = 32; value < LatencyHistogram.HIGHEST_TRACKABLE_VALUE; value = value * 3 / 2 + 7) {
+            long reported = LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value));
+            assertTrue(reported >= value && reported - value <= value / 16, "Value " + value + " was " + reported);
+        }
+    }
+
+    @Test
+    public void percentilesShouldBeFoundAcrossAllHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 1; i <= 500; i++) {
+            first.record(i);
+            second.record(500 + i);
+        }
+
+        long[] values = LatencyHistogram.valuesAtQuantiles(
+                new LatencyHistogram[]{first, second}, 0.5, 0.99, 0.999);
+
+        assertClose(values[0], 500);
+        assertClose(values[1], 990);
+        assertClose(values[2], 999);
+    }
+
+    @Test
+    public void percentilesShouldNotExceedMaxValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+
+        long[] values = LatencyHistogram.valuesAtQuantiles(new LatencyHistogram[]{histogram}, 0.5, 0.999);
+
+        assertEquals(values[0], 1000);
+        assertEquals(values[1], 1000);
+        assertEquals(histogram.getMaxValue(), 1000);
+    }
+
+    @Test
+    public void percentilesOfEmptyHistogramShouldBeZeros() {
+        long[] values = LatencyHistogram.valuesAtQuantiles(new LatencyHistogram[]{new LatencyHistogram()}, 0.5);
+
+        assertEquals(values[0], 0);
+    }
+
+    @Test
+    public void tooLargeAndNegativeValuesShouldBeClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(histogram.getTotalCount(), 2);
+        assertEquals(histogram.getMaxValue(), LatencyHistogram.HIGHEST_TRACKABLE_VALUE);
+        long[] values = LatencyHistogram.valuesAtQuantiles(new LatencyHistogram[]{histogram}, 0.5);
+        assertEquals(values[0], 0);
+    }
+
+    private void assertClose(long actual, long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "Expected ~" + expected + " but was " + actual);
+    }
+}
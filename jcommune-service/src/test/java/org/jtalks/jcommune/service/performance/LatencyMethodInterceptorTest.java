@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class LatencyMethodInterceptorTest {
+    private LatencyMonitor monitor;
+
+    @BeforeMethod
+    public void setUp() {
+        monitor = mock(LatencyMonitor.class);
+    }
+
+    @Test
+    public void interceptorShouldRecordSampledCallsByTargetClassAndMethod() throws Throwable {
+        when(monitor.shouldSample()).thenReturn(true);
+        MethodInvocation invocation = invocation();
+        when(invocation.proceed()).thenThrow(new IllegalStateException());
+
+        try {
+            new LatencyMethodInterceptor(monitor).invoke(invocation);
+            fail("Exception of the method should be rethrown");
+        } catch (IllegalStateException e) {
+            verify(monitor).record(eq("LatencyMethodInterceptorTest::sampleMethod"), anyLong());
+        }
+    }
+
+    @Test
+    public void interceptorShouldNotRecordCallsThatAreNotSampled() throws Throwable {
+        MethodInvocation invocation = invocation();
+        when(invocation.proceed()).thenReturn("result");
+
+        assertEquals(new LatencyMethodInterceptor(monitor).invoke(invocation), "result");
+        verify(monitor, never()).record(anyString(), anyLong());
+    }
+
+    private MethodInvocation invocation() throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getThis()).thenReturn(this);
+        when(invocation.getMethod()).thenReturn(LatencyMethodInterceptorTest.class.getDeclaredMethod("sampleMethod"));
+        return invocation;
+    }
+
+    @SuppressWarnings("unused")
+    private void sampleMethod() {
+    }
+}
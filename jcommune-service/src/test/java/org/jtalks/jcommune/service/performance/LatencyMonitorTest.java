@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.performance;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class LatencyMonitorTest {
+    private LatencyMonitor monitor;
+
+    @BeforeMethod
+    public void setUp() {
+        monitor = new LatencyMonitor(1);
+    }
+
+    @Test
+    public void reportShouldContainPercentilesOfEveryName() {
+        for (int i = 1; i <= 100; i++) {
+            monitor.record("b", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        monitor.record("a", TimeUnit.MILLISECONDS.toNanos(3));
+
+        List<String> latencies = monitor.getLatencies();
+
+        assertEquals(latencies.size(), 2);
+        assertEquals(latencies.get(0),
+                "a count=1 p50=3.000ms p95=3.000ms p99=3.000ms p999=3.000ms max=3.000ms");
+        assertTrue(latencies.get(1).startsWith("b count=100 p50="), latencies.get(1));
+        assertTrue(latencies.get(1).endsWith("p999=100.000ms max=100.000ms"), latencies.get(1));
+        assertEquals(monitor.getReport(), latencies.get(0) + "\n" + latencies.get(1) + "\n");
+    }
+
+    @Test
+    public void latenciesShouldBeForgottenAfterTwoWindows() {
+        monitor.record("a", 1000);
+
+        monitor.rotateWindows();
+        assertEquals(monitor.getLatencies().size(), 1);
+        monitor.rotateWindows();
+
+        assertTrue(monitor.getLatencies().isEmpty());
+    }
+
+    @Test
+    public void resetShouldForgetAllLatencies() {
+        monitor.record("a", 1000);
+
+        monitor.reset();
+
+        assertTrue(monitor.getLatencies().isEmpty());
+    }
+
+    @Test
+    public void nothingShouldBeSampledIfDisabled() {
+        monitor.setEnabled(false);
+
+        assertFalse(monitor.shouldSample());
+    }
+
+    @Test
+    public void nothingShouldBeSampledWithZeroRate() {
+        monitor.setSamplingRate(0);
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(monitor.shouldSample());
+        }
+    }
+
+    @Test
+    public void everythingShouldBeSampledWithRateOfOne() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(monitor.shouldSample());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void samplingRateShouldNotExceedOne() {
+        monitor.setSamplingRate(1.5);
+    }
+
+    @Test
+    public void newNamesShouldBeIgnoredAfterLimit() {
+        for (int i = 0; i <= LatencyMonitor.MAX_MONITORED_NAMES; i++) {
+            monitor.record("name" + i, 1000);
+        }
+
+        assertEquals(monitor.getLatencies().size(), LatencyMonitor.MAX_MONITORED_NAMES);
+    }
+
+    @Test
+    public void concurrentRecordsShouldNotBeLost() throws Exception {
+        final int threads = 8;
+        final int recordsPerThread = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        monitor.record("a", 1000);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(monitor.getLatencies().get(0).startsWith("a count=" + threads * recordsPerThread + " "));
+    }
+}
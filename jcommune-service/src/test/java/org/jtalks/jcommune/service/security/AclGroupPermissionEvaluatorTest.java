@@ -17,6 +17,7 @@ package org.jtalks.jcommune.service.security;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.jtalks.common.model.dao.GroupDao;
@@ -235,6 +236,28 @@ public class AclGroupPermissionEvaluatorTest {
         Assert.assertFalse(evaluator.hasPermission(authentication, targetId, targetType, "123"));
     }
 
+    @Test
+    public void loadAclsShouldReadAclsOfTargetsAndUserGroupsInSingleQuery() throws Exception {
+        ObjectIdentity groupIdentity = new ObjectIdentityImpl("GROUP", targetId);
+        ObjectIdentity otherIdentity = new ObjectIdentityImpl(targetType, 2L);
+        Mockito.when(aclUtil.createIdentity(targetId, "GROUP")).thenReturn(groupIdentity);
+        Mockito.when(aclUtil.createIdentity(2L, targetType)).thenReturn(otherIdentity);
+        user.setGroups(Arrays.asList(group));
+
+        evaluator.loadAcls(authentication, Arrays.asList(targetId, 2L), targetType);
+
+        Mockito.verify(mutableAclService).readAclsById(Arrays.asList(objectIdentity, otherIdentity, groupIdentity));
+        Mockito.verify(mutableAclService, Mockito.never()).readAclById(Mockito.any(ObjectIdentity.class));
+    }
+
+    @Test
+    public void loadAclsShouldIgnoreTargetsWithoutAcl() throws Exception {
+        Mockito.when(mutableAclService.readAclsById(Mockito.anyListOf(ObjectIdentity.class)))
+                .thenThrow(new org.springframework.security.acls.model.NotFoundException("not found"));
+
+        evaluator.loadAcls(authentication, Arrays.asList(targetId), targetType);
+    }
+
     @SuppressWarnings("deprecation")
     @Test(expectedExceptions = UnsupportedOperationException.class)
     public void testHasPermission() throws Exception {
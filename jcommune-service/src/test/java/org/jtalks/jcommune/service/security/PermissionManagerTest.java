@@ -24,6 +24,7 @@ import org.jtalks.common.model.entity.Entity;
 import org.jtalks.common.model.entity.Group;
 import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.common.model.permissions.JtalksPermission;
+import org.jtalks.common.model.permissions.ProfilePermission;
 import org.jtalks.common.security.acl.AclManager;
 import org.jtalks.common.security.acl.AclUtil;
 import org.jtalks.common.security.acl.ExtendedMutableAcl;
@@ -111,11 +112,11 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
     }
 
     /**
-     * Mockito answer for {@link GroupDao#get(Long)} which return group from defined group list.
+     * Mockito answer for {@link GroupDao#getGroupsByIds(List)} which return groups from defined group list.
      *
      * @author Vyacheslav Zhivaev
      */
-    class GroupDaoAnswer implements Answer<Group> {
+    class GroupDaoAnswer implements Answer<List<Group>> {
 
         private final List<Group> groups;
 
@@ -127,9 +128,16 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
          * {@inheritDoc}
          */
         @Override
-        public Group answer(InvocationOnMock invocation) throws Throwable {
-            long id = (Long) invocation.getArguments()[0];
-            return PermissionManagerTest.getGroupWithId(groups, id);
+        @SuppressWarnings("unchecked")
+        public List<Group> answer(InvocationOnMock invocation) throws Throwable {
+            List<Group> found = new ArrayList<>();
+            for (Long id : (List<Long>) invocation.getArguments()[0]) {
+                Group group = PermissionManagerTest.getGroupWithId(groups, id);
+                if (group != null) {
+                    found.add(group);
+                }
+            }
+            return found;
         }
 
     }
@@ -163,11 +171,10 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
 
         manager.changeGrants(branch, changes);
 
-        verify(aclManager, times(changes.getRemovedGroups().size())).
-                delete(anyListOf(Sid.class), eq(listFromArray(changes.getPermission())), eq(branch));
-
-        verify(aclManager, times(changes.getNewlyAddedGroupsAsArray().length)).
-                grant(anyListOf(Sid.class), eq(listFromArray(changes.getPermission())), eq(branch));
+        verify(aclManager).delete(eq(sidsOf(changes.getRemovedGroupsAsArray())),
+                eq(listFromArray(changes.getPermission())), eq(branch));
+        verify(aclManager).grant(eq(sidsOf(changes.getNewlyAddedGroupsAsArray())),
+                eq(listFromArray(changes.getPermission())), eq(branch));
     }
 
     @Test(dataProvider = "accessChanges")
@@ -176,11 +183,17 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
 
         manager.changeRestrictions(branch, changes);
 
-        verify(aclManager, times(changes.getRemovedGroups().size())).
-                delete(anyListOf(Sid.class), eq(listFromArray(changes.getPermission())), eq(branch));
+        verify(aclManager).delete(eq(sidsOf(changes.getRemovedGroupsAsArray())),
+                eq(listFromArray(changes.getPermission())), eq(branch));
+        verify(aclManager).restrict(eq(sidsOf(changes.getNewlyAddedGroupsAsArray())),
+                eq(listFromArray(changes.getPermission())), eq(branch));
+    }
 
-        verify(aclManager, times(changes.getNewlyAddedGroupsAsArray().length)).
-                restrict(anyListOf(Sid.class), eq(listFromArray(changes.getPermission())), eq(branch));
+    @Test
+    public void changeGrantsShouldNotWriteAclWhenNothingChanged() throws Exception {
+        manager.changeGrants(ObjectsFactory.getDefaultBranch(), new PermissionChanges(BranchPermission.CLOSE_TOPICS));
+
+        verifyZeroInteractions(aclManager);
     }
 
     @Test
@@ -191,7 +204,9 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
         GroupsPermissions groupsPermissions = manager.getPermissionsMapFor(branch);
         verify(pluginPermissionManager).getPluginsBranchPermissions();
         verify(aclManager).getGroupPermissionsOn(branch);
-        verify(aclUtil, times(BranchPermission.values().length)).getAclFor(branch);
+        verify(aclUtil).getAclFor(branch);
+        verify(groupDao).getGroupsByIds(anyListOf(Long.class));
+        verify(groupDao, never()).get(anyLong());
         assertTrue(groupsPermissions.getPermissions().containsAll(permissions));
         for (GroupAce groupAce : groupAces) {
             List<Group> groups = groupsPermissions.get(groupAce.getPermission(), groupAce.isGranting());
@@ -200,6 +215,27 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
         }
     }
 
+    @Test
+    public void getPermissionsMapForGroupsShouldLoadAllGroupsAtOnce() throws Exception {
+        Group first = randomGroup(100);
+        Group second = randomGroup(200);
+        givenPermissions(first, ProfilePermission.EDIT_OWN_PROFILE);
+        List<GroupAce> firstAces = new ArrayList<>(groupAces);
+        givenPermissions(second, ProfilePermission.SEND_PRIVATE_MESSAGES);
+        List<GroupAce> secondAces = new ArrayList<>(groupAces);
+        secondAces.removeAll(firstAces);
+        when(aclManager.getGroupPermissionsOn(eq(first))).thenReturn(firstAces);
+        when(aclManager.getGroupPermissionsOn(eq(second))).thenReturn(secondAces);
+
+        GroupsPermissions groupsPermissions = manager.getPermissionsMapFor(Arrays.asList(first, second));
+
+        verify(groupDao).getGroupsByIds(anyListOf(Long.class));
+        for (GroupAce groupAce : groupAces) {
+            List<Group> groups = groupsPermissions.get(groupAce.getPermission(), groupAce.isGranting());
+            assertNotNull(getGroupWithId(groups, groupAce.getGroupId()));
+        }
+    }
+
     @Test
     public void testChangeGrantsOfAnonymousGroup() throws Exception {
         Branch branch = ObjectsFactory.getDefaultBranch();
@@ -340,12 +376,20 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
         return Lists.newArrayList(permissions);
     }
 
+    private List<Sid> sidsOf(Group... groups) {
+        List<Sid> sids = new ArrayList<>();
+        for (Group group : groups) {
+            sids.add(new UserGroupSid(group));
+        }
+        return sids;
+    }
+
     private void givenPermissions(Entity entity, JtalksPermission... permissions) {
         givenGroupAces(entity, permissions);
 
-        Answer<Group> answer = new GroupDaoAnswer(groups);
+        Answer<List<Group>> answer = new GroupDaoAnswer(groups);
 
-        when(groupDao.get(anyLong())).thenAnswer(answer);
+        when(groupDao.getGroupsByIds(anyListOf(Long.class))).thenAnswer(answer);
         when(aclManager.getGroupPermissionsOn(eq(entity))).thenReturn(groupAces);
     }
 
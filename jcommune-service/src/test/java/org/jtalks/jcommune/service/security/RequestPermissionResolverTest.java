@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.security;
+
+import org.jtalks.common.model.dao.GroupDao;
+import org.jtalks.common.model.entity.Group;
+import org.jtalks.common.model.permissions.BranchPermission;
+import org.jtalks.common.security.acl.AclManager;
+import org.jtalks.common.security.acl.AclUtil;
+import org.jtalks.common.security.acl.GroupAce;
+import org.jtalks.common.security.acl.sids.JtalksSidFactory;
+import org.jtalks.common.security.acl.sids.UserSid;
+import org.jtalks.common.service.security.SecurityContextFacade;
+import org.jtalks.jcommune.model.dao.UserDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.plugin.api.PluginPermissionManager;
+import org.mockito.Mock;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.jdbc.JdbcMutableAclService;
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RequestPermissionResolverTest {
+    private static final long BRANCH_ID = 1L;
+    private static final List<String> POST_PERMISSIONS = Arrays.asList(
+            "BranchPermission.EDIT_OWN_POSTS", "BranchPermission.DELETE_OWN_POSTS",
+            "BranchPermission.CREATE_POSTS", "BranchPermission.DELETE_OTHERS_POSTS");
+
+    @Mock
+    private AclManager aclManager;
+    @Mock
+    private AclUtil aclUtil;
+    @Mock
+    private GroupDao groupDao;
+    @Mock
+    private JtalksSidFactory sidFactory;
+    @Mock
+    private JdbcMutableAclService mutableAclService;
+    @Mock
+    private UserDao userDao;
+    @Mock
+    private PluginPermissionManager pluginPermissionManager;
+    @Mock
+    private SecurityContextFacade securityContextFacade;
+    @Mock
+    private SecurityContext securityContext;
+    @Mock
+    private Authentication authentication;
+    @Mock
+    private MutableAcl acl;
+
+    private UserSid userSid;
+    private ObjectIdentity branchIdentity;
+    private RequestPermissionResolver resolver;
+
+    @BeforeMethod
+    public void setUp() {
+        initMocks(this);
+        JCUser user = new JCUser("username", "email", "password");
+        user.setId(1L);
+        user.setGroups(new ArrayList<Group>());
+        userSid = new UserSid(user);
+        branchIdentity = new ObjectIdentityImpl("BRANCH", BRANCH_ID);
+        when(aclUtil.createIdentity(BRANCH_ID, "BRANCH")).thenReturn(branchIdentity);
+        when(mutableAclService.readAclById(any(ObjectIdentity.class))).thenReturn(acl);
+        when(acl.getEntries()).thenReturn(new ArrayList<AccessControlEntry>());
+        when(aclManager.getGroupPermissionsOn(branchIdentity)).thenReturn(new ArrayList<GroupAce>());
+        when(sidFactory.createPrincipal(authentication)).thenReturn(userSid);
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(authentication.getName()).thenReturn(user.getUsername());
+        when(userDao.get(user.getId())).thenReturn(user);
+        when(securityContextFacade.getContext()).thenReturn(securityContext);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        RequestContextHolder.setRequestAttributes(new ServletWebRequest(new MockHttpServletRequest()));
+
+        AclGroupPermissionEvaluator evaluator = new AclGroupPermissionEvaluator(aclManager, aclUtil, groupDao,
+                sidFactory, mutableAclService, userDao, pluginPermissionManager);
+        resolver = new RequestPermissionResolver(evaluator, securityContextFacade);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @DataProvider
+    public Object[][] postsPerPage() {
+        return new Object[][]{{1}, {20}, {100}};
+    }
+
+    @Test(dataProvider = "postsPerPage")
+    public void aclShouldBeQueriedConstantNumberOfTimesRegardlessOfPostsPerPage(int postsPerPage) {
+        resolver.resolvePermissions(Collections.singletonList(BRANCH_ID), "BRANCH", POST_PERMISSIONS);
+        for (int post = 0; post < postsPerPage; post++) {
+            for (String permission : POST_PERMISSIONS) {
+                resolver.hasPermission(BRANCH_ID, "BRANCH", permission);
+            }
+        }
+
+        verify(mutableAclService).readAclsById(anyListOf(ObjectIdentity.class));
+        verify(mutableAclService, times(POST_PERMISSIONS.size())).readAclById(branchIdentity);
+        verify(aclManager, times(POST_PERMISSIONS.size())).getGroupPermissionsOn(branchIdentity);
+    }
+
+    @Test
+    public void resolvePermissionsShouldLoadAclsOfAllTargetsInSingleQuery() {
+        when(aclUtil.createIdentity(2L, "BRANCH")).thenReturn(new ObjectIdentityImpl("BRANCH", 2L));
+
+        resolver.resolvePermissions(Arrays.asList(BRANCH_ID, 2L), "BRANCH", POST_PERMISSIONS);
+
+        verify(mutableAclService).readAclsById(Arrays.<ObjectIdentity>asList(branchIdentity,
+                new ObjectIdentityImpl("BRANCH", 2L)));
+    }
+
+    @Test
+    public void hasPermissionShouldEvaluatePermissionOncePerRequest() {
+        resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CREATE_POSTS");
+        resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CREATE_POSTS");
+
+        verify(mutableAclService).readAclById(branchIdentity);
+    }
+
+    @Test
+    public void hasPermissionShouldEvaluatePermissionEachTimeOutsideOfRequest() {
+        RequestContextHolder.resetRequestAttributes();
+
+        resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CREATE_POSTS");
+        resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CREATE_POSTS");
+
+        verify(mutableAclService, times(2)).readAclById(branchIdentity);
+    }
+
+    @Test
+    public void hasPermissionShouldReturnEvaluatedResult() {
+        List<AccessControlEntry> aces = new ArrayList<>();
+        AccessControlEntry ace = mock(AccessControlEntry.class);
+        when(ace.getSid()).thenReturn(userSid);
+        when(ace.getPermission()).thenReturn(BranchPermission.CREATE_POSTS);
+        when(ace.isGranting()).thenReturn(true);
+        aces.add(ace);
+        when(acl.getEntries()).thenReturn(aces);
+
+        assertTrue(resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CREATE_POSTS"));
+        assertFalse(resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CLOSE_TOPICS"));
+    }
+
+    @Test
+    public void hasPermissionShouldReturnFalseWithoutAuthentication() {
+        when(securityContext.getAuthentication()).thenReturn(null);
+
+        assertFalse(resolver.hasPermission(BRANCH_ID, "BRANCH", "BranchPermission.CREATE_POSTS"));
+        verifyZeroInteractions(mutableAclService);
+    }
+
+    @Test
+    public void resolvePermissionsShouldDoNothingWithoutAuthentication() {
+        when(securityContext.getAuthentication()).thenReturn(null);
+
+        resolver.resolvePermissions(Collections.singletonList(BRANCH_ID), "BRANCH", POST_PERMISSIONS);
+
+        verifyZeroInteractions(mutableAclService);
+    }
+}
@@ -23,6 +23,8 @@ import org.jtalks.common.service.security.SecurityContextHolderFacade;
 import org.jtalks.jcommune.model.dto.GroupsPermissions;
 import org.jtalks.jcommune.model.dto.PermissionChanges;
 import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.service.nontransactional.VisibleBranchesCacheService;
 import org.jtalks.jcommune.service.transactional.TransactionalPermissionService;
 import org.mockito.Mock;
 import org.springframework.security.access.AccessDeniedException;
@@ -44,6 +46,10 @@ public class TransactionalPermissionServiceTest {
     private SecurityContextHolderFacade contextFacade;
     @Mock
     private AclGroupPermissionEvaluator aclEvaluator;
+    @Mock
+    private FeedCacheService feedCacheService;
+    @Mock
+    private VisibleBranchesCacheService visibleBranchesCacheService;
 
     private PermissionService permissionService;
     private PermissionManager permissionManager;
@@ -52,7 +58,8 @@ public class TransactionalPermissionServiceTest {
     public void initEnvironmental() {
         initMocks(this);
         permissionManager = mock(PermissionManager.class);
-        permissionService = spy(new TransactionalPermissionService(contextFacade, aclEvaluator, permissionManager));
+        permissionService = spy(new TransactionalPermissionService(contextFacade, aclEvaluator, permissionManager,
+                feedCacheService, visibleBranchesCacheService));
     }
 
     @BeforeMethod
@@ -144,6 +151,10 @@ public class TransactionalPermissionServiceTest {
 
         Group group = mock(Group.class);
         permissionService.changeGrants(group, changes);
+
+        verify(permissionManager).changeGrants(branch, changes);
+        verify(feedCacheService).invalidate();
+        verify(visibleBranchesCacheService).invalidate();
     }
 
     @Test
@@ -157,6 +168,10 @@ public class TransactionalPermissionServiceTest {
 
         Group group = mock(Group.class);
         permissionService.changeRestrictions(group, changes);
+
+        verify(permissionManager).changeRestrictions(branch, changes);
+        verify(feedCacheService).invalidate();
+        verify(visibleBranchesCacheService).invalidate();
     }
 
     @Test
@@ -33,6 +33,7 @@ import org.jtalks.jcommune.service.Authenticator;
 import org.jtalks.jcommune.service.PluginService;
 import org.jtalks.jcommune.service.util.AuthenticationStatus;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
@@ -107,6 +108,8 @@ public class TransactionalAuthenticatorTest {
     PluginService pluginService;
     @Mock
     private Validator validator;
+    @Mock
+    private ForumStatisticsService forumStatisticsService;
 
     private Authenticator authenticator;
 
@@ -115,7 +118,8 @@ public class TransactionalAuthenticatorTest {
         initMocks(this);
         authenticator = new TransactionalAuthenticator(pluginLoader, userDao, groupDao,
                 encryptionService, mailService, avatarService, pluginService,
-                securityFacade, rememberMeServices, sessionStrategy, validator, authenticationManager);
+                securityFacade, rememberMeServices, sessionStrategy, validator, authenticationManager,
+                forumStatisticsService);
     }
 
     private JCUser prepareOldUser(String username) {
@@ -334,6 +338,18 @@ public class TransactionalAuthenticatorTest {
         verify(bindingResult, never()).rejectValue(anyString(), anyString(), anyString());
     }
 
+    @Test
+    public void storeRegisteredUserShouldIncreaseUsersCount() throws Exception {
+        UserDto userDto = new UserDto();
+        userDto.setUsername("username");
+        userDto.setEmail("email@email.em");
+        userDto.setPassword("password");
+
+        ((TransactionalAuthenticator) authenticator).storeRegisteredUser(userDto);
+
+        verify(forumStatisticsService).changeUsersCount(1);
+    }
+
     @Test
     public void registerUserWithIncorrectDetailsShouldFail() throws Exception {
         RegisterUserDto userDto = createRegisterUserDto("", "", "", null);
@@ -413,7 +429,8 @@ public class TransactionalAuthenticatorTest {
         EncryptionService realEncryptionService = new EncryptionService(new Md5PasswordEncoder());
         TransactionalAuthenticator authenticatorSpy = spy(new TransactionalAuthenticator(pluginLoader, userDao, groupDao,
                 realEncryptionService, mailService, avatarService, pluginService,
-                securityFacade, rememberMeServices, sessionStrategy, validator, authenticationManager));
+                securityFacade, rememberMeServices, sessionStrategy, validator, authenticationManager,
+                forumStatisticsService));
 
         authenticatorSpy.register(registerUserDto);
         UserDto expected = new UserDto();
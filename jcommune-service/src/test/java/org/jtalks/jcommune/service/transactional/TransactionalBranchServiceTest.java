@@ -21,6 +21,7 @@ import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.jcommune.model.dao.BranchDao;
 import org.jtalks.jcommune.model.dao.SectionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.dto.BranchStatistics;
 import org.jtalks.jcommune.model.dto.GroupsPermissions;
 import org.jtalks.jcommune.model.dto.PermissionChanges;
 import org.jtalks.jcommune.model.entity.*;
@@ -38,6 +39,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -177,8 +179,9 @@ public class TransactionalBranchServiceTest {
         Branch branch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
         org.jtalks.common.model.entity.Branch commonBranch = branch;
 
-        when(branchDao.getCountPostsInBranch(branch)).thenReturn(expectedPostsCount);
-        when(topicDao.countTopics(branch)).thenReturn(expectedTopicsCount);
+        branch.setId(BRANCH_ID);
+        when(branchDao.getStatistics(Collections.singleton(BRANCH_ID))).thenReturn(
+                Arrays.asList(new BranchStatistics(BRANCH_ID, expectedTopicsCount, expectedPostsCount)));
         when(userService.getCurrentUser()).thenReturn(user);
         //TODO Was removed till milestone 2 due to performance issues
 //        when(branchDao.isUnreadPostsInBranch(branch, user)).thenReturn(expectedUnreadPostsCount);
@@ -202,8 +205,9 @@ public class TransactionalBranchServiceTest {
         Branch branch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
         org.jtalks.common.model.entity.Branch commonBranch = branch;
 
-        when(branchDao.getCountPostsInBranch(branch)).thenReturn(expectedPostsCount);
-        when(topicDao.countTopics(branch)).thenReturn(expectedTopicsCount);
+        branch.setId(BRANCH_ID);
+        when(branchDao.getStatistics(Collections.singleton(BRANCH_ID))).thenReturn(
+                Arrays.asList(new BranchStatistics(BRANCH_ID, expectedTopicsCount, expectedPostsCount)));
         when(userService.getCurrentUser()).thenReturn(user);
         //TODO fWas removed till milestone 2 due to performance issues
 //        when(branchDao.isUnreadPostsInBranch(branch, user)).thenReturn(expectedUnreadPostsCount);
@@ -217,6 +221,38 @@ public class TransactionalBranchServiceTest {
 //        verify(branchDao, times(0)).isUnreadPostsInBranch(branch, user);
     }
 
+    @Test
+    public void fillStatisticInfoShouldLoadCountersOfAllBranchesWithSingleQuery() {
+        Branch first = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
+        first.setId(1L);
+        Branch second = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
+        second.setId(2L);
+        when(branchDao.getStatistics(anyCollectionOf(Long.class))).thenReturn(Arrays.asList(
+                new BranchStatistics(1L, 1, 2), new BranchStatistics(2L, 3, 4)));
+
+        branchService.fillStatisticInfo(Arrays.<org.jtalks.common.model.entity.Branch>asList(first, second));
+
+        assertEquals(first.getTopicCount(), 1);
+        assertEquals(first.getPostCount(), 2);
+        assertEquals(second.getTopicCount(), 3);
+        assertEquals(second.getPostCount(), 4);
+        verify(branchDao).getStatistics(anyCollectionOf(Long.class));
+        verify(branchDao, never()).getCountPostsInBranch(any(Branch.class));
+        verify(topicDao, never()).countTopics(any(Branch.class));
+    }
+
+    @Test
+    public void fillStatisticInfoShouldNotLookForLastPostInEmptyBranch() {
+        Branch branch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
+        branch.setId(BRANCH_ID);
+        when(branchDao.getStatistics(anyCollectionOf(Long.class))).thenReturn(
+                Arrays.asList(new BranchStatistics(BRANCH_ID, 0, 0)));
+
+        branchService.fillStatisticInfo(Arrays.<org.jtalks.common.model.entity.Branch>asList(branch));
+
+        verify(lastPostService, never()).refreshLastPostInBranch(branch);
+    }
+
     @Test
     public void testGetBranch() throws NotFoundException {
         Branch expectedBranch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
@@ -251,7 +287,8 @@ public class TransactionalBranchServiceTest {
         assertEquals(actualBranch, expectedBranch, "Branches aren't equal");
         verify(branchDao).isExist(BRANCH_ID);
         verify(branchDao).get(BRANCH_ID);
-        verify(topicService, times(2)).deleteTopicSilent(anyLong());
+        verify(topicService).deleteAllTopicsSilent(expectedBranch);
+        verify(topicService, never()).deleteTopicSilent(anyLong());
     }
 
     @Test
@@ -265,7 +302,7 @@ public class TransactionalBranchServiceTest {
         assertEquals(actualBranch, expectedBranch, "Branches aren't equal");
         verify(branchDao).isExist(BRANCH_ID);
         verify(branchDao).get(BRANCH_ID);
-        verify(topicService, times(0)).deleteTopicSilent(anyLong());
+        verify(topicService).deleteAllTopicsSilent(expectedBranch);
     }
 
     @Test(expectedExceptions = NotFoundException.class)
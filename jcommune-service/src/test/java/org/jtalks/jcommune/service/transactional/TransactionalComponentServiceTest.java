@@ -19,6 +19,7 @@ import org.jtalks.jcommune.model.dao.ComponentDao;
 import org.jtalks.jcommune.model.entity.ComponentInformation;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
+import org.jtalks.jcommune.service.nontransactional.ForumImageCacheService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
@@ -53,6 +54,8 @@ public class TransactionalComponentServiceTest {
     private ImageService imageService;
     @Mock
     private Component component;
+    @Mock
+    private ForumImageCacheService forumImageCacheService;
 
     private TransactionalComponentService componentService;
 
@@ -60,7 +63,7 @@ public class TransactionalComponentServiceTest {
     public void init() {
         initMocks(this);
         when(component.getId()).thenReturn(COMPONENT_ID);
-        componentService = new TransactionalComponentService(imageService, componentDao);
+        componentService = new TransactionalComponentService(imageService, componentDao, forumImageCacheService);
     }
 
     @Test
@@ -105,6 +108,7 @@ public class TransactionalComponentServiceTest {
         verify(component).setProperty(TransactionalComponentService.LOGO_PROPERTY, LOGO);
 
         verify(component).setProperty(eq(TransactionalComponentService.COMPONENT_INFO_CHANGE_DATE_PROPERTY), anyString());
+        verify(forumImageCacheService).invalidate();
     }
 
     @Test(dataProvider = "emptyValues")
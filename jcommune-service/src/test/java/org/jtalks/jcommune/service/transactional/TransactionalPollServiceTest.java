@@ -17,10 +17,9 @@ package org.jtalks.jcommune.service.transactional;
 import org.joda.time.DateTime;
 import org.jtalks.common.model.dao.Crud;
 import org.jtalks.common.model.dao.GroupDao;
-import org.jtalks.common.model.entity.User;
-import org.jtalks.common.model.permissions.JtalksPermission;
 import org.jtalks.common.security.SecurityService;
-import org.jtalks.common.security.acl.builders.CompoundAclBuilder;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.AnonymousUser;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Poll;
 import org.jtalks.jcommune.model.entity.PollItem;
@@ -29,15 +28,15 @@ import org.jtalks.jcommune.service.UserService;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.security.access.AccessDeniedException;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
-import static org.jtalks.jcommune.service.TestUtils.mockAclBuilder;
-
 /**
  * @author Anuar Nurmakanov
  */
@@ -48,14 +47,12 @@ public class TransactionalPollServiceTest {
     @Mock
     private Crud<PollItem> pollOptionDao;
     @Mock
-    private Crud<Poll> pollDao;
+    private PollDao pollDao;
     @Mock
     private GroupDao groupDao;
     @Mock
     private SecurityService securityService;
     @Mock
-    private CompoundAclBuilder<User> aclBuilder;
-    @Mock
     private UserService userService;
     private JCUser jcUser;
 
@@ -64,10 +61,6 @@ public class TransactionalPollServiceTest {
         MockitoAnnotations.initMocks(this);
         pollService = new TransactionalPollService(pollDao, groupDao, pollOptionDao,
                 securityService, userService);
-        aclBuilder = mockAclBuilder();
-        Mockito.when(aclBuilder.restrict(Mockito.any(JtalksPermission.class))).thenReturn(aclBuilder);
-        Mockito.when(aclBuilder.on(Mockito.any(Poll.class))).thenReturn(aclBuilder);
-        Mockito.when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
         jcUser = new JCUser("name", "email", "password");
         Mockito.when(userService.getCurrentUser()).thenReturn(jcUser);
     }
@@ -78,12 +71,12 @@ public class TransactionalPollServiceTest {
         Poll poll = createPollWithOptions(POLL_ID, pollOptionIds, VOTES_COUNT, null);
 
         Mockito.when(pollDao.get(POLL_ID)).thenReturn(poll);
+        Mockito.when(pollDao.addVote(poll, jcUser)).thenReturn(true);
 
         Poll resultPoll = pollService.vote(POLL_ID, pollOptionIds);
-        PollItem resultPollOption = resultPoll.getPollItems().get(0);
 
-        Assert.assertEquals(resultPollOption.getVotesCount(), VOTES_COUNT + 1,
-                "Count of votes should be increased.");
+        Assert.assertSame(resultPoll, poll);
+        Mockito.verify(pollDao).increaseVotesCount(poll, pollOptionIds);
     }
 
     @Test
@@ -99,6 +92,9 @@ public class TransactionalPollServiceTest {
 
         Assert.assertEquals(resultPollOption.getVotesCount(), VOTES_COUNT,
                 "Count of votes should be the same.");
+        Mockito.verify(pollDao, Mockito.never()).addVote(Mockito.any(Poll.class), Mockito.any(JCUser.class));
+        Mockito.verify(pollDao, Mockito.never()).increaseVotesCount(Mockito.any(Poll.class),
+                Mockito.<Collection<Long>>any());
     }
 
     @Test
@@ -107,46 +103,45 @@ public class TransactionalPollServiceTest {
         Poll poll = createPollWithOptions(POLL_ID, pollOptionIds, VOTES_COUNT, null);
 
         Mockito.when(pollDao.get(Mockito.anyLong())).thenReturn(poll);
+        Mockito.when(pollDao.addVote(poll, jcUser)).thenReturn(true);
 
         Poll resultPoll = pollService.vote(POLL_ID, pollOptionIds);
 
-        for (PollItem option : resultPoll.getPollItems()) {
-            Assert.assertEquals(option.getVotesCount(), VOTES_COUNT + 1,
-                    "Count of votes should be increased.");
-        }
+        Assert.assertSame(resultPoll, poll);
+        Mockito.verify(pollDao).increaseVotesCount(poll, pollOptionIds);
     }
 
-    @Test
-    public void testAddMultipleVotesInInactivePoll() {
-        List<Long> pollOptionIds = Arrays.asList(1L, 5L, 9L);
-        DateTime endingDate = new DateTime(1999, 1, 1, 1, 1, 1, 1);
-        Poll poll = createPollWithOptions(POLL_ID, pollOptionIds, VOTES_COUNT, endingDate);
-
-        Mockito.when(pollDao.get(Mockito.anyLong())).thenReturn(poll);
+    @Test(expectedExceptions = AccessDeniedException.class)
+    public void testRevoteShouldBeProhibited() {
+        List<Long> pollOptionIds = Arrays.asList(1L, 5L);
+        Poll poll = createPollWithOptions(POLL_ID, pollOptionIds, VOTES_COUNT, null);
 
-        Poll resultPoll = pollService.vote(POLL_ID, pollOptionIds);
+        Mockito.when(pollDao.get(POLL_ID)).thenReturn(poll);
+        Mockito.when(pollDao.addVote(poll, jcUser)).thenReturn(false);
 
-        for (PollItem option : resultPoll.getPollItems()) {
-            Assert.assertEquals(option.getVotesCount(), VOTES_COUNT,
-                    "Count of votes should be the same.");
+        try {
+            pollService.vote(POLL_ID, pollOptionIds);
+        } finally {
+            Mockito.verify(pollDao, Mockito.never()).increaseVotesCount(Mockito.any(Poll.class),
+                    Mockito.<Collection<Long>>any());
         }
     }
 
     @Test
-    public void testAddIncorrectVotes() {
-        List<Long> pollOptionIds = Arrays.asList(1L, 5L, 9L);
-        List<Long> incorrectPollOptionIds = Arrays.asList(11L, 13L);
-        DateTime endingDate = new DateTime(1999, 1, 1, 1, 1, 1, 1);
-        Poll poll = createPollWithOptions(POLL_ID, pollOptionIds, VOTES_COUNT, endingDate);
+    public void hasVotedShouldAskDaoForCurrentUser() {
+        Poll poll = createPollWithOptions(POLL_ID, Arrays.asList(1L), VOTES_COUNT, null);
+        Mockito.when(pollDao.hasVoted(poll, jcUser)).thenReturn(true);
 
-        Mockito.when(pollDao.get(Mockito.anyLong())).thenReturn(poll);
+        Assert.assertTrue(pollService.hasVoted(poll));
+    }
 
-        Poll resultPoll = pollService.vote(POLL_ID, incorrectPollOptionIds);
+    @Test
+    public void anonymousUserShouldNotBeConsideredAsVoted() {
+        Poll poll = createPollWithOptions(POLL_ID, Arrays.asList(1L), VOTES_COUNT, null);
+        Mockito.when(userService.getCurrentUser()).thenReturn(new AnonymousUser());
 
-        for (PollItem option : resultPoll.getPollItems()) {
-            Assert.assertEquals(option.getVotesCount(), VOTES_COUNT,
-                    "Count of votes should be the same.");
-        }
+        Assert.assertFalse(pollService.hasVoted(poll));
+        Mockito.verify(pollDao, Mockito.never()).hasVoted(Mockito.any(Poll.class), Mockito.any(JCUser.class));
     }
 
     private Poll createPollWithOptions(Long pollId, List<Long> pollOptionIds,
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.transactional;
+
+import org.jtalks.jcommune.model.dao.PostDraftDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.PostDraft;
+import org.jtalks.jcommune.model.entity.Topic;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TransactionalPostDraftServiceTest {
+    @Mock
+    private PostDraftDao postDraftDao;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionalPostDraftService draftService;
+    private Topic topic;
+    private JCUser author;
+
+    @BeforeMethod
+    public void setUp() {
+        initMocks(this);
+        draftService = new TransactionalPostDraftService(postDraftDao, transactionManager);
+        topic = new Topic();
+        topic.setId(1L);
+        author = new JCUser("author", null, null);
+        author.setId(2L);
+    }
+
+    @Test
+    public void newDraftShouldBeWrittenRightAway() {
+        PostDraft draft = draftService.save(topic, author, "content");
+
+        verify(postDraftDao).saveOrUpdate(draft);
+        assertEquals(topic.getDraftForUser(author), draft);
+    }
+
+    @Test
+    public void changesOfExistingDraftShouldWaitForFlush() {
+        PostDraft draft = existingDraft(3L);
+
+        PostDraft saved = draftService.save(topic, author, "new content");
+
+        verify(postDraftDao, never()).saveOrUpdate(any(PostDraft.class));
+        assertEquals(saved.getId(), 3L);
+        assertEquals(saved.getContent(), "new content");
+        assertEquals(draft.getContent(), "content");
+        assertEquals(draftService.getDraft(topic, author).getContent(), "new content");
+    }
+
+    @Test
+    public void flushShouldWriteOnlyLastContentOfDraft() {
+        PostDraft draft = existingDraft(3L);
+        when(postDraftDao.get(3L)).thenReturn(draft);
+        draftService.save(topic, author, "new content");
+        PostDraft saved = draftService.save(topic, author, "the newest content");
+
+        draftService.flush();
+        draftService.flush();
+
+        verify(postDraftDao, times(1)).saveOrUpdate(draft);
+        assertEquals(draft.getContent(), "the newest content");
+        assertEquals(draft.getLastSaved(), saved.getLastSaved());
+    }
+
+    @Test
+    public void flushShouldWriteDraftsInItsOwnTransaction() {
+        PostDraft draft = existingDraft(3L);
+        when(postDraftDao.get(3L)).thenReturn(draft);
+        draftService.save(topic, author, "new content");
+
+        draftService.flush();
+
+        InOrder inOrder = inOrder(transactionManager, postDraftDao);
+        inOrder.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        inOrder.verify(postDraftDao).saveOrUpdate(draft);
+        inOrder.verify(transactionManager).commit(any(TransactionStatus.class));
+    }
+
+    @Test
+    public void flushShouldSkipDraftsThatWereDeleted() {
+        existingDraft(3L);
+        draftService.save(topic, author, "new content");
+
+        draftService.flush();
+
+        verify(postDraftDao).get(3L);
+        verify(postDraftDao, never()).saveOrUpdate(any(PostDraft.class));
+    }
+
+    @Test
+    public void draftShouldBeWrittenRightAwayIfTooManyDraftsArePending() {
+        draftService = new TransactionalPostDraftService(postDraftDao, transactionManager, 1);
+        Topic anotherTopic = new Topic();
+        anotherTopic.setId(5L);
+        PostDraft anotherDraft = new PostDraft("content", author);
+        anotherTopic.addDraft(anotherDraft);
+        when(postDraftDao.getDraft(anotherTopic, author)).thenReturn(anotherDraft);
+        draftService.save(anotherTopic, author, "pending content");
+        PostDraft draft = existingDraft(3L);
+
+        draftService.save(topic, author, "new content");
+
+        verify(postDraftDao).saveOrUpdate(draft);
+        assertEquals(draft.getContent(), "new content");
+    }
+
+    @Test
+    public void pendingChangesShouldNotBeShownForPublishedDraft() {
+        PostDraft draft = existingDraft(3L);
+        draftService.save(topic, author, "new content");
+
+        topic.removeDraft(draft);
+        when(postDraftDao.getDraft(topic, author)).thenReturn(null);
+
+        assertNull(draftService.getDraft(topic, author));
+    }
+
+    private PostDraft existingDraft(long id) {
+        PostDraft draft = new PostDraft("content", author);
+        draft.setId(id);
+        topic.addDraft(draft);
+        when(postDraftDao.getDraft(topic, author)).thenReturn(draft);
+        return draft;
+    }
+}
@@ -15,10 +15,12 @@
 package org.jtalks.jcommune.service.transactional;
 
 import org.jtalks.common.model.dao.Crud;
-import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.common.security.SecurityService;
+import org.jtalks.jcommune.model.dao.BranchDao;
 import org.jtalks.jcommune.model.dao.PostDao;
+import org.jtalks.jcommune.model.dao.PostDraftDao;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.*;
@@ -31,8 +33,11 @@ import org.jtalks.jcommune.service.BranchLastPostService;
 import org.jtalks.jcommune.service.PostService;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.MentionedUsers;
 import org.jtalks.jcommune.service.nontransactional.NotificationService;
+import org.jtalks.jcommune.service.nontransactional.PostRatingService;
 import org.jtalks.jcommune.service.security.AclClassName;
 import org.jtalks.jcommune.service.security.PermissionService;
 import org.mockito.Matchers;
@@ -41,6 +46,7 @@ import org.mockito.Mockito;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -57,6 +63,7 @@ import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -83,6 +90,8 @@ public class TransactionalPostServiceTest {
     @Mock
     private TopicDao topicDao;
     @Mock
+    private BranchDao branchDao;
+    @Mock
     private UserService userService;
     @Mock
     private BranchLastPostService branchLastPostService;
@@ -97,7 +106,17 @@ public class TransactionalPostServiceTest {
     @Mock
     private TopicPlugin topicPlugin;
     @Mock
-    private GenericDao<PostDraft> postDraftDao;
+    private PostDraftDao postDraftDao;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ForumStatisticsService forumStatisticsService;
+    @Mock
+    private PostRatingService postRatingService;
+    @Mock
+    private FeedCacheService feedCacheService;
+    @Mock
+    private SubscriptionDao subscriptionDao;
 
     private PostService postService;
 
@@ -116,13 +135,19 @@ public class TransactionalPostServiceTest {
         postService = new TransactionalPostService(
                 postDao,
                 topicDao,
+                branchDao,
                 securityService,
                 notificationService,
                 userService,
                 branchLastPostService,
                 permissionService,
                 pluginLoader,
-                postDraftDao);
+                postDraftDao,
+                forumStatisticsService,
+                postRatingService,
+                new TransactionalPostDraftService(postDraftDao, transactionManager),
+                feedCacheService,
+                subscriptionDao);
     }
 
     @Test
@@ -162,6 +187,7 @@ public class TransactionalPostServiceTest {
         assertEquals(post.getPostContent(), newBody);
 
         verify(postDao).saveOrUpdate(post);
+        verify(feedCacheService).invalidate();
 
         verify(userService).notifyAndMarkNewlyMentionedUsers(post);
     }
@@ -204,14 +230,16 @@ public class TransactionalPostServiceTest {
         topic.recalculateModificationDate();
         Branch branch = new Branch("branch", "branch description");
         topic.setBranch(branch);
-        user.setPostCount(2);
 
         postService.deletePost(postForDelete);
 
-        assertEquals(user.getPostCount(), 1);
+        verify(postDao).changePostCountOfAuthor(user, -1);
         assertEquals(topic.getModificationDate(), topic.getFirstPost().getCreationDate());
         verify(topicDao).saveOrUpdate(topic);
+        verify(branchDao).changeStatistics(branch, 0, -1);
+        verify(forumStatisticsService).changePostsCount(-1);
         verify(securityService).deleteFromAcl(postForDelete);
+        verify(feedCacheService).invalidate();
         verify(notificationService).subscribedEntityChanged(postForDelete);
     }
 
@@ -242,11 +270,10 @@ public class TransactionalPostServiceTest {
 
         Branch branch = new Branch("branch", "branch description");
         topic.setBranch(branch);
-        user.setPostCount(2);
 
         postService.deletePost(postForDelete);
 
-        assertEquals(user.getPostCount(), 1);
+        verify(postDao).changePostCountOfAuthor(user, -1);
         assertEquals(topic.getModificationDate(), topic.getFirstPost().getCreationDate());
         verify(topicDao).saveOrUpdate(topic);
         verify(securityService).deleteFromAcl(postForDelete);
@@ -351,25 +378,18 @@ public class TransactionalPostServiceTest {
 
     @Test
     public void testLastPostInTopicPageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(2);
 
         assertEquals(postService.calculatePageForPost(post), 2);
     }
 
     @Test
     public void testFirstPostInTopicPageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(post);
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(0);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
@@ -377,56 +397,51 @@ public class TransactionalPostServiceTest {
     @Test
     public void testFirstPostInTopicPageCalculationWithNoUser() {
         currentUser.setPageSize(JCUser.DEFAULT_PAGE_SIZE);
-
-        Topic topic = new Topic(user, "");
         Post post = new Post(user, "");
-        topic.addPost(post);
+        when(postDao.getPostIndexInTopic(post)).thenReturn(0);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
 
     @Test
     public void testLastPostOnFirstPagePageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(user, "");
+        currentUser.setPageSize(2);
         Post post = new Post(user, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
+        when(postDao.getPostIndexInTopic(post)).thenReturn(1);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
 
     @Test
     public void testLastPostOnPagePageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(new Post(null, null));
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(3);
 
         assertEquals(postService.calculatePageForPost(post), 2);
     }
 
     @Test
     public void testPostInCenterOfTopicPageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
-        topic.addPost(new Post(null, null));
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(1);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
 
+    @Test
+    public void pageCalculationShouldNotLoadPostsOfTopic() {
+        currentUser.setPageSize(2);
+        Topic topic = mock(Topic.class);
+        Post post = new Post(user, "");
+        post.setTopic(topic);
+        when(postDao.getPostIndexInTopic(post)).thenReturn(4);
+
+        assertEquals(postService.calculatePageForPost(post), 3);
+        verify(topic, never()).getPosts();
+    }
+
     @Test
     public void testGetPosts() {
         String pageNumber = "50";
@@ -445,6 +460,36 @@ public class TransactionalPostServiceTest {
         verify(postDao).getPosts(Matchers.any(Topic.class), Matchers.any(PageRequest.class));
     }
 
+    @Test
+    public void getRepliesByRatingShouldReturnRepliesFromDao() {
+        Post firstPost = new Post(user, "question");
+        List<Post> expected = Arrays.asList(new Post(user, "answer"));
+        when(postDao.getRepliesByRating(firstPost, 10)).thenReturn(expected);
+
+        List<Post> actual = postService.getRepliesByRating(firstPost, 10);
+
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void getFirstPostShouldReturnFirstPostFromDao() {
+        Topic topic = new Topic(user, "title");
+        Post expected = new Post(user, "question");
+        when(postDao.getFirstPost(topic)).thenReturn(expected);
+
+        assertEquals(postService.getFirstPost(topic), expected);
+    }
+
+    @Test
+    public void postCountsShouldBeCountedByDao() {
+        Topic topic = new Topic(user, "title");
+        when(postDao.getPostCount(topic)).thenReturn(5);
+        when(postDao.getUserPostCount(topic, user)).thenReturn(2);
+
+        assertEquals(postService.getPostCount(topic), 5);
+        assertEquals(postService.getUserPostCount(topic, user), 2);
+    }
+
     @Test
     public void testGetLastPostForBranch() {
         Branch postBranch = new Branch(null, null);
@@ -621,7 +666,8 @@ public class TransactionalPostServiceTest {
 
         postService.addComment(POST_ID, Collections.EMPTY_MAP, "text");
 
-        assertTrue(post.getTopic().getSubscribers().contains(user));
+        verify(subscriptionDao).addSubscriber(post.getTopic(), user);
+        assertFalse(post.getTopic().getSubscribers().contains(user));
 
     }
 
@@ -638,7 +684,7 @@ public class TransactionalPostServiceTest {
 
         postService.addComment(POST_ID, Collections.EMPTY_MAP, "text");
 
-        assertFalse(post.getTopic().getSubscribers().contains(user));
+        verify(subscriptionDao, never()).addSubscriber(any(Topic.class), any(JCUser.class));
 
     }
 
@@ -664,11 +710,12 @@ public class TransactionalPostServiceTest {
 
         when(userService.getCurrentUser()).thenReturn(user);
 
-        Post result = postService.vote(post, vote);
+        postService.vote(post, vote);
 
-        assertTrue(result.getVotes().contains(vote));
-        verify(postDao).saveOrUpdate(post);
-        verify(postDao).changeRating(1L, 1);
+        assertEquals(vote.getUser(), user);
+        assertEquals(vote.getPost(), post);
+        verify(postDao).saveVote(vote);
+        verify(postRatingService).changeRating(1L, 1);
     }
 
     @Test
@@ -678,16 +725,17 @@ public class TransactionalPostServiceTest {
         JCUser user = new JCUser("username", null, null);
         PostVote vote1 = new PostVote(user);
         vote1.setVotedUp(false);
-        post.putVote(vote1);
         PostVote vote2 = new PostVote();
         vote2.setVotedUp(true);
 
         when(userService.getCurrentUser()).thenReturn(user);
+        when(postDao.getVote(post, user)).thenReturn(vote1);
 
         postService.vote(post, vote2);
 
-        verify(postDao).saveOrUpdate(post);
-        verify(postDao).changeRating(1L, 2);
+        assertTrue(vote1.isVotedUp());
+        verify(postDao).saveVote(vote1);
+        verify(postRatingService).changeRating(1L, 2);
     }
 
     @Test
@@ -700,11 +748,10 @@ public class TransactionalPostServiceTest {
 
         when(userService.getCurrentUser()).thenReturn(user);
 
-        Post result = postService.vote(post, vote);
+        postService.vote(post, vote);
 
-        assertTrue(result.getVotes().contains(vote));
-        verify(postDao).saveOrUpdate(post);
-        verify(postDao).changeRating(1L, -1);
+        verify(postDao).saveVote(vote);
+        verify(postRatingService).changeRating(1L, -1);
     }
 
     @Test
@@ -714,16 +761,17 @@ public class TransactionalPostServiceTest {
         JCUser user = new JCUser("username", null, null);
         PostVote vote1 = new PostVote(user);
         vote1.setVotedUp(true);
-        post.putVote(vote1);
         PostVote vote2 = new PostVote();
         vote2.setVotedUp(false);
 
         when(userService.getCurrentUser()).thenReturn(user);
+        when(postDao.getVote(post, user)).thenReturn(vote1);
 
         postService.vote(post, vote2);
 
-        verify(postDao).saveOrUpdate(post);
-        verify(postDao).changeRating(1L, -2);
+        assertFalse(vote1.isVotedUp());
+        verify(postDao).saveVote(vote1);
+        verify(postRatingService).changeRating(1L, -2);
     }
 
     @Test(expectedExceptions = AccessDeniedException.class)
@@ -733,12 +781,11 @@ public class TransactionalPostServiceTest {
         JCUser user = new JCUser("username", null, null);
         PostVote vote = new PostVote(user);
         vote.setVotedUp(true);
-        post.putVote(vote);
 
         when(userService.getCurrentUser()).thenReturn(user);
+        when(postDao.getVote(post, user)).thenReturn(vote);
 
         postService.vote(post, vote);
-
     }
 
     @Test
@@ -751,7 +798,8 @@ public class TransactionalPostServiceTest {
 
         PostDraft draft = postService.saveOrUpdateDraft(topic, content);
 
-        verify(topicDao).saveOrUpdate(topic);
+        verify(postDraftDao).saveOrUpdate(draft);
+        verify(topicDao, never()).saveOrUpdate(topic);
         assertEquals(draft.getContent(), content);
         assertTrue(topic.getDrafts().contains(draft));
     }
@@ -762,19 +810,27 @@ public class TransactionalPostServiceTest {
         JCUser currentUser = new JCUser("username", null, null);
         PostDraft draft = new PostDraft("content", currentUser);
         topic.addDraft(draft);
+        when(postDraftDao.getDraft(topic, currentUser)).thenReturn(draft);
         String newContent = "Something amazing";
 
         when(userService.getCurrentUser()).thenReturn(currentUser);
 
         PostDraft result = postService.saveOrUpdateDraft(topic, newContent);
 
-        verify(topicDao).saveOrUpdate(topic);
+        verify(topicDao, never()).saveOrUpdate(topic);
+        verify(postDraftDao, never()).saveOrUpdate(draft);
         assertEquals(result, draft);
         assertEquals(result.getContent(), newContent);
+        assertEquals(postService.getDraft(topic).getContent(), newContent);
         assertTrue(topic.getDrafts().contains(result));
         assertEquals(topic.getDrafts().size(), 1);
     }
 
+    @Test
+    public void getDraftShouldReturnNullIfUserHasNoDraftInTopic() {
+        assertNull(postService.getDraft(new Topic()));
+    }
+
     @Test
     public void saverOrUpdateDraftShouldNotModifyCounterOfUserPosts() {
         Topic topic = new Topic();
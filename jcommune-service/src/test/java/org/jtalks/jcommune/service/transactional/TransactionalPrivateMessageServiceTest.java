@@ -15,10 +15,9 @@
 package org.jtalks.jcommune.service.transactional;
 
 import org.jtalks.common.model.entity.Property;
-import org.jtalks.common.model.entity.User;
 import org.jtalks.common.model.permissions.GeneralPermission;
 import org.jtalks.common.security.SecurityService;
-import org.jtalks.common.security.acl.builders.CompoundAclBuilder;
+import org.jtalks.common.security.acl.AclManager;
 import org.jtalks.jcommune.model.dao.PrivateMessageDao;
 import org.jtalks.jcommune.model.dao.PropertyDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
@@ -30,20 +29,24 @@ import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.service.nontransactional.MailService;
 import org.jtalks.jcommune.service.nontransactional.UserDataCacheService;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.security.acls.model.Permission;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
 import java.util.List;
 
-import static org.jtalks.jcommune.service.TestUtils.mockAclBuilder;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -74,6 +77,8 @@ public class TransactionalPrivateMessageServiceTest {
     private MailService mailService;
     @Mock
     private PropertyDao propertyDao;
+    @Mock
+    private AclManager aclManager;
     private JCommuneProperty sendingNotificationsEnabledProperty = JCommuneProperty.SENDING_NOTIFICATIONS_ENABLED;
 
     private TransactionalPrivateMessageService pmService;
@@ -81,7 +86,6 @@ public class TransactionalPrivateMessageServiceTest {
     private static final long PM_ID = 1L;
     private static final String USERNAME = "username";
     private static final JCUser JC_USER = new JCUser(USERNAME, "123@123.ru", "123");
-    private CompoundAclBuilder<User> aclBuilder;
 
     private static final String DRAFTS = "drafts";
     private static final String OUTBOX = "outbox";
@@ -94,9 +98,8 @@ public class TransactionalPrivateMessageServiceTest {
         initMocks(this);
         sendingNotificationsEnabledProperty.setName(PROPERTY_NAME);
         sendingNotificationsEnabledProperty.setPropertyDao(propertyDao);
-        aclBuilder = mockAclBuilder();
         pmService = new TransactionalPrivateMessageService(pmDao, securityService, userService, userDataCache,
-                mailService, sendingNotificationsEnabledProperty);
+                mailService, sendingNotificationsEnabledProperty, aclManager);
         when(userService.getCurrentUser()).thenReturn(user);
     }
 
@@ -131,7 +134,6 @@ public class TransactionalPrivateMessageServiceTest {
     @Test
     public void testSendMessageNotificationEnabled() throws NotFoundException {
 
-        when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
         when(propertyDao.getByName(PROPERTY_NAME)).
                 thenReturn(new Property(PROPERTY_NAME, String.valueOf(SENDING_NOTIFICATIONS_ENABLED)));
 
@@ -142,14 +144,13 @@ public class TransactionalPrivateMessageServiceTest {
         assertEquals(pm.getStatus(), PrivateMessageStatus.SENT);
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
-        verify(aclBuilder, times(2)).grant(GeneralPermission.READ);
+        verifyGranted(pm, 2, GeneralPermission.READ);
         verify(propertyDao).getByName(PROPERTY_NAME);
         verify(mailService, times(1)).sendReceivedPrivateMessageNotification(JC_USER, pm);
     }
 
     @Test
     public void testSendMessageNotificationDisabled() throws NotFoundException {
-        when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
 
         when(propertyDao.getByName(PROPERTY_NAME)).
                 thenReturn(new Property(PROPERTY_NAME, String.valueOf(SENDING_NOTIFICATIONS_DISABLED)));
@@ -161,7 +162,7 @@ public class TransactionalPrivateMessageServiceTest {
         assertEquals(pm.getStatus(), PrivateMessageStatus.SENT);
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
-        verify(aclBuilder, times(2)).grant(GeneralPermission.READ);
+        verifyGranted(pm, 2, GeneralPermission.READ);
         verify(propertyDao).getByName(PROPERTY_NAME);
         verify(mailService, times(0)).sendReceivedPrivateMessageNotification(JC_USER,pm);
     }
@@ -184,14 +185,12 @@ public class TransactionalPrivateMessageServiceTest {
     public void testSaveDraft() throws NotFoundException {
         JCUser recipient = new JCUser("name", "example@example.com", "pwd");
 
-        when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
 
         pmService.saveDraft(PM_ID, recipient, "title", "body", JC_USER);
 
-        verify(pmDao).saveOrUpdate(any(PrivateMessage.class));
-        verify(aclBuilder).grant(GeneralPermission.WRITE);
-        verify(aclBuilder).grant(GeneralPermission.READ);
-        verify(aclBuilder, times(2)).on(any(PrivateMessage.class));
+        ArgumentCaptor<PrivateMessage> draft = ArgumentCaptor.forClass(PrivateMessage.class);
+        verify(pmDao).saveOrUpdate(draft.capture());
+        verifyGranted(draft.getValue(), 1, GeneralPermission.READ, GeneralPermission.WRITE);
     }
 
     @Test
@@ -234,7 +233,6 @@ public class TransactionalPrivateMessageServiceTest {
 
     @Test
     public void testSendDraftNotificationEnabled() throws NotFoundException {
-        when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
         when(propertyDao.getByName(PROPERTY_NAME)).
                 thenReturn(new Property(PROPERTY_NAME, String.valueOf(SENDING_NOTIFICATIONS_ENABLED)));
 
@@ -246,14 +244,13 @@ public class TransactionalPrivateMessageServiceTest {
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
         verify(securityService).deleteFromAcl(pm);
-        verify(aclBuilder, times(2)).grant(GeneralPermission.READ);
+        verifyGranted(pm, 2, GeneralPermission.READ);
         verify(propertyDao).getByName(PROPERTY_NAME);
         verify(mailService, times(1)).sendReceivedPrivateMessageNotification(JC_USER, pm);
     }
 
     @Test
     public void testSendDraftNotificationDisabled() throws NotFoundException {
-        when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
         when(propertyDao.getByName(PROPERTY_NAME)).
                 thenReturn(new Property(PROPERTY_NAME, String.valueOf(SENDING_NOTIFICATIONS_DISABLED)));
 
@@ -265,7 +262,7 @@ public class TransactionalPrivateMessageServiceTest {
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
         verify(securityService).deleteFromAcl(pm);
-        verify(aclBuilder, times(2)).grant(GeneralPermission.READ);
+        verifyGranted(pm, 2, GeneralPermission.READ);
         verify(propertyDao).getByName(PROPERTY_NAME);
         verify(mailService, times(0)).sendReceivedPrivateMessageNotification(JC_USER, pm);
     }
@@ -366,108 +363,144 @@ public class TransactionalPrivateMessageServiceTest {
 
     @Test
     public void testDeleteDrafts() throws NotFoundException {
-        PrivateMessage message = new PrivateMessage(null, null, null, null);
-        message.setStatus(PrivateMessageStatus.DRAFT);
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(pmDao.deleteDrafts(user, ids)).thenReturn(2);
 
-        when(pmDao.get(1L)).thenReturn(message);
-        when(pmDao.get(2L)).thenReturn(message);
-        when(pmDao.isExist(1L)).thenReturn(true);
-        when(pmDao.isExist(2L)).thenReturn(true);
+        String result = pmService.delete(ids);
 
-        String resultSingle = pmService.delete(Arrays.asList(1L));
+        assertEquals(result, DRAFTS);
+        verify(pmDao).deleteDrafts(user, ids);
+        verify(pmDao, never()).deleteRemovedByRecipient(any(JCUser.class), anyListOf(Long.class));
+        verify(pmDao, never()).markAsDeletedFromInbox(any(JCUser.class), anyListOf(Long.class));
+    }
 
-        assertEquals(resultSingle, DRAFTS);
-        verify(pmDao).delete(any(PrivateMessage.class));
+    @Test
+    public void testDeleteFromInbox() throws NotFoundException {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+        when(pmDao.deleteRemovedBySender(user, ids)).thenReturn(1);
+        when(pmDao.markAsDeletedFromInbox(user, ids)).thenReturn(2);
 
-        String resultMultiple = pmService.delete(Arrays.asList(1L, 2L));
+        String result = pmService.delete(ids);
 
-        assertEquals(resultMultiple, DRAFTS);
-        verify(pmDao, times(3)).delete(any(PrivateMessage.class));
+        assertEquals(result, INBOX);
+        verify(pmDao).deleteDrafts(user, ids);
+        verify(pmDao, never()).delete(any(PrivateMessage.class));
+        verify(userDataCache).removeNewPmCountFor(USERNAME);
     }
 
     @Test
-    public void testDeleteFromInbox() throws NotFoundException {
-        JCUser otherUser = new JCUser(USERNAME, null, null);
+    public void testDeleteFromOutbox() throws NotFoundException {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+        when(pmDao.deleteRemovedByRecipient(user, ids)).thenReturn(1);
+        when(pmDao.markAsDeletedFromOutbox(user, ids)).thenReturn(2);
 
-        PrivateMessage message1 = new PrivateMessage(user, otherUser, null, null);
-        message1.setStatus(PrivateMessageStatus.SENT);
+        String result = pmService.delete(ids);
 
-        PrivateMessage message2 = new PrivateMessage(user, otherUser, null, null);
-        message2.setStatus(PrivateMessageStatus.SENT);
+        assertEquals(result, OUTBOX);
+        verify(userDataCache, never()).removeNewPmCountFor(anyString());
+    }
+
+    @Test
+    public void testDeleteRemovesMessagesBeforeMarkingSentOnes() throws NotFoundException {
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(pmDao.markAsDeletedFromOutbox(user, ids)).thenReturn(2);
 
-        PrivateMessage message3 = new PrivateMessage(user, otherUser, null, null);
-        message3.setStatus(PrivateMessageStatus.DELETED_FROM_OUTBOX);
+        pmService.delete(ids);
 
+        InOrder inOrder = inOrder(pmDao);
+        inOrder.verify(pmDao).deleteRemovedByRecipient(user, ids);
+        inOrder.verify(pmDao).deleteRemovedBySender(user, ids);
+        inOrder.verify(pmDao).markAsDeletedFromOutbox(user, ids);
+        inOrder.verify(pmDao).markAsDeletedFromInbox(user, ids);
+    }
 
-        when(pmDao.get(1L)).thenReturn(message1);
-        when(pmDao.get(2L)).thenReturn(message2);
-        when(pmDao.get(3L)).thenReturn(message3);
-        when(pmDao.isExist(1L)).thenReturn(true);
-        when(pmDao.isExist(2L)).thenReturn(true);
-        when(pmDao.isExist(3L)).thenReturn(true);
+    @Test
+    public void testDeleteIgnoresDuplicatedIds() throws NotFoundException {
+        when(pmDao.deleteDrafts(user, Arrays.asList(1L, 2L))).thenReturn(2);
 
-        String resultSingle = pmService.delete(Arrays.asList(1L));
+        String result = pmService.delete(Arrays.asList(1L, 2L, 1L));
 
-        assertEquals(resultSingle, INBOX);
-        assertEquals(message1.getStatus(), PrivateMessageStatus.DELETED_FROM_INBOX);
-        verify(pmDao, never()).delete(any(PrivateMessage.class));
+        assertEquals(result, DRAFTS);
+    }
 
-        String resultMultiple = pmService.delete(Arrays.asList(2L, 3L));
+    @Test(expectedExceptions = NotFoundException.class)
+    public void testDeleteNotFound() throws NotFoundException {
+        List<Long> ids = Arrays.asList(1L, 1234L, 2L);
+        when(pmDao.deleteDrafts(user, ids)).thenReturn(2);
 
-        assertEquals(resultMultiple, INBOX);
-        assertEquals(message2.getStatus(), PrivateMessageStatus.DELETED_FROM_INBOX);
-        verify(pmDao, times(1)).delete(any(PrivateMessage.class));
+        pmService.delete(ids);
     }
 
     @Test
-    public void testDeleteFromOutbox() throws NotFoundException {
-        JCUser otherUser = new JCUser(USERNAME, null, null);
+    public void testDeleteAllFromInbox() {
+        when(pmDao.markAsDeletedFromInbox(user, null)).thenReturn(5);
 
-        PrivateMessage message1 = new PrivateMessage(otherUser, user, null, null);
-        message1.setStatus(PrivateMessageStatus.SENT);
+        pmService.deleteAll(INBOX);
 
-        PrivateMessage message2 = new PrivateMessage(otherUser, user, null, null);
-        message2.setStatus(PrivateMessageStatus.SENT);
+        verify(pmDao).deleteRemovedBySender(user, null);
+        verify(pmDao).markAsDeletedFromInbox(user, null);
+        verify(userDataCache).removeNewPmCountFor(USERNAME);
+    }
 
-        PrivateMessage message3 = new PrivateMessage(otherUser, user, null, null);
-        message3.setStatus(PrivateMessageStatus.DELETED_FROM_INBOX);
+    @Test
+    public void testDeleteAllFromOutbox() {
+        pmService.deleteAll(OUTBOX);
 
-        when(pmDao.get(1L)).thenReturn(message1);
-        when(pmDao.get(2L)).thenReturn(message2);
-        when(pmDao.get(3L)).thenReturn(message3);
-        when(pmDao.isExist(1L)).thenReturn(true);
-        when(pmDao.isExist(2L)).thenReturn(true);
-        when(pmDao.isExist(3L)).thenReturn(true);
+        verify(pmDao).deleteRemovedByRecipient(user, null);
+        verify(pmDao).markAsDeletedFromOutbox(user, null);
+    }
 
-        String resultSingle = pmService.delete(Arrays.asList(1L));
+    @Test
+    public void testDeleteAllDrafts() {
+        pmService.deleteAll(DRAFTS);
 
-        assertEquals(resultSingle, OUTBOX);
-        assertEquals(message1.getStatus(), PrivateMessageStatus.DELETED_FROM_OUTBOX);
-        verify(pmDao, never()).delete(any(PrivateMessage.class));
+        verify(pmDao).deleteDrafts(user, null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDeleteAllFromUnknownFolder() {
+        pmService.deleteAll("trash");
+    }
 
-        String resultMultiple = pmService.delete(Arrays.asList(2L, 3L));
+    @Test
+    public void testMarkAsRead() {
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(pmDao.markAsRead(user, ids)).thenReturn(2);
 
-        assertEquals(resultMultiple, OUTBOX);
-        assertEquals(message2.getStatus(), PrivateMessageStatus.DELETED_FROM_OUTBOX);
-        verify(pmDao, times(1)).delete(any(PrivateMessage.class));
+        pmService.markAsRead(ids);
+
+        verify(pmDao).markAsRead(user, ids);
+        verify(userDataCache).removeNewPmCountFor(USERNAME);
     }
 
-    @Test(expectedExceptions = NotFoundException.class)
-    public void testDeleteNotFound() throws NotFoundException {
-        PrivateMessage message1 = new PrivateMessage(user, user, null, null);
-        message1.setStatus(PrivateMessageStatus.DRAFT);
+    @Test
+    public void testMarkAsReadAlreadyRead() {
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(pmDao.markAsRead(user, ids)).thenReturn(0);
 
-        PrivateMessage message2 = new PrivateMessage(user, user, null, null);
-        message2.setStatus(PrivateMessageStatus.DRAFT);
+        pmService.markAsRead(ids);
 
-        when(pmDao.get(1L)).thenReturn(message1);
-        when(pmDao.get(2L)).thenReturn(message2);
-        when(pmDao.isExist(1L)).thenReturn(true);
-        when(pmDao.isExist(2L)).thenReturn(true);
+        verify(userDataCache, never()).removeNewPmCountFor(anyString());
+    }
 
-        String result = pmService.delete(Arrays.asList(1L, 1234L, 2L));
-        assertEquals(result, DRAFTS);
-        verify(pmDao, times(2)).delete(any(PrivateMessage.class));
+    @Test
+    public void testMarkAllAsRead() {
+        when(pmDao.markAsRead(user, null)).thenReturn(3);
+
+        pmService.markAllAsRead();
+
+        verify(pmDao).markAsRead(user, null);
+        verify(userDataCache).removeNewPmCountFor(USERNAME);
+    }
+
+    /**
+     * Checks that the permissions were granted to the given number of users with one call.
+     */
+    @SuppressWarnings("unchecked")
+    private void verifyGranted(PrivateMessage pm, int userCount, GeneralPermission... permissions) {
+        ArgumentCaptor<List> sids = ArgumentCaptor.forClass(List.class);
+        verify(aclManager).grant(sids.capture(), eq(Arrays.<Permission>asList(permissions)), eq(pm));
+        assertEquals(sids.getValue().size(), userCount);
     }
 
     @Test
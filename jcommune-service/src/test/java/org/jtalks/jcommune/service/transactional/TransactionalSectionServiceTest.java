@@ -23,6 +23,7 @@ import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.service.BranchService;
 import org.jtalks.jcommune.service.SectionService;
 import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.nontransactional.VisibleBranchesCacheService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -33,7 +34,9 @@ import org.testng.annotations.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -61,6 +64,8 @@ public class TransactionalSectionServiceTest {
 
     @Mock
     private PostDao postDao;
+    @Mock
+    private VisibleBranchesCacheService visibleBranchesCacheService;
 
     @BeforeMethod
     public void setUp() throws Exception {
@@ -70,7 +75,8 @@ public class TransactionalSectionServiceTest {
         userService = mock(UserService.class);
         topicDao = mock(TopicDao.class);
 
-        sectionService = new TransactionalSectionService(sectionDao, branchService, userService, topicDao, postDao);
+        sectionService = new TransactionalSectionService(sectionDao, branchService, userService, topicDao, postDao,
+                visibleBranchesCacheService);
     }
 
     @Test
@@ -86,6 +92,17 @@ public class TransactionalSectionServiceTest {
         verify(sectionDao).get(SECTION_ID);
     }
 
+    @Test
+    public void warmUpCacheShouldLoadBranchesOfAllSections() {
+        Section section = mock(Section.class);
+        when(section.getBranches()).thenReturn(new ArrayList<Branch>());
+        when(sectionDao.getAll()).thenReturn(Arrays.asList(section));
+
+        sectionService.warmUpCache();
+
+        verify(section).getBranches();
+    }
+
     @Test(expectedExceptions = {NotFoundException.class})
     public void testGetIncorrectId() throws NotFoundException {
         when(sectionDao.isExist(SECTION_ID)).thenReturn(false);
@@ -111,33 +128,69 @@ public class TransactionalSectionServiceTest {
         Topic topic = ObjectsFactory.getTopic(user, 1);
         org.jtalks.jcommune.model.entity.Branch topicBranch = ObjectsFactory.getDefaultBranchWithTopic(100L, topic);
         Section sectionWithAvaliableBranches = ObjectsFactory.getDefaultSectionWithBranches();
+        sectionWithAvaliableBranches.setId(3);
+        Section sectionWithTopicBranch = ObjectsFactory.getDefaultSectionWithBranch(topicBranch);
+        sectionWithTopicBranch.setId(2);
+        Section emptySection = ObjectsFactory.getDefaultSection();
+        emptySection.setId(1);
 
         List<Section> allSections = new ArrayList<>();
-        allSections.add(ObjectsFactory.getDefaultSection());
-        allSections.add(ObjectsFactory.getDefaultSectionWithBranch(topicBranch));
+        allSections.add(emptySection);
+        allSections.add(sectionWithTopicBranch);
         allSections.add(sectionWithAvaliableBranches);
 
         List<Section> expectedSections = new ArrayList<>();
         expectedSections.add(sectionWithAvaliableBranches);
 
+        Map<Long, List<Long>> visibleBranchIds = new HashMap<>();
+        visibleBranchIds.put(sectionWithTopicBranch.getId(), Arrays.asList(topicBranch.getId()));
+        visibleBranchIds.put(sectionWithAvaliableBranches.getId(), Arrays.asList(1L, 2L, 3L));
         when(sectionDao.getAll()).thenReturn(allSections);
         when(topicDao.get(TOPIC_ID)).thenReturn(topic);
         when(userService.getCurrentUser()).thenReturn(user);
-        when(sectionDao.getCountAvailableBranches(user, new ArrayList<Branch>())).thenReturn(0L);
-        when(sectionDao.getCountAvailableBranches(user, sectionWithAvaliableBranches.getBranches())).thenReturn(3L);
+        when(sectionDao.getVisibleBranchIdsOfSections(user)).thenReturn(visibleBranchIds);
 
         List<Section> actualSectionList = sectionService.getAllAvailableSections(TOPIC_ID);
         assertEquals(actualSectionList, expectedSections, "Should return all available sections.");
     }
+
+    @Test
+    public void visibleBranchesShouldBeLoadedOnceAndCachedForGroupsOfUser() {
+        JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
+        Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
+        Map<Long, List<Long>> visibleBranchIds = Collections.singletonMap(SECTION_ID, Arrays.asList(42L));
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(sectionDao.getVisibleBranchIdsOfSections(user)).thenReturn(visibleBranchIds);
+
+        sectionService.ifSectionIsVisible(section);
+
+        verify(visibleBranchesCacheService).put(user, visibleBranchIds);
+    }
+
+    @Test
+    public void cachedVisibleBranchesShouldBeUsedWithoutQueries() {
+        JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
+        Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
+        List<Long> branchIds = Arrays.asList(42L);
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(visibleBranchesCacheService.get(user)).thenReturn(Collections.singletonMap(SECTION_ID, branchIds));
+
+        sectionService.ifSectionIsVisible(section);
+        sectionService.getLastPostsForSection(section, 42);
+
+        verify(sectionDao, never()).getVisibleBranchIdsOfSections(any(JCUser.class));
+        verify(postDao).getLastPostsFor(branchIds, 42);
+    }
     
     @Test
     public void testPrepareSectionsForView() {
         List<Section> sections = Arrays.asList(new Section(SECTION_NAME), new Section(SECTION_NAME));
-        int sectionSize = sections.size();
-        
+
         sectionService.prepareSectionsForView(sections);
 
-        verify(branchService, Mockito.times(sectionSize))
+        verify(branchService, Mockito.times(1))
             .fillStatisticInfo(Mockito.anyListOf(Branch.class));
     }
     
@@ -206,10 +259,10 @@ public class TransactionalSectionServiceTest {
     @Test(expectedExceptions = AccessDeniedException.class)
     public void testCheckAccessForVisibleException()throws AccessDeniedException{
         JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
-        List<Branch> branches = new ArrayList<>();
         Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
         when(userService.getCurrentUser()).thenReturn(user);
-        when(sectionDao.getCountAvailableBranches(user,branches)).thenReturn(0L);
+        when(sectionDao.getVisibleBranchIdsOfSections(user)).thenReturn(new HashMap<Long, List<Long>>());
 
         sectionService.ifSectionIsVisible(section);
     }
@@ -217,10 +270,11 @@ public class TransactionalSectionServiceTest {
     @Test
     public void testCheckAccessForVisibleNoException()throws AccessDeniedException{
         JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
-        List<Branch> branches = new ArrayList<>();
         Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
         when(userService.getCurrentUser()).thenReturn(user);
-        when(sectionDao.getCountAvailableBranches(user,branches)).thenReturn(1L);
+        when(sectionDao.getVisibleBranchIdsOfSections(user))
+                .thenReturn(Collections.singletonMap(SECTION_ID, Arrays.asList(42L)));
 
         sectionService.ifSectionIsVisible(section);
     }
@@ -230,8 +284,10 @@ public class TransactionalSectionServiceTest {
         final int count = 42;
         JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
         Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
         when(userService.getCurrentUser()).thenReturn(user);
-        when(sectionDao.getAvailableBranchIds(eq(user), anyList())).thenReturn(Collections.<Long>emptyList());
+        when(sectionDao.getVisibleBranchIdsOfSections(user))
+                .thenReturn(Collections.singletonMap(SECTION_ID, Arrays.asList(42L)));
         when(postDao.getLastPostsFor(anyList(), eq(count))).thenReturn(Collections.<Post>emptyList());
 
         List<Post> posts = sectionService.getLastPostsForSection(section, count);
@@ -239,11 +295,26 @@ public class TransactionalSectionServiceTest {
         assertEquals(posts.size(), 0);
     }
 
+    @Test
+    public void getLastPostsForSectionShouldNotQueryPostsWhenNoBranchesAreVisible() {
+        JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
+        Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(sectionDao.getVisibleBranchIdsOfSections(user)).thenReturn(new HashMap<Long, List<Long>>());
+
+        List<Post> posts = sectionService.getLastPostsForSection(section, 42);
+
+        assertEquals(posts.size(), 0);
+        verify(postDao, never()).getLastPostsFor(anyList(), anyInt());
+    }
+
     @Test
     public void getLastPostsForSectionShouldReturnListOfTheLatestPosts() {
         final int count = 42;
         JCUser user = new JCUser(USER_NAME, EMAIL, USER_PASSWORD);
         Section section = new Section(SECTION_NAME);
+        section.setId(SECTION_ID);
         Branch branch1 = new Branch("my branch", "1");
         branch1.setId(42);
         Branch branch2 = new Branch("my branch2", "2");
@@ -252,7 +323,8 @@ public class TransactionalSectionServiceTest {
         section.addOrUpdateBranch(branch2);
         when(userService.getCurrentUser()).thenReturn(user);
         List<Long> branchIds = Arrays.asList(branch1.getId());
-        when(sectionDao.getAvailableBranchIds(user, section.getBranches())).thenReturn(branchIds);
+        when(sectionDao.getVisibleBranchIdsOfSections(user))
+                .thenReturn(Collections.singletonMap(SECTION_ID, branchIds));
 
         List<Post> posts = new ArrayList<>();
         posts.add(new Post(user, "post1"));
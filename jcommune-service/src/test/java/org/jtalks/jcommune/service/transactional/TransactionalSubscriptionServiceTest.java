@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.service.transactional;
 
 import org.jtalks.jcommune.model.dao.BranchDao;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
@@ -25,7 +26,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Collections;
+import java.util.Set;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -44,6 +47,8 @@ public class TransactionalSubscriptionServiceTest {
     private BranchDao branchDao;
     @Mock
     private TopicDao topicDao;
+    @Mock
+    private SubscriptionDao subscriptionDao;
 
     private TransactionalSubscriptionService service;
 
@@ -54,7 +59,7 @@ public class TransactionalSubscriptionServiceTest {
     @BeforeMethod
     public void setUp() {
         initMocks(this);
-        service = new TransactionalSubscriptionService(userService, branchDao, topicDao);
+        service = new TransactionalSubscriptionService(userService, branchDao, topicDao, subscriptionDao);
         branch = new Branch("name", "description");
         topic = new Topic(user, "title");
         when(userService.getCurrentUser()).thenReturn(user);
@@ -64,43 +69,64 @@ public class TransactionalSubscriptionServiceTest {
     public void testTopicSubscription() {
         service.toggleTopicSubscription(topic);
 
-        assertTrue(topic.getSubscribers().contains(user));
-        verify(topicDao).saveOrUpdate(topic);
+        verify(subscriptionDao).addSubscriber(topic, user);
+        verify(topicDao, never()).saveOrUpdate(any(Topic.class));
     }
 
     @Test
     public void testToggleBranchSubscription() {
         service.toggleBranchSubscription(branch);
 
-        assertTrue(branch.getSubscribers().contains(user));
+        verify(subscriptionDao).addSubscriber(branch, user);
+        verify(branchDao, never()).saveOrUpdate(any(Branch.class));
     }
 
     @Test
     public void testTopicUnsubscription() {
-        topic.getSubscribers().add(user);
+        when(subscriptionDao.removeSubscriber(topic, user)).thenReturn(true);
 
         service.toggleTopicSubscription(topic);
 
-        assertFalse(topic.getSubscribers().contains(user));
-        verify(topicDao).saveOrUpdate(topic);
+        verify(subscriptionDao, never()).addSubscriber(topic, user);
     }
 
     @Test
     public void testToggleBranchUnsubscription() {
-        branch.getSubscribers().add(user);
+        when(subscriptionDao.removeSubscriber(branch, user)).thenReturn(true);
 
         service.toggleBranchSubscription(branch);
 
-        assertFalse(branch.getSubscribers().contains(user));
+        verify(subscriptionDao, never()).addSubscriber(branch, user);
     }
 
     @Test
     public void testBranchUnsubscription() {
-        branch.getSubscribers().add(user);
-
         service.unsubscribeFromBranch(branch);
 
-        assertFalse(branch.getSubscribers().contains(user));
+        verify(subscriptionDao).removeSubscriber(branch, user);
+        verify(subscriptionDao, never()).addSubscriber(branch, user);
+    }
+
+    @Test
+    public void subscriptionShouldNotLoadSubscribers() {
+        Topic topicWithUnloadedSubscribers = new Topic(user, "title") {
+            @Override
+            public Set<JCUser> getSubscribers() {
+                throw new AssertionError("Subscribers should not be loaded");
+            }
+        };
+
+        service.toggleTopicSubscription(topicWithUnloadedSubscribers);
+        service.subscribe(topicWithUnloadedSubscribers);
+        service.isSubscribed(topicWithUnloadedSubscribers);
+    }
+
+    @Test
+    public void testIsSubscribed() {
+        when(subscriptionDao.isSubscribed(topic, user)).thenReturn(true);
+
+        assertTrue(service.isSubscribed(topic));
+        assertFalse(service.isSubscribed(branch));
     }
 
     @Test
@@ -122,51 +148,41 @@ public class TransactionalSubscriptionServiceTest {
     public void testToggleSubscriptionTopicCase() {
         service.toggleSubscription(topic);
 
-        assertTrue(topic.getSubscribers().contains(user));
-        verify(topicDao).saveOrUpdate(topic);
+        verify(subscriptionDao).addSubscriber(topic, user);
     }
 
     @Test
     public void testToggleSubscriptionTopicAlreadySubscribedTopicCase() {
-        topic.getSubscribers().add(user);
+        when(subscriptionDao.removeSubscriber(topic, user)).thenReturn(true);
 
         service.toggleSubscription(topic);
 
-        assertFalse(topic.getSubscribers().contains(user));
-        verify(topicDao).saveOrUpdate(topic);
+        verify(subscriptionDao).removeSubscriber(topic, user);
+        verify(subscriptionDao, never()).addSubscriber(topic, user);
     }
 
     @Test
     public void testToggleSubscriptionBranchCase() {
         service.toggleSubscription(branch);
 
-        assertTrue(branch.getSubscribers().contains(user));
+        verify(subscriptionDao).addSubscriber(branch, user);
     }
 
     @Test
     public void testToggleSubscriptionAlreadySubscribedBranchCase() {
-        branch.getSubscribers().add(user);
+        when(subscriptionDao.removeSubscriber(branch, user)).thenReturn(true);
 
         service.toggleSubscription(branch);
 
-        assertFalse(branch.getSubscribers().contains(user));
-    }
-
-    @Test
-    public void testSubscribeIfUserIsNotSubscribedOnSubscriptionAwareEntity(){
-        service.subscribe(topic);
-
-        assertTrue(topic.getSubscribers().contains(user));
-        verify(topicDao).saveOrUpdate(topic);
+        verify(subscriptionDao, never()).addSubscriber(branch, user);
     }
 
     @Test
-    public void testSubscribeIfUserSubscribedOnSubscriptionAwareEntity(){
-        topic.getSubscribers().add(user);
+    public void testSubscribeOnSubscriptionAwareEntity(){
         service.subscribe(topic);
 
-        assertTrue(topic.getSubscribers().contains(user));
-        verify(topicDao,never()).saveOrUpdate(topic);
+        verify(subscriptionDao).addSubscriber(topic, user);
+        verify(subscriptionDao, never()).removeSubscriber(topic, user);
     }
 
 }
@@ -16,6 +16,7 @@ package org.jtalks.jcommune.service.transactional;
 
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dao.SubscriptionDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
@@ -55,6 +56,8 @@ public class TransactionalTopicFetchServiceTest {
     private UserService userService;
     @Mock
     private TopicSearchDao searchDao;
+    @Mock
+    private SubscriptionDao subscriptionDao;
 
     private TopicFetchService topicFetchService;
 
@@ -63,7 +66,7 @@ public class TransactionalTopicFetchServiceTest {
     @BeforeMethod
     public void init(){
         initMocks(this);
-        topicFetchService = new TransactionalTopicFetchService(topicDao, userService, searchDao);
+        topicFetchService = new TransactionalTopicFetchService(topicDao, userService, searchDao, subscriptionDao);
         user = new JCUser("username", "email@mail.com", "password");
         when(userService.getCurrentUser()).thenReturn(user);
     }
@@ -194,4 +197,14 @@ public class TransactionalTopicFetchServiceTest {
 
         topicFetchService.getTopicSilently(333L);
     }
+
+    @Test
+    public void isSubscribedShouldCheckSubscriptionOfCurrentUser() {
+        Topic topic = new Topic(user, "title");
+        when(subscriptionDao.isSubscribed(topic, user)).thenReturn(true);
+
+        boolean subscribed = ((TransactionalTopicFetchService) topicFetchService).isSubscribed(topic);
+
+        assertEquals(subscribed, true);
+    }
 }
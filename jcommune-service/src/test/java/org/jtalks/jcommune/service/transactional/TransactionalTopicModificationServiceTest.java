@@ -27,8 +27,11 @@ import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.service.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.MentionedUsers;
 import org.jtalks.jcommune.service.nontransactional.NotificationService;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -104,6 +107,10 @@ public class TransactionalTopicModificationServiceTest {
     private PostDao postDao;
     @Mock
     private PluginLoader pluginLoader;
+    @Mock
+    private ForumStatisticsService forumStatisticsService;
+    @Mock
+    private FeedCacheService feedCacheService;
 
     private CompoundAclBuilder<User> aclBuilder;
 
@@ -126,7 +133,9 @@ public class TransactionalTopicModificationServiceTest {
                 postDao,
                 topicFetchService,
                 topicDraftService,
-                pluginLoader);
+                pluginLoader,
+                forumStatisticsService,
+                feedCacheService);
 
         user = new JCUser("username", "email@mail.com", "password");
         when(securityContextFacade.getContext()).thenReturn(securityContext);
@@ -233,11 +242,14 @@ public class TransactionalTopicModificationServiceTest {
 
         assertEquals(createdPost.getPostContent(), ANSWER_BODY);
         assertEquals(createdPost.getUserCreated(), user);
-        assertEquals(user.getPostCount(), 1);
+        verify(postDao).changePostCountOfAuthor(user, 1);
 
         verify(aclBuilder).grant(GeneralPermission.WRITE);
         verify(aclBuilder).to(user);
         verify(aclBuilder).on(createdPost);
+        verify(branchDao).changeStatistics(answeredTopic.getBranch(), 0, 1);
+        verify(forumStatisticsService).changePostsCount(1);
+        verify(feedCacheService).invalidate();
         verify(notificationService).subscribedEntityChanged(answeredTopic);
     }
 
@@ -278,7 +290,7 @@ public class TransactionalTopicModificationServiceTest {
 
         assertEquals(createdPost.getPostContent(), ANSWER_BODY);
         assertEquals(createdPost.getUserCreated(), user);
-        assertEquals(user.getPostCount(), 1);
+        verify(postDao).changePostCountOfAuthor(user, 1);
 
         verify(aclBuilder).grant(GeneralPermission.WRITE);
         verify(aclBuilder).to(user);
@@ -350,14 +362,17 @@ public class TransactionalTopicModificationServiceTest {
         branch.addTopic(topic);
         when(topicDao.isExist(TOPIC_ID)).thenReturn(true);
         when(topicDao.get(TOPIC_ID)).thenReturn(topic);
+        when(topicDao.deleteTopics(Collections.singletonList(TOPIC_ID))).thenReturn(1);
 
         topicService.deleteTopic(topic);
 
-        assertEquals(branch.getTopicCount(), 0);
-        assertEquals(user.getPostCount(), 0);
-        verify(branchDao).saveOrUpdate(branch);
-        verify(securityService).deleteFromAcl(Topic.class, TOPIC_ID);
-        verify(notificationService).sendNotificationAboutRemovingTopic(topic);
+        InOrder inOrder = inOrder(notificationService, topicDao);
+        inOrder.verify(notificationService).sendNotificationAboutRemovingTopic(topic);
+        inOrder.verify(topicDao).deleteAclOfTopics(Collections.singletonList(TOPIC_ID));
+        inOrder.verify(topicDao).deleteTopics(Collections.singletonList(TOPIC_ID));
+        verify(branchDao).changeStatistics(branch, -1, -1);
+        verify(forumStatisticsService).changePostsCount(-1);
+        verify(feedCacheService).invalidate();
     }
 
 
@@ -371,13 +386,51 @@ public class TransactionalTopicModificationServiceTest {
         Branch branch = createBranch();
         branch.addTopic(topic);
         when(topicFetchService.getTopicSilently(TOPIC_ID)).thenReturn(topic);
+        when(topicDao.deleteTopics(Collections.singletonList(TOPIC_ID))).thenReturn(1);
 
         topicService.deleteTopicSilent(TOPIC_ID);
 
-        assertEquals(branch.getTopicCount(), 0);
-        assertEquals(user.getPostCount(), 0);
-        verify(branchDao).saveOrUpdate(branch);
-        verify(securityService).deleteFromAcl(Topic.class, TOPIC_ID);
+        verify(topicDao).deleteAclOfTopics(Collections.singletonList(TOPIC_ID));
+        verify(topicDao).deleteTopics(Collections.singletonList(TOPIC_ID));
+        verify(branchDao).changeStatistics(branch, -1, -1);
+        verify(forumStatisticsService).changePostsCount(-1);
+        verify(notificationService, never()).sendNotificationAboutRemovingTopic(topic);
+    }
+
+    @Test
+    public void deleteAllTopicsSilentShouldDeleteTopicsByChunks() {
+        Branch branch = createBranch();
+        List<Long> firstChunk = Arrays.asList(1L, 2L);
+        List<Long> secondChunk = Arrays.asList(3L);
+        when(topicDao.countTopics(branch)).thenReturn(3);
+        when(topicDao.getTopicIdsInBranch(eq(branch), eq(0L), anyInt())).thenReturn(firstChunk);
+        when(topicDao.getTopicIdsInBranch(eq(branch), eq(2L), anyInt())).thenReturn(secondChunk);
+        when(topicDao.getTopicIdsInBranch(eq(branch), eq(3L), anyInt())).thenReturn(Collections.<Long>emptyList());
+        when(topicDao.deleteTopics(firstChunk)).thenReturn(10);
+        when(topicDao.deleteTopics(secondChunk)).thenReturn(5);
+
+        topicService.deleteAllTopicsSilent(branch);
+
+        verify(topicDao).deleteAclOfTopics(firstChunk);
+        verify(topicDao).deleteAclOfTopics(secondChunk);
+        verify(branchDao).changeStatistics(branch, -2, -10);
+        verify(branchDao).changeStatistics(branch, -1, -5);
+        verify(forumStatisticsService).changePostsCount(-10);
+        verify(forumStatisticsService).changePostsCount(-5);
+        verify(feedCacheService).invalidate();
+        assertNull(branch.getLastPost());
+    }
+
+    @Test
+    public void deleteAllTopicsSilentInEmptyBranchShouldDeleteNothing() {
+        Branch branch = createBranch();
+        when(topicDao.getTopicIdsInBranch(eq(branch), anyLong(), anyInt())).thenReturn(Collections.<Long>emptyList());
+
+        topicService.deleteAllTopicsSilent(branch);
+
+        verify(topicDao, never()).deleteTopics(anyListOf(Long.class));
+        verify(branchDao, never()).changeStatistics(any(Branch.class), anyInt(), anyInt());
+        verify(feedCacheService, never()).invalidate();
     }
 
     @Test
@@ -600,6 +653,9 @@ public class TransactionalTopicModificationServiceTest {
 
         assertEquals(targetBranch.getTopicCount(), 1);
         verify(branchDao).saveOrUpdate(targetBranch);
+        verify(branchDao).changeStatistics(currentBranch, -1, -1);
+        verify(branchDao).changeStatistics(targetBranch, 1, 1);
+        verify(feedCacheService).invalidate();
         verify(notificationService).sendNotificationAboutTopicMoved(topic);
     }
 
@@ -690,12 +746,15 @@ public class TransactionalTopicModificationServiceTest {
         assertEquals(createdTopic.getBranch(), branch);
         assertEquals(createdPost.getUserCreated(), user);
         assertEquals(createdPost.getPostContent(), ANSWER_BODY);
-        assertEquals(user.getPostCount(), 1);
+        verify(postDao).changePostCountOfAuthor(user, 1);
     }
 
     private void createTopicVerifications(Topic topic)
             throws NotFoundException {
         verify(aclBuilder, times(2)).grant(GeneralPermission.WRITE);
+        verify(branchDao).changeStatistics(topic.getBranch(), 1, 1);
+        verify(forumStatisticsService).changePostsCount(1);
+        verify(feedCacheService).invalidate();
         verify(notificationService).sendNotificationAboutTopicCreated(topic);
         verify(lastReadPostService).markTopicAsRead(topic);
     }
@@ -38,6 +38,7 @@ import org.jtalks.jcommune.service.exceptions.MailingFailedException;
 import org.jtalks.jcommune.service.exceptions.UserTriesActivatingAccountAgainException;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
+import org.jtalks.jcommune.service.nontransactional.ForumStatisticsService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
 import org.jtalks.jcommune.service.nontransactional.MentionedUsers;
 import org.jtalks.jcommune.service.security.AdministrationGroup;
@@ -120,6 +121,8 @@ public class TransactionalUserServiceTest {
     private PostDao postDao;
     @Mock
     private Authenticator authenticator;
+    @Mock
+    private ForumStatisticsService forumStatisticsService;
 
 
     @BeforeMethod
@@ -136,7 +139,7 @@ public class TransactionalUserServiceTest {
                 mailService,
                 base64Wrapper,
                 encryptionService,
-                postDao, authenticator);
+                postDao, authenticator, forumStatisticsService);
     }
 
     @Test
@@ -464,6 +467,7 @@ public class TransactionalUserServiceTest {
         verify(userDao).delete(user2);
         verify(userDao).delete(user3);
         verify(userDao, never()).delete(user1);
+        verify(forumStatisticsService, times(2)).changeUsersCount(-1);
     }
 
     @Test
@@ -29,6 +29,7 @@ import org.jtalks.jcommune.service.security.PermissionManager;
 import org.jtalks.jcommune.web.dto.BranchDto;
 import org.jtalks.jcommune.web.dto.BranchPermissionDto;
 import org.jtalks.jcommune.web.dto.GroupDto;
+import org.jtalks.jcommune.web.dto.GroupUsersDto;
 import org.jtalks.jcommune.web.dto.PermissionGroupsDto;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponse;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponseStatus;
@@ -265,6 +266,48 @@ public class AdministrationController {
         return new ModelAndView("groupAdministration").addObject("groups",groupAdministrationDtos);
     }
 
+    /**
+     * Adds many users to a group at once, members of the group are not loaded, so large groups are fine.
+     *
+     * @param groupUsers group and IDs of users to add
+     * @return SUCCESS response or FAIL if there is no such group or user IDs are missing
+     */
+    @RequestMapping(value = "/group/users/add", method = RequestMethod.POST)
+    @ResponseBody
+    public JsonResponse addUsersToGroup(@RequestBody GroupUsersDto groupUsers) {
+        if (groupUsers.getUserIds() == null) {
+            return new JsonResponse(JsonResponseStatus.FAIL);
+        }
+        long forumId = componentService.getComponentOfForum().getId();
+        try {
+            groupService.addUsersToGroup(forumId, groupUsers.getGroupId(), groupUsers.getUserIds());
+        } catch (org.jtalks.common.service.exceptions.NotFoundException e) {
+            return new JsonResponse(JsonResponseStatus.FAIL);
+        }
+        return new JsonResponse(JsonResponseStatus.SUCCESS);
+    }
+
+    /**
+     * Removes many users from a group at once, members of the group are not loaded, so large groups are fine.
+     *
+     * @param groupUsers group and IDs of users to remove
+     * @return SUCCESS response or FAIL if there is no such group or user IDs are missing
+     */
+    @RequestMapping(value = "/group/users/remove", method = RequestMethod.POST)
+    @ResponseBody
+    public JsonResponse removeUsersFromGroup(@RequestBody GroupUsersDto groupUsers) {
+        if (groupUsers.getUserIds() == null) {
+            return new JsonResponse(JsonResponseStatus.FAIL);
+        }
+        long forumId = componentService.getComponentOfForum().getId();
+        try {
+            groupService.removeUsersFromGroup(forumId, groupUsers.getGroupId(), groupUsers.getUserIds());
+        } catch (org.jtalks.common.service.exceptions.NotFoundException e) {
+            return new JsonResponse(JsonResponseStatus.FAIL);
+        }
+        return new JsonResponse(JsonResponseStatus.SUCCESS);
+    }
+
     /**
      * Returns redirect string to previous page
      *
@@ -17,8 +17,10 @@ package org.jtalks.jcommune.web.controller;
 import org.joda.time.DateTime;
 import org.jtalks.common.model.entity.Component;
 import org.jtalks.jcommune.service.ComponentService;
+import org.jtalks.jcommune.service.dto.CachedImage;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
+import org.jtalks.jcommune.service.nontransactional.ForumImageCacheService;
 import org.jtalks.jcommune.service.transactional.TransactionalComponentService;
 import org.jtalks.jcommune.web.util.ImageControllerUtils;
 import org.slf4j.Logger;
@@ -45,11 +47,18 @@ import java.util.Map;
 public class AdministrationImagesController extends ImageUploadController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AdministrationImagesController.class);
+    /**
+     * Name of the request parameter with the time the images were changed, pages put it to the URLs of the images,
+     * so a new URL is used as soon as the images change and responses to the versioned URLs may be cached forever
+     */
+    static final String VERSION_PARAM = "v";
+    static final int IMMUTABLE_CACHE_AGE_SEC = 365 * 24 * 60 * 60;
 
     private final ImageControllerUtils logoControllerUtils;
     private final ImageControllerUtils favIconPngControllerUtils;
     private final ImageControllerUtils favIconIcoControllerUtils;
     private final ComponentService componentService;
+    private final ForumImageCacheService forumImageCacheService;
 
     /**
      * We need this start time because there might be case when time of the last modification
@@ -67,6 +76,7 @@ public class AdministrationImagesController extends ImageUploadController {
      * @param favIconPngControllerUtils utility object for fav icon converting (to PNG format) functions
      * @param favIconIcoControllerUtils utility object for fav icon converting (to ICO format) functions
      * @param messageSource             to resolve locale-dependent messages
+     * @param forumImageCacheService    to keep decoded logo and icons between requests
      */
     @Autowired
     public AdministrationImagesController(ComponentService componentService,
@@ -76,9 +86,11 @@ public class AdministrationImagesController extends ImageUploadController {
                                           ImageControllerUtils favIconPngControllerUtils,
                                           @Qualifier("favIconIcoControllerUtils")
                                           ImageControllerUtils favIconIcoControllerUtils,
-                                          MessageSource messageSource) {
+                                          MessageSource messageSource,
+                                          ForumImageCacheService forumImageCacheService) {
         super(messageSource);
         this.componentService = componentService;
+        this.forumImageCacheService = forumImageCacheService;
         this.logoControllerUtils = logoControllerUtils;
         this.favIconIcoControllerUtils = favIconIcoControllerUtils;
         this.favIconPngControllerUtils = favIconPngControllerUtils;
@@ -180,28 +192,62 @@ public class AdministrationImagesController extends ImageUploadController {
     private void processImageRequest(HttpServletRequest request, HttpServletResponse response,
                                      String propertyName, ImageControllerUtils imageControllerUtils,
                                      String contentType) {
-        Date forumModificationDate = componentService.getComponentModificationTime();
-
-        if (forumModificationDate == null) {
-            forumModificationDate = startTime;
+        CachedImage image = forumImageCacheService.get(propertyName);
+        if (image == null) {
+            long generation = forumImageCacheService.getGeneration();
+            Date forumModificationDate = componentService.getComponentModificationTime();
+            if (forumModificationDate == null) {
+                forumModificationDate = startTime;
+            }
+            image = forumImageCacheService.put(propertyName, generation,
+                    loadImageFromProperties(propertyName, imageControllerUtils), contentType,
+                    forumModificationDate.getTime());
         }
 
-        Date ifModifiedDate = getIfModifiedSinceDate(request.getHeader(IF_MODIFIED_SINCE_HEADER));
+        // headers are set first, they are ignored once the content is written and the response is committed
+        Date lastModified = new Date(image.getLastModified());
+        if (String.valueOf(image.getLastModified()).equals(request.getParameter(VERSION_PARAM))) {
+            setupImmutableHeaders(response, lastModified);
+        } else {
+            setupAvatarHeaders(response, lastModified);
+        }
+        response.setHeader("ETag", image.getETag());
 
-        if (!forumModificationDate.after(ifModifiedDate)) {
+        if (isNotModified(request, image)) {
             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
         } else {
-            byte[] image = loadImageFromProperties(propertyName, imageControllerUtils);
-            response.setContentType(contentType);
-            response.setContentLength(image.length);
+            response.setContentType(image.getContentType());
+            response.setContentLength(image.getContent().length);
             try {
-                response.getOutputStream().write(image);
+                response.getOutputStream().write(image.getContent());
             } catch (IOException e) {
                 LOGGER.error("Can't write image to the output stream. ", e);
             }
         }
+    }
 
-        setupAvatarHeaders(response, forumModificationDate);
+    private boolean isNotModified(HttpServletRequest request, CachedImage image) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.contains(image.getETag()) || "*".equals(ifNoneMatch.trim());
+        }
+        Date ifModifiedDate = getIfModifiedSinceDate(request.getHeader(IF_MODIFIED_SINCE_HEADER));
+        return image.getLastModified() <= ifModifiedDate.getTime();
+    }
+
+    /**
+     * Lets browsers and proxies keep the image without revalidation, used when the URL contains the version of the
+     * image, because any change of the image changes the URL pages refer to.
+     *
+     * @param response     http response
+     * @param lastModified time the image was changed
+     */
+    private void setupImmutableHeaders(HttpServletResponse response, Date lastModified) {
+        setupAvatarHeaders(response, lastModified);
+        response.setDateHeader("Expires", System.currentTimeMillis() + IMMUTABLE_CACHE_AGE_SEC * 1000L);
+        response.setHeader("Cache-Control", "public");
+        response.addHeader("Cache-Control", "max-age=" + IMMUTABLE_CACHE_AGE_SEC);
+        response.addHeader("Cache-Control", "immutable");
     }
 
     private byte[] loadImageFromProperties(String propertyName, ImageControllerUtils imageControllerUtils) {
@@ -17,7 +17,6 @@ package org.jtalks.jcommune.web.controller;
 
 import org.jtalks.common.service.security.SecurityContextFacade;
 import org.jtalks.jcommune.model.entity.Branch;
-import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
@@ -64,7 +63,7 @@ public class BranchController {
     private PostService postService;
     private TopicFetchService topicFetchService;
     private LastReadPostService lastReadPostService;
-    private UserService userService;
+    private SubscriptionService subscriptionService;
     private BreadcrumbBuilder breadcrumbBuilder;
     private LocationService locationService;
     private PluginLoader pluginLoader;
@@ -91,7 +90,7 @@ public class BranchController {
      * @param branchService       for branch-related service actions
      * @param topicFetchService   for topic-related service actions
      * @param lastReadPostService service to retrieve unread posts information
-     * @param userService         to get user currently logged in
+     * @param subscriptionService to check whether the current user is subscribed to the branch
      * @param breadcrumbBuilder   for creating breadcrumbs
      * @param locationService     to fetch user forum page location info
      * @param postService         to get separate posts
@@ -101,7 +100,7 @@ public class BranchController {
     public BranchController(BranchService branchService,
                             TopicFetchService topicFetchService,
                             LastReadPostService lastReadPostService,
-                            UserService userService,
+                            SubscriptionService subscriptionService,
                             BreadcrumbBuilder breadcrumbBuilder,
                             LocationService locationService,
                             PostService postService,
@@ -112,7 +111,7 @@ public class BranchController {
         this.branchService = branchService;
         this.topicFetchService = topicFetchService;
         this.lastReadPostService = lastReadPostService;
-        this.userService = userService;
+        this.subscriptionService = subscriptionService;
         this.breadcrumbBuilder = breadcrumbBuilder;
         this.locationService = locationService;
         this.postService = postService;
@@ -141,7 +140,6 @@ public class BranchController {
         Page<Topic> topicsPage = topicFetchService.getTopics(branch, page);
         lastReadPostService.fillLastReadPostForTopics(topicsPage.getContent());
 
-        JCUser currentUser = userService.getCurrentUser();
         List<Breadcrumb> breadcrumbs = breadcrumbBuilder.getForumBreadcrumb(branch);
 
         return new ModelAndView("topic/topicList")
@@ -150,7 +148,7 @@ public class BranchController {
                 .addObject("topicsPage", converter.convertTopicPageToTopicDtoPage(topicsPage))
                 .addObject("breadcrumbList", breadcrumbs)
                 .addObject("topicTypes", getTopicTypes(branchId))
-                .addObject("subscribed", branch.getSubscribers().contains(currentUser));
+                .addObject("subscribed", subscriptionService.isSubscribed(branch));
     }
 
     /**
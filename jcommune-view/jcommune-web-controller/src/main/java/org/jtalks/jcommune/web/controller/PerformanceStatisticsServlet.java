@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.jtalks.jcommune.web.controller;
+
+import org.jtalks.jcommune.service.ComponentService;
+import org.jtalks.jcommune.service.performance.LatencyMonitor;
+import org.jtalks.jcommune.web.util.RetryStatisticsListener;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * <p>Servlet that shows latency percentiles of services, DAOs and HTTP routes collected by {@link LatencyMonitor} as
+ * plain text, one method or route per line, followed by the routes which operations were retried because of
+ * conflicting parallel changes, see {@link RetryStatisticsListener}. Only users with permissions to administer the
+ * forum can see it.</p>
+ */
+public class PerformanceStatisticsServlet extends HttpServlet {
+
+    private ComponentService componentService;
+    private LatencyMonitor latencyMonitor;
+    private RetryStatisticsListener retryStatistics;
+
+    /**
+     * Takes the monitors and the service to check permissions from the root application context.
+     *
+     * @throws ServletException
+     */
+    @Override
+    public void init() throws ServletException {
+        WebApplicationContext ctx = WebApplicationContextUtils.getRequiredWebApplicationContext(getServletContext());
+        componentService = ctx.getBean("componentService", ComponentService.class);
+        latencyMonitor = ctx.getBean("latencyMonitor", LatencyMonitor.class);
+        retryStatistics = ctx.getBean("retryStatistics", RetryStatisticsListener.class);
+    }
+
+    /**
+     * Writes the latency and retry reports as plain text or returns HTTP 403 Forbidden error if current user haven't permissions
+     * to view it.
+     *
+     * @param req the HTTP request
+     * @param resp the HTTP response
+     * @throws ServletException
+     * @throws IOException
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        long componentId = componentService.getComponentOfForum().getId();
+        try {
+            componentService.checkPermissionsForComponent(componentId);
+        } catch (AccessDeniedException e) {
+            resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.getWriter().write(latencyMonitor.getReport());
+        resp.getWriter().write(retryStatistics.getReport());
+    }
+}
@@ -74,7 +74,7 @@ public class PostController {
     private TopicFetchService topicFetchService;
     private TopicModificationService topicModificationService;
     private BBCodeService bbCodeService;
-    private UserService userService;
+    private SubscriptionService subscriptionService;
     private LocationService locationService;
     private EntityToDtoConverter converter;
     private RetryTemplate retryTemplate;
@@ -99,7 +99,7 @@ public class PostController {
      * @param topicModificationService to update topics with new posts
      * @param bbCodeService            to create valid quotes
      * @param lastReadPostService      not to track user posts as updates for himself
-     * @param userService              to get the current user information
+     * @param subscriptionService      to check whether the current user is subscribed to the topic
      * @param converter                instance of {@link EntityToDtoConverter} needed to
      *                                 obtain link to the topic
      * @param retryTemplate            retry mechanism
@@ -108,15 +108,15 @@ public class PostController {
     public PostController(PostService postService, BreadcrumbBuilder breadcrumbBuilder,
                           TopicFetchService topicFetchService, TopicModificationService topicModificationService,
                           BBCodeService bbCodeService, LastReadPostService lastReadPostService,
-                          UserService userService, LocationService locationService, EntityToDtoConverter converter,
-                          RetryTemplate retryTemplate) {
+                          SubscriptionService subscriptionService, LocationService locationService,
+                          EntityToDtoConverter converter, RetryTemplate retryTemplate) {
         this.postService = postService;
         this.breadcrumbBuilder = breadcrumbBuilder;
         this.topicFetchService = topicFetchService;
         this.topicModificationService = topicModificationService;
         this.bbCodeService = bbCodeService;
         this.lastReadPostService = lastReadPostService;
-        this.userService = userService;
+        this.subscriptionService = subscriptionService;
         this.locationService = locationService;
         this.converter = converter;
         this.retryTemplate = retryTemplate;
@@ -254,10 +254,9 @@ public class PostController {
     public ModelAndView errorRedirect(@RequestParam(value = "page", required = false) String page,
                                       @PathVariable(TOPIC_ID) Long topicId, @ModelAttribute @Valid PostDto postDto,
                                       BindingResult result) throws NotFoundException {
-        JCUser currentUser = userService.getCurrentUser();
         Topic topic = topicFetchService.get(topicId);
 
-        PostDraft draft = topic.getDraftForUser(currentUser);
+        PostDraft draft = postService.getDraft(topic);
         if (draft != null) {
             // If we create new dto object instead of using already existing
             // we lose error messages linked with it
@@ -272,7 +271,7 @@ public class PostController {
                 .addObject("postsPage", postsPage)
                 .addObject("topic", topic)
                 .addObject(POST_DTO, postDto)
-                .addObject("subscribed", topic.getSubscribers().contains(currentUser))
+                .addObject("subscribed", subscriptionService.isSubscribed(topic))
                 .addObject(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
     }
 
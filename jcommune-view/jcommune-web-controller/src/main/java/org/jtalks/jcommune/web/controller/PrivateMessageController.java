@@ -283,4 +283,39 @@ public class PrivateMessageController {
         return "redirect:/" + url;
     }
 
+    /**
+     * Delete all the private messages from the folder of the current user.
+     *
+     * @param folder "inbox", "outbox" or "drafts"
+     * @return redirect to the folder
+     */
+    @RequestMapping(value = "/pm/{folder:inbox|outbox|drafts}", method = {RequestMethod.DELETE})
+    public String deleteAllMessages(@PathVariable("folder") String folder) {
+        pmService.deleteAll(folder);
+        return "redirect:/" + folder;
+    }
+
+    /**
+     * Mark private messages from the inbox of the current user as read.
+     *
+     * @param ids Comma-separated identifiers of the private messages
+     * @return redirect to inbox
+     */
+    @RequestMapping(value = "/pm/read", method = {RequestMethod.POST})
+    public String markMessagesAsRead(@RequestParam(PM_IDENTIFIERS) List<Long> ids) {
+        pmService.markAsRead(ids);
+        return "redirect:/inbox";
+    }
+
+    /**
+     * Mark all the private messages from the inbox of the current user as read.
+     *
+     * @return redirect to inbox
+     */
+    @RequestMapping(value = "/pm/inbox/read", method = {RequestMethod.POST})
+    public String markAllMessagesAsRead() {
+        pmService.markAllAsRead();
+        return "redirect:/inbox";
+    }
+
 }
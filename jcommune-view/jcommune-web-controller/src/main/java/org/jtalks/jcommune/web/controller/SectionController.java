@@ -14,10 +14,12 @@
  */
 package org.jtalks.jcommune.web.controller;
 
+import org.jtalks.common.model.entity.Branch;
 import org.jtalks.common.model.entity.Section;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.service.SectionService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.jtalks.jcommune.service.nontransactional.LocationService;
 import org.jtalks.jcommune.web.dto.SectionDto;
 import org.jtalks.jcommune.web.util.ForumStatisticsProvider;
@@ -31,7 +33,9 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static ch.lambdaj.Lambda.on;
@@ -57,8 +61,12 @@ public class SectionController {
     private SectionService sectionService;
     private ForumStatisticsProvider forumStaticsProvider;
     private LocationService locationService;
+    private PluginPermissionResolver permissionResolver;
 
     private static final int RECENT_POST_COUNT = 15;
+    /** Branch permission checked to decide whether a branch is shown in the list */
+    private static final List<String> BRANCH_LIST_PERMISSIONS = Collections.singletonList(
+            "BranchPermission.VIEW_TOPICS");
 
     /**
      * Constructor creates MVC controller with specified SectionService
@@ -66,14 +74,17 @@ public class SectionController {
      * @param sectionService       for all operations with sections
      * @param locationService      for tracking user's location on the forum
      * @param forumStaticsProvider for getting forum statistic information
+     * @param permissionResolver   to check visibility of all the listed branches at once
      */
     @Autowired
     public SectionController(SectionService sectionService,
                              ForumStatisticsProvider forumStaticsProvider,
-                             LocationService locationService) {
+                             LocationService locationService,
+                             PluginPermissionResolver permissionResolver) {
         this.sectionService = sectionService;
         this.forumStaticsProvider = forumStaticsProvider;
         this.locationService = locationService;
+        this.permissionResolver = permissionResolver;
     }
 
 
@@ -97,6 +108,7 @@ public class SectionController {
         session.getId();
         List<Section> sections = sectionService.getAll();
         sectionService.prepareSectionsForView(sections);
+        resolveBranchListPermissions(sections);
         return new ModelAndView("sectionList")
                 .addObject("sectionList", sections)
                 .addObject("messagesCount", forumStaticsProvider.getPostsOnForumCount())
@@ -137,6 +149,7 @@ public class SectionController {
         Section section = sectionService.get(sectionId);
         sectionService.ifSectionIsVisible(section);
         sectionService.prepareSectionsForView(Arrays.asList(section));
+        resolveBranchListPermissions(Arrays.asList(section));
         return new ModelAndView("branchList")
                 .addObject("viewList", locationService.getUsersViewing(section))
                 .addObject("section", section);
@@ -161,4 +174,19 @@ public class SectionController {
                 .addObject("posts", posts);
 
     }
+
+    /**
+     * Checks visibility of branches of all the sections at once, so that the page doesn't check them one by one.
+     *
+     * @param sections sections whose branches are going to be listed
+     */
+    private void resolveBranchListPermissions(List<Section> sections) {
+        List<Long> branchIds = new ArrayList<>();
+        for (Section section : sections) {
+            for (Branch branch : section.getBranches()) {
+                branchIds.add(branch.getId());
+            }
+        }
+        permissionResolver.resolvePermissions(branchIds, "BRANCH", BRANCH_LIST_PERMISSIONS);
+    }
 }
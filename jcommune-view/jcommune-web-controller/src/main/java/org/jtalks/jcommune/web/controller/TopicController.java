@@ -18,6 +18,7 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.jtalks.jcommune.plugin.api.web.dto.PostDto;
 import org.jtalks.jcommune.plugin.api.web.dto.TopicDto;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponse;
@@ -45,6 +46,9 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Serves topic management web requests
@@ -72,6 +76,11 @@ public class TopicController {
     private static final Logger LOGGER = LoggerFactory.getLogger(UserController.class);
     public static final String POLL = "poll";
     private static final String TOPIC_DRAFT = "topicDraft";
+    /** Branch permissions checked by the controls of the topic page and of each of its posts */
+    private static final List<String> TOPIC_PAGE_PERMISSIONS = Arrays.asList(
+            "BranchPermission.VIEW_TOPICS", "BranchPermission.CREATE_POSTS", "BranchPermission.CLOSE_TOPICS",
+            "BranchPermission.MOVE_TOPICS", "BranchPermission.EDIT_OWN_POSTS", "BranchPermission.EDIT_OTHERS_POSTS",
+            "BranchPermission.DELETE_OWN_POSTS", "BranchPermission.DELETE_OTHERS_POSTS");
 
     private TopicModificationService topicModificationService;
     private TopicFetchService topicFetchService;
@@ -79,12 +88,14 @@ public class TopicController {
     private PostService postService;
     private BranchService branchService;
     private LastReadPostService lastReadPostService;
-    private UserService userService;
+    private SubscriptionService subscriptionService;
     private BreadcrumbBuilder breadcrumbBuilder;
     private LocationService locationService;
     private SessionRegistry sessionRegistry;
     private EntityToDtoConverter converter;
     private RetryTemplate retryTemplate;
+    private PollService pollService;
+    private PluginPermissionResolver permissionResolver;
 
     /**
      * This method turns the trim binder on. Trim binder
@@ -108,30 +119,34 @@ public class TopicController {
      * @param branchService            the object which provides actions on
      *                                 {@link org.jtalks.jcommune.model.entity.Branch} entity
      * @param lastReadPostService      to perform post-related actions
-     * @param userService              to determine the current user logged in
+     * @param subscriptionService      to check whether the current user is subscribed to the topic
      * @param breadcrumbBuilder        to create Breadcrumbs for pages
      * @param locationService          to track user location on forum (what page he is viewing now)
      * @param sessionRegistry          to obtain list of users currently online
      * @param topicFetchService        to load topics from a database
+     * @param pollService              to check whether the current user has voted in a topic poll
+     * @param permissionResolver       to check permissions of the topic page at once before it's rendered
      */
     @Autowired
     public TopicController(TopicModificationService topicModificationService,
                            PostService postService,
                            BranchService branchService,
                            LastReadPostService lastReadPostService,
-                           UserService userService,
+                           SubscriptionService subscriptionService,
                            BreadcrumbBuilder breadcrumbBuilder,
                            LocationService locationService,
                            SessionRegistry sessionRegistry,
                            TopicFetchService topicFetchService,
                            TopicDraftService topicDraftService,
                            EntityToDtoConverter converter,
-                           RetryTemplate retryTemplate) {
+                           RetryTemplate retryTemplate,
+                           PollService pollService,
+                           PluginPermissionResolver permissionResolver) {
         this.topicModificationService = topicModificationService;
         this.postService = postService;
         this.branchService = branchService;
         this.lastReadPostService = lastReadPostService;
-        this.userService = userService;
+        this.subscriptionService = subscriptionService;
         this.breadcrumbBuilder = breadcrumbBuilder;
         this.locationService = locationService;
         this.sessionRegistry = sessionRegistry;
@@ -139,6 +154,8 @@ public class TopicController {
         this.topicDraftService = topicDraftService;
         this.converter = converter;
         this.retryTemplate = retryTemplate;
+        this.pollService = pollService;
+        this.permissionResolver = permissionResolver;
     }
 
     /**
@@ -266,7 +283,6 @@ public class TopicController {
     public ModelAndView showTopicPage(WebRequest request, @PathVariable(TOPIC_ID) Long topicId,
                                       @RequestParam(value = "page", defaultValue = "1", required = false) String page)
             throws NotFoundException {
-        JCUser currentUser = userService.getCurrentUser();
         Topic topic = topicFetchService.get(topicId);
 
         topicFetchService.checkViewTopicPermission(topic.getBranch().getId());
@@ -276,18 +292,25 @@ public class TopicController {
             return null;
         }
         PostDto postDto = new PostDto();
-        PostDraft draft = topic.getDraftForUser(currentUser);
+        PostDraft draft = postService.getDraft(topic);
         if (draft != null) {
             postDto = PostDto.getDtoFor(draft);
         }
         lastReadPostService.markTopicPageAsRead(topic, postsPage.getNumber());
+        boolean pollVoted = false;
+        if (topic.getPoll() != null) {
+            pollVoted = pollService.hasVoted(topic.getPoll());
+        }
+        permissionResolver.resolvePermissions(Collections.singletonList(topic.getBranch().getId()), "BRANCH",
+                TOPIC_PAGE_PERMISSIONS);
         return new ModelAndView("topic/postList")
                 .addObject("viewList", locationService.getUsersViewing(topic))
                 .addObject("usersOnline", sessionRegistry.getAllPrincipals())
                 .addObject("postsPage", postsPage)
                 .addObject("topic", topic)
                 .addObject(POST_DTO, postDto)
-                .addObject("subscribed", topic.getSubscribers().contains(currentUser))
+                .addObject("subscribed", subscriptionService.isSubscribed(topic))
+                .addObject("pollVoted", pollVoted)
                 .addObject(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
     }
 
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.dto;
+
+import java.util.List;
+
+/**
+ * DTO for the request from the client side to add many users to a group or to remove them from it at once.
+ */
+public class GroupUsersDto {
+    private long groupId;
+    private List<Long> userIds;
+
+    /**
+     * @return ID of the group to change members of
+     */
+    public long getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * @param groupId ID of the group to change members of
+     */
+    public void setGroupId(long groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * @return IDs of users to add or remove
+     */
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    /**
+     * @param userIds IDs of users to add or remove
+     */
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters;
+
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.dto.CachedFeed;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.jtalks.jcommune.web.filters.wrapper.TaggedResponseWrapper;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Serves RSS feeds from {@link FeedCacheService}, so only the first request after posts change renders a feed. Feeds
+ * are cached per URL and per set of groups of the user, because the branches visible to users depend on their
+ * groups only. Responses carry {@code ETag} and {@code Last-Modified} headers, and readers polling with
+ * {@code If-None-Match} or {@code If-Modified-Since} get {@code 304 Not Modified} while the feed is unchanged.
+ */
+public class FeedCachingFilter implements Filter {
+    private static final String ANONYMOUS = "anonymous";
+    private final FeedCacheService feedCacheService;
+    private final UserService userService;
+
+    /**
+     * @param feedCacheService to keep rendered feeds in
+     * @param userService      to get groups of the current user
+     */
+    public FeedCachingFilter(FeedCacheService feedCacheService, UserService userService) {
+        this.feedCacheService = feedCacheService;
+        this.userService = userService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        if (!"GET".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = keyOf(httpRequest);
+        CachedFeed feed = feedCacheService.get(key);
+        if (feed == null) {
+            long generation = feedCacheService.getGeneration();
+            StatusAwareResponseWrapper wrappedResponse = new StatusAwareResponseWrapper(httpResponse);
+            chain.doFilter(request, wrappedResponse);
+            if (!wrappedResponse.isOk()) {
+                response.getOutputStream().write(wrappedResponse.getByteArray());
+                return;
+            }
+            feed = feedCacheService.put(key, generation, wrappedResponse.getByteArray(),
+                    wrappedResponse.getContentType());
+        }
+        httpResponse.setHeader("ETag", feed.getETag());
+        httpResponse.setDateHeader("Last-Modified", feed.getLastModified());
+        if (isNotModified(httpRequest, feed)) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (feed.getContentType() != null) {
+            httpResponse.setContentType(feed.getContentType());
+        }
+        httpResponse.setContentLength(feed.getContent().length);
+        httpResponse.getOutputStream().write(feed.getContent());
+    }
+
+    private String keyOf(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURL());
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        JCUser user = userService.getCurrentUser();
+        key.append('|');
+        if (user.isAnonymous()) {
+            key.append(ANONYMOUS);
+        } else {
+            List<Long> groupIds = user.getGroupsIDs();
+            Collections.sort(groupIds);
+            key.append(groupIds);
+        }
+        return key.append('|').append(user.getPageSize()).toString();
+    }
+
+    private boolean isNotModified(HttpServletRequest request, CachedFeed feed) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.contains(feed.getETag()) || "*".equals(ifNoneMatch.trim());
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            return ifModifiedSince != -1 && feed.getLastModified() <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        //empty
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        //empty
+    }
+
+    /**
+     * Captures the body of the response and remembers whether it's a successful one, Servlet API 2.5 doesn't allow
+     * to get the status of a response. Errors and redirects are passed to the original response right away.
+     */
+    private static class StatusAwareResponseWrapper extends TaggedResponseWrapper {
+        private boolean ok = true;
+
+        StatusAwareResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        boolean isOk() {
+            return ok;
+        }
+
+        @Override
+        public void setStatus(int status) {
+            ok = status == SC_OK;
+            super.setStatus(status);
+        }
+
+        @Override
+        public void sendError(int status) throws IOException {
+            ok = false;
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            ok = false;
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            ok = false;
+            super.sendRedirect(location);
+        }
+    }
+}
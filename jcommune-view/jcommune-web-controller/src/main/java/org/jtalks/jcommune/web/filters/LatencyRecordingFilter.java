@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters;
+
+import org.jtalks.jcommune.service.performance.LatencyMonitor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Records latencies of HTTP requests into {@link LatencyMonitor}. Requests are grouped by routes rather than by URLs:
+ * the name of a latency is the HTTP method and the URL pattern of the handler that processed the request, e.g.
+ * {@code GET /topics/{topicId}}, otherwise every topic would get its own histogram. Requests that weren't processed
+ * by any handler are grouped together.
+ */
+public class LatencyRecordingFilter implements Filter {
+    /**
+     * The route of requests which haven't been mapped to any handler, e.g. requests to missing pages.
+     */
+    static final String UNMAPPED_ROUTE = "<unmapped>";
+    private final LatencyMonitor latencyMonitor;
+
+    /**
+     * @param latencyMonitor to record latencies of requests to
+     */
+    public LatencyRecordingFilter(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!latencyMonitor.shouldSample()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            latencyMonitor.record(routeOf((HttpServletRequest) request), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets the route of the request, it's known only after the request was mapped to a handler.
+     *
+     * @param request processed HTTP request
+     * @return HTTP method and URL pattern of the handler, e.g. {@code HTTP GET /topics/{topicId}}
+     */
+    public static String routeOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return "HTTP " + request.getMethod() + " " + (pattern == null ? UNMAPPED_ROUTE : pattern);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        //empty
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        //empty
+    }
+}
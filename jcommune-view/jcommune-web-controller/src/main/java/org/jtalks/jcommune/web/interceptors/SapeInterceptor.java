@@ -14,8 +14,6 @@
  */
 package org.jtalks.jcommune.web.interceptors;
 
-import javasape.Sape;
-import javasape.SapePageLinks;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jtalks.jcommune.model.entity.JCommuneProperty;
@@ -31,8 +29,9 @@ import java.io.IOException;
 
 /**
  * <b>Objectives:</b> put some links to every page user views.<br/>
- * <b>Details: </b> initializes {@link javasape.Sape} object on application start. JavaSapeInterceptor sends request
- * to SAPE.ru  provider with specific account ID and sets sape content to parameters of each request.
+ * <b>Details: </b> configures {@link SapeLinksCache} with the SAPE account on the first request and sets links of the
+ * page from the cache to parameters of each request. Links are fetched from SAPE.ru provider in background, so
+ * requests never wait for it, except the requests of the SAPE robot which are served with fresh links.
  *
  * @author elepaeva
  * @see <a href="http://jira.jtalks.org/browse/JC-1254">Related JIRA ticket</a>
@@ -47,7 +46,7 @@ public class SapeInterceptor extends HandlerInterceptorAdapter {
     private JCommuneProperty componentSapeShowDummyLinksProperty;
     private JCommuneProperty componentSapeEnableServiceProperty;
 
-    private volatile Sape sape;
+    private SapeLinksCache sapeLinksCache;
 
     private String dummyLinks = "";
 
@@ -80,17 +79,16 @@ public class SapeInterceptor extends HandlerInterceptorAdapter {
         if (componentSapeShowDummyLinksProperty.booleanValue()) {
             sapeLinksAsString = dummyLinks;
         } else if (initSape()) {
-            SapePageLinks pageLinks = sape.getPageLinks(request.getRequestURI(), request.getCookies());
-            sapeLinksAsString = pageLinks.render();
+            sapeLinksAsString = sapeLinksCache.getLinks(request.getRequestURI(), request.getCookies());
         }
         modelAndView.addObject("sapeLinks", sapeLinksAsString);
     }
 
     /**
-     * Initializes {@link javasape.Sape} object.
+     * Passes the SAPE account to {@link SapeLinksCache} unless it's already there.
      */
     private boolean initSape() {
-        if (sape != null) {
+        if (sapeLinksCache.isConfigured()) {
             return true;
         }
         String accountId = componentSapeAccountProperty.getValue();
@@ -98,8 +96,7 @@ public class SapeInterceptor extends HandlerInterceptorAdapter {
         if (StringUtils.isBlank(accountId) || StringUtils.isBlank(host)) {
             return false;
         }
-        sape = new Sape(componentSapeAccountProperty.getValue(),
-                componentSapeHostProperty.getValue(),
+        sapeLinksCache.configure(accountId, host,
                 Integer.parseInt(componentSapeTimeoutProperty.getValue()),
                 Integer.parseInt(componentSapeLinksCountProperty.getValue()));
         return true;
@@ -181,4 +178,13 @@ public class SapeInterceptor extends HandlerInterceptorAdapter {
     public void setComponentSapeEnableServiceProperty(JCommuneProperty componentSapeEnableServiceProperty) {
         this.componentSapeEnableServiceProperty = componentSapeEnableServiceProperty;
     }
+
+    /**
+     * Sets the cache to take links of pages from
+     *
+     * @param sapeLinksCache cache of SAPE links
+     */
+    public void setSapeLinksCache(SapeLinksCache sapeLinksCache) {
+        this.sapeLinksCache = sapeLinksCache;
+    }
 }
@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.interceptors;
+
+import javasape.Sape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.Cookie;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Keeps SAPE links of pages in memory, so that {@link SapeInterceptor} puts them to pages without going to the SAPE
+ * service. Links are fetched by a background thread: pages requested for the first time get their links in a few
+ * seconds (and no links meanwhile), links of all the known pages are refreshed periodically. The period is
+ * randomized, so that nodes of a cluster don't go to SAPE at the same time.
+ * <p/>
+ * If SAPE is unreachable, previously fetched links are kept and served. Links are also saved to a file, so that they
+ * survive restarts and pages have links right away even if SAPE doesn't respond at the moment.
+ * <p/>
+ * Links rendered for the SAPE robot depend on its cookie (it gets check code along with the links), so requests that
+ * carry the cookie still go to SAPE directly and their links are not cached.
+ */
+public class SapeLinksCache {
+    /**
+     * How often links for newly requested pages are fetched.
+     */
+    static final long NEW_PAGES_PERIOD = TimeUnit.SECONDS.toMillis(10);
+    /**
+     * How long to wait after SAPE didn't respond, plus a random jitter of up to the same amount.
+     */
+    static final long FAILURE_BACKOFF = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * Limits memory taken by links, requests to pages beyond the limit get no links.
+     */
+    static final int MAX_PAGES = 10000;
+    /**
+     * Cookie of the SAPE robot which checks that links are placed on pages.
+     */
+    static final String SAPE_COOKIE = "sape_cookie";
+    private final Logger logger = LoggerFactory.getLogger(SapeLinksCache.class);
+    private final ConcurrentMap<String, String> links = new ConcurrentHashMap<>();
+    private final Set<String> newPages = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Random random = new Random();
+    private final File snapshotFile;
+    private final long refreshPeriodMillis;
+    private volatile Sape sape;
+    private ScheduledExecutorService refresher;
+    /**
+     * Accessed only from the refresher thread.
+     */
+    private long nextRefreshTime;
+
+    /**
+     * @param snapshotFile        path to the file to keep links between restarts
+     * @param refreshPeriodMillis how often links of all the known pages are refreshed, a random jitter of up to the
+     *                            same amount is added to it
+     */
+    public SapeLinksCache(String snapshotFile, long refreshPeriodMillis) {
+        this.snapshotFile = new File(snapshotFile);
+        this.refreshPeriodMillis = refreshPeriodMillis;
+        loadSnapshot();
+    }
+
+    /**
+     * Starts the thread that fetches links.
+     */
+    public synchronized void start() {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sape-links-refresher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        nextRefreshTime = System.currentTimeMillis() + withJitter(refreshPeriodMillis);
+        refresher.schedule(new RefreshTask(), NEW_PAGES_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the thread that fetches links.
+     */
+    public synchronized void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /**
+     * @return whether the SAPE account is set, links are not fetched until it is
+     */
+    public boolean isConfigured() {
+        return sape != null;
+    }
+
+    /**
+     * Sets the SAPE account to fetch links with.
+     *
+     * @param accountId  SAPE account ID
+     * @param host       host of the forum
+     * @param timeout    timeout of requests to SAPE
+     * @param linksCount number of links for a page
+     */
+    public void configure(String accountId, String host, int timeout, int linksCount) {
+        sape = new Sape(accountId, host, timeout, linksCount);
+    }
+
+    /**
+     * Gets links of the page from memory, never goes to SAPE.
+     *
+     * @param uri URI of the page
+     * @return rendered links or an empty string if they are not fetched yet
+     */
+    public String getLinks(String uri) {
+        String pageLinks = links.get(uri);
+        if (pageLinks == null) {
+            if (isConfigured() && links.size() < MAX_PAGES) {
+                newPages.add(uri);
+            }
+            return "";
+        }
+        return pageLinks;
+    }
+
+    /**
+     * Gets links of the page from memory unless the request comes from the SAPE robot, links for which depend on its
+     * cookie and are fetched from SAPE right away.
+     *
+     * @param uri     URI of the page
+     * @param cookies cookies of the request, may be {@code null}
+     * @return rendered links or an empty string if they are not fetched yet
+     */
+    public String getLinks(String uri, Cookie[] cookies) {
+        if (cookies != null && isConfigured()) {
+            for (Cookie cookie : cookies) {
+                if (SAPE_COOKIE.equals(cookie.getName())) {
+                    return fetchLinks(uri, cookies);
+                }
+            }
+        }
+        return getLinks(uri);
+    }
+
+    /**
+     * Fetches links of newly requested pages and, once the refresh period is over, of all the known pages. If SAPE
+     * fails, all the pages are refreshed once it responds again.
+     *
+     * @return whether SAPE responded
+     */
+    boolean refresh() {
+        if (!isConfigured()) {
+            return true;
+        }
+        Set<String> pages = new HashSet<>();
+        for (Iterator<String> iterator = newPages.iterator(); iterator.hasNext(); ) {
+            pages.add(iterator.next());
+            iterator.remove();
+        }
+        long now = System.currentTimeMillis();
+        if (now >= nextRefreshTime) {
+            pages.addAll(links.keySet());
+            nextRefreshTime = now + withJitter(refreshPeriodMillis);
+        }
+        boolean changed = false;
+        for (Iterator<String> iterator = pages.iterator(); iterator.hasNext(); ) {
+            String page = iterator.next();
+            if (!links.containsKey(page) && links.size() >= MAX_PAGES) {
+                continue;
+            }
+            String pageLinks;
+            try {
+                pageLinks = fetchLinks(page, new Cookie[0]);
+            } catch (RuntimeException e) {
+                logger.warn("Could not fetch SAPE links, previous links are served until SAPE responds: {}",
+                        e.getMessage());
+                requeueNewPages(iterator);
+                nextRefreshTime = now;
+                saveSnapshotIf(changed);
+                return false;
+            }
+            changed |= !pageLinks.equals(links.put(page, pageLinks));
+        }
+        saveSnapshotIf(changed);
+        return true;
+    }
+
+    /**
+     * Goes to SAPE for links of the page.
+     *
+     * @param uri     URI of the page
+     * @param cookies cookies of the request the links are for, empty for links of ordinary visitors
+     * @return rendered links
+     */
+    String fetchLinks(String uri, Cookie[] cookies) {
+        return sape.getPageLinks(uri, cookies).render();
+    }
+
+    private void requeueNewPages(Iterator<String> notFetched) {
+        while (notFetched.hasNext()) {
+            String page = notFetched.next();
+            if (!links.containsKey(page)) {
+                newPages.add(page);
+            }
+        }
+    }
+
+    private long withJitter(long period) {
+        return period + (long) (random.nextDouble() * period);
+    }
+
+    private void loadSnapshot() {
+        if (!snapshotFile.isFile()) {
+            return;
+        }
+        Properties snapshot = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(snapshotFile), StandardCharsets.UTF_8)) {
+            snapshot.load(reader);
+        } catch (IOException e) {
+            logger.warn("Could not read SAPE links from [{}]: {}", snapshotFile, e.getMessage());
+            return;
+        }
+        for (String page : snapshot.stringPropertyNames()) {
+            links.put(page, snapshot.getProperty(page));
+        }
+    }
+
+    private void saveSnapshotIf(boolean changed) {
+        if (!changed) {
+            return;
+        }
+        Properties snapshot = new Properties();
+        snapshot.putAll(links);
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            File directory = snapshotFile.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create directory " + directory);
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                snapshot.store(writer, "SAPE links of pages");
+            }
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Could not save SAPE links to [{}]: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private class RefreshTask implements Runnable {
+        @Override
+        public void run() {
+            long delay = NEW_PAGES_PERIOD;
+            try {
+                if (!refresh()) {
+                    delay = withJitter(FAILURE_BACKOFF);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not refresh SAPE links", e);
+            }
+            synchronized (SapeLinksCache.this) {
+                if (refresher != null) {
+                    refresher.schedule(this, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+}
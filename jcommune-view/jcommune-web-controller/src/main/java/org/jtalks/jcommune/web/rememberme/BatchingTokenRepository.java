@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.rememberme;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.authentication.rememberme.PersistentRememberMeToken;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenRepository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remember me token repository which writes refreshes of the last usage time and removals of tokens to the database
+ * in batches, so under many concurrent users it saves a lot of single statements. Pending changes are visible through
+ * this repository immediately: refreshed tokens are returned with new usage time and removed tokens are not returned
+ * at all, so they can't be used for authentication before they're written.
+ * New tokens and new values of tokens are written synchronously: the client gets the new value in its cookie
+ * right away, and if the value was lost or not visible to other nodes of the cluster, the next auto login
+ * would be treated as a cookie theft.
+ */
+public class BatchingTokenRepository implements PersistentTokenRepository {
+    private static final String REFRESH_TOKEN_QUERY =
+            "UPDATE persistent_logins SET last_used = ? WHERE series = ? AND last_used < ?";
+    private static final String REMOVE_TOKEN_QUERY = "DELETE FROM persistent_logins WHERE series = ? AND token = ?";
+    /** 2 seconds, changes of tokens are written to the database with this delay at most */
+    private static final long FLUSH_PERIOD = 2 * 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final ConcurrentMap<String, Date> pendingRefreshes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> pendingRemovals = new ConcurrentHashMap<>();
+    private final PersistentTokenRepository tokenRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param tokenRepository repository to read, create and remove tokens of user
+     * @param jdbcTemplate    to write pending changes of tokens
+     */
+    public BatchingTokenRepository(PersistentTokenRepository tokenRepository, JdbcTemplate jdbcTemplate) {
+        this.tokenRepository = tokenRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createNewToken(PersistentRememberMeToken token) {
+        tokenRepository.createNewToken(token);
+    }
+
+    /**
+     * Writes new value of the token immediately, pending refresh of the series is not needed anymore.
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateToken(String series, String tokenValue, Date lastUsed) {
+        tokenRepository.updateToken(series, tokenValue, lastUsed);
+        pendingRefreshes.remove(series);
+    }
+
+    /**
+     * Adds refresh of the last usage time of the token to pending ones, only the last refresh of series is written.
+     * Value of the token is not changed.
+     *
+     * @param series   series of the token
+     * @param lastUsed new last usage time of the token
+     */
+    public void refreshToken(String series, Date lastUsed) {
+        pendingRefreshes.put(series, lastUsed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PersistentRememberMeToken getTokenForSeries(String seriesId) {
+        if (pendingRemovals.containsKey(seriesId)) {
+            return null;
+        }
+        PersistentRememberMeToken token = tokenRepository.getTokenForSeries(seriesId);
+        Date lastUsed = pendingRefreshes.get(seriesId);
+        if (token != null && lastUsed != null && lastUsed.after(token.getDate())) {
+            return new PersistentRememberMeToken(token.getUsername(), seriesId, token.getTokenValue(), lastUsed);
+        }
+        return token;
+    }
+
+    /**
+     * Writes pending changes before removal, so they can't be applied to tokens created later.
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeUserTokens(String username) {
+        flush();
+        tokenRepository.removeUserTokens(username);
+    }
+
+    /**
+     * Adds removal of the token to pending ones. Token is not returned by this repository since this moment.
+     *
+     * @param series     series of the token
+     * @param tokenValue value of the token, token is not removed if its value was changed
+     */
+    public void removeToken(String series, String tokenValue) {
+        pendingRemovals.put(series, tokenValue);
+    }
+
+    /**
+     * Writes all pending refreshes and then all pending removals to the database. Invoked periodically
+     * and on shutdown. If changes can't be written, they are kept to be written next time. Refresh never moves
+     * the last usage time back, so it doesn't undo a newer value written synchronously.
+     */
+    @Scheduled(fixedDelay = FLUSH_PERIOD)
+    public synchronized void flush() {
+        List<Map.Entry<String, Date>> refreshes = new ArrayList<>(pendingRefreshes.entrySet());
+        List<Map.Entry<String, String>> removals = new ArrayList<>(pendingRemovals.entrySet());
+        if (refreshes.isEmpty() && removals.isEmpty()) {
+            return;
+        }
+        try {
+            List<Object[]> refreshArgs = new ArrayList<>(refreshes.size());
+            for (Map.Entry<String, Date> refresh : refreshes) {
+                refreshArgs.add(new Object[]{refresh.getValue(), refresh.getKey(), refresh.getValue()});
+            }
+            List<Object[]> removalArgs = new ArrayList<>(removals.size());
+            for (Map.Entry<String, String> removal : removals) {
+                removalArgs.add(new Object[]{removal.getKey(), removal.getValue()});
+            }
+            if (!refreshArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(REFRESH_TOKEN_QUERY, refreshArgs);
+            }
+            if (!removalArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(REMOVE_TOKEN_QUERY, removalArgs);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Changes of remember me tokens weren't written and will be retried", e);
+            return;
+        }
+        // changes made during writing stay pending
+        for (Map.Entry<String, Date> refresh : refreshes) {
+            pendingRefreshes.remove(refresh.getKey(), refresh.getValue());
+        }
+        for (Map.Entry<String, String> removal : removals) {
+            pendingRemovals.remove(removal.getKey(), removal.getValue());
+        }
+        logger.debug("{} refreshes and {} removals of remember me tokens were written", refreshes.size(),
+                removals.size());
+    }
+}
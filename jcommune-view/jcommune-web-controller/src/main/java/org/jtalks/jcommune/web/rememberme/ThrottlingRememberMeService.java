@@ -15,16 +15,20 @@
 package org.jtalks.jcommune.web.rememberme;
 
 import com.google.common.annotations.VisibleForTesting;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.rememberme.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implements our custom Remember Me service to replace the Spring default one. This implementation removes Remember Me
@@ -33,28 +37,34 @@ import java.util.concurrent.ConcurrentHashMap;
  * for a user whose session expired - even the sessions started on a different machine or device. Thus users were
  * frustrated when their sessions expired on the machines where the Remember Me checkbox was checked.
  * </p>
+ * <p>All the cached tokens live the same time, so the oldest of them always expire first. Therefore tokens are
+ * evicted from the head of the caching order queue and auto login doesn't scan the whole cache.</p>
  */
 public class ThrottlingRememberMeService extends PersistentTokenBasedRememberMeServices {
-    private final static String REMOVE_TOKEN_QUERY = "DELETE FROM persistent_logins WHERE series = ? AND token = ?";
-    // We should store a lot of tokens to prevent cache overflow
-    private static final int TOKEN_CACHE_MAX_SIZE = 100;
+    // We should store a lot of tokens to prevent cache overflow, eviction doesn't depend on the size
+    private static final int TOKEN_CACHE_MAX_SIZE = 10000;
     private final RememberMeCookieDecoder rememberMeCookieDecoder;
-    private final JdbcTemplate jdbcTemplate;
-    private final Map<String, CachedRememberMeTokenInfo> tokenCache = new ConcurrentHashMap<>();
+    private final BatchingTokenRepository batchingTokenRepository;
+    private final ConcurrentMap<String, CachedRememberMeTokenInfo> tokenCache = new ConcurrentHashMap<>();
+    /** Cached tokens in order of caching, guarded by itself */
+    private final Queue<Map.Entry<String, CachedRememberMeTokenInfo>> tokenCachingOrder = new ArrayDeque<>();
     private PersistentTokenRepository tokenRepository = new InMemoryTokenRepositoryImpl();
     // 5 seconds should be enough for processing request and sending response to client
     private int cachedTokenValidityTime = 5 * 1000;
 
     /**
      * @param rememberMeCookieDecoder needed for extracting rememberme cookies
-     * @param jdbcTemplate            needed to execute the sql queries
+     * @param batchingTokenRepository needed to store and remove tokens
      * @throws Exception - see why {@link PersistentTokenBasedRememberMeServices} throws it
      */
-    public ThrottlingRememberMeService(RememberMeCookieDecoder rememberMeCookieDecoder, JdbcTemplate jdbcTemplate)
-            throws Exception {
+    public ThrottlingRememberMeService(RememberMeCookieDecoder rememberMeCookieDecoder,
+                                       BatchingTokenRepository batchingTokenRepository) throws Exception {
         super();
         this.rememberMeCookieDecoder = rememberMeCookieDecoder;
-        this.jdbcTemplate = jdbcTemplate;
+        this.batchingTokenRepository = batchingTokenRepository;
+        if (batchingTokenRepository != null) {
+            setTokenRepository(batchingTokenRepository);
+        }
     }
 
     /**
@@ -71,9 +81,9 @@ public class ThrottlingRememberMeService extends PersistentTokenBasedRememberMeS
                 logger.debug("Logout of user " + (authentication == null ? "Unknown" : authentication.getName()));
             }
             cancelCookie(request, response);
-            jdbcTemplate.update(REMOVE_TOKEN_QUERY, seriesAndToken);
+            batchingTokenRepository.removeToken(seriesAndToken[0], seriesAndToken[1]);
             tokenCache.remove(seriesAndToken[0]);
-            validateTokenCache();
+            evictExpiredTokens();
         }
     }
 
@@ -111,6 +121,10 @@ public class ThrottlingRememberMeService extends PersistentTokenBasedRememberMeS
             tokenCache.remove(presentedSeries);
             details = getUserDetailsService().loadUserByUsername(token.getUsername());
             rewriteCookie(token, request, response);
+            if (batchingTokenRepository != null) {
+                // token is used without changing its value, so only usage time is refreshed in the next batch
+                batchingTokenRepository.refreshToken(presentedSeries, new Date());
+            }
         } else {
             /* IMPORTANT: We should store token in cache before calling <code>loginWithSpringSecurity</code> method.
                Because execution of this method can take a long time.
@@ -124,7 +138,7 @@ public class ThrottlingRememberMeService extends PersistentTokenBasedRememberMeS
                 throw ex;
             }
         }
-        validateTokenCache();
+        evictExpiredTokens();
 
         return details;
     }
@@ -159,24 +173,42 @@ public class ThrottlingRememberMeService extends PersistentTokenBasedRememberMeS
      * @see CachedRememberMeTokenInfo
      */
     private void cacheToken(PersistentRememberMeToken token) {
-        if (tokenCache.size() >= TOKEN_CACHE_MAX_SIZE) {
-            validateTokenCache();
-        }
         CachedRememberMeTokenInfo tokenWrapper = new CachedRememberMeTokenInfo(token.getTokenValue(), System.currentTimeMillis());
-        tokenCache.put(token.getSeries(), tokenWrapper);
+        synchronized (tokenCachingOrder) {
+            tokenCache.put(token.getSeries(), tokenWrapper);
+            tokenCachingOrder.add(new AbstractMap.SimpleImmutableEntry<>(token.getSeries(), tokenWrapper));
+        }
+        evictExpiredTokens();
     }
 
     /**
-     * Removes from cache tokens which were stored more than <link>CACHED_TOKEN_VALIDITY_TIME</link> milliseconds ago.
+     * Removes from cache tokens which were stored more than <link>CACHED_TOKEN_VALIDITY_TIME</link> milliseconds ago
+     * and the oldest tokens if there are more than <link>TOKEN_CACHE_MAX_SIZE</link> of them. Only the tokens which
+     * are going to be removed are checked.
      */
-    private void validateTokenCache() {
-        for (Map.Entry<String, CachedRememberMeTokenInfo> entry: tokenCache.entrySet()) {
-            if (!isTokenInfoValid(entry.getValue())) {
-                tokenCache.remove(entry.getKey());
+    private void evictExpiredTokens() {
+        synchronized (tokenCachingOrder) {
+            Map.Entry<String, CachedRememberMeTokenInfo> oldest = tokenCachingOrder.peek();
+            while (oldest != null
+                    && (!isTokenInfoValid(oldest.getValue()) || tokenCachingOrder.size() > TOKEN_CACHE_MAX_SIZE)) {
+                tokenCachingOrder.remove();
+                // token may be already used or cached again
+                tokenCache.remove(oldest.getKey(), oldest.getValue());
+                oldest = tokenCachingOrder.peek();
             }
         }
     }
 
+    /**
+     * Needed for possibility to test.
+     *
+     * @return count of tokens in cache
+     */
+    @VisibleForTesting
+    int getCachedTokensCount() {
+        return tokenCache.size();
+    }
+
     /**
      * Checks if given tokenInfo valid.
      * @param tokenInfo Token wrapper to be checked
@@ -199,11 +231,8 @@ public class ThrottlingRememberMeService extends PersistentTokenBasedRememberMeS
      * @return <code>true</code> if token stored in cache< <code>false</code> otherwise.
      */
     private boolean isTokenCached(String series, String value) {
-        if (tokenCache.containsKey(series) && isTokenInfoValid(tokenCache.get(series))
-                && value.equals(tokenCache.get(series).getValue())) {
-            return true;
-        }
-        return false;
+        CachedRememberMeTokenInfo tokenInfo = tokenCache.get(series);
+        return tokenInfo != null && isTokenInfoValid(tokenInfo) && value.equals(tokenInfo.getValue());
     }
 
     /**
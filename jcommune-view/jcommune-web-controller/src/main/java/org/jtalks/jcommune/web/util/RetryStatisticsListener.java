@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.util;
+
+import org.jtalks.jcommune.web.filters.LatencyRecordingFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts retries of operations executed with the retry template, grouped by the HTTP route the same way as latencies
+ * are (see {@link LatencyRecordingFilter}). Every failed attempt is counted as a conflict, operations that failed
+ * even after the last attempt are counted as failures too. Retries are expected to be rare, so growing numbers of
+ * some route point to the data which is changed by parallel requests and should be changed atomically instead.
+ */
+public class RetryStatisticsListener extends RetryListenerSupport {
+    /**
+     * The route of operations which were retried outside of HTTP requests, e.g. by scheduled jobs.
+     */
+    static final String NO_REQUEST_ROUTE = "<no request>";
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryStatisticsListener.class);
+
+    private final ConcurrentMap<String, RetryStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        String route = currentRoute();
+        statisticsOf(route).conflicts.incrementAndGet();
+        LOGGER.debug("Attempt {} of [{}] failed: {}", new Object[]{context.getRetryCount(), route, throwable});
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        if (throwable != null && context.getRetryCount() > 0) {
+            statisticsOf(currentRoute()).failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a text report with retries of all the routes that were retried at least once, one per line.
+     *
+     * @return the report, it's empty if nothing was retried yet
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, RetryStatistics> entry : new TreeMap<>(statistics).entrySet()) {
+            report.append(entry.getKey())
+                    .append(" conflicts=").append(entry.getValue().conflicts.get())
+                    .append(" failures=").append(entry.getValue().failures.get())
+                    .append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Gets count of failed attempts of the route.
+     *
+     * @param route HTTP method and URL pattern, e.g. {@code HTTP POST /posts/new}
+     * @return count of failed attempts, 0 if the route has never been retried
+     */
+    public long getConflicts(String route) {
+        RetryStatistics routeStatistics = statistics.get(route);
+        return routeStatistics == null ? 0 : routeStatistics.conflicts.get();
+    }
+
+    private RetryStatistics statisticsOf(String route) {
+        RetryStatistics routeStatistics = statistics.get(route);
+        if (routeStatistics == null) {
+            RetryStatistics created = new RetryStatistics();
+            routeStatistics = statistics.putIfAbsent(route, created);
+            if (routeStatistics == null) {
+                routeStatistics = created;
+            }
+        }
+        return routeStatistics;
+    }
+
+    private String currentRoute() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return LatencyRecordingFilter.routeOf(((ServletRequestAttributes) attributes).getRequest());
+        }
+        return NO_REQUEST_ROUTE;
+    }
+
+    /**
+     * Counters of a single route.
+     */
+    private static class RetryStatistics {
+        private final AtomicLong conflicts = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+    }
+}
@@ -30,6 +30,7 @@ import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.jtalks.jcommune.service.security.PermissionManager;
 import org.jtalks.jcommune.web.dto.BranchDto;
 import org.jtalks.jcommune.web.dto.BranchPermissionDto;
+import org.jtalks.jcommune.web.dto.GroupUsersDto;
 import org.jtalks.jcommune.web.dto.PermissionGroupsDto;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponse;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponseStatus;
@@ -287,6 +288,70 @@ public class AdministrationControllerTest {
         assertEquals(response.getStatus(), JsonResponseStatus.FAIL);
     }
 
+    @Test
+    public void addUsersToGroupShouldAddAllUsersAtOnce() throws Exception {
+        Component component = setupComponentMock();
+        GroupUsersDto dto = createGroupUsersDto();
+
+        JsonResponse response = administrationController.addUsersToGroup(dto);
+
+        verify(groupService).addUsersToGroup(component.getId(), dto.getGroupId(), dto.getUserIds());
+        assertEquals(response.getStatus(), JsonResponseStatus.SUCCESS);
+    }
+
+    @Test
+    public void addUsersToNotExistingGroupShouldFail() throws Exception {
+        Component component = setupComponentMock();
+        GroupUsersDto dto = createGroupUsersDto();
+        doThrow(new org.jtalks.common.service.exceptions.NotFoundException()).when(groupService)
+                .addUsersToGroup(component.getId(), dto.getGroupId(), dto.getUserIds());
+
+        JsonResponse response = administrationController.addUsersToGroup(dto);
+
+        assertEquals(response.getStatus(), JsonResponseStatus.FAIL);
+    }
+
+    @Test
+    public void removeUsersFromGroupShouldRemoveAllUsersAtOnce() throws Exception {
+        Component component = setupComponentMock();
+        GroupUsersDto dto = createGroupUsersDto();
+
+        JsonResponse response = administrationController.removeUsersFromGroup(dto);
+
+        verify(groupService).removeUsersFromGroup(component.getId(), dto.getGroupId(), dto.getUserIds());
+        assertEquals(response.getStatus(), JsonResponseStatus.SUCCESS);
+    }
+
+    @Test
+    public void removeUsersFromNotExistingGroupShouldFail() throws Exception {
+        Component component = setupComponentMock();
+        GroupUsersDto dto = createGroupUsersDto();
+        doThrow(new org.jtalks.common.service.exceptions.NotFoundException()).when(groupService)
+                .removeUsersFromGroup(component.getId(), dto.getGroupId(), dto.getUserIds());
+
+        JsonResponse response = administrationController.removeUsersFromGroup(dto);
+
+        assertEquals(response.getStatus(), JsonResponseStatus.FAIL);
+    }
+
+    @Test
+    public void changingGroupMembersWithoutUserIdsShouldFail() throws Exception {
+        setupComponentMock();
+        GroupUsersDto dto = createGroupUsersDto();
+        dto.setUserIds(null);
+
+        assertEquals(administrationController.addUsersToGroup(dto).getStatus(), JsonResponseStatus.FAIL);
+        assertEquals(administrationController.removeUsersFromGroup(dto).getStatus(), JsonResponseStatus.FAIL);
+        verifyZeroInteractions(groupService);
+    }
+
+    private GroupUsersDto createGroupUsersDto() {
+        GroupUsersDto dto = new GroupUsersDto();
+        dto.setGroupId(42L);
+        dto.setUserIds(Arrays.asList(1L, 2L, 3L));
+        return dto;
+    }
+
     private Component setupComponentMock() {
         Component component = new Component();
         component.setId(1L);
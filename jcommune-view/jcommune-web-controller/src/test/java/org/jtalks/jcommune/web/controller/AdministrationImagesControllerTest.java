@@ -15,14 +15,19 @@
 
 package org.jtalks.jcommune.web.controller;
 
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 import org.jtalks.common.model.entity.Component;
 import org.jtalks.common.model.entity.ComponentType;
 import org.jtalks.jcommune.service.ComponentService;
+import org.jtalks.jcommune.service.dto.CachedImage;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
+import org.jtalks.jcommune.service.nontransactional.ForumImageCacheService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.jtalks.jcommune.service.transactional.TransactionalComponentService;
 import org.jtalks.jcommune.web.util.ImageControllerUtils;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.springframework.context.MessageSource;
@@ -36,6 +41,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Date;
@@ -43,6 +49,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -81,6 +88,9 @@ public class AdministrationImagesControllerTest {
     @Mock
     ImageService iconImageService;
 
+    @Mock
+    Ehcache forumImageCache;
+
     //
     private AdministrationImagesController administrationController;
 
@@ -93,7 +103,7 @@ public class AdministrationImagesControllerTest {
 
         administrationController = new AdministrationImagesController(componentService, logoControllerUtils,
                 favIconPngControllerUtils, favIconIcoControllerUtils,
-                messageSource);
+                messageSource, new ForumImageCacheService(forumImageCache));
     }
 
     @Test
@@ -284,6 +294,26 @@ public class AdministrationImagesControllerTest {
     }
 
 
+    @Test
+    public void getFavIconPNGShouldSetHeadersBeforeWritingIcon() throws IOException {
+        when(componentService.getComponentOfForum()).thenReturn(null);
+        when(componentService.getComponentModificationTime()).thenReturn(new Date());
+        when(favIconPngControllerUtils.getDefaultImage()).thenReturn(validImage);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+
+        administrationController.getFavIconPNG(new MockHttpServletRequest(), response);
+
+        InOrder inOrder = inOrder(response);
+        inOrder.verify(response).setHeader(eq("Last-Modified"), anyString());
+        inOrder.verify(response).setHeader(eq("ETag"), anyString());
+        inOrder.verify(response).getOutputStream();
+    }
+
     @Test
     public void getFavIconICOShouldReturnDefaultIconWhenIconPropertyIsEmpty() throws ImageProcessException {
         Component forumComponent = new Component();
@@ -413,6 +443,76 @@ public class AdministrationImagesControllerTest {
 
     }
 
+    @Test
+    public void cachedLogoShouldBeReturnedWithoutLoadingComponent() throws IOException {
+        CachedImage image = new CachedImage(validImage, "image/jpeg", "\"etag\"", 1000L);
+        when(forumImageCache.get(TransactionalComponentService.LOGO_PROPERTY))
+                .thenReturn(new Element(TransactionalComponentService.LOGO_PROPERTY, image));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        administrationController.getForumLogo(new MockHttpServletRequest(), response);
+
+        verifyZeroInteractions(componentService, logoControllerUtils);
+        assertEquals(response.getContentAsByteArray(), validImage);
+        assertEquals(response.getHeader("ETag"), "\"etag\"");
+        checkResponse(response);
+    }
+
+    @Test
+    public void loadedLogoShouldBePutToCache() {
+        when(componentService.getComponentModificationTime()).thenReturn(new Date(1000));
+        when(logoControllerUtils.getDefaultImage()).thenReturn(validImage);
+
+        administrationController.getForumLogo(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        verify(forumImageCache).put(any(Element.class));
+    }
+
+    @Test
+    public void logoWithSameETagShouldNotBeReturned() {
+        CachedImage image = new CachedImage(validImage, "image/jpeg", "\"etag\"", 1000L);
+        when(forumImageCache.get(TransactionalComponentService.LOGO_PROPERTY))
+                .thenReturn(new Element(TransactionalComponentService.LOGO_PROPERTY, image));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "\"etag\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        administrationController.getForumLogo(request, response);
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(response.getContentAsByteArray().length, 0);
+    }
+
+    @Test
+    public void logoRequestedByVersionedUrlShouldBeCachedForever() {
+        when(componentService.getComponentModificationTime()).thenReturn(new Date(1000));
+        when(logoControllerUtils.getDefaultImage()).thenReturn(validImage);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter(AdministrationImagesController.VERSION_PARAM, "1000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        administrationController.getForumLogo(request, response);
+
+        List<String> cacheControlHeaders = response.getHeaders("Cache-Control");
+        assertTrue(cacheControlHeaders.contains("immutable"));
+        assertTrue(cacheControlHeaders.contains("max-age=" + AdministrationImagesController.IMMUTABLE_CACHE_AGE_SEC));
+        checkResponse(response);
+    }
+
+    @Test
+    public void logoRequestedByOutdatedVersionShouldNotBeCachedForever() {
+        when(componentService.getComponentModificationTime()).thenReturn(new Date(2000));
+        when(logoControllerUtils.getDefaultImage()).thenReturn(validImage);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter(AdministrationImagesController.VERSION_PARAM, "1000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        administrationController.getForumLogo(request, response);
+
+        assertFalse(response.getHeaders("Cache-Control").contains("immutable"));
+        checkResponse(response);
+    }
+
     private void checkResponse(MockHttpServletResponse response) {
         assertEquals(response.getHeader("Pragma"), "public");
         List<String> cacheControlHeaders = response.getHeaders("Cache-Control");
@@ -70,7 +70,7 @@ public class BranchControllerTest {
     @Mock
     private LastReadPostService lastReadPostService;
     @Mock
-    private UserService userService;
+    private SubscriptionService subscriptionService;
     @Mock
     private PostService postService;
     @Mock
@@ -91,7 +91,7 @@ public class BranchControllerTest {
                 branchService,
                 topicFetchService,
                 lastReadPostService,
-                userService,
+                subscriptionService,
                 breadcrumbBuilder,
                 locationServiceImpl,
                 postService,
@@ -121,6 +121,7 @@ public class BranchControllerTest {
         when(securityContextFacade.getContext()).thenReturn(securityContext);
         Authentication authentication = mock(Authentication.class);
         when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(subscriptionService.isSubscribed(branch)).thenReturn(true);
         //invoke the object under test
         ModelAndView mav = controller.showPage(branchId, page);
 
@@ -139,6 +140,7 @@ public class BranchControllerTest {
         assertEquals(actualTopicsPage.getSize(), dtoPage.getSize());
         
         assertModelAttributeAvailable(mav, "breadcrumbList");
+        assertModelAttributeValue(mav, "subscribed", true);
     }
 
     @Test
@@ -75,7 +75,7 @@ public class PostControllerTest {
     @Mock
     private LastReadPostService lastReadPostService;
     @Mock
-    private UserService userService;
+    private SubscriptionService subscriptionService;
     @Mock
     private LocationService locationService;
     @Mock
@@ -123,7 +123,7 @@ public class PostControllerTest {
 
         controller = new PostController(
                 postService, breadcrumbBuilder, topicFetchService, topicModificationService,
-                bbCodeService, lastReadPostService, userService, locationService, converter,
+                bbCodeService, lastReadPostService, subscriptionService, locationService, converter,
                 retryTemplate);
     }
 
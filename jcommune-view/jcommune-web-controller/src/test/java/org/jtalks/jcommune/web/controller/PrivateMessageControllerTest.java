@@ -49,6 +49,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.ModelAndViewAssert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -424,6 +425,36 @@ public class PrivateMessageControllerTest {
         assertEquals(result, "redirect:/aaa");
     }
 
+    @Test
+    public void testDeleteAllPm() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(delete("/pm/outbox"))
+                .andExpect(status().isMovedTemporarily())
+                .andExpect(redirectedUrl("/outbox"));
+        verify(pmService).deleteAll("outbox");
+    }
+
+    @Test
+    public void testMarkPmAsRead() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(post("/pm/read").param(PrivateMessageController.PM_IDENTIFIERS, "1,2"))
+                .andExpect(status().isMovedTemporarily())
+                .andExpect(redirectedUrl("/inbox"));
+        verify(pmService).markAsRead(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    public void testMarkAllPmAsRead() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(post("/pm/inbox/read"))
+                .andExpect(status().isMovedTemporarily())
+                .andExpect(redirectedUrl("/inbox"));
+        verify(pmService).markAllAsRead();
+    }
+
     private PrivateMessageDto getPrivateMessageDto() {
         PrivateMessageDto dto = new PrivateMessageDto();
         dto.setBody("body");
@@ -15,8 +15,10 @@
 package org.jtalks.jcommune.web.controller;
 
 import org.jtalks.common.model.entity.Section;
+import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.service.SectionService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.jtalks.jcommune.service.nontransactional.LocationService;
 import org.jtalks.jcommune.plugin.api.web.dto.Breadcrumb;
 import org.jtalks.jcommune.web.dto.SectionDto;
@@ -28,6 +30,8 @@ import org.testng.annotations.Test;
 
 import javax.servlet.http.HttpSession;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
@@ -46,6 +50,7 @@ public class SectionControllerTest {
     private BreadcrumbBuilder breadcrumbBuilder;
     private ForumStatisticsProvider statisticsProvider;
     private LocationService locationServiceImpl;
+    private PluginPermissionResolver permissionResolver;
 
     @BeforeMethod
     public void init() {
@@ -53,11 +58,13 @@ public class SectionControllerTest {
         breadcrumbBuilder = mock(BreadcrumbBuilder.class);
         statisticsProvider = mock(ForumStatisticsProvider.class);
         locationServiceImpl = mock(LocationService.class);
+        permissionResolver = mock(PluginPermissionResolver.class);
         
         controller = new SectionController( 
                 sectionService,
                 statisticsProvider,
-                locationServiceImpl);
+                locationServiceImpl,
+                permissionResolver);
     }
 
     @Test
@@ -109,6 +116,24 @@ public class SectionControllerTest {
         assertEquals(actualSection.getId(), sectionId);
     }
 
+    @Test
+    public void branchListShouldResolveVisibilityOfAllBranchesAtOnce() throws NotFoundException {
+        long sectionId = 1L;
+        Section section = new Section("section name");
+        section.setId(sectionId);
+        Branch first = new Branch("first", "description");
+        first.setId(1L);
+        Branch second = new Branch("second", "description");
+        second.setId(2L);
+        section.getBranches().addAll(Arrays.asList(first, second));
+        when(sectionService.get(sectionId)).thenReturn(section);
+
+        controller.branchList(sectionId);
+
+        verify(permissionResolver).resolvePermissions(Arrays.asList(1L, 2L), "BRANCH",
+                Collections.singletonList("BranchPermission.VIEW_TOPICS"));
+    }
+
     @Test
     public void testViewList() throws NotFoundException {
         long sectionId = 1L;
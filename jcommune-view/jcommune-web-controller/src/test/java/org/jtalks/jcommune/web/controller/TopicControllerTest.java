@@ -19,6 +19,7 @@ import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.service.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.jtalks.jcommune.service.nontransactional.LocationService;
 import org.jtalks.jcommune.plugin.api.web.dto.Breadcrumb;
 import org.jtalks.jcommune.plugin.api.web.dto.TopicDto;
@@ -78,7 +79,7 @@ public class TopicControllerTest {
     @Mock
     private BranchService branchService;
     @Mock
-    private UserService userService;
+    private SubscriptionService subscriptionService;
     @Mock
     private BreadcrumbBuilder breadcrumbBuilder;
     @Mock
@@ -89,6 +90,10 @@ public class TopicControllerTest {
     private LastReadPostService lastReadPostService;
     @Mock
     private EntityToDtoConverter converter;
+    @Mock
+    private PollService pollService;
+    @Mock
+    private PluginPermissionResolver permissionResolver;
 
     private TopicController controller;
     @Mock
@@ -106,14 +111,16 @@ public class TopicControllerTest {
                 postService,
                 branchService,
                 lastReadPostService,
-                userService,
+                subscriptionService,
                 breadcrumbBuilder,
                 locationService,
                 registry,
                 topicFetchService,
                 topicDraftService,
                 converter,
-                retryTemplate);
+                retryTemplate,
+                pollService,
+                permissionResolver);
     }
 
     @BeforeMethod
@@ -193,6 +200,44 @@ public class TopicControllerTest {
         assertNotNull(mav);
     }
 
+    @Test
+    public void showTopicPageShouldShowWhetherUserHasVotedInPoll() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        Poll poll = new Poll("poll");
+        topic.setPoll(poll);
+        prepareViewTopicMocks(topic, page);
+        when(pollService.hasVoted(poll)).thenReturn(true);
+
+        ModelAndView mav = controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page);
+
+        assertModelAttributeValue(mav, "pollVoted", true);
+    }
+
+    @Test
+    public void showTopicPageShouldShowWhetherUserIsSubscribedToTopic() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        prepareViewTopicMocks(topic, page);
+        when(subscriptionService.isSubscribed(topic)).thenReturn(true);
+
+        ModelAndView mav = controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page);
+
+        assertModelAttributeValue(mav, "subscribed", true);
+    }
+
+    @Test
+    public void showTopicPageShouldResolvePermissionsOfBranchBeforeRendering() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        prepareViewTopicMocks(topic, page);
+
+        controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page);
+
+        verify(permissionResolver).resolvePermissions(eq(Collections.singletonList(topic.getBranch().getId())),
+                eq("BRANCH"), anyCollectionOf(String.class));
+    }
+
     @Test
     public void createTopicShouldPassAndRedirectToNewTopicIfItIsValid() throws Exception {
         Branch branch = createBranch();
@@ -310,7 +355,6 @@ public class TopicControllerTest {
         //
         when(topicFetchService.get(TOPIC_ID)).thenReturn(topic);
         when(breadcrumbBuilder.getForumBreadcrumb(topic)).thenReturn(new ArrayList<Breadcrumb>());
-        when(userService.getCurrentUser()).thenReturn(user);
 
         ModelAndView mav = controller.editTopicPage(TOPIC_ID);
 
@@ -339,7 +383,6 @@ public class TopicControllerTest {
         //
         when(topicFetchService.get(TOPIC_ID)).thenReturn(topic);
         when(breadcrumbBuilder.getForumBreadcrumb(topic)).thenReturn(new ArrayList<Breadcrumb>());
-        when(userService.getCurrentUser()).thenReturn(user);
 
         ModelAndView mav = controller.editTopicPage(TOPIC_ID);
 
@@ -362,7 +405,6 @@ public class TopicControllerTest {
         topic.setType(TopicTypeName.CODE_REVIEW.getName());
         when(topicFetchService.get(TOPIC_ID)).thenReturn(topic);
         when(breadcrumbBuilder.getForumBreadcrumb(topic)).thenReturn(new ArrayList<Breadcrumb>());
-        when(userService.getCurrentUser()).thenReturn(user);
 
         controller.editTopicPage(TOPIC_ID);
     }
@@ -483,7 +525,6 @@ public class TopicControllerTest {
     private void prepareViewTopicMocks(Topic topic, String page) throws NotFoundException {
         PageRequest pageable = new PageRequest(page, 15);
         Page<Post> postsPage = new PageImpl<>(topic.getPosts(), pageable, 30L);
-        when(userService.getCurrentUser()).thenReturn(topic.getTopicStarter());
         when(topicFetchService.get(TOPIC_ID)).thenReturn(topic);
         when(breadcrumbBuilder.getForumBreadcrumb(topic)).thenReturn(new ArrayList<Breadcrumb>());
         when(postService.getPosts(topic, page)).thenReturn(postsPage);
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters;
+
+import org.jtalks.common.model.entity.Group;
+import org.jtalks.jcommune.model.entity.AnonymousUser;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.dto.CachedFeed;
+import org.jtalks.jcommune.service.nontransactional.FeedCacheService;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class FeedCachingFilterTest {
+    private static final String CONTENT_TYPE = "application/rss+xml";
+    private static final byte[] CONTENT = "<rss/>".getBytes();
+    private static final CachedFeed FEED = new CachedFeed(CONTENT, CONTENT_TYPE, "\"etag\"", 1000000L);
+
+    private FeedCacheService feedCacheService;
+    private UserService userService;
+    private FeedCachingFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeMethod
+    public void setUp() {
+        feedCacheService = mock(FeedCacheService.class);
+        userService = mock(UserService.class);
+        filter = new FeedCachingFilter(feedCacheService, userService);
+        request = new MockHttpServletRequest("GET", "/topics/recent.rss");
+        response = new MockHttpServletResponse();
+        when(userService.getCurrentUser()).thenReturn(new AnonymousUser());
+    }
+
+    @Test
+    public void cachedFeedShouldBeServedWithoutRendering() throws Exception {
+        when(feedCacheService.get(anyString())).thenReturn(FEED);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+        assertEquals(response.getContentAsByteArray(), CONTENT);
+        assertEquals(response.getContentType(), CONTENT_TYPE);
+        assertEquals(response.getHeader("ETag"), "\"etag\"");
+        assertEquals(response.getHeaderValue("Last-Modified"), FEED.getLastModified());
+    }
+
+    @Test
+    public void feedWithMatchingETagShouldNotBeSentAgain() throws Exception {
+        when(feedCacheService.get(anyString())).thenReturn(FEED);
+        request.addHeader("If-None-Match", "\"etag\"");
+
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(response.getContentAsByteArray().length, 0);
+    }
+
+    @Test
+    public void feedWithDifferentETagShouldBeSent() throws Exception {
+        when(feedCacheService.get(anyString())).thenReturn(FEED);
+        request.addHeader("If-None-Match", "\"old\"");
+
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        assertEquals(response.getContentAsByteArray(), CONTENT);
+    }
+
+    @Test
+    public void feedNotModifiedSinceRequestedTimeShouldNotBeSentAgain() throws Exception {
+        when(feedCacheService.get(anyString())).thenReturn(FEED);
+        request.addHeader("If-Modified-Since", FEED.getLastModified());
+
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void renderedFeedShouldBeCached() throws Exception {
+        when(feedCacheService.getGeneration()).thenReturn(3L);
+        when(feedCacheService.put(anyString(), eq(3L), eq(CONTENT), eq(CONTENT_TYPE))).thenReturn(FEED);
+
+        filter.doFilter(request, response, renderingChain());
+
+        verify(feedCacheService).put(anyString(), eq(3L), eq(CONTENT), eq(CONTENT_TYPE));
+        assertEquals(response.getContentAsByteArray(), CONTENT);
+        assertEquals(response.getHeader("ETag"), "\"etag\"");
+    }
+
+    @Test
+    public void failedFeedShouldNotBeCached() throws Exception {
+        FilterChain chain = new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                ((HttpServletResponse) response).sendRedirect("/errors/404");
+            }
+        };
+
+        filter.doFilter(request, response, chain);
+
+        verify(feedCacheService, never()).put(anyString(), anyLong(), any(byte[].class), anyString());
+        assertEquals(response.getRedirectedUrl(), "/errors/404");
+    }
+
+    @Test
+    public void feedsShouldBeCachedPerGroupsOfUser() throws Exception {
+        JCUser user = new JCUser("username", "email@mail.com", "password");
+        user.setPageSize(20);
+        user.addGroup(group(2L));
+        user.addGroup(group(1L));
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(feedCacheService.get(anyString())).thenReturn(FEED);
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        verify(feedCacheService).get(key.capture());
+        assertEquals(key.getValue(), "http://localhost/topics/recent.rss|[1, 2]|20");
+    }
+
+    @Test
+    public void feedsOfAnonymousUsersShouldShareCache() throws Exception {
+        request.setQueryString("page=2");
+        when(feedCacheService.get(anyString())).thenReturn(FEED);
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        verify(feedCacheService).get(key.capture());
+        assertTrue(key.getValue().startsWith("http://localhost/topics/recent.rss?page=2|anonymous|"));
+    }
+
+    @Test
+    public void notGetRequestsShouldNotBeCached() throws Exception {
+        request.setMethod("HEAD");
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verifyZeroInteractions(feedCacheService);
+    }
+
+    private FilterChain renderingChain() {
+        return new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                response.setContentType(CONTENT_TYPE);
+                response.getOutputStream().write(CONTENT);
+            }
+        };
+    }
+
+    private Group group(long id) {
+        Group group = new Group("group" + id);
+        group.setId(id);
+        return group;
+    }
+}
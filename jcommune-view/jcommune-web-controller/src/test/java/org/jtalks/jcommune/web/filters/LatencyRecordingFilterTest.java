@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters;
+
+import org.jtalks.jcommune.service.performance.LatencyMonitor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LatencyRecordingFilterTest {
+    private LatencyMonitor monitor;
+    private LatencyRecordingFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeMethod
+    public void setUp() {
+        monitor = mock(LatencyMonitor.class);
+        filter = new LatencyRecordingFilter(monitor);
+        request = new MockHttpServletRequest("GET", "/topics/42");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void latencyShouldBeRecordedByRoutePattern() throws Exception {
+        when(monitor.shouldSample()).thenReturn(true);
+        FilterChain chain = new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/topics/{topicId}");
+            }
+        };
+
+        filter.doFilter(request, response, chain);
+
+        verify(monitor).record(eq("HTTP GET /topics/{topicId}"), anyLong());
+    }
+
+    @Test
+    public void requestsWithoutHandlerShouldBeRecordedAsUnmapped() throws Exception {
+        when(monitor.shouldSample()).thenReturn(true);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verify(monitor).record(eq("HTTP GET " + LatencyRecordingFilter.UNMAPPED_ROUTE), anyLong());
+    }
+
+    @Test
+    public void requestsThatAreNotSampledShouldNotBeRecorded() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verify(monitor, never()).record(anyString(), anyLong());
+    }
+}
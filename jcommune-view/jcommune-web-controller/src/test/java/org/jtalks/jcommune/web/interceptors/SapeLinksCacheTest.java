@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.interceptors;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.Cookie;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class SapeLinksCacheTest {
+    private static final String PAGE = "/topics/1";
+    private File snapshotFile;
+    private StubSapeLinksCache cache;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        snapshotFile = File.createTempFile("sape-links", ".properties");
+        assertTrue(snapshotFile.delete());
+        cache = new StubSapeLinksCache(snapshotFile);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void newPageShouldGetLinksAfterRefresh() {
+        cache.sapeLinks.put(PAGE, "<a href='http://example.com'>link</a>");
+
+        assertEquals(cache.getLinks(PAGE), "");
+        assertTrue(cache.refresh());
+
+        assertEquals(cache.getLinks(PAGE), "<a href='http://example.com'>link</a>");
+    }
+
+    @Test
+    public void gettingLinksShouldNotGoToSape() {
+        cache.sapeLinks.put(PAGE, "link");
+
+        cache.getLinks(PAGE);
+
+        assertEquals(cache.fetchCount, 0);
+    }
+
+    @Test
+    public void linksShouldBeRefreshed() {
+        cache.sapeLinks.put(PAGE, "old link");
+        cache.getLinks(PAGE);
+        cache.refresh();
+        cache.sapeLinks.put(PAGE, "new link");
+
+        cache.refresh();
+
+        assertEquals(cache.getLinks(PAGE), "new link");
+    }
+
+    @Test
+    public void previousLinksShouldBeServedIfSapeIsUnreachable() {
+        cache.sapeLinks.put(PAGE, "link");
+        cache.getLinks(PAGE);
+        cache.refresh();
+        cache.unreachable = true;
+
+        assertFalse(cache.refresh());
+
+        assertEquals(cache.getLinks(PAGE), "link");
+    }
+
+    @Test
+    public void newPageShouldBeFetchedOnceSapeIsBack() {
+        cache.sapeLinks.put(PAGE, "link");
+        cache.unreachable = true;
+        cache.getLinks(PAGE);
+        cache.refresh();
+        cache.unreachable = false;
+
+        cache.refresh();
+
+        assertEquals(cache.getLinks(PAGE), "link");
+    }
+
+    @Test
+    public void linksShouldSurviveRestart() {
+        cache.sapeLinks.put(PAGE, "link");
+        cache.getLinks(PAGE);
+        cache.refresh();
+
+        StubSapeLinksCache restarted = new StubSapeLinksCache(snapshotFile);
+        restarted.unreachable = true;
+
+        assertEquals(restarted.getLinks(PAGE), "link");
+    }
+
+    @Test
+    public void pagesShouldNotBeQueuedUntilSapeIsConfigured() {
+        cache.configured = false;
+        cache.sapeLinks.put(PAGE, "link");
+        cache.getLinks(PAGE);
+        cache.configured = true;
+
+        cache.refresh();
+
+        assertEquals(cache.fetchCount, 0);
+        assertEquals(cache.getLinks(PAGE), "");
+    }
+
+    @Test
+    public void sapeRobotShouldGetLinksFromSapeWithItsCookies() {
+        cache.sapeLinks.put(PAGE, "link");
+        Cookie[] cookies = {new Cookie("JSESSIONID", "1"), new Cookie(SapeLinksCache.SAPE_COOKIE, "account")};
+
+        assertEquals(cache.getLinks(PAGE, cookies), "link <!--check code-->");
+
+        assertSame(cache.fetchedCookies, cookies);
+        cache.refresh();
+        assertEquals(cache.fetchCount, 1);
+    }
+
+    @Test
+    public void visitorCookiesShouldNotBypassCache() {
+        cache.sapeLinks.put(PAGE, "link");
+
+        assertEquals(cache.getLinks(PAGE, new Cookie[]{new Cookie("JSESSIONID", "1")}), "");
+        assertEquals(cache.getLinks(PAGE, null), "");
+
+        assertEquals(cache.fetchCount, 0);
+    }
+
+    /**
+     * Takes links from a map instead of SAPE, which can't be pointed to a local server.
+     */
+    private static class StubSapeLinksCache extends SapeLinksCache {
+        private final Map<String, String> sapeLinks = new HashMap<>();
+        private boolean configured = true;
+        private boolean unreachable;
+        private int fetchCount;
+        private Cookie[] fetchedCookies;
+
+        StubSapeLinksCache(File snapshotFile) {
+            super(snapshotFile.getPath(), 0);
+        }
+
+        @Override
+        public boolean isConfigured() {
+            return configured;
+        }
+
+        @Override
+        String fetchLinks(String uri, Cookie[] cookies) {
+            fetchCount++;
+            fetchedCookies = cookies;
+            if (unreachable) {
+                throw new IllegalStateException("Connection refused");
+            }
+            return cookies.length == 0 ? sapeLinks.get(uri) : sapeLinks.get(uri) + " <!--check code-->";
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.rememberme;
+
+import org.hamcrest.Matcher;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.web.authentication.rememberme.PersistentRememberMeToken;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenRepository;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class BatchingTokenRepositoryTest {
+    private static final String SERIES = "61ikbvB7Nd1Wk3jDXgN/TQ==";
+    private static final String TOKEN = "FGGNNSS0KoIg7zO9+VlSaw==";
+    private static final String NEW_TOKEN = "wOaIdLyqMc8ZBCCXKnMM1w==";
+
+    @Mock
+    private PersistentTokenRepository tokenRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private BatchingTokenRepository repository;
+
+    @BeforeMethod
+    public void init() {
+        initMocks(this);
+        repository = new BatchingTokenRepository(tokenRepository, jdbcTemplate);
+        when(tokenRepository.getTokenForSeries(SERIES))
+                .thenReturn(new PersistentRememberMeToken("user", SERIES, TOKEN, new Date(0)));
+    }
+
+    @Test
+    public void newValueOfTokenShouldBeWrittenImmediately() {
+        Date lastUsed = new Date();
+
+        repository.updateToken(SERIES, NEW_TOKEN, lastUsed);
+
+        verify(tokenRepository).updateToken(SERIES, NEW_TOKEN, lastUsed);
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void refreshedTokenShouldBeReturnedBeforeItIsWritten() {
+        Date lastUsed = new Date();
+
+        repository.refreshToken(SERIES, lastUsed);
+        PersistentRememberMeToken token = repository.getTokenForSeries(SERIES);
+
+        assertEquals(token.getUsername(), "user");
+        assertEquals(token.getTokenValue(), TOKEN);
+        assertEquals(token.getDate(), lastUsed);
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void pendingRefreshShouldNotBeWrittenAfterNewValueOfToken() {
+        repository.refreshToken(SERIES, new Date());
+        repository.updateToken(SERIES, NEW_TOKEN, new Date());
+
+        repository.flush();
+
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void removedTokenShouldNotBeReturnedBeforeItIsWritten() {
+        repository.removeToken(SERIES, TOKEN);
+
+        assertNull(repository.getTokenForSeries(SERIES));
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushShouldWriteOnlyLastRefreshOfSeriesInBatch() {
+        repository.refreshToken(SERIES, new Date(1));
+        repository.refreshToken(SERIES, new Date(2));
+        repository.refreshToken("another series", new Date());
+
+        repository.flush();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), (List<Object[]>) argThat(hasSize(2)));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushShouldWriteRefreshesBeforeRemovals() {
+        repository.refreshToken(SERIES, new Date());
+        repository.removeToken(SERIES, TOKEN);
+
+        repository.flush();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).batchUpdate(startsWith("UPDATE"), anyList());
+        inOrder.verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writtenChangesShouldNotBeWrittenAgain() {
+        repository.refreshToken(SERIES, new Date());
+        repository.removeToken("another series", TOKEN);
+        repository.flush();
+
+        repository.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void changesShouldBeKeptIfTheyWereNotWritten() {
+        repository.removeToken(SERIES, TOKEN);
+        doThrow(new DataAccessResourceFailureException("")).when(jdbcTemplate)
+                .batchUpdate(anyString(), anyList());
+
+        repository.flush();
+
+        assertNull(repository.getTokenForSeries(SERIES));
+        repository.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(eq("DELETE FROM persistent_logins WHERE series = ? AND token = ?"),
+                anyList());
+    }
+
+    @Test
+    public void pendingChangesShouldBeWrittenBeforeRemovalOfUserTokens() {
+        repository.refreshToken(SERIES, new Date());
+
+        repository.removeUserTokens("user");
+
+        InOrder inOrder = inOrder(jdbcTemplate, tokenRepository);
+        inOrder.verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        inOrder.verify(tokenRepository).removeUserTokens("user");
+    }
+
+    private static Matcher<List<Object[]>> hasSize(final int size) {
+        return new ArgumentMatcher<List<Object[]>>() {
+            @Override
+            public boolean matches(Object argument) {
+                return ((List<?>) argument).size() == size;
+            }
+        };
+    }
+}
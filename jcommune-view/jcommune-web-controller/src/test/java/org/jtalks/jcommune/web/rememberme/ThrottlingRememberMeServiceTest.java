@@ -16,6 +16,8 @@ package org.jtalks.jcommune.web.rememberme;
 
 import org.mockito.Mock;
 import org.mockito.Spy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.rememberme.PersistentRememberMeToken;
@@ -25,10 +27,17 @@ import org.testng.annotations.Test;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
 
 /**
  *
@@ -90,4 +99,70 @@ public class ThrottlingRememberMeServiceTest {
         verify(services, times(2)).loginWithSpringSecurity(eq(new String[]{PRESENTED_SERIES, PRESENTED_TOKEN}),
                 any(HttpServletRequest.class), any(HttpServletResponse.class));
     }
+
+    @Test
+    public void eachTokenShouldBeUsedForLoginOnceWhenTokensAreUsedConcurrently() throws Exception {
+        services.setCachedTokenValidityTime(60000);
+        doNothing().when(services).rewriteCookie(any(PersistentRememberMeToken.class),
+                any(HttpServletRequest.class), any(HttpServletResponse.class));
+        int threads = 8;
+        final int tokensPerThread = 50;
+        for (int i = 0; i < threads * tokensPerThread; i++) {
+            when(tokenRepository.getTokenForSeries("series" + i))
+                    .thenReturn(new PersistentRememberMeToken("user", "series" + i, "token" + i, new Date()));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            final int firstToken = thread * tokensPerThread;
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = firstToken; i < firstToken + tokensPerThread; i++) {
+                        // preload request and real request with the same cookie
+                        services.processAutoLoginCookie(new String[]{"series" + i, "token" + i}, null, null);
+                        services.processAutoLoginCookie(new String[]{"series" + i, "token" + i}, null, null);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        verify(services, times(threads * tokensPerThread)).loginWithSpringSecurity(any(String[].class),
+                any(HttpServletRequest.class), any(HttpServletResponse.class));
+        verify(services, times(threads * tokensPerThread)).rewriteCookie(any(PersistentRememberMeToken.class),
+                any(HttpServletRequest.class), any(HttpServletResponse.class));
+    }
+
+    @Test
+    public void expiredTokensShouldBeEvictedFromCache() throws Exception {
+        String anotherSeries = "anotherSeries";
+        when(tokenRepository.getTokenForSeries(anotherSeries))
+                .thenReturn(new PersistentRememberMeToken("user", anotherSeries, PRESENTED_TOKEN, new Date()));
+        services.setCachedTokenValidityTime(100);
+        services.processAutoLoginCookie(new String[]{PRESENTED_SERIES, PRESENTED_TOKEN}, null, null);
+        Thread.sleep(200);
+
+        services.processAutoLoginCookie(new String[]{anotherSeries, PRESENTED_TOKEN}, null, null);
+
+        assertEquals(services.getCachedTokensCount(), 1);
+    }
+
+    @Test
+    public void logoutShouldRemoveTokenOfClient() throws Exception {
+        RememberMeCookieDecoder cookieDecoder = mock(RememberMeCookieDecoder.class);
+        BatchingTokenRepository batchingTokenRepository = mock(BatchingTokenRepository.class);
+        ThrottlingRememberMeService service = new ThrottlingRememberMeService(cookieDecoder, batchingTokenRepository);
+        MockHttpServletRequest logoutRequest = new MockHttpServletRequest();
+        when(cookieDecoder.exctractRememberMeCookieValue(logoutRequest)).thenReturn("cookie");
+        when(cookieDecoder.extractSeriesAndToken("cookie")).thenReturn(new String[]{PRESENTED_SERIES, PRESENTED_TOKEN});
+
+        service.logout(logoutRequest, new MockHttpServletResponse(), null);
+
+        verify(batchingTokenRepository).removeToken(PRESENTED_SERIES, PRESENTED_TOKEN);
+    }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.util;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class RetryStatisticsListenerTest {
+    private static final String ROUTE = "HTTP POST /topics/{topicId}";
+    private RetryStatisticsListener listener;
+    private RetryTemplate retryTemplate;
+
+    @BeforeMethod
+    public void setUp() {
+        listener = new RetryStatisticsListener();
+        retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy());
+        retryTemplate.setListeners(new RetryListener[]{listener});
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/topics/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/topics/{topicId}");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void failedAttemptsShouldBeCountedByRoute() {
+        retryTemplate.execute(failingTimes(2));
+
+        assertEquals(listener.getConflicts(ROUTE), 2);
+        assertEquals(listener.getReport(), ROUTE + " conflicts=2 failures=0\n");
+    }
+
+    @Test
+    public void operationFailedAfterLastAttemptShouldBeCountedAsFailure() {
+        try {
+            retryTemplate.execute(failingTimes(SimpleRetryPolicy.DEFAULT_MAX_ATTEMPTS));
+            fail("Last failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals(listener.getReport(), ROUTE + " conflicts=3 failures=1\n");
+        }
+    }
+
+    @Test
+    public void successfulFirstAttemptShouldNotBeReported() {
+        retryTemplate.execute(failingTimes(0));
+
+        assertEquals(listener.getConflicts(ROUTE), 0);
+        assertEquals(listener.getReport(), "");
+    }
+
+    @Test
+    public void retriesOutsideOfRequestShouldBeCountedSeparately() {
+        RequestContextHolder.resetRequestAttributes();
+
+        retryTemplate.execute(failingTimes(1));
+
+        assertEquals(listener.getConflicts(RetryStatisticsListener.NO_REQUEST_ROUTE), 1);
+        assertEquals(listener.getConflicts(ROUTE), 0);
+    }
+
+    private RetryCallback<Object, IllegalStateException> failingTimes(final int failures) {
+        return new RetryCallback<Object, IllegalStateException>() {
+            @Override
+            public Object doWithRetry(RetryContext context) {
+                if (context.getRetryCount() < failures) {
+                    throw new IllegalStateException("Conflict");
+                }
+                return null;
+            }
+        };
+    }
+}
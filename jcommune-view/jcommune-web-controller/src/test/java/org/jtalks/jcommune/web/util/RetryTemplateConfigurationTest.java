@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.util;
+
+import org.hibernate.StaleObjectStateException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.orm.hibernate3.HibernateOptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.support.RetryTemplate;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the retry template declared for controllers. Only the retry beans are created, other beans of the context
+ * are left as definitions.
+ */
+public class RetryTemplateConfigurationTest {
+    private static final String CONTEXT = "org/jtalks/jcommune/web/applicationContext-controller.xml";
+    private RetryTemplate retryTemplate;
+    private List<Long> pauses;
+
+    @BeforeMethod
+    public void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        new XmlBeanDefinitionReader(beanFactory).loadBeanDefinitions(new ClassPathResource(CONTEXT));
+        pauses = new ArrayList<>();
+        beanFactory.getBean("retryBackOffPolicy", ExponentialRandomBackOffPolicy.class).setSleeper(new Sleeper() {
+            @Override
+            public void sleep(long backOffPeriod) {
+                pauses.add(backOffPeriod);
+            }
+        });
+        retryTemplate = beanFactory.getBean("retryTemplate", RetryTemplate.class);
+    }
+
+    @Test
+    public void optimisticLockingConflictsShouldBeRetriedAfterShortRandomPauses() {
+        retryTemplate.execute(conflictingTimes(2));
+
+        assertEquals(pauses.size(), 2);
+        for (long pause : pauses) {
+            assertTrue(pause >= 20 && pause <= 500, "Unexpected pause " + pause);
+        }
+    }
+
+    @Test
+    public void successfulFirstAttemptShouldNotPause() {
+        retryTemplate.execute(conflictingTimes(0));
+
+        assertTrue(pauses.isEmpty());
+    }
+
+    private RetryCallback<Object, RuntimeException> conflictingTimes(final int conflicts) {
+        return new RetryCallback<Object, RuntimeException>() {
+            @Override
+            public Object doWithRetry(RetryContext context) {
+                if (context.getRetryCount() < conflicts) {
+                    throw new HibernateOptimisticLockingFailureException(
+                            new StaleObjectStateException("Post", 1L));
+                }
+                return null;
+            }
+        };
+    }
+}
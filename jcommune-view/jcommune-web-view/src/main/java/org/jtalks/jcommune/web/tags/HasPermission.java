@@ -19,9 +19,7 @@ import javax.servlet.jsp.PageContext;
 import javax.servlet.jsp.tagext.Tag;
 import javax.servlet.jsp.tagext.TagSupport;
 
-import org.jtalks.common.service.security.SecurityContextFacade;
-import org.springframework.security.access.PermissionEvaluator;
-import org.springframework.security.core.Authentication;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
@@ -35,14 +33,15 @@ import org.springframework.web.context.support.WebApplicationContextUtils;
  *      <br>&nbsp;&nbsp;&nbsp;&nbsp;Some jsp code<br>
  *  &lt;/jtalks:haspermission&gt;
  *  </code>
+ * Results of the checks are kept for the rest of the request, so the same check
+ * repeated for every post of a page is evaluated once.
  * 
  * @author Vyacheslav Mishcheryakov
  */
 @SuppressWarnings("serial")
 public class HasPermission extends TagSupport {
 
-    private transient PermissionEvaluator aclEvaluator;
-    private transient SecurityContextFacade securityContextFacade;
+    private transient PluginPermissionResolver permissionResolver;
     
     /** Identifier of object to check permission */
     private Long targetId;
@@ -86,13 +85,7 @@ public class HasPermission extends TagSupport {
             throw new JspException("Some parameter is missed or empty");
         }
 
-        Authentication authentication = securityContextFacade.getContext().getAuthentication();
-        //Authentication can be null when request not goes through spring security filters
-        if (authentication == null) {
-            return Tag.SKIP_BODY;
-        }
-        
-        if (aclEvaluator.hasPermission(authentication, targetId, targetType, permission)) {
+        if (permissionResolver.hasPermission(targetId, targetType, permission)) {
             return Tag.EVAL_BODY_INCLUDE;
         }
 
@@ -123,8 +116,7 @@ public class HasPermission extends TagSupport {
         super.setPageContext(pageContext);
         WebApplicationContext ctx = WebApplicationContextUtils
                 .getRequiredWebApplicationContext(pageContext.getServletContext());
-        aclEvaluator = ctx.getBean(PermissionEvaluator.class);
-        securityContextFacade = ctx.getBean(SecurityContextFacade.class);
+        permissionResolver = ctx.getBean(PluginPermissionResolver.class);
     }
     
 }
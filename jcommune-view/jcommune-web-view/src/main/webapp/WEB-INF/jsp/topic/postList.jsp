@@ -95,7 +95,7 @@
 <c:if test="${topic.poll != null}">
   <div class="row well poll">
     <div class="span4  poll-row">
-      <jtalks:poll poll="${topic.poll}"/>
+      <jtalks:poll poll="${topic.poll}" voted="${pollVoted}"/>
     </div>
   </div>
 </c:if>
@@ -28,7 +28,7 @@
 <head>
 <meta charset="UTF-8">
 <meta name="viewport" content="width=800, maximum-scale=0.8">
-<meta property="og:image" content="${pageContext.request.contextPath}/admin/logo"/>
+<meta property="og:image" content="${pageContext.request.contextPath}/admin/logo?v=${infoChangeDate}"/>
 <%-- Twitter card --%>
 <meta name="twitter:card" content="summary"/>
 <meta name="twitter:description" content="<decorator:title/>"/>
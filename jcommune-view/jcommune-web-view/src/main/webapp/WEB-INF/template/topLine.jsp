@@ -56,11 +56,11 @@
      data-toggle="tooltip" data-placement="right">
     <c:choose>
       <c:when test="${sessionScope.adminMode == true}">
-        <img id="forumLogo" class="forum-logo cursor-pointer" src='<c:url value="/admin/logo"/>'
+        <img id="forumLogo" class="forum-logo cursor-pointer" src='<c:url value="/admin/logo?v=${infoChangeDate}"/>'
              alt="${fn:escapeXml(toolTipKey)}"/>
       </c:when>
       <c:otherwise>
-        <img class="forum-logo cursor-pointer" src='<c:url value="/admin/logo"/>' alt="${fn:escapeXml(toolTipKey)}"/>
+        <img class="forum-logo cursor-pointer" src='<c:url value="/admin/logo?v=${infoChangeDate}"/>' alt="${fn:escapeXml(toolTipKey)}"/>
       </c:otherwise>
     </c:choose>
   </a>
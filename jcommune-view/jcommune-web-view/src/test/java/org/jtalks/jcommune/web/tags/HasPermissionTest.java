@@ -18,13 +18,11 @@ import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.junit.Assert.assertEquals;
 
-import java.io.Serializable;
-
 import javax.servlet.ServletContext;
 import javax.servlet.jsp.JspException;
 import javax.servlet.jsp.tagext.Tag;
 
-import org.jtalks.common.service.security.SecurityContextFacade;
+import org.jtalks.jcommune.plugin.api.service.PluginPermissionResolver;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Matchers;
@@ -32,9 +30,6 @@ import org.mockito.Mock;
 import org.springframework.beans.BeanUtils;
 import org.springframework.mock.web.MockPageContext;
 import org.springframework.mock.web.MockServletContext;
-import org.springframework.security.access.PermissionEvaluator;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.GenericWebApplicationContext;
 
@@ -53,28 +48,15 @@ public class HasPermissionTest {
     private MockPageContext pageContext;
     
     @Mock
-    private PermissionEvaluator aclEvaluator;
-    
-    @Mock
-    private SecurityContextFacade securityContextFacade;
-    
-    @Mock
-    private SecurityContext securityContext;
-    
-    @Mock
-    private Authentication authentication;
+    private PluginPermissionResolver permissionResolver;
     
     @Before
     public void setUp() {
         initMocks(this);
-        when(securityContextFacade.getContext()).thenReturn(securityContext);
-        
         ServletContext servletContext = new MockServletContext();
         GenericWebApplicationContext wac = (GenericWebApplicationContext) BeanUtils
                 .instantiateClass(GenericWebApplicationContext.class);
-        wac.getBeanFactory().registerSingleton("aclEvaluator", aclEvaluator);
-        wac.getBeanFactory().registerSingleton("securityContextFacade", 
-                securityContextFacade);
+        wac.getBeanFactory().registerSingleton("permissionResolver", permissionResolver);
         servletContext.setAttribute(
                 WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, wac);
         pageContext = new MockPageContext(servletContext);
@@ -124,9 +106,8 @@ public class HasPermissionTest {
     
     @Test
     public void testHasNoPermission() throws JspException {
-        when(aclEvaluator.hasPermission(
-                Matchers.any(Authentication.class), 
-                Matchers.any(Serializable.class), 
+        when(permissionResolver.hasPermission(
+                Matchers.anyLong(),
                 Matchers.anyString(), 
                 Matchers.anyString()))
                 .thenReturn(false);
@@ -139,10 +120,8 @@ public class HasPermissionTest {
     
     @Test
     public void testHasPermission() throws JspException {
-        when(securityContextFacade.getContext().getAuthentication()).thenReturn(authentication);
-        when(aclEvaluator.hasPermission(
-                Matchers.any(Authentication.class), 
-                Matchers.any(Serializable.class), 
+        when(permissionResolver.hasPermission(
+                Matchers.anyLong(),
                 Matchers.anyString(), 
                 Matchers.anyString()))
                 .thenReturn(true);
@@ -154,19 +133,14 @@ public class HasPermissionTest {
     }
     
     @Test
-    public void testHasPermissionWithNullAuthentication() throws JspException {
-        when(securityContextFacade.getContext().getAuthentication()).thenReturn(null);
-        when(aclEvaluator.hasPermission(
-                Matchers.any(Authentication.class), 
-                Matchers.any(Serializable.class), 
-                Matchers.anyString(), 
-                Matchers.anyString()))
-                .thenReturn(true);
-        tag.setTargetId(1L);
-        tag.setTargetType("BRANCH");
-        tag.setPermission("PERMISSION");
+    public void testPermissionIsCheckedByResolver() throws JspException {
+        tag.setTargetId(TARGET_ID);
+        tag.setTargetType(TARGET_TYPE);
+        tag.setPermission(PERMISSION);
         
-        assertEquals(tag.doStartTag(), Tag.SKIP_BODY);
+        tag.doStartTag();
+        
+        verify(permissionResolver).hasPermission(TARGET_ID, TARGET_TYPE, PERMISSION);
     }
     
 }